@@ -1,18 +1,40 @@
 package app.independo.capacitorvoicerecorder;
 
 import android.Manifest;
-import app.independo.capacitorvoicerecorder.adapters.PermissionChecker;
 import app.independo.capacitorvoicerecorder.adapters.RecordDataMapper;
-import app.independo.capacitorvoicerecorder.adapters.RecorderPlatform;
+import app.independo.capacitorvoicerecorder.core.AutoStopReason;
+import app.independo.capacitorvoicerecorder.core.DurabilityOptions;
 import app.independo.capacitorvoicerecorder.core.ErrorCodes;
 import app.independo.capacitorvoicerecorder.core.Messages;
 import app.independo.capacitorvoicerecorder.core.RecordData;
 import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import app.independo.capacitorvoicerecorder.core.RecordingEntry;
+import app.independo.capacitorvoicerecorder.core.RecordingInfo;
+import app.independo.capacitorvoicerecorder.core.RecordingLimits;
+import app.independo.capacitorvoicerecorder.core.RecordingPage;
+import app.independo.capacitorvoicerecorder.core.RecordingPayload;
 import app.independo.capacitorvoicerecorder.core.ResponseFormat;
 import app.independo.capacitorvoicerecorder.core.ResponseGenerator;
+import app.independo.capacitorvoicerecorder.core.SegmentationOptions;
+import app.independo.capacitorvoicerecorder.core.StorageUsage;
+import app.independo.capacitorvoicerecorder.core.Tracing;
+import app.independo.capacitorvoicerecorder.core.TranscodeProfile;
+import app.independo.capacitorvoicerecorder.core.TranscodeQueueProgress;
+import app.independo.capacitorvoicerecorder.core.TranscodeQueueStatus;
+import app.independo.capacitorvoicerecorder.core.VoiceActivityOptions;
+import app.independo.capacitorvoicerecorder.core.WaveformPeaks;
 import app.independo.capacitorvoicerecorder.platform.DefaultRecorderPlatform;
+import app.independo.capacitorvoicerecorder.platform.HandlerThreadCommandQueue;
+import app.independo.capacitorvoicerecorder.platform.SystemTracer;
+import app.independo.capacitorvoicerecorder.service.ManagedRecordingCache;
+import app.independo.capacitorvoicerecorder.service.NativeVoiceRecorder;
+import app.independo.capacitorvoicerecorder.service.RecordingCatalog;
+import app.independo.capacitorvoicerecorder.service.RecordingEventListener;
+import app.independo.capacitorvoicerecorder.service.TranscodeQueue;
 import app.independo.capacitorvoicerecorder.service.VoiceRecorderService;
 import app.independo.capacitorvoicerecorder.service.VoiceRecorderServiceException;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
 import com.getcapacitor.PermissionState;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
@@ -20,6 +42,15 @@ import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 import com.getcapacitor.annotation.Permission;
 import com.getcapacitor.annotation.PermissionCallback;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 @CapacitorPlugin(
     name = "VoiceRecorder",
@@ -30,18 +61,100 @@ public class VoiceRecorder extends Plugin {
 
     /** Permission alias used by the Capacitor permission API. */
     static final String RECORD_AUDIO_ALIAS = "voice recording";
+    /** Event emitted when voice activity detection reports the start of speech. */
+    static final String VOICE_ACTIVITY_START_EVENT = "voiceActivityStart";
+    /** Event emitted when voice activity detection reports the end of speech. */
+    static final String VOICE_ACTIVITY_END_EVENT = "voiceActivityEnd";
+    /** Event emitted when a session was stopped natively, carrying the recording payload. */
+    static final String AUTO_STOPPED_EVENT = "voiceRecordingAutoStopped";
+    /** Event emitted when a session was finalized natively at a recording limit, carrying the recording payload. */
+    static final String LIMIT_REACHED_EVENT = "voiceRecordingLimitReached";
+    /** Event emitted when the microphone becomes free or is taken by another client. */
+    static final String MICROPHONE_AVAILABILITY_CHANGED_EVENT = "microphoneAvailabilityChanged";
+    /** Event emitted while a recording is transcoded, carrying the source URI and progress in [0, 1]. */
+    static final String TRANSCODE_PROGRESS_EVENT = "transcodeProgress";
+    /** Event emitted when a batch transcode job finishes, carrying its outcome and the aggregate throughput. */
+    static final String TRANSCODE_QUEUE_PROGRESS_EVENT = "transcodeQueueProgress";
+    /** Name of the thread that runs recorder commands. */
+    private static final String COMMAND_THREAD_NAME = "VoiceRecorderCommands";
+    /** Name of the thread that runs transcoding jobs. */
+    private static final String TRANSCODE_THREAD_NAME = "VoiceRecorderTranscode";
+    /** Checkpoint file of the batch transcode queue, relative to the app files directory. */
+    private static final String TRANSCODE_JOURNAL_PATH = "voice-recorder/transcode-queue.journal";
+    /** Catalog of recordings returned by reference, relative to the app files directory. */
+    private static final String RECORDING_CATALOG_PATH = "voice-recorder/recordings.catalog";
+    /** Default lifetime of recordings returned by reference without a directory. */
+    private static final int DEFAULT_MANAGED_RECORDING_TTL_MS = (int) ManagedRecordingCache.DEFAULT_TTL_MS;
     /** Service layer that owns recording flows and validation. */
     private VoiceRecorderService service;
     /** Response format derived from plugin configuration. */
     private ResponseFormat responseFormat;
+    /** How recordings without a directory are returned, derived from plugin configuration. */
+    private RecordingPayload recordingPayload;
+    /** Persistent batch transcoding, resumed when the plugin loads. */
+    private TranscodeQueue transcodeQueue;
+    /** Background thread for transcoding, kept apart from recorder commands so a long job never delays them. */
+    private final ExecutorService transcodeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, TRANSCODE_THREAD_NAME);
+        thread.setDaemon(true);
+        return thread;
+    });
 
     @Override
     public void load() {
         super.load();
+        if (getConfig().getBoolean("tracing", false)) {
+            Tracing.setTracer(new SystemTracer());
+        }
+        Tracing.beginSection("VoiceRecorder.load");
+        try {
+            loadService();
+        } finally {
+            Tracing.endSection();
+        }
+    }
+
+    /** Builds the service, platform and transcode queue from the plugin configuration. */
+    private void loadService() {
         responseFormat = ResponseFormat.fromConfig(getConfig());
-        RecorderPlatform platform = new DefaultRecorderPlatform(getContext());
-        PermissionChecker permissionChecker = this::doesUserGaveAudioRecordingPermission;
-        service = new VoiceRecorderService(platform, permissionChecker);
+        recordingPayload = RecordingPayload.fromConfig(getConfig());
+        RecordingCatalog recordingCatalog = new RecordingCatalog(new File(getContext().getFilesDir(), RECORDING_CATALOG_PATH));
+        JSONObject storageBudgets = getConfig().getObject("storageBudgets");
+        if (storageBudgets != null) {
+            for (Iterator<String> directories = storageBudgets.keys(); directories.hasNext();) {
+                String directory = directories.next();
+                recordingCatalog.setBudget(directory, storageBudgets.optLong(directory, 0));
+            }
+        }
+        service = NativeVoiceRecorder
+            .builder(new DefaultRecorderPlatform(getContext()), this::doesUserGaveAudioRecordingPermission)
+            .commandQueue(new HandlerThreadCommandQueue(COMMAND_THREAD_NAME))
+            .managedRecordingTtlMs(getConfig().getInt("managedRecordingTtlMs", DEFAULT_MANAGED_RECORDING_TTL_MS))
+            .recordingCatalog(recordingCatalog)
+            .build()
+            .getService();
+        // Replaying and reconciling the catalog stats every entry, so it runs before the first stop needs it.
+        // Recordings left by sessions that died are recovered into it afterwards.
+        transcodeExecutor.execute(() -> {
+            try {
+                recordingCatalog.load();
+            } catch (IOException ignore) {}
+            service.recoverRecordings();
+        });
+        if (recordingPayload == RecordingPayload.REFERENCE) {
+            sweepManagedRecordings();
+        }
+        service.setOnMicrophoneAvailabilityChanged(available -> {
+            JSObject event = new JSObject();
+            event.put("available", available);
+            notifyListeners(MICROPHONE_AVAILABILITY_CHANGED_EVENT, event);
+        });
+        transcodeQueue = new TranscodeQueue(
+            service,
+            new File(getContext().getFilesDir(), TRANSCODE_JOURNAL_PATH),
+            this::notifyTranscodeQueueProgress
+        );
+        transcodeQueue.resume();
     }
 
     /** Checks whether the device can record audio. */
@@ -75,73 +188,414 @@ public class VoiceRecorder extends Plugin {
     /** Starts a recording session. */
     @PluginMethod
     public void startRecording(PluginCall call) {
+        VoiceActivityOptions voiceActivity = new VoiceActivityOptions(
+            call.getInt("autoStopAfterSilenceMs"),
+            call.getInt("maxLeadingSilenceMs")
+        );
+        String directory = call.getString("directory");
+        if (directory == null && recordingPayload == RecordingPayload.REFERENCE) {
+            directory = RecordOptions.MANAGED_DIRECTORY;
+        }
+        RecordOptions options = new RecordOptions(
+            directory,
+            call.getString("subDirectory"),
+            voiceActivity,
+            readSegmentationOptions(call),
+            call.getBoolean("trimSilence", false),
+            RecordingLimits.of(call.getInt("maxDurationMs"), call.getLong("maxFileSizeBytes")),
+            readEncryptionKeyAlias(call),
+            toTranscodeProfile(call.getObject("proxy")),
+            call.getBoolean("digest", false),
+            Math.min(call.getInt("waveformPoints", 0), WaveformPeaks.MAX_POINTS),
+            DurabilityOptions.of(call.getString("durability"), call.getInt("durabilityIntervalMs"))
+        );
+        dispatch(call, () -> {
+            try {
+                service.startRecording(
+                    options,
+                    () -> notifyListeners("voiceRecordingInterrupted", null),
+                    () -> notifyListeners("voiceRecordingInterruptionEnded", null),
+                    new PluginEventListener()
+                );
+                call.resolve(ResponseGenerator.successResponse());
+            } catch (VoiceRecorderServiceException exp) {
+                call.reject(toLegacyMessage(exp.getCode()), exp.getCode(), exp);
+            }
+        });
+    }
+
+    /** Opens the microphone early and retains recent audio to prepend to the next recording. */
+    @PluginMethod
+    public void armRecording(PluginCall call) {
+        Integer preRollMs = call.getInt("preRollMs");
+        if (preRollMs == null || preRollMs <= 0) {
+            call.reject("preRollMs must be a positive number");
+            return;
+        }
+        dispatch(call, () -> {
+            try {
+                service.armPreRoll(preRollMs);
+                call.resolve(ResponseGenerator.successResponse());
+            } catch (VoiceRecorderServiceException exp) {
+                call.reject(toLegacyMessage(exp.getCode()), exp.getCode(), exp);
+            }
+        });
+    }
+
+    /** Releases the microphone held by {@link #armRecording(PluginCall)}. */
+    @PluginMethod
+    public void disarmRecording(PluginCall call) {
+        dispatch(call, () -> {
+            service.disarmPreRoll();
+            call.resolve(ResponseGenerator.successResponse());
+        });
+    }
+
+    /** Stops recording and returns the recording payload. */
+    @PluginMethod
+    public void stopRecording(PluginCall call) {
+        dispatch(call, () -> {
+            try {
+                RecordData recordData = service.stopRecording();
+                call.resolve(toRecordingResponse(recordData));
+                if (recordingPayload == RecordingPayload.REFERENCE) {
+                    sweepManagedRecordings();
+                }
+            } catch (VoiceRecorderServiceException exp) {
+                call.reject(toLegacyMessage(exp.getCode()), exp.getCode(), exp);
+            }
+        });
+    }
+
+    /** Pauses an active recording session if supported. */
+    @PluginMethod
+    public void pauseRecording(PluginCall call) {
+        dispatch(call, () -> {
+            try {
+                call.resolve(ResponseGenerator.fromBoolean(service.pauseRecording()));
+            } catch (VoiceRecorderServiceException exception) {
+                call.reject(toLegacyMessage(exception.getCode()), exception.getCode(), exception);
+            }
+        });
+    }
+
+    /** Resumes a paused recording session if supported. */
+    @PluginMethod
+    public void resumeRecording(PluginCall call) {
+        dispatch(call, () -> {
+            try {
+                call.resolve(ResponseGenerator.fromBoolean(service.resumeRecording()));
+            } catch (VoiceRecorderServiceException exception) {
+                call.reject(toLegacyMessage(exception.getCode()), exception.getCode(), exception);
+            }
+        });
+    }
+
+    /** Re-encodes a recording returned by reference into the requested profile. */
+    @PluginMethod
+    public void transcodeRecording(PluginCall call) {
+        String uri = call.getString("uri");
+        TranscodeProfile profile = readTranscodeProfile(call);
+        transcodeExecutor.execute(() -> {
+            try {
+                RecordData recordData = service.transcodeRecording(uri, profile, progress -> {
+                    JSObject event = new JSObject();
+                    event.put("uri", uri);
+                    event.put("progress", progress);
+                    notifyListeners(TRANSCODE_PROGRESS_EVENT, event);
+                });
+                call.resolve(toRecordingResponse(recordData));
+            } catch (VoiceRecorderServiceException exp) {
+                call.reject(toLegacyMessage(exp.getCode()), exp.getCode(), exp);
+            }
+        });
+    }
+
+    /** Deletes a recording kept in the plugin-managed directory. */
+    @PluginMethod
+    public void releaseRecording(PluginCall call) {
+        call.resolve(ResponseGenerator.fromBoolean(service.releaseRecording(call.getString("uri"))));
+    }
+
+    /** Pins or unpins a catalogued recording so it is never evicted to keep its directory within budget. */
+    @PluginMethod
+    public void pinRecording(PluginCall call) {
         try {
-            String directory = call.getString("directory");
-            String subDirectory = call.getString("subDirectory");
-            RecordOptions options = new RecordOptions(directory, subDirectory);
-            service.startRecording(
-                options,
-                () -> notifyListeners("voiceRecordingInterrupted", null),
-                () -> notifyListeners("voiceRecordingInterruptionEnded", null)
-            );
+            service.pinRecording(call.getString("uri"), call.getBoolean("pinned", true));
             call.resolve(ResponseGenerator.successResponse());
         } catch (VoiceRecorderServiceException exp) {
             call.reject(toLegacyMessage(exp.getCode()), exp.getCode(), exp);
         }
     }
 
-    /** Stops recording and returns the recording payload. */
+    /** Returns the storage used by catalogued recordings per directory option, with the configured budgets. */
     @PluginMethod
-    public void stopRecording(PluginCall call) {
+    public void getStorageUsage(PluginCall call) {
         try {
-            RecordData recordData = service.stopRecording();
-            if (responseFormat == ResponseFormat.NORMALIZED) {
-                call.resolve(ResponseGenerator.dataResponse(RecordDataMapper.toNormalizedJSObject(recordData)));
-            } else {
-                call.resolve(ResponseGenerator.dataResponse(RecordDataMapper.toLegacyJSObject(recordData)));
+            JSArray directories = new JSArray();
+            for (StorageUsage usage : service.getStorageUsage()) {
+                JSObject directory = new JSObject();
+                directory.put("directory", usage.directory());
+                directory.put("usedBytes", usage.usedBytes());
+                directory.put("pinnedBytes", usage.pinnedBytes());
+                directory.put("recordings", usage.recordings());
+                if (usage.budgetBytes() > 0) {
+                    directory.put("budgetBytes", usage.budgetBytes());
+                }
+                directories.put(directory);
             }
+            JSObject value = new JSObject();
+            value.put("directories", directories);
+            call.resolve(ResponseGenerator.dataResponse(value));
         } catch (VoiceRecorderServiceException exp) {
             call.reject(toLegacyMessage(exp.getCode()), exp.getCode(), exp);
         }
     }
 
-    /** Pauses an active recording session if supported. */
+    /** Returns a page of the recordings catalogued when they were returned by reference, newest first. */
     @PluginMethod
-    public void pauseRecording(PluginCall call) {
+    public void listRecordings(PluginCall call) {
+        int offset = call.getInt("offset", 0);
+        int limit = call.getInt("limit", RecordingCatalog.DEFAULT_PAGE_SIZE);
+        String directory = call.getString("directory");
         try {
-            call.resolve(ResponseGenerator.fromBoolean(service.pauseRecording()));
-        } catch (VoiceRecorderServiceException exception) {
-            call.reject(toLegacyMessage(exception.getCode()), exception.getCode(), exception);
+            RecordingPage page = service.listRecordings(offset, limit, directory);
+            JSArray recordings = new JSArray();
+            for (RecordingEntry entry : page.recordings()) {
+                JSObject recording = new JSObject();
+                recording.put("uri", entry.uri());
+                recording.put("directory", entry.directory());
+                recording.put("sizeBytes", entry.sizeBytes());
+                recording.put("durationMs", entry.durationMs());
+                recording.put("mimeType", entry.mimeType());
+                recording.put("fileExtension", entry.fileExtension());
+                recording.put("createdAt", entry.createdAtMs());
+                if (entry.sha256() != null) {
+                    recording.put("sha256", entry.sha256());
+                }
+                if (entry.waveformUri() != null) {
+                    recording.put("waveformUri", entry.waveformUri());
+                }
+                recording.put("pinned", entry.pinned());
+                recordings.put(recording);
+            }
+            JSObject value = new JSObject();
+            value.put("recordings", recordings);
+            value.put("total", page.total());
+            call.resolve(ResponseGenerator.dataResponse(value));
+        } catch (VoiceRecorderServiceException exp) {
+            call.reject(toLegacyMessage(exp.getCode()), exp.getCode(), exp);
         }
     }
 
-    /** Resumes a paused recording session if supported. */
+    /** Returns duration, size and format of a recording returned by reference. */
     @PluginMethod
-    public void resumeRecording(PluginCall call) {
+    public void getRecordingInfo(PluginCall call) {
+        try {
+            RecordingInfo info = service.getRecordingInfo(call.getString("uri"));
+            JSObject value = new JSObject();
+            value.put("durationMs", info.durationMs());
+            value.put("sizeBytes", info.sizeBytes());
+            value.put("sampleRate", info.sampleRate());
+            value.put("channels", info.channels());
+            value.put("bitRate", info.bitRate());
+            call.resolve(ResponseGenerator.dataResponse(value));
+        } catch (VoiceRecorderServiceException exp) {
+            call.reject(toLegacyMessage(exp.getCode()), exp.getCode(), exp);
+        }
+    }
+
+    /** Cuts a recording returned by reference to a range without re-encoding. */
+    @PluginMethod
+    public void trimRecording(PluginCall call) {
+        Long startMs = call.getLong("startMs");
+        Long endMs = call.getLong("endMs");
+        try {
+            String uri = call.getString("uri");
+            long start = startMs != null ? startMs : 0;
+            RecordData recordData = endMs != null
+                ? service.trimRecording(uri, start, endMs)
+                : service.trimRecording(uri, start);
+            call.resolve(toRecordingResponse(recordData));
+        } catch (VoiceRecorderServiceException exp) {
+            call.reject(toLegacyMessage(exp.getCode()), exp.getCode(), exp);
+        }
+    }
+
+    /** Joins recordings returned by reference without re-encoding. */
+    @PluginMethod
+    public void concatRecordings(PluginCall call) {
+        try {
+            call.resolve(toRecordingResponse(service.concatRecordings(readUris(call))));
+        } catch (VoiceRecorderServiceException exp) {
+            call.reject(toLegacyMessage(exp.getCode()), exp.getCode(), exp);
+        }
+    }
+
+    /** Queues recordings for transcoding in the background; the queue survives process death. */
+    @PluginMethod
+    public void queueTranscodes(PluginCall call) {
+        List<String> uris = readUris(call);
+        if (uris == null || uris.isEmpty()) {
+            call.reject(ErrorCodes.RECORDING_NOT_FOUND, ErrorCodes.RECORDING_NOT_FOUND);
+            return;
+        }
         try {
-            call.resolve(ResponseGenerator.fromBoolean(service.resumeRecording()));
-        } catch (VoiceRecorderServiceException exception) {
-            call.reject(toLegacyMessage(exception.getCode()), exception.getCode(), exception);
+            call.resolve(toTranscodeQueueResponse(transcodeQueue.enqueue(uris, readTranscodeProfile(call))));
+        } catch (VoiceRecorderServiceException exp) {
+            call.reject(toLegacyMessage(exp.getCode()), exp.getCode(), exp);
         }
     }
 
-    /** Returns the current recording status. */
+    /** Returns the job counts of the batch transcode queue. */
+    @PluginMethod
+    public void getTranscodeQueueStatus(PluginCall call) {
+        call.resolve(toTranscodeQueueResponse(transcodeQueue.getStatus()));
+    }
+
+    /** Drops all queued batch transcode jobs. */
+    @PluginMethod
+    public void clearTranscodeQueue(PluginCall call) {
+        transcodeQueue.clear();
+        call.resolve(ResponseGenerator.successResponse());
+    }
+
+    /** Returns the current recording status without waiting for pending commands. */
     @PluginMethod
     public void getCurrentStatus(PluginCall call) {
         call.resolve(ResponseGenerator.statusResponse(service.getCurrentStatus()));
     }
 
-    /** Returns the current input amplitude. */
+    /** Returns the current input amplitude without waiting for pending commands. */
     @PluginMethod
     public void getCurrentAmplitude(PluginCall call) {
         call.resolve(ResponseGenerator.dataResponse(service.getCurrentAmplitude()));
     }
 
+    /** Releases a microphone held for pre-roll and stops the background threads when the plugin is torn down. */
+    @Override
+    protected void handleOnDestroy() {
+        if (service != null) {
+            service.shutdown();
+        }
+        transcodeExecutor.shutdown();
+        if (transcodeQueue != null) {
+            transcodeQueue.shutdown();
+        }
+        super.handleOnDestroy();
+    }
+
+    /** Deletes expired managed recordings in the background; skipped once the plugin has been destroyed. */
+    private void sweepManagedRecordings() {
+        try {
+            transcodeExecutor.execute(service::sweepManagedRecordings);
+        } catch (RejectedExecutionException ignore) {
+            // The next load sweeps instead.
+        }
+    }
+
+    /** Runs the task on the service queue, rejecting the call when the plugin has been destroyed. */
+    private void dispatch(PluginCall call, Runnable task) {
+        if (!service.dispatch(task)) {
+            call.reject("Voice recorder has been shut down");
+        }
+    }
+
     /** Checks whether the app has the RECORD_AUDIO permission. */
     private boolean doesUserGaveAudioRecordingPermission() {
         return getPermissionState(VoiceRecorder.RECORD_AUDIO_ALIAS).equals(PermissionState.GRANTED);
     }
 
+    /** Reads the optional speech segmentation settings from the call. */
+    private SegmentationOptions readSegmentationOptions(PluginCall call) {
+        JSObject segmentation = call.getObject("segmentation");
+        if (segmentation == null) {
+            return null;
+        }
+        return SegmentationOptions.of(
+            segmentation.getInteger("minUtteranceMs"),
+            segmentation.getInteger("maxUtteranceMs"),
+            segmentation.getBoolean("splitOutput", false)
+        );
+    }
+
+    /** Reads the Keystore alias for encryption at rest, treating a blank alias as no encryption. */
+    private String readEncryptionKeyAlias(PluginCall call) {
+        String alias = call.getString("encryptionKeyAlias");
+        return alias == null || alias.trim().isEmpty() ? null : alias;
+    }
+
+    /** Reads the optional transcoding profile from the call, defaulting to 16 kHz mono Opus. */
+    private TranscodeProfile readTranscodeProfile(PluginCall call) {
+        JSObject profile = call.getObject("profile");
+        if (profile == null) {
+            return TranscodeProfile.of(null, null, null);
+        }
+        return toTranscodeProfile(profile);
+    }
+
+    /** Converts a profile object, filling in the 16 kHz Opus defaults, or returns null when it is absent. */
+    private TranscodeProfile toTranscodeProfile(JSObject profile) {
+        if (profile == null) {
+            return null;
+        }
+        return TranscodeProfile.of(
+            profile.getString("format"),
+            profile.getInteger("sampleRate"),
+            profile.getInteger("bitRate")
+        );
+    }
+
+    /** Reads the "uris" string array from the call, or null when it is missing or malformed. */
+    private List<String> readUris(PluginCall call) {
+        JSArray uris = call.getArray("uris");
+        try {
+            return uris != null ? uris.toList() : null;
+        } catch (JSONException exception) {
+            return null;
+        }
+    }
+
+    /** Wraps queue counts in the response shape. */
+    private JSObject toTranscodeQueueResponse(TranscodeQueueStatus status) {
+        JSObject counts = new JSObject();
+        counts.put("pending", status.pending());
+        counts.put("completed", status.completed());
+        counts.put("failed", status.failed());
+        return ResponseGenerator.dataResponse(counts);
+    }
+
+    /** Forwards the outcome of a batch transcode job to JS listeners. */
+    private void notifyTranscodeQueueProgress(TranscodeQueueProgress progress) {
+        JSObject event = new JSObject();
+        event.put("uri", progress.uri());
+        if (progress.outputUri() != null) {
+            event.put("outputUri", progress.outputUri());
+        }
+        if (progress.error() != null) {
+            event.put("error", progress.error());
+        }
+        event.put("pending", progress.status().pending());
+        event.put("completed", progress.status().completed());
+        event.put("failed", progress.status().failed());
+        event.put("filesPerSecond", progress.filesPerSecond());
+        event.put("megabytesPerSecond", progress.megabytesPerSecond());
+        notifyListeners(TRANSCODE_QUEUE_PROGRESS_EVENT, event);
+    }
+
+    /** Wraps record data in the configured response shape. */
+    private JSObject toRecordingResponse(RecordData recordData) {
+        Tracing.beginSection("VoiceRecorder.mapResult");
+        try {
+            if (responseFormat == ResponseFormat.NORMALIZED) {
+                return ResponseGenerator.dataResponse(RecordDataMapper.toNormalizedJSObject(recordData));
+            }
+            return ResponseGenerator.dataResponse(RecordDataMapper.toLegacyJSObject(recordData));
+        } finally {
+            Tracing.endSection();
+        }
+    }
+
     /** Maps canonical error codes back to legacy error messages. */
     private String toLegacyMessage(String canonicalCode) {
         if (ErrorCodes.DEVICE_CANNOT_VOICE_RECORD.equals(canonicalCode)) {
@@ -149,4 +603,37 @@ public class VoiceRecorder extends Plugin {
         }
         return canonicalCode;
     }
+
+    /** Forwards native session events to JS listeners. */
+    private final class PluginEventListener implements RecordingEventListener {
+
+        @Override
+        public void onVoiceActivityStart() {
+            notifyListeners(VOICE_ACTIVITY_START_EVENT, null);
+        }
+
+        @Override
+        public void onVoiceActivityEnd() {
+            notifyListeners(VOICE_ACTIVITY_END_EVENT, null);
+        }
+
+        @Override
+        public void onAutoStopped(AutoStopReason reason, RecordData recordData) {
+            JSObject event = toRecordingResponse(recordData);
+            event.put("reason", reason.name());
+            notifyListeners(toEventName(reason), event);
+        }
+
+        @Override
+        public void onAutoStopFailed(AutoStopReason reason, VoiceRecorderServiceException exception) {
+            JSObject event = new JSObject();
+            event.put("reason", reason.name());
+            event.put("error", exception.getCode());
+            notifyListeners(toEventName(reason), event);
+        }
+
+        private String toEventName(AutoStopReason reason) {
+            return reason.isLimit() ? LIMIT_REACHED_EVENT : AUTO_STOPPED_EVENT;
+        }
+    }
 }
@@ -0,0 +1,12 @@
+package app.independo.capacitorvoicerecorder.adapters;
+
+import java.util.concurrent.Executor;
+
+/** Single-threaded queue that owns every recorder state transition, executed in submission order. */
+public interface CommandQueue extends Executor {
+    /** Returns whether the caller is running on the queue thread. */
+    boolean isQueueThread();
+
+    /** Stops the queue after the commands already submitted have run; later submissions are rejected. */
+    void shutdown();
+}
@@ -21,11 +21,25 @@ public final class RecordDataMapper {
         normalized.put("fileExtension", recordData.getFileExtension());
 
         String uri = recordData.getUri();
-        String recordDataBase64 = recordData.getRecordDataBase64();
         if (uri != null && !uri.isEmpty()) {
             normalized.put("uri", uri);
-        } else if (recordDataBase64 != null && !recordDataBase64.isEmpty()) {
-            normalized.put("recordDataBase64", recordDataBase64);
+        } else if (recordData.hasRecordDataBase64()) {
+            normalized.put("recordDataBase64", recordData.getRecordDataBase64());
+        }
+        if (recordData.getSpeechRegions() != null) {
+            normalized.put("speechRegions", recordData.speechRegionsToJSArray());
+        }
+        if (recordData.getProxy() != null) {
+            normalized.put("proxy", toNormalizedJSObject(recordData.getProxy()));
+        }
+        if (recordData.getEncoderSettings() != null) {
+            normalized.put("encoder", recordData.getEncoderSettings().toJSObject());
+        }
+        if (recordData.getSha256() != null) {
+            normalized.put("sha256", recordData.getSha256());
+        }
+        if (recordData.getWaveform() != null) {
+            normalized.put("waveform", recordData.waveformToJSArray());
         }
 
         return normalized;
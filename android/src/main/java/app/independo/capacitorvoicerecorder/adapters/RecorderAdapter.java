@@ -1,9 +1,13 @@
 package app.independo.capacitorvoicerecorder.adapters;
 
+import app.independo.capacitorvoicerecorder.core.AutoStopReason;
 import app.independo.capacitorvoicerecorder.core.CurrentRecordingStatus;
+import app.independo.capacitorvoicerecorder.core.EncoderSettings;
 import app.independo.capacitorvoicerecorder.core.RecordOptions;
 import app.independo.capacitorvoicerecorder.platform.NotSupportedOsVersion;
 import java.io.File;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 /** Recorder abstraction used by the service layer. */
 public interface RecorderAdapter {
@@ -13,6 +17,12 @@ public interface RecorderAdapter {
     /** Sets a callback invoked when interruptions end. */
     void setOnInterruptionEnded(Runnable callback);
 
+    /** Sets a callback invoked when the recorder stopped itself at a configured limit. */
+    void setOnLimitReached(Consumer<AutoStopReason> callback);
+
+    /** Routes asynchronous system callbacks, such as audio focus and recorder info events, through the executor. */
+    void setCallbackExecutor(Executor executor);
+
     /** Starts recording audio. */
     void startRecording();
 
@@ -34,6 +44,12 @@ public interface RecorderAdapter {
     /** Returns the output file for the recording. */
     File getOutputFile();
 
+    /** Returns the encoder settings the recording is written with. */
+    EncoderSettings getEncoderSettings();
+
+    /** Returns the low-bitrate copy written alongside the output file, or null when the session has none. */
+    File getProxyFile();
+
     /** Returns the options used to start recording. */
     RecordOptions getRecordOptions();
 
@@ -1,7 +1,15 @@
 package app.independo.capacitorvoicerecorder.adapters;
 
+import app.independo.capacitorvoicerecorder.core.AudioRange;
 import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import app.independo.capacitorvoicerecorder.core.RecordingInfo;
+import app.independo.capacitorvoicerecorder.core.RecoveredRecording;
+import app.independo.capacitorvoicerecorder.core.TranscodeProfile;
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
 
 /** Platform abstraction for device and file operations. */
 public interface RecorderPlatform {
@@ -11,15 +19,90 @@ public interface RecorderPlatform {
     /** Returns true when the microphone is in use elsewhere. */
     boolean isMicrophoneOccupied();
 
+    /**
+     * Sets the listener notified with the new availability whenever the microphone becomes free or taken. Passing
+     * null removes the listener and stops tracking.
+     */
+    void setOnMicrophoneAvailabilityChanged(Consumer<Boolean> listener);
+
     /** Creates a recorder instance for the given options. */
     RecorderAdapter createRecorder(RecordOptions options) throws Exception;
 
-    /** Reads the recording file as base64, or null on failure. */
-    String readFileAsBase64(File recordedFile);
+    /** Reads the recording file as the ASCII bytes of its base64 text, or null on failure. */
+    byte[] readFileAsBase64(File recordedFile);
+
+    /**
+     * Reads the recording once for the stop-time tasks that share its bytes: mapped for plain files, decrypted into
+     * memory for encrypted ones. Returns null on failure.
+     */
+    ByteBuffer readRecording(File recordedFile);
+
+    /** Encodes bytes from {@link #readRecording(File)} as the ASCII bytes of their base64 text, or null on failure. */
+    byte[] encodeBase64(ByteBuffer recording);
+
+    /** Returns {@code points} peak levels in [0, 1] of bytes from {@link #readRecording(File)}, or null on failure. */
+    float[] computeWaveform(ByteBuffer recording, int points);
 
     /** Returns the recording duration in milliseconds. */
     int getDurationMs(File recordedFile);
 
+    /** Returns the stream properties of a recording, or null when it is not an ADTS file. */
+    RecordingInfo getRecordingInfo(File recordedFile);
+
+    /** Returns the plugin-managed directory that holds recordings returned by reference without a directory. */
+    File getManagedDirectory();
+
+    /**
+     * Recovers the recordings left behind by sessions that ended without stopping, such as on a crash or power loss,
+     * cut back to their last complete frame. Each is returned once.
+     */
+    List<RecoveredRecording> recoverRecordings();
+
     /** Returns the URI for the recording file. */
     String toUri(File recordedFile);
+
+    /** Returns the file behind a URI produced by {@link #toUri(File)}, or null when it cannot be resolved. */
+    File fromUri(String uri);
+
+    /**
+     * Writes a copy of the recording in the given profile next to it and returns the new file, reporting progress in
+     * [0, 1]. Throws {@code NotSupportedOsVersion} when the profile needs a newer OS.
+     */
+    File transcode(File recordedFile, TranscodeProfile profile, DoubleConsumer onProgress) throws Exception;
+
+    /** Returns how many transcodes into the profile can run at once, at least 1. */
+    int getMaxParallelTranscodes(TranscodeProfile profile);
+
+    /**
+     * Copies the audio covering [startMs, endMs) into a new file next to the recording, named with the given suffix.
+     * Returns null on failure.
+     */
+    File extractAudioRange(File recordedFile, long startMs, long endMs, String suffix);
+
+    /**
+     * Joins the recordings in order into a new file next to the first one and returns it. Throws
+     * {@code IncompatibleAudioFormat} when their formats differ.
+     */
+    File concatAudio(List<File> recordedFiles) throws Exception;
+
+    /**
+     * Cuts the recording in place down to the audio covering [startMs, endMs) and returns the kept span.
+     * Returns null on failure, leaving the recording untouched.
+     */
+    AudioRange trimAudio(File recordedFile, long startMs, long endMs);
+
+    /** Opens the microphone and keeps the most recent {@code preRollMs} of audio until the next recording starts. */
+    void armPreRoll(int preRollMs) throws Exception;
+
+    /** Releases the microphone held for pre-roll and discards the retained audio. */
+    void disarmPreRoll();
+
+    /** Releases the microphone held for pre-roll and returns the retained PCM, or null when not armed. */
+    short[] takePreRoll();
+
+    /**
+     * Encodes the pre-roll PCM and places it in front of the recording. Returns the prepended duration in
+     * milliseconds, or -1 on failure, leaving the recording untouched.
+     */
+    long prependPreRoll(File recordedFile, short[] preRoll);
 }
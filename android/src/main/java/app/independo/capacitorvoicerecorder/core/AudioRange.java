@@ -0,0 +1,14 @@
+package app.independo.capacitorvoicerecorder.core;
+
+/**
+ * A time span within a recording.
+ *
+ * @param startMs inclusive start position in milliseconds
+ * @param endMs exclusive end position in milliseconds
+ */
+public record AudioRange(long startMs, long endMs) {
+    /** Returns the length of the range in milliseconds. */
+    public long durationMs() {
+        return endMs - startMs;
+    }
+}
@@ -0,0 +1,14 @@
+package app.independo.capacitorvoicerecorder.core;
+
+/** Reasons for a recording session being finalized natively without a stop call. */
+public enum AutoStopReason {
+    TRAILING_SILENCE,
+    LEADING_SILENCE,
+    MAX_DURATION,
+    MAX_FILE_SIZE;
+
+    /** Returns whether the session hit a configured recording limit rather than a silence threshold. */
+    public boolean isLimit() {
+        return this == MAX_DURATION || this == MAX_FILE_SIZE;
+    }
+}
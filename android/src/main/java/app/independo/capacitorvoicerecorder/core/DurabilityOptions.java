@@ -0,0 +1,43 @@
+package app.independo.capacitorvoicerecorder.core;
+
+/**
+ * How often an in-progress recording is forced to storage, so a crash or power loss keeps what was recorded.
+ *
+ * @param mode when the output file is forced
+ * @param intervalMs time between forces in {@link Mode#PERIODIC} mode, in milliseconds
+ */
+public record DurabilityOptions(Mode mode, long intervalMs) {
+    /** Interval used when periodic durability is requested without one. */
+    public static final long DEFAULT_INTERVAL_MS = 5000;
+    /** Shortest interval accepted, so forcing cannot take over the storage queue. */
+    public static final long MIN_INTERVAL_MS = 250;
+    /** Leaves writeback to the kernel, as before durability was configurable. */
+    public static final DurabilityOptions NONE = new DurabilityOptions(Mode.NONE, 0);
+
+    /** Points at which the output file is forced. */
+    public enum Mode {
+        /** Never; the file only reaches storage through normal writeback. */
+        NONE,
+        /** Every {@code intervalMs} while the session runs, and when it pauses or stops. */
+        PERIODIC,
+        /** When the session pauses, is interrupted, reaches a limit or stops. */
+        SEGMENT
+    }
+
+    /** Reads the options from the plugin's string form, falling back to {@link #NONE} for unknown modes. */
+    public static DurabilityOptions of(String mode, Integer intervalMs) {
+        if ("periodic".equalsIgnoreCase(mode)) {
+            long interval = intervalMs != null && intervalMs > 0 ? intervalMs : DEFAULT_INTERVAL_MS;
+            return new DurabilityOptions(Mode.PERIODIC, Math.max(MIN_INTERVAL_MS, interval));
+        }
+        if ("segment".equalsIgnoreCase(mode)) {
+            return new DurabilityOptions(Mode.SEGMENT, 0);
+        }
+        return NONE;
+    }
+
+    /** Returns whether the output file is ever forced. */
+    public boolean isEnabled() {
+        return mode != Mode.NONE;
+    }
+}
@@ -0,0 +1,50 @@
+package app.independo.capacitorvoicerecorder.core;
+
+/**
+ * Encoder settings tiers, from the full-quality default to the cheapest one used on a hot device.
+ *
+ * <p>Lower tiers cut the sample rate and bit rate together, which reduces the encoder's work per second roughly in
+ * proportion. All tiers stay AAC-LC in ADTS, so editing, indexing and transcoding work on every tier.</p>
+ */
+public enum EncoderPolicy {
+    /** 44.1 kHz at 96 kbps, the settings used when the device is neither hot nor saving battery. */
+    STANDARD(44_100, 96_000),
+    /** 32 kHz at 64 kbps, for battery saver or moderate thermal throttling. */
+    REDUCED(32_000, 64_000),
+    /** 22.05 kHz at 48 kbps, for severe thermal throttling and above; still clear for speech. */
+    MINIMAL(22_050, 48_000);
+
+    /** Thermal status at which the device starts throttling noticeably, as in {@code PowerManager}. */
+    public static final int THERMAL_STATUS_MODERATE = 2;
+    /** Thermal status at which the device throttles heavily, as in {@code PowerManager}. */
+    public static final int THERMAL_STATUS_SEVERE = 3;
+
+    private final int sampleRate;
+    private final int bitRate;
+
+    EncoderPolicy(int sampleRate, int bitRate) {
+        this.sampleRate = sampleRate;
+        this.bitRate = bitRate;
+    }
+
+    /** Returns the sample rate in Hz. */
+    public int sampleRate() {
+        return sampleRate;
+    }
+
+    /** Returns the bit rate in bits per second. */
+    public int bitRate() {
+        return bitRate;
+    }
+
+    /** Picks the tier for a new session from the thermal status and whether battery saver is on. */
+    public static EncoderPolicy select(int thermalStatus, boolean powerSaveMode) {
+        if (thermalStatus >= THERMAL_STATUS_SEVERE) {
+            return MINIMAL;
+        }
+        if (thermalStatus >= THERMAL_STATUS_MODERATE || powerSaveMode) {
+            return REDUCED;
+        }
+        return STANDARD;
+    }
+}
@@ -0,0 +1,41 @@
+package app.independo.capacitorvoicerecorder.core;
+
+import com.getcapacitor.JSObject;
+
+/**
+ * Encoder settings a session was recorded with, and the device state they were chosen for.
+ *
+ * @param policy tier the settings come from
+ * @param thermalStatus {@code PowerManager} thermal status when the session started, 0 when unknown
+ * @param powerSaveMode whether battery saver was on when the session started
+ */
+public record EncoderSettings(EncoderPolicy policy, int thermalStatus, boolean powerSaveMode) {
+    /** Settings for a device in its normal state. */
+    public static final EncoderSettings STANDARD = new EncoderSettings(EncoderPolicy.STANDARD, 0, false);
+
+    /** Picks the settings for a new session from the device state. */
+    public static EncoderSettings forDeviceState(int thermalStatus, boolean powerSaveMode) {
+        return new EncoderSettings(EncoderPolicy.select(thermalStatus, powerSaveMode), thermalStatus, powerSaveMode);
+    }
+
+    /** Returns the sample rate in Hz. */
+    public int sampleRate() {
+        return policy.sampleRate();
+    }
+
+    /** Returns the bit rate in bits per second. */
+    public int bitRate() {
+        return policy.bitRate();
+    }
+
+    /** Serializes the settings for the recording result. */
+    public JSObject toJSObject() {
+        JSObject result = new JSObject();
+        result.put("policy", policy.name());
+        result.put("sampleRate", sampleRate());
+        result.put("bitRate", bitRate());
+        result.put("thermalStatus", thermalStatus);
+        result.put("powerSaveMode", powerSaveMode);
+        return result;
+    }
+}
@@ -14,6 +14,16 @@ public final class ErrorCodes {
     public static final String FAILED_TO_MERGE_RECORDING = "FAILED_TO_MERGE_RECORDING";
     public static final String NOT_SUPPORTED_OS_VERSION = "NOT_SUPPORTED_OS_VERSION";
     public static final String COULD_NOT_QUERY_PERMISSION_STATUS = "COULD_NOT_QUERY_PERMISSION_STATUS";
+    public static final String RECORDING_NOT_FOUND = "RECORDING_NOT_FOUND";
+    public static final String INVALID_TRANSCODE_PROFILE = "INVALID_TRANSCODE_PROFILE";
+    public static final String FAILED_TO_TRANSCODE = "FAILED_TO_TRANSCODE";
+    public static final String INVALID_RANGE = "INVALID_RANGE";
+    public static final String INCOMPATIBLE_RECORDINGS = "INCOMPATIBLE_RECORDINGS";
+    public static final String FAILED_TO_EDIT_RECORDING = "FAILED_TO_EDIT_RECORDING";
+    public static final String FAILED_TO_QUEUE_TRANSCODE = "FAILED_TO_QUEUE_TRANSCODE";
+    public static final String UNSUPPORTED_WITH_ENCRYPTION = "UNSUPPORTED_WITH_ENCRYPTION";
+    public static final String UNSUPPORTED_WITH_PROXY = "UNSUPPORTED_WITH_PROXY";
+    public static final String SPLIT_OUTPUT_REQUIRES_DIRECTORY = "SPLIT_OUTPUT_REQUIRES_DIRECTORY";
 
     private ErrorCodes() {}
 }
@@ -0,0 +1,179 @@
+package app.independo.capacitorvoicerecorder.core;
+
+/**
+ * Streaming sample rate converter for mono 16-bit PCM using windowed-sinc interpolation.
+ *
+ * <p>Filter coefficients are precomputed for {@link #PHASES} fractional positions and interpolated between, so each
+ * output sample costs two short dot products. The cutoff follows the lower of the two rates, which removes content
+ * that would otherwise alias when downsampling. Only the input still needed by the filter is kept, so memory does not
+ * grow with the stream length. Output sample {@code n} is aligned with input time {@code n / outputRate}, without
+ * added delay.</p>
+ */
+public class PcmResampler {
+
+    /** Number of precomputed fractional positions between two input samples. */
+    static final int PHASES = 256;
+    /** Zero crossings of the sinc kept on each side of the center, at the cutoff frequency. */
+    static final int ZERO_CROSSINGS = 12;
+    /** Cutoff as a share of the lower Nyquist frequency, leaving room for the transition band. */
+    static final double ROLLOFF = 0.9;
+
+    /** Input sample rate in Hz. */
+    private final int inputRate;
+    /** Output sample rate in Hz. */
+    private final int outputRate;
+    /** Input samples used on each side of an output position. */
+    private final int halfTaps;
+    /** Coefficients for {@code PHASES + 1} positions, {@code 2 * halfTaps} per position. */
+    private final float[] coefficients;
+    /** Input samples from {@link #historyStart} on, still needed by upcoming outputs. */
+    private float[] history;
+    /** Number of valid samples in {@link #history}. */
+    private int historyLength;
+    /** Absolute input index of {@code history[0]}; negative while the leading zero padding is still needed. */
+    private long historyStart;
+    /** Number of real input samples received. */
+    private long inputCount;
+    /** Absolute index of the next output sample. */
+    private long outputIndex;
+
+    public PcmResampler(int inputRate, int outputRate) {
+        if (inputRate <= 0 || outputRate <= 0) {
+            throw new IllegalArgumentException("sample rates must be positive");
+        }
+        this.inputRate = inputRate;
+        this.outputRate = outputRate;
+        double cutoff = Math.min(1.0, (double) outputRate / inputRate) * ROLLOFF;
+        this.halfTaps = inputRate == outputRate ? 0 : (int) Math.ceil(ZERO_CROSSINGS / cutoff);
+        this.coefficients = halfTaps == 0 ? new float[0] : buildCoefficients(halfTaps, cutoff);
+        // Samples before the stream start are silence; keeping them as zeros avoids edge cases in the filter.
+        this.history = new float[Math.max(16, 4 * halfTaps)];
+        this.historyLength = halfTaps;
+        this.historyStart = -halfTaps;
+    }
+
+    /** Returns an output capacity that is always enough for one {@link #process} call with the given input length. */
+    public int maxOutputLength(int inputLength) {
+        return (int) ((long) (inputLength + 2 * halfTaps) * outputRate / inputRate) + 2;
+    }
+
+    /** Consumes input samples and writes the output samples that are now complete, returning how many were written. */
+    public int process(short[] input, int offset, int length, short[] output) {
+        if (halfTaps == 0) {
+            System.arraycopy(input, offset, output, 0, length);
+            inputCount += length;
+            outputIndex += length;
+            return length;
+        }
+        discardConsumedHistory();
+        ensureCapacity(historyLength + length);
+        for (int i = 0; i < length; i++) {
+            history[historyLength + i] = input[offset + i];
+        }
+        historyLength += length;
+        inputCount += length;
+        return produce(output, false);
+    }
+
+    /**
+     * Writes the remaining output for the end of the stream, treating further input as silence. Needs at most
+     * {@code maxOutputLength(0)} samples of output capacity.
+     */
+    public int flush(short[] output) {
+        if (halfTaps == 0) {
+            return 0;
+        }
+        discardConsumedHistory();
+        ensureCapacity(historyLength + halfTaps);
+        for (int i = 0; i < halfTaps; i++) {
+            history[historyLength + i] = 0;
+        }
+        historyLength += halfTaps;
+        return produce(output, true);
+    }
+
+    private int produce(short[] output, boolean flushing) {
+        int taps = 2 * halfTaps;
+        long available = historyStart + historyLength;
+        int written = 0;
+        while (true) {
+            long position = outputIndex * inputRate;
+            long center = position / outputRate;
+            if (center + halfTaps >= available || (flushing && position >= inputCount * outputRate)) {
+                break;
+            }
+            long remainder = position - center * outputRate;
+            double phase = (double) remainder * PHASES / outputRate;
+            int phaseIndex = (int) phase;
+            float weight = (float) (phase - phaseIndex);
+            int lower = phaseIndex * taps;
+            int upper = lower + taps;
+            int base = (int) (center + 1 - halfTaps - historyStart);
+            float sumLower = 0;
+            float sumUpper = 0;
+            for (int k = 0; k < taps; k++) {
+                float sample = history[base + k];
+                sumLower += sample * coefficients[lower + k];
+                sumUpper += sample * coefficients[upper + k];
+            }
+            output[written++] = clamp(sumLower + (sumUpper - sumLower) * weight);
+            outputIndex++;
+        }
+        return written;
+    }
+
+    /** Drops samples that no upcoming output reaches back to. */
+    private void discardConsumedHistory() {
+        long firstNeeded = outputIndex * inputRate / outputRate + 1 - halfTaps;
+        int drop = (int) Math.max(0, Math.min(historyLength, firstNeeded - historyStart));
+        if (drop == 0) {
+            return;
+        }
+        System.arraycopy(history, drop, history, 0, historyLength - drop);
+        historyLength -= drop;
+        historyStart += drop;
+    }
+
+    private void ensureCapacity(int length) {
+        if (history.length < length) {
+            float[] grown = new float[Math.max(length, history.length * 2)];
+            System.arraycopy(history, 0, grown, 0, historyLength);
+            history = grown;
+        }
+    }
+
+    private static short clamp(float value) {
+        int rounded = Math.round(value);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, rounded));
+    }
+
+    /** Builds Blackman-windowed sinc rows, each normalized to unity gain at DC. */
+    private static float[] buildCoefficients(int halfTaps, double cutoff) {
+        int taps = 2 * halfTaps;
+        float[] table = new float[(PHASES + 1) * taps];
+        for (int phase = 0; phase <= PHASES; phase++) {
+            double fraction = (double) phase / PHASES;
+            double sum = 0;
+            double[] row = new double[taps];
+            for (int k = 0; k < taps; k++) {
+                double distance = fraction + halfTaps - 1 - k;
+                double x = distance / halfTaps;
+                double window = Math.abs(x) >= 1 ? 0 : 0.42 + 0.5 * Math.cos(Math.PI * x) + 0.08 * Math.cos(2 * Math.PI * x);
+                row[k] = cutoff * sinc(cutoff * distance) * window;
+                sum += row[k];
+            }
+            for (int k = 0; k < taps; k++) {
+                table[phase * taps + k] = (float) (row[k] / sum);
+            }
+        }
+        return table;
+    }
+
+    private static double sinc(double x) {
+        if (x == 0) {
+            return 1;
+        }
+        double px = Math.PI * x;
+        return Math.sin(px) / px;
+    }
+}
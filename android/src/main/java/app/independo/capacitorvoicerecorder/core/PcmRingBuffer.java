@@ -0,0 +1,66 @@
+package app.independo.capacitorvoicerecorder.core;
+
+/**
+ * Fixed-size circular buffer holding the most recent 16-bit PCM samples.
+ *
+ * <p>The backing array is allocated once; writes overwrite the oldest samples and never allocate, so the buffer can
+ * be fed from a capture loop indefinitely. A single writer and any number of readers may use it concurrently.</p>
+ */
+public class PcmRingBuffer {
+
+    /** Preallocated sample storage. */
+    private final short[] samples;
+    /** Index where the next sample is written. */
+    private int writeIndex;
+    /** Number of valid samples, capped at the capacity. */
+    private int size;
+
+    public PcmRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.samples = new short[capacity];
+    }
+
+    /** Returns the number of samples the buffer can hold. */
+    public int capacity() {
+        return samples.length;
+    }
+
+    /** Returns the number of buffered samples. */
+    public synchronized int size() {
+        return size;
+    }
+
+    /** Appends samples, overwriting the oldest ones once the buffer is full. */
+    public synchronized void write(short[] source, int offset, int length) {
+        if (length >= samples.length) {
+            // Only the tail of an oversized write can survive.
+            System.arraycopy(source, offset + length - samples.length, samples, 0, samples.length);
+            writeIndex = 0;
+            size = samples.length;
+            return;
+        }
+        int firstPart = Math.min(length, samples.length - writeIndex);
+        System.arraycopy(source, offset, samples, writeIndex, firstPart);
+        System.arraycopy(source, offset + firstPart, samples, 0, length - firstPart);
+        writeIndex = (writeIndex + length) % samples.length;
+        size = Math.min(samples.length, size + length);
+    }
+
+    /** Copies the buffered samples in recording order into a new array. */
+    public synchronized short[] snapshot() {
+        short[] copy = new short[size];
+        int start = (writeIndex - size + samples.length) % samples.length;
+        int firstPart = Math.min(size, samples.length - start);
+        System.arraycopy(samples, start, copy, 0, firstPart);
+        System.arraycopy(samples, 0, copy, firstPart, size - firstPart);
+        return copy;
+    }
+
+    /** Discards all buffered samples without releasing the storage. */
+    public synchronized void clear() {
+        writeIndex = 0;
+        size = 0;
+    }
+}
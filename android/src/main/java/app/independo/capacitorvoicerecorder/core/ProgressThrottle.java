@@ -0,0 +1,48 @@
+package app.independo.capacitorvoicerecorder.core;
+
+/**
+ * Decides which progress updates are worth reporting, so the number of events stays small whatever the input length.
+ *
+ * <p>An update passes when it advanced by at least the minimum step and the minimum interval has elapsed since the
+ * last one. Completion is always reported once.</p>
+ */
+public class ProgressThrottle {
+
+    /** Default minimum time between reported updates. */
+    public static final long DEFAULT_MIN_INTERVAL_MS = 250;
+    /** Default minimum progress change between reported updates. */
+    public static final double DEFAULT_MIN_STEP = 0.01;
+
+    /** Minimum time between reported updates. */
+    private final long minIntervalMs;
+    /** Minimum progress change between reported updates. */
+    private final double minStep;
+    /** Time of the last reported update. */
+    private long lastReportedAtMs;
+    /** Last reported progress, or a negative value before the first report. */
+    private double lastProgress = -1;
+
+    public ProgressThrottle() {
+        this(DEFAULT_MIN_INTERVAL_MS, DEFAULT_MIN_STEP);
+    }
+
+    public ProgressThrottle(long minIntervalMs, double minStep) {
+        this.minIntervalMs = minIntervalMs;
+        this.minStep = minStep;
+    }
+
+    /** Returns whether progress in [0, 1] at the given time should be reported, and records it if so. */
+    public synchronized boolean shouldReport(double progress, long nowMs) {
+        if (lastProgress >= 1) {
+            return false;
+        }
+        boolean complete = progress >= 1;
+        boolean first = lastProgress < 0;
+        if (!complete && !first && (progress - lastProgress < minStep || nowMs - lastReportedAtMs < minIntervalMs)) {
+            return false;
+        }
+        lastProgress = Math.min(1, progress);
+        lastReportedAtMs = nowMs;
+        return true;
+    }
+}
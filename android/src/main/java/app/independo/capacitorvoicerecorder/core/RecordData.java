@@ -1,28 +1,51 @@
 package app.independo.capacitorvoicerecorder.core;
 
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
-
-/** Recording payload returned to the bridge layer. */
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Recording payload returned to the bridge layer.
+ *
+ * <p>Inline data is kept as the ASCII bytes of its base64 text, half the size of the same text in a Java String. The
+ * String is only created by {@link #getRecordDataBase64()} when the payload is serialized for the bridge.</p>
+ */
 public class RecordData {
 
     /** File URI when returning recordings by reference. */
     private String uri;
-    /** Base64 payload for inline recording data. */
-    private String recordDataBase64;
+    /** Recorded file when returning recordings by reference, for native callers; never serialized. */
+    private File file;
+    /** Base64 payload for inline recording data, as ASCII bytes. */
+    private byte[] recordDataBase64;
     /** MIME type of the audio payload. */
     private String mimeType;
     /** File extension / format without a leading dot (for example: aac, m4a, mp3). */
     private String fileExtension;
     /** Recording duration in milliseconds. */
     private int msDuration;
+    /** Detected speech regions, or null when segmentation was not requested. */
+    private List<SpeechRegion> speechRegions;
+    /** Low-bitrate copy encoded from the same capture, or null when none was requested. */
+    private RecordData proxy;
+    /** Encoder settings the recording was written with, or null when unknown. */
+    private EncoderSettings encoderSettings;
+    /** Lowercase hex SHA-256 of the recording's audio bytes, or null when not requested. */
+    private String sha256;
+    /** Peak levels in [0, 1], or null when not requested or decoding failed. */
+    private float[] waveform;
+    /** URI of the stored peak levels of a catalogued recording, or null when none were stored. */
+    private String waveformUri;
 
     public RecordData() {}
 
-    public RecordData(String recordDataBase64, int msDuration, String mimeType, String uri) {
+    public RecordData(byte[] recordDataBase64, int msDuration, String mimeType, String uri) {
         this(recordDataBase64, msDuration, mimeType, inferFileExtension(mimeType, uri), uri);
     }
 
-    public RecordData(String recordDataBase64, int msDuration, String mimeType, String fileExtension, String uri) {
+    public RecordData(byte[] recordDataBase64, int msDuration, String mimeType, String fileExtension, String uri) {
         this.recordDataBase64 = recordDataBase64;
         this.msDuration = msDuration;
         this.mimeType = mimeType;
@@ -30,12 +53,22 @@ public class RecordData {
         this.uri = uri;
     }
 
-    /** Returns the base64 payload, if present. */
+    /** Returns the base64 payload as a new String, if present. Each call copies the payload, so call it once. */
     public String getRecordDataBase64() {
+        return recordDataBase64 != null ? new String(recordDataBase64, StandardCharsets.US_ASCII) : null;
+    }
+
+    /** Returns the base64 payload as ASCII bytes, if present, without copying it. */
+    public byte[] getRecordDataBase64Bytes() {
         return recordDataBase64;
     }
 
-    public void setRecordDataBase64(String recordDataBase64) {
+    /** Returns whether a non-empty base64 payload is present. */
+    public boolean hasRecordDataBase64() {
+        return recordDataBase64 != null && recordDataBase64.length > 0;
+    }
+
+    public void setRecordDataBase64(byte[] recordDataBase64) {
         this.recordDataBase64 = recordDataBase64;
     }
 
@@ -71,14 +104,116 @@ public class RecordData {
         return uri;
     }
 
+    /** Returns the recorded file when the recording is returned by reference, or null. */
+    public File getFile() {
+        return file;
+    }
+
+    public void setFile(File file) {
+        this.file = file;
+    }
+
+    /** Returns the detected speech regions, or null when segmentation was not requested. */
+    public List<SpeechRegion> getSpeechRegions() {
+        return speechRegions;
+    }
+
+    public void setSpeechRegions(List<SpeechRegion> speechRegions) {
+        this.speechRegions = speechRegions;
+    }
+
+    /** Returns the low-bitrate copy of the recording, or null when none was requested. */
+    public RecordData getProxy() {
+        return proxy;
+    }
+
+    public void setProxy(RecordData proxy) {
+        this.proxy = proxy;
+    }
+
+    /** Returns the encoder settings the recording was written with, or null when unknown. */
+    public EncoderSettings getEncoderSettings() {
+        return encoderSettings;
+    }
+
+    public void setEncoderSettings(EncoderSettings encoderSettings) {
+        this.encoderSettings = encoderSettings;
+    }
+
+    /** Returns the hex SHA-256 of the audio bytes, or null when not requested. */
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    /** Returns the peak levels in [0, 1], or null when not requested or decoding failed. */
+    public float[] getWaveform() {
+        return waveform;
+    }
+
+    public void setWaveform(float[] waveform) {
+        this.waveform = waveform;
+    }
+
+    /** Returns the URI of the stored peak levels of a catalogued recording, or null when none were stored. */
+    public String getWaveformUri() {
+        return waveformUri;
+    }
+
+    public void setWaveformUri(String waveformUri) {
+        this.waveformUri = waveformUri;
+    }
+
+    /** Serializes the waveform into a JS array rounded to three decimals, or returns null when absent. */
+    public JSArray waveformToJSArray() {
+        if (waveform == null) {
+            return null;
+        }
+        JSArray peaks = new JSArray();
+        for (float peak : waveform) {
+            peaks.put(Double.valueOf(Math.round(peak * 1000) / 1000.0));
+        }
+        return peaks;
+    }
+
+    /** Serializes the speech regions into a JS array, or returns null when absent. */
+    public JSArray speechRegionsToJSArray() {
+        if (speechRegions == null) {
+            return null;
+        }
+        JSArray regions = new JSArray();
+        for (SpeechRegion region : speechRegions) {
+            regions.put(region.toJSObject());
+        }
+        return regions;
+    }
+
     /** Serializes the record data into the legacy JS payload shape. */
     public JSObject toJSObject() {
         JSObject toReturn = new JSObject();
-        toReturn.put("recordDataBase64", recordDataBase64);
+        toReturn.put("recordDataBase64", getRecordDataBase64());
         toReturn.put("msDuration", msDuration);
         toReturn.put("mimeType", mimeType);
         toReturn.put("fileExtension", fileExtension);
         toReturn.put("uri", uri);
+        if (speechRegions != null) {
+            toReturn.put("speechRegions", speechRegionsToJSArray());
+        }
+        if (proxy != null) {
+            toReturn.put("proxy", proxy.toJSObject());
+        }
+        if (encoderSettings != null) {
+            toReturn.put("encoder", encoderSettings.toJSObject());
+        }
+        if (sha256 != null) {
+            toReturn.put("sha256", sha256);
+        }
+        if (waveform != null) {
+            toReturn.put("waveform", waveformToJSArray());
+        }
         return toReturn;
     }
 
@@ -1,4 +1,144 @@
 package app.independo.capacitorvoicerecorder.core;
 
-/** Optional output configuration for recordings. */
-public record RecordOptions(String directory, String subDirectory) {}
+/**
+ * Optional output configuration for recordings.
+ *
+ * @param encryptionKeyAlias Android Keystore alias whose key encrypts the recording at rest, or null to store it plain
+ * @param proxy format of a low-bitrate copy encoded from the same capture, or null to write only the recording
+ * @param digest whether a SHA-256 digest of the recording is computed when it stops
+ * @param waveformPoints number of peak levels computed when the recording stops, or 0 for none
+ * @param durability when the output file is forced to storage while recording; null means {@link DurabilityOptions#NONE}
+ */
+public record RecordOptions(
+    String directory,
+    String subDirectory,
+    VoiceActivityOptions voiceActivity,
+    SegmentationOptions segmentation,
+    boolean trimSilence,
+    RecordingLimits limits,
+    String encryptionKeyAlias,
+    TranscodeProfile proxy,
+    boolean digest,
+    int waveformPoints,
+    DurabilityOptions durability
+) {
+    /** Directory value for the plugin-managed location used by reference-only responses. */
+    public static final String MANAGED_DIRECTORY = "MANAGED";
+
+    public RecordOptions {
+        if (durability == null) {
+            durability = DurabilityOptions.NONE;
+        }
+    }
+
+    public RecordOptions(String directory, String subDirectory) {
+        this(directory, subDirectory, null, null, false, null, null, null, false, 0);
+    }
+
+    public RecordOptions(
+        String directory,
+        String subDirectory,
+        VoiceActivityOptions voiceActivity,
+        SegmentationOptions segmentation,
+        boolean trimSilence,
+        RecordingLimits limits
+    ) {
+        this(directory, subDirectory, voiceActivity, segmentation, trimSilence, limits, null, null, false, 0);
+    }
+
+    public RecordOptions(
+        String directory,
+        String subDirectory,
+        VoiceActivityOptions voiceActivity,
+        SegmentationOptions segmentation,
+        boolean trimSilence,
+        RecordingLimits limits,
+        String encryptionKeyAlias
+    ) {
+        this(directory, subDirectory, voiceActivity, segmentation, trimSilence, limits, encryptionKeyAlias, null, false, 0);
+    }
+
+    public RecordOptions(
+        String directory,
+        String subDirectory,
+        VoiceActivityOptions voiceActivity,
+        SegmentationOptions segmentation,
+        boolean trimSilence,
+        RecordingLimits limits,
+        String encryptionKeyAlias,
+        TranscodeProfile proxy
+    ) {
+        this(directory, subDirectory, voiceActivity, segmentation, trimSilence, limits, encryptionKeyAlias, proxy, false, 0);
+    }
+
+    public RecordOptions(
+        String directory,
+        String subDirectory,
+        VoiceActivityOptions voiceActivity,
+        SegmentationOptions segmentation,
+        boolean trimSilence,
+        RecordingLimits limits,
+        String encryptionKeyAlias,
+        TranscodeProfile proxy,
+        boolean digest,
+        int waveformPoints
+    ) {
+        this(
+            directory,
+            subDirectory,
+            voiceActivity,
+            segmentation,
+            trimSilence,
+            limits,
+            encryptionKeyAlias,
+            proxy,
+            digest,
+            waveformPoints,
+            DurabilityOptions.NONE
+        );
+    }
+
+    /** Returns a copy of these options with different limits. */
+    public RecordOptions withLimits(RecordingLimits limits) {
+        return new RecordOptions(
+            directory,
+            subDirectory,
+            voiceActivity,
+            segmentation,
+            trimSilence,
+            limits,
+            encryptionKeyAlias,
+            proxy,
+            digest,
+            waveformPoints,
+            durability
+        );
+    }
+
+    /** Returns a copy of these options writing to a different directory. */
+    public RecordOptions withDirectory(String directory) {
+        return new RecordOptions(
+            directory,
+            subDirectory,
+            voiceActivity,
+            segmentation,
+            trimSilence,
+            limits,
+            encryptionKeyAlias,
+            proxy,
+            digest,
+            waveformPoints,
+            durability
+        );
+    }
+
+    /** Returns whether stopping needs the recording's bytes beyond its payload. */
+    public boolean analyzesBytes() {
+        return digest || waveformPoints > 0;
+    }
+
+    /** Returns whether the recording is encrypted at rest. */
+    public boolean isEncrypted() {
+        return encryptionKeyAlias != null;
+    }
+}
@@ -0,0 +1,33 @@
+package app.independo.capacitorvoicerecorder.core;
+
+/**
+ * Finished recording as listed in the recording catalog.
+ *
+ * @param uri URI of the recording file
+ * @param directory directory option the recording was made with, such as {@code DOCUMENTS}
+ * @param sizeBytes file size in bytes when the recording was finalized
+ * @param durationMs duration in milliseconds
+ * @param mimeType MIME type of the recording
+ * @param fileExtension file extension without a leading dot
+ * @param createdAtMs wall-clock time the recording was finalized, in milliseconds since the epoch
+ * @param sha256 hex SHA-256 of the audio bytes, or null when no digest was requested
+ * @param waveformUri URI of the stored peak levels, or null when no waveform was requested
+ * @param pinned whether the recording is exempt from eviction when its directory is over budget
+ */
+public record RecordingEntry(
+    String uri,
+    String directory,
+    long sizeBytes,
+    long durationMs,
+    String mimeType,
+    String fileExtension,
+    long createdAtMs,
+    String sha256,
+    String waveformUri,
+    boolean pinned
+) {
+    /** Returns a copy of this entry with a different pin state. */
+    public RecordingEntry withPinned(boolean pinned) {
+        return new RecordingEntry(uri, directory, sizeBytes, durationMs, mimeType, fileExtension, createdAtMs, sha256, waveformUri, pinned);
+    }
+}
@@ -0,0 +1,12 @@
+package app.independo.capacitorvoicerecorder.core;
+
+/**
+ * Stream properties of a recording, read from its seek index.
+ *
+ * @param durationMs duration in milliseconds
+ * @param sizeBytes file size in bytes
+ * @param sampleRate sampling rate in Hz
+ * @param channels channel count
+ * @param bitRate average bit rate in bits per second
+ */
+public record RecordingInfo(long durationMs, long sizeBytes, int sampleRate, int channels, int bitRate) {}
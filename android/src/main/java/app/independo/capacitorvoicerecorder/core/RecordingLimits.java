@@ -0,0 +1,37 @@
+package app.independo.capacitorvoicerecorder.core;
+
+/**
+ * Hard caps for a recording session, enforced natively by the recorder.
+ *
+ * @param maxDurationMs maximum recorded duration in milliseconds, or null for no limit
+ * @param maxFileSizeBytes maximum output size in bytes, or null for no limit
+ */
+public record RecordingLimits(Integer maxDurationMs, Long maxFileSizeBytes) {
+    /** Approximate size of the recorded stream: 96 kbps AAC plus one 7-byte ADTS header per 1024-sample frame. */
+    public static final long ESTIMATED_BYTES_PER_SECOND = 96_000 / 8 + 7 * 44_100 / 1024;
+
+    /** Creates limits from optional values, ignoring non-positive ones. */
+    public static RecordingLimits of(Integer maxDurationMs, Long maxFileSizeBytes) {
+        return new RecordingLimits(
+            maxDurationMs != null && maxDurationMs > 0 ? maxDurationMs : null,
+            maxFileSizeBytes != null && maxFileSizeBytes > 0 ? maxFileSizeBytes : null
+        );
+    }
+
+    /** Returns whether any limit is set. */
+    public boolean isEnabled() {
+        return maxDurationMs != null || maxFileSizeBytes != null;
+    }
+
+    /**
+     * Returns the limits left for the recorder once audio of the given duration is prepended to its output, keeping
+     * at least one millisecond and one byte so the recorder still starts.
+     */
+    public RecordingLimits reservedFor(long prependedMs) {
+        Integer duration = maxDurationMs != null ? (int) Math.max(1, maxDurationMs - prependedMs) : null;
+        Long size = maxFileSizeBytes != null
+            ? Math.max(1, maxFileSizeBytes - prependedMs * ESTIMATED_BYTES_PER_SECOND / 1000)
+            : null;
+        return new RecordingLimits(duration, size);
+    }
+}
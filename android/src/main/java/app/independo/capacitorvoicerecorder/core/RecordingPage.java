@@ -0,0 +1,11 @@
+package app.independo.capacitorvoicerecorder.core;
+
+import java.util.List;
+
+/**
+ * Page of the recording catalog, newest first.
+ *
+ * @param recordings entries of the page
+ * @param total number of catalogued recordings matching the filter
+ */
+public record RecordingPage(List<RecordingEntry> recordings, int total) {}
@@ -0,0 +1,20 @@
+package app.independo.capacitorvoicerecorder.core;
+
+import com.getcapacitor.PluginConfig;
+
+/** How recordings without a directory are handed back to JS. */
+public enum RecordingPayload {
+    /** The file is read into {@code recordDataBase64} and deleted. */
+    BASE64,
+    /** The file stays in the plugin-managed directory and only its {@code uri} is returned. */
+    REFERENCE;
+
+    /** Reads the payload mode from plugin configuration. */
+    public static RecordingPayload fromConfig(PluginConfig config) {
+        String value = config.getString("recordingPayload", "base64");
+        if ("reference".equalsIgnoreCase(value)) {
+            return REFERENCE;
+        }
+        return BASE64;
+    }
+}
@@ -0,0 +1,13 @@
+package app.independo.capacitorvoicerecorder.core;
+
+import java.io.File;
+
+/**
+ * Recording left behind by a session that never stopped, cut back to its last trustworthy frame.
+ *
+ * @param file the recording file
+ * @param directory directory option the recording was started with
+ * @param checkpointBytes bytes the last checkpoint guaranteed to be on storage; frames past them were only kept when
+ *     they matched the start of the stream
+ */
+public record RecoveredRecording(File file, String directory, long checkpointBytes) {}
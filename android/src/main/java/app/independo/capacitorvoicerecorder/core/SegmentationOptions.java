@@ -0,0 +1,16 @@
+package app.independo.capacitorvoicerecorder.core;
+
+/** Settings for grouping detected speech into utterances and optionally splitting the output per utterance. */
+public record SegmentationOptions(int minUtteranceMs, int maxUtteranceMs, boolean splitOutput) {
+    /** Default lower bound before an utterance is cut at the next pause. */
+    public static final int DEFAULT_MIN_UTTERANCE_MS = 10_000;
+    /** Default upper bound for a single utterance. */
+    public static final int DEFAULT_MAX_UTTERANCE_MS = 30_000;
+
+    /** Creates options from optional values, falling back to the defaults. */
+    public static SegmentationOptions of(Integer minUtteranceMs, Integer maxUtteranceMs, Boolean splitOutput) {
+        int max = maxUtteranceMs != null && maxUtteranceMs > 0 ? maxUtteranceMs : DEFAULT_MAX_UTTERANCE_MS;
+        int min = minUtteranceMs != null && minUtteranceMs >= 0 ? Math.min(minUtteranceMs, max) : Math.min(DEFAULT_MIN_UTTERANCE_MS, max);
+        return new SegmentationOptions(min, max, Boolean.TRUE.equals(splitOutput));
+    }
+}
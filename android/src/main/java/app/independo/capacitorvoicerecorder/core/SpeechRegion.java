@@ -0,0 +1,30 @@
+package app.independo.capacitorvoicerecorder.core;
+
+import com.getcapacitor.JSObject;
+
+/**
+ * A span of detected speech within a recording.
+ *
+ * @param startMs recorded position where speech starts
+ * @param endMs recorded position where speech ends
+ * @param meanEnergy mean window energy (squared normalized amplitude) in [0, 1]
+ * @param uri URI of the per-utterance file when the output was split, otherwise null
+ */
+public record SpeechRegion(long startMs, long endMs, double meanEnergy, String uri) {
+    /** Returns a copy of this region that references the given per-utterance file. */
+    public SpeechRegion withUri(String uri) {
+        return new SpeechRegion(startMs, endMs, meanEnergy, uri);
+    }
+
+    /** Serializes the region into the JS payload shape. */
+    public JSObject toJSObject() {
+        JSObject region = new JSObject();
+        region.put("startMs", startMs);
+        region.put("endMs", endMs);
+        region.put("meanEnergy", meanEnergy);
+        if (uri != null) {
+            region.put("uri", uri);
+        }
+        return region;
+    }
+}
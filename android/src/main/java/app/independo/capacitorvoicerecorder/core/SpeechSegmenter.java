@@ -0,0 +1,158 @@
+package app.independo.capacitorvoicerecorder.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds a speech region map from metered windows.
+ *
+ * <p>Speech bursts come from a {@link VoiceActivityDetector} fed with the same windows as the level meter. When the
+ * session finishes, bursts are grouped into utterances: a group is closed at the first pause once it reaches the
+ * minimum length, or before it would exceed the maximum length. Continuous speech longer than the maximum is cut
+ * into equal parts. The outer bounds of all bursts double as the voiced range used for silence trimming.</p>
+ */
+public class SpeechSegmenter {
+
+    /** Detector that classifies windows into speech and silence. */
+    private final VoiceActivityDetector detector;
+    /** Grouping bounds for utterances. */
+    private final SegmentationOptions options;
+    /** Analysis window length in milliseconds. */
+    private final int windowMs;
+    /** Completed speech bursts in recording order. */
+    private final List<Burst> bursts = new ArrayList<>();
+    /** Burst currently being collected, or null outside speech. */
+    private Burst current;
+    /** Start of the current run of voiced windows. */
+    private long voicedRunStartMs = -1;
+    /** Energy accumulated over the current voiced run before speech is confirmed. */
+    private double voicedRunEnergy;
+    /** Windows in the current voiced run before speech is confirmed. */
+    private int voicedRunWindows;
+
+    public SpeechSegmenter(int windowMs, SegmentationOptions options) {
+        this.detector = new VoiceActivityDetector(windowMs);
+        this.options = options;
+        this.windowMs = windowMs;
+    }
+
+    /** Processes one metered window ending at the given recorded position. */
+    public synchronized void onWindow(double level, long positionMs) {
+        VoiceActivityDetector.Transition transition = detector.process(level);
+        double energy = level * level;
+        boolean voiced = detector.isLastWindowVoiced();
+
+        if (current == null) {
+            if (!voiced) {
+                voicedRunStartMs = -1;
+                voicedRunEnergy = 0;
+                voicedRunWindows = 0;
+            } else {
+                if (voicedRunStartMs < 0) {
+                    voicedRunStartMs = positionMs - windowMs;
+                }
+                voicedRunEnergy += energy;
+                voicedRunWindows++;
+            }
+            if (transition == VoiceActivityDetector.Transition.SPEECH_STARTED) {
+                current = new Burst(voicedRunStartMs, positionMs, voicedRunEnergy, voicedRunWindows);
+                voicedRunStartMs = -1;
+                voicedRunEnergy = 0;
+                voicedRunWindows = 0;
+            }
+            return;
+        }
+
+        current.pendingEnergy += energy;
+        current.pendingWindows++;
+        if (voiced) {
+            current.endMs = positionMs;
+            current.energy += current.pendingEnergy;
+            current.windows += current.pendingWindows;
+            current.pendingEnergy = 0;
+            current.pendingWindows = 0;
+        }
+        if (transition == VoiceActivityDetector.Transition.SPEECH_ENDED) {
+            bursts.add(current);
+            current = null;
+        }
+    }
+
+    /** Returns the span from the first to the last voiced window of confirmed speech, or null if none was heard. */
+    public synchronized AudioRange getVoicedRange() {
+        Burst first = bursts.isEmpty() ? current : bursts.get(0);
+        Burst last = current != null ? current : (bursts.isEmpty() ? null : bursts.get(bursts.size() - 1));
+        if (first == null || last == null) {
+            return null;
+        }
+        return new AudioRange(first.startMs, last.endMs);
+    }
+
+    /** Closes any open burst and returns the grouped utterances. */
+    public synchronized List<SpeechRegion> finish() {
+        if (current != null) {
+            bursts.add(current);
+            current = null;
+        }
+        return group();
+    }
+
+    private List<SpeechRegion> group() {
+        List<SpeechRegion> regions = new ArrayList<>();
+        Burst utterance = null;
+        for (Burst burst : bursts) {
+            if (utterance == null) {
+                utterance = burst.copy();
+                continue;
+            }
+            boolean reachedMinimum = utterance.endMs - utterance.startMs >= options.minUtteranceMs();
+            boolean wouldExceedMaximum = burst.endMs - utterance.startMs > options.maxUtteranceMs();
+            if (reachedMinimum || wouldExceedMaximum) {
+                addSplit(regions, utterance);
+                utterance = burst.copy();
+            } else {
+                utterance.endMs = burst.endMs;
+                utterance.energy += burst.energy;
+                utterance.windows += burst.windows;
+            }
+        }
+        if (utterance != null) {
+            addSplit(regions, utterance);
+        }
+        return regions;
+    }
+
+    /** Adds the utterance, cutting it into equal parts when it exceeds the maximum length. */
+    private void addSplit(List<SpeechRegion> regions, Burst utterance) {
+        long length = utterance.endMs - utterance.startMs;
+        double meanEnergy = utterance.windows > 0 ? utterance.energy / utterance.windows : 0;
+        int parts = (int) Math.max(1, (length + options.maxUtteranceMs() - 1) / options.maxUtteranceMs());
+        long partLength = length / parts;
+        for (int i = 0; i < parts; i++) {
+            long start = utterance.startMs + i * partLength;
+            long end = i == parts - 1 ? utterance.endMs : start + partLength;
+            regions.add(new SpeechRegion(start, end, meanEnergy, null));
+        }
+    }
+
+    /** Mutable accumulator for a burst of speech. */
+    private static final class Burst {
+        final long startMs;
+        long endMs;
+        double energy;
+        int windows;
+        double pendingEnergy;
+        int pendingWindows;
+
+        Burst(long startMs, long endMs, double energy, int windows) {
+            this.startMs = startMs;
+            this.endMs = endMs;
+            this.energy = energy;
+            this.windows = windows;
+        }
+
+        Burst copy() {
+            return new Burst(startMs, endMs, energy, windows);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package app.independo.capacitorvoicerecorder.core;
+
+/**
+ * Space taken by the catalogued recordings of one directory option.
+ *
+ * @param directory directory option, such as {@code DOCUMENTS}
+ * @param usedBytes total size of the recordings
+ * @param pinnedBytes part of {@code usedBytes} taken by pinned recordings, which are never evicted
+ * @param recordings number of recordings
+ * @param budgetBytes configured budget, or 0 when the directory has none
+ */
+public record StorageUsage(String directory, long usedBytes, long pinnedBytes, int recordings, long budgetBytes) {}
@@ -0,0 +1,66 @@
+package app.independo.capacitorvoicerecorder.core;
+
+/**
+ * Static entry points for trace instrumentation, forwarding to the installed {@link VoiceRecorderTracer}.
+ *
+ * <p>Tracing is off until a tracer is installed. While it is off every call is a single volatile read, and section
+ * names are constants, so instrumented code allocates nothing. Callers that would have to compute a counter value
+ * check {@link #isEnabled()} first.</p>
+ */
+public final class Tracing {
+
+    /** Installed tracer, or null while tracing is off. */
+    private static volatile VoiceRecorderTracer tracer;
+
+    private Tracing() {}
+
+    /** Installs the tracer, or turns tracing off when it is null. */
+    public static void setTracer(VoiceRecorderTracer tracer) {
+        Tracing.tracer = tracer;
+    }
+
+    /** Returns whether a tracer is installed. */
+    public static boolean isEnabled() {
+        return tracer != null;
+    }
+
+    /** Opens a section on the calling thread. */
+    public static void beginSection(String name) {
+        VoiceRecorderTracer current = tracer;
+        if (current != null) {
+            current.beginSection(name);
+        }
+    }
+
+    /** Closes the innermost section opened on the calling thread. */
+    public static void endSection() {
+        VoiceRecorderTracer current = tracer;
+        if (current != null) {
+            current.endSection();
+        }
+    }
+
+    /** Opens a slice that may end on another thread. */
+    public static void beginAsyncSection(String name, int cookie) {
+        VoiceRecorderTracer current = tracer;
+        if (current != null) {
+            current.beginAsyncSection(name, cookie);
+        }
+    }
+
+    /** Closes the slice opened with the same name and cookie. */
+    public static void endAsyncSection(String name, int cookie) {
+        VoiceRecorderTracer current = tracer;
+        if (current != null) {
+            current.endAsyncSection(name, cookie);
+        }
+    }
+
+    /** Publishes the current value of a counter track. */
+    public static void setCounter(String name, long value) {
+        VoiceRecorderTracer current = tracer;
+        if (current != null) {
+            current.setCounter(name, value);
+        }
+    }
+}
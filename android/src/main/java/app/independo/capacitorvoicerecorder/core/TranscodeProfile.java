@@ -0,0 +1,62 @@
+package app.independo.capacitorvoicerecorder.core;
+
+import java.util.Set;
+
+/**
+ * Target format for transcoding an existing recording. Output is always mono.
+ *
+ * @param format output codec, {@link #FORMAT_OPUS} (OGG container) or {@link #FORMAT_AAC} (ADTS)
+ * @param sampleRate output sample rate in Hz
+ * @param bitRate encoder bit rate in bits per second
+ */
+public record TranscodeProfile(String format, int sampleRate, int bitRate) {
+    /** Opus in an OGG container. */
+    public static final String FORMAT_OPUS = "opus";
+    /** AAC-LC in an ADTS stream, like the recordings themselves. */
+    public static final String FORMAT_AAC = "aac";
+    /** Default output sample rate, the usual input rate of speech recognition backends. */
+    public static final int DEFAULT_SAMPLE_RATE = 16_000;
+    /** Default Opus bit rate, transparent for wideband speech. */
+    public static final int DEFAULT_OPUS_BIT_RATE = 24_000;
+    /** Default AAC bit rate for the default sample rate. */
+    public static final int DEFAULT_AAC_BIT_RATE = 48_000;
+
+    private static final Set<Integer> OPUS_SAMPLE_RATES = Set.of(8_000, 12_000, 16_000, 24_000, 48_000);
+    private static final Set<Integer> AAC_SAMPLE_RATES = Set.of(
+        8_000, 11_025, 12_000, 16_000, 22_050, 24_000, 32_000, 44_100, 48_000
+    );
+
+    /** Creates a profile from optional values, falling back to 16 kHz Opus. */
+    public static TranscodeProfile of(String format, Integer sampleRate, Integer bitRate) {
+        String resolvedFormat = format != null ? format : FORMAT_OPUS;
+        int resolvedSampleRate = sampleRate != null ? sampleRate : DEFAULT_SAMPLE_RATE;
+        int defaultBitRate = FORMAT_AAC.equals(resolvedFormat) ? DEFAULT_AAC_BIT_RATE : DEFAULT_OPUS_BIT_RATE;
+        return new TranscodeProfile(resolvedFormat, resolvedSampleRate, bitRate != null ? bitRate : defaultBitRate);
+    }
+
+    /** Returns whether the output is Opus. */
+    public boolean isOpus() {
+        return FORMAT_OPUS.equals(format);
+    }
+
+    /** Returns whether the codec supports the format, sample rate and bit rate combination. */
+    public boolean isSupported() {
+        if (isOpus()) {
+            return OPUS_SAMPLE_RATES.contains(sampleRate) && bitRate >= 6_000 && bitRate <= 510_000;
+        }
+        if (FORMAT_AAC.equals(format)) {
+            return AAC_SAMPLE_RATES.contains(sampleRate) && bitRate >= 8_000 && bitRate <= 320_000;
+        }
+        return false;
+    }
+
+    /** Returns the MIME type of the output file. */
+    public String mimeType() {
+        return isOpus() ? "audio/ogg" : "audio/aac";
+    }
+
+    /** Returns the output file extension without a leading dot. */
+    public String fileExtension() {
+        return isOpus() ? "ogg" : "aac";
+    }
+}
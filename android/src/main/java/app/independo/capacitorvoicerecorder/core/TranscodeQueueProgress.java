@@ -0,0 +1,20 @@
+package app.independo.capacitorvoicerecorder.core;
+
+/**
+ * Outcome of one batch transcode job together with the aggregate queue state.
+ *
+ * @param uri source recording URI
+ * @param outputUri URI of the transcoded file, or null if the job failed
+ * @param error canonical error code, or null if the job succeeded
+ * @param status job counts after this job
+ * @param filesPerSecond finished jobs per second since the queue became busy
+ * @param megabytesPerSecond source megabytes read per second since the queue became busy
+ */
+public record TranscodeQueueProgress(
+    String uri,
+    String outputUri,
+    String error,
+    TranscodeQueueStatus status,
+    double filesPerSecond,
+    double megabytesPerSecond
+) {}
@@ -0,0 +1,10 @@
+package app.independo.capacitorvoicerecorder.core;
+
+/**
+ * Job counts of the batch transcode queue. Finished counts cover the work since the queue was last cleared.
+ *
+ * @param pending jobs waiting or running
+ * @param completed jobs that produced an output file
+ * @param failed jobs that ended with an error
+ */
+public record TranscodeQueueStatus(int pending, int completed, int failed) {}
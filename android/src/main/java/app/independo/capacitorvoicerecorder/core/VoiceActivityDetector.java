@@ -0,0 +1,144 @@
+package app.independo.capacitorvoicerecorder.core;
+
+/**
+ * Energy-based voice activity detector that classifies one analysis window at a time.
+ *
+ * <p>The detector tracks an adaptive noise floor in dBFS. A window counts as voiced when its level exceeds
+ * the floor by {@link #DEFAULT_THRESHOLD_DB} and the absolute {@link #DEFAULT_MIN_SPEECH_DB}. Speech starts after
+ * a number of consecutive voiced onset windows and ends after a number of consecutive unvoiced hangover windows,
+ * which keeps short pauses between words from toggling the state.</p>
+ */
+public class VoiceActivityDetector {
+
+    /** Transition produced by processing a single window. */
+    public enum Transition {
+        NONE,
+        SPEECH_STARTED,
+        SPEECH_ENDED
+    }
+
+    /** Lowest level in dBFS used for silent windows, avoiding negative infinity. */
+    static final double SILENCE_DB = -90.0;
+    /** Margin above the noise floor required for a voiced window. */
+    static final double DEFAULT_THRESHOLD_DB = 12.0;
+    /** Absolute level below which windows are never considered voiced. */
+    static final double DEFAULT_MIN_SPEECH_DB = -50.0;
+    /** Time needed above threshold before speech is reported. */
+    static final int DEFAULT_ONSET_MS = 100;
+    /** Time tolerated below threshold before speech end is reported. */
+    static final int DEFAULT_HANGOVER_MS = 400;
+    /** Upward drift of the noise floor per second. */
+    private static final double FLOOR_RISE_DB_PER_SECOND = 2.0;
+    /** Weight of a new window when the noise floor moves down. */
+    private static final double FLOOR_FALL_WEIGHT = 0.5;
+
+    /** Number of consecutive voiced windows required to start speech. */
+    private final int onsetWindows;
+    /** Number of consecutive unvoiced windows required to end speech. */
+    private final int hangoverWindows;
+    /** Required margin above the noise floor. */
+    private final double thresholdDb;
+    /** Absolute minimum level for voiced windows. */
+    private final double minSpeechDb;
+    /** Maximum upward floor movement for a single window. */
+    private final double floorRiseDbPerWindow;
+    /** Current noise floor estimate in dBFS, NaN until the first window. */
+    private double noiseFloorDb = Double.NaN;
+    /** Whether speech is currently active. */
+    private boolean speaking;
+    /** Consecutive voiced windows while not speaking. */
+    private int voicedRun;
+    /** Consecutive unvoiced windows while speaking. */
+    private int unvoicedRun;
+    /** Level of the most recent window in dBFS. */
+    private double lastLevelDb = SILENCE_DB;
+    /** Whether the most recent window was voiced. */
+    private boolean lastWindowVoiced;
+
+    public VoiceActivityDetector(int windowMs) {
+        this(windowMs, DEFAULT_ONSET_MS, DEFAULT_HANGOVER_MS, DEFAULT_THRESHOLD_DB, DEFAULT_MIN_SPEECH_DB);
+    }
+
+    public VoiceActivityDetector(int windowMs, int onsetMs, int hangoverMs, double thresholdDb, double minSpeechDb) {
+        this.onsetWindows = Math.max(1, ceilDiv(onsetMs, windowMs));
+        this.hangoverWindows = Math.max(1, ceilDiv(hangoverMs, windowMs));
+        this.thresholdDb = thresholdDb;
+        this.minSpeechDb = minSpeechDb;
+        this.floorRiseDbPerWindow = FLOOR_RISE_DB_PER_SECOND * windowMs / 1000.0;
+    }
+
+    /** Processes a window level normalized to [0, 1] and returns the resulting state transition. */
+    public Transition process(double level) {
+        double levelDb = toDb(level);
+        lastLevelDb = levelDb;
+        if (Double.isNaN(noiseFloorDb)) {
+            noiseFloorDb = levelDb;
+        }
+
+        lastWindowVoiced = levelDb >= minSpeechDb && levelDb - noiseFloorDb >= thresholdDb;
+        adaptNoiseFloor(levelDb);
+
+        if (!speaking) {
+            voicedRun = lastWindowVoiced ? voicedRun + 1 : 0;
+            if (voicedRun >= onsetWindows) {
+                speaking = true;
+                voicedRun = 0;
+                unvoicedRun = 0;
+                return Transition.SPEECH_STARTED;
+            }
+            return Transition.NONE;
+        }
+
+        unvoicedRun = lastWindowVoiced ? 0 : unvoicedRun + 1;
+        if (unvoicedRun >= hangoverWindows) {
+            speaking = false;
+            unvoicedRun = 0;
+            return Transition.SPEECH_ENDED;
+        }
+        return Transition.NONE;
+    }
+
+    /** Returns whether speech is currently active. */
+    public boolean isSpeaking() {
+        return speaking;
+    }
+
+    /** Returns whether the most recently processed window exceeded the threshold. */
+    public boolean isLastWindowVoiced() {
+        return lastWindowVoiced;
+    }
+
+    /** Returns the current noise floor estimate in dBFS. */
+    public double getNoiseFloorDb() {
+        return Double.isNaN(noiseFloorDb) ? SILENCE_DB : noiseFloorDb;
+    }
+
+    /** Returns the level of the most recently processed window in dBFS. */
+    public double getLastLevelDb() {
+        return lastLevelDb;
+    }
+
+    /**
+     * Falls quickly towards quieter windows and rises slowly otherwise, so steady background noise is absorbed
+     * into the floor after a few seconds while the pauses between words keep pulling it back down.
+     */
+    private void adaptNoiseFloor(double levelDb) {
+        if (levelDb < noiseFloorDb) {
+            noiseFloorDb += (levelDb - noiseFloorDb) * FLOOR_FALL_WEIGHT;
+        } else {
+            noiseFloorDb += Math.min(levelDb - noiseFloorDb, floorRiseDbPerWindow);
+        }
+    }
+
+    /** Converts a normalized amplitude into dBFS, clamped to {@link #SILENCE_DB}. */
+    static double toDb(double level) {
+        if (Double.isNaN(level) || level <= 0) {
+            return SILENCE_DB;
+        }
+        return Math.max(SILENCE_DB, 20 * Math.log10(Math.min(1, level)));
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+}
@@ -0,0 +1,9 @@
+package app.independo.capacitorvoicerecorder.core;
+
+/** Native voice activity detection settings; null values disable the corresponding auto-stop. */
+public record VoiceActivityOptions(Integer autoStopAfterSilenceMs, Integer maxLeadingSilenceMs) {
+    /** Returns whether any voice activity feature is requested. */
+    public boolean isEnabled() {
+        return autoStopAfterSilenceMs != null || maxLeadingSilenceMs != null;
+    }
+}
@@ -0,0 +1,24 @@
+package app.independo.capacitorvoicerecorder.core;
+
+/**
+ * Destination for the plugin's trace sections and counters, installed through {@link Tracing}.
+ *
+ * <p>On Android the installed tracer writes to {@code android.os.Trace}, so the sections show up in Perfetto and
+ * systrace captures next to the system's own work. Tests install a recording tracer instead.</p>
+ */
+public interface VoiceRecorderTracer {
+    /** Opens a section on the calling thread; sections nest and must be closed on the same thread. */
+    void beginSection(String name);
+
+    /** Closes the innermost section opened on the calling thread. */
+    void endSection();
+
+    /** Opens a slice that may end on another thread, identified by its name and cookie. */
+    void beginAsyncSection(String name, int cookie);
+
+    /** Closes the slice opened with the same name and cookie. */
+    void endAsyncSection(String name, int cookie);
+
+    /** Publishes the current value of a counter track. */
+    void setCounter(String name, long value);
+}
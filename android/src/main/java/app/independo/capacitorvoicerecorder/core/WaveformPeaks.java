@@ -0,0 +1,47 @@
+package app.independo.capacitorvoicerecorder.core;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Peak amplitude per point over decoded PCM, for drawing a waveform of a recording.
+ *
+ * <p>Each point covers an equal share of the expected sample frames; the peak of every channel in the share counts.
+ * Samples past the expected length fall into the last point.</p>
+ */
+public final class WaveformPeaks {
+
+    /** Largest number of points a waveform can be requested with. */
+    public static final int MAX_POINTS = 4096;
+
+    private final float[] peaks;
+    private final long expectedFrames;
+    private long position;
+
+    /** Creates peaks for {@code points} points over {@code expectedFrames} sample frames per channel. */
+    public WaveformPeaks(int points, long expectedFrames) {
+        this.peaks = new float[Math.max(1, Math.min(points, MAX_POINTS))];
+        this.expectedFrames = Math.max(1, expectedFrames);
+    }
+
+    /** Adds interleaved 16-bit PCM from the buffer's position to its limit. */
+    public void add(ShortBuffer interleaved, int channelCount) {
+        int channels = Math.max(1, channelCount);
+        while (interleaved.remaining() >= channels) {
+            int point = (int) Math.min(peaks.length - 1, position * peaks.length / expectedFrames);
+            float peak = peaks[point];
+            for (int channel = 0; channel < channels; channel++) {
+                float level = Math.abs(interleaved.get() / 32768f);
+                if (level > peak) {
+                    peak = level;
+                }
+            }
+            peaks[point] = peak;
+            position++;
+        }
+    }
+
+    /** Returns the peaks in [0, 1], one per point. */
+    public float[] toArray() {
+        return peaks.clone();
+    }
+}
@@ -0,0 +1,94 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/** Encodes PCM into AAC-LC ADTS with the same settings MediaRecorder uses for recordings. */
+final class AacEncoder {
+
+    /** Encoder bit rate, matching the MediaRecorder configuration. */
+    static final int BIT_RATE = 96000;
+    /** Timeout for codec buffer dequeues in microseconds. */
+    private static final long DEQUEUE_TIMEOUT_US = 10_000;
+
+    interface CodecFactory {
+        MediaCodec createEncoder(String mimeType) throws IOException;
+    }
+
+    private AacEncoder() {}
+
+    /** Encodes mono 16-bit PCM into an ADTS file. */
+    static void encodeToAdts(short[] pcm, int sampleRate, File destination, CodecFactory codecFactory) throws IOException {
+        int sampleRateIndex = AdtsFrameIndex.sampleRateIndex(sampleRate);
+        if (sampleRateIndex < 0) {
+            throw new IOException("Unsupported ADTS sample rate " + sampleRate);
+        }
+
+        MediaFormat format = MediaFormat.createAudioFormat(MediaFormat.MIMETYPE_AUDIO_AAC, sampleRate, 1);
+        format.setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+        format.setInteger(MediaFormat.KEY_BIT_RATE, BIT_RATE);
+        MediaCodec codec = codecFactory.createEncoder(MediaFormat.MIMETYPE_AUDIO_AAC);
+        try (OutputStream output = new FileOutputStream(destination)) {
+            codec.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            codec.start();
+            drain(codec, pcm, sampleRate, sampleRateIndex, output);
+        } catch (IllegalStateException exp) {
+            destination.delete();
+            throw new IOException("AAC encoding failed", exp);
+        } finally {
+            codec.release();
+        }
+    }
+
+    private static void drain(MediaCodec codec, short[] pcm, int sampleRate, int sampleRateIndex, OutputStream output)
+        throws IOException {
+        MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+        byte[] header = new byte[AdtsFrameIndex.HEADER_LENGTH];
+        byte[] frame = new byte[0];
+        int inputSample = 0;
+        boolean inputDone = false;
+        while (true) {
+            if (!inputDone) {
+                int inputIndex = codec.dequeueInputBuffer(DEQUEUE_TIMEOUT_US);
+                if (inputIndex >= 0) {
+                    ByteBuffer input = codec.getInputBuffer(inputIndex);
+                    input.clear();
+                    int samples = Math.min(pcm.length - inputSample, input.remaining() / 2);
+                    input.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().put(pcm, inputSample, samples);
+                    long presentationUs = (long) inputSample * 1_000_000 / sampleRate;
+                    inputSample += samples;
+                    inputDone = inputSample >= pcm.length;
+                    int flags = inputDone ? MediaCodec.BUFFER_FLAG_END_OF_STREAM : 0;
+                    codec.queueInputBuffer(inputIndex, 0, samples * 2, presentationUs, flags);
+                }
+            }
+
+            int outputIndex = codec.dequeueOutputBuffer(info, DEQUEUE_TIMEOUT_US);
+            if (outputIndex < 0) {
+                continue;
+            }
+            if ((info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0 && info.size > 0) {
+                if (frame.length < info.size) {
+                    frame = new byte[info.size];
+                }
+                ByteBuffer encoded = codec.getOutputBuffer(outputIndex);
+                encoded.position(info.offset);
+                encoded.get(frame, 0, info.size);
+                AdtsFile.writeHeader(header, info.size + header.length, sampleRateIndex, 1);
+                output.write(header);
+                output.write(frame, 0, info.size);
+            }
+            codec.releaseOutputBuffer(outputIndex, false);
+            if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                return;
+            }
+        }
+    }
+}
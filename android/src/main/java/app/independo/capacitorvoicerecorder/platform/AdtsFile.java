@@ -0,0 +1,146 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import app.independo.capacitorvoicerecorder.core.AudioRange;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Lossless editing helpers for AAC ADTS files that copy whole frames without decoding. */
+final class AdtsFile {
+
+    private AdtsFile() {}
+
+    /** Copies the frames covering [startMs, endMs) of the source into the destination file. */
+    static void copyRange(File source, long startMs, long endMs, File destination) throws IOException {
+        AdtsSeekIndex index = AdtsSeekIndex.forFile(source);
+        int fromFrame = index.frameAtOrBefore(startMs);
+        int toFrame = index.frameAtOrAfter(endMs);
+        if (toFrame <= fromFrame) {
+            throw new IOException("Empty ADTS range");
+        }
+        try (FileChannel input = new FileInputStream(source).getChannel()) {
+            long start = index.offsetOf(input, fromFrame);
+            long end = index.offsetOf(input, toFrame);
+            try (FileChannel output = new FileOutputStream(destination).getChannel()) {
+                transferFully(input, start, end, output);
+            }
+        }
+    }
+
+    /**
+     * Rewrites the file so it only keeps the frames covering [startMs, endMs) and returns the kept span, snapped
+     * to frame boundaries. The file is left untouched when the range already covers every frame.
+     */
+    static AudioRange trimInPlace(File file, long startMs, long endMs) throws IOException {
+        File trimmed = new File(file.getParentFile(), file.getName() + ".trim");
+        AdtsSeekIndex index = AdtsSeekIndex.forFile(file);
+        int fromFrame = index.frameAtOrBefore(startMs);
+        int toFrame = index.frameAtOrAfter(endMs);
+        if (toFrame <= fromFrame) {
+            throw new IOException("Empty ADTS range");
+        }
+        if (fromFrame == 0 && toFrame == index.getFrameCount()) {
+            return new AudioRange(0, index.getDurationMs());
+        }
+        try (FileChannel input = new FileInputStream(file).getChannel()) {
+            long start = index.offsetOf(input, fromFrame);
+            long end = index.offsetOf(input, toFrame);
+            try (FileChannel output = new FileOutputStream(trimmed).getChannel()) {
+                transferFully(input, start, end, output);
+            }
+        } catch (IOException exp) {
+            trimmed.delete();
+            throw exp;
+        }
+        AdtsSeekIndex.invalidate(file);
+        if (!trimmed.renameTo(file)) {
+            trimmed.delete();
+            throw new IOException("Failed to replace " + file.getName());
+        }
+        return new AudioRange(index.frameToMs(fromFrame), index.frameToMs(toFrame));
+    }
+
+    /** Copies the head file followed by the frames of the file into a replacement of the file. */
+    static void prepend(File head, File file) throws IOException {
+        File combined = new File(file.getParentFile(), file.getName() + ".prepend");
+        try (
+            FileChannel headInput = new FileInputStream(head).getChannel();
+            FileChannel fileInput = new FileInputStream(file).getChannel();
+            FileChannel output = new FileOutputStream(combined).getChannel()
+        ) {
+            transferFully(headInput, 0, headInput.size(), output);
+            transferFully(fileInput, 0, fileInput.size(), output);
+        } catch (IOException exp) {
+            combined.delete();
+            throw exp;
+        }
+        AdtsSeekIndex.invalidate(file);
+        if (!combined.renameTo(file)) {
+            combined.delete();
+            throw new IOException("Failed to replace " + file.getName());
+        }
+    }
+
+    /**
+     * Joins the frames of the sources in order into the destination file. Throws {@link IncompatibleAudioFormat} when
+     * the sources differ in profile, sampling rate or channel layout, which a player could not follow mid-stream.
+     */
+    static void concat(List<File> sources, File destination) throws IOException, IncompatibleAudioFormat {
+        List<AdtsSeekIndex> indexes = new ArrayList<>();
+        for (File source : sources) {
+            AdtsSeekIndex index = AdtsSeekIndex.forFile(source);
+            if (index.getFrameCount() == 0) {
+                throw new IOException("No ADTS frames in " + source.getName());
+            }
+            if (!indexes.isEmpty() && !indexes.get(0).hasSameAudioConfig(index)) {
+                throw new IncompatibleAudioFormat();
+            }
+            indexes.add(index);
+        }
+        try (FileChannel output = new FileOutputStream(destination).getChannel()) {
+            for (int i = 0; i < sources.size(); i++) {
+                try (FileChannel input = new FileInputStream(sources.get(i)).getChannel()) {
+                    transferFully(input, 0, indexes.get(i).getEndOffset(), output);
+                }
+            }
+        } catch (IOException exp) {
+            destination.delete();
+            throw exp;
+        }
+    }
+
+    /** Writes an ADTS header without CRC for an AAC-LC frame of the given total length. */
+    static void writeHeader(byte[] header, int frameLength, int sampleRateIndex, int channelCount) {
+        header[0] = (byte) 0xFF;
+        header[1] = (byte) 0xF1;
+        header[2] = (byte) ((1 << 6) | (sampleRateIndex << 2) | ((channelCount >> 2) & 0x01));
+        header[3] = (byte) (((channelCount & 0x03) << 6) | ((frameLength >> 11) & 0x03));
+        header[4] = (byte) ((frameLength >> 3) & 0xFF);
+        header[5] = (byte) (((frameLength & 0x07) << 5) | 0x1F);
+        header[6] = (byte) 0xFC;
+    }
+
+    /** Transfers the byte range [start, end) of the input to the current position of the output. */
+    static void transferFully(FileChannel input, long start, long end, FileChannel output) throws IOException {
+        long position = start;
+        while (position < end) {
+            long transferred = input.transferTo(position, end - position, output);
+            if (transferred <= 0) {
+                throw new IOException("ADTS copy stalled at " + position);
+            }
+            position += transferred;
+        }
+    }
+
+    /** Writes all remaining bytes of the buffer to the current position of the channel. */
+    static void writeFully(FileChannel output, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/** Byte offsets of the frames in an AAC ADTS stream, built by scanning frame headers. */
+final class AdtsFrameIndex {
+
+    /** Length of an ADTS header without CRC. */
+    static final int HEADER_LENGTH = 7;
+    /** Sampling rates addressed by the ADTS sampling frequency index. */
+    private static final int[] SAMPLE_RATES = {
+        96000, 88200, 64000, 48000, 44100, 32000, 24000, 22050, 16000, 12000, 11025, 8000, 7350
+    };
+    /** Read size used while scanning headers. */
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    /** Returns the ADTS sampling frequency index for the rate, or -1 if ADTS cannot express it. */
+    static int sampleRateIndex(int sampleRate) {
+        for (int i = 0; i < SAMPLE_RATES.length; i++) {
+            if (SAMPLE_RATES[i] == sampleRate) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the sampling rate for an ADTS sampling frequency index, or 0 if the index is reserved. */
+    static int sampleRateOf(int sampleRateIndex) {
+        return sampleRateIndex >= 0 && sampleRateIndex < SAMPLE_RATES.length ? SAMPLE_RATES[sampleRateIndex] : 0;
+    }
+
+    /** Returns the length of the frame whose header starts at {@code data[i]}, or -1 if it is not a valid header. */
+    static int frameLength(byte[] data, int i) {
+        if ((data[i] & 0xFF) != 0xFF || (data[i + 1] & 0xF6) != 0xF0) {
+            return -1;
+        }
+        int frameLength = ((data[i + 3] & 0x03) << 11) | ((data[i + 4] & 0xFF) << 3) | ((data[i + 5] & 0xE0) >> 5);
+        return frameLength < HEADER_LENGTH ? -1 : frameLength;
+    }
+
+    /** Returns the length of the frame whose header starts at absolute index {@code i}, or -1 if it is not valid. */
+    static int frameLength(ByteBuffer data, int i) {
+        if (i + HEADER_LENGTH > data.limit() || (data.get(i) & 0xFF) != 0xFF || (data.get(i + 1) & 0xF6) != 0xF0) {
+            return -1;
+        }
+        int frameLength = ((data.get(i + 3) & 0x03) << 11) | ((data.get(i + 4) & 0xFF) << 3) | ((data.get(i + 5) & 0xE0) >> 5);
+        return frameLength < HEADER_LENGTH ? -1 : frameLength;
+    }
+
+    /** Frame start offsets followed by the end offset of the last frame. */
+    private final long[] offsets;
+    /** Number of complete frames. */
+    private final int frameCount;
+    /** Sampling rate of the stream. */
+    private final int sampleRate;
+    /** PCM samples per channel carried by each frame. */
+    private final int samplesPerFrame;
+
+    private AdtsFrameIndex(long[] offsets, int frameCount, int sampleRate, int samplesPerFrame) {
+        this.offsets = offsets;
+        this.frameCount = frameCount;
+        this.sampleRate = sampleRate;
+        this.samplesPerFrame = samplesPerFrame;
+    }
+
+    /** Returns the sampling rate in the first frame header of the channel, or 0 when it does not start with one. */
+    static int firstSampleRate(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        int read = 0;
+        while (header.hasRemaining() && read >= 0) {
+            read = channel.read(header, header.position());
+        }
+        if (header.hasRemaining() || frameLength(header.array(), 0) < 0) {
+            return 0;
+        }
+        return sampleRateOf((header.get(2) & 0x3C) >> 2);
+    }
+
+    /** Scans the channel from the start and indexes every complete frame; stops at the first invalid header. */
+    static AdtsFrameIndex scan(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long[] offsets = new long[1024];
+        int frameCount = 0;
+        int sampleRate = 0;
+        int samplesPerFrame = 0;
+        long bufferStart = -1;
+        int bufferLength = 0;
+        long position = 0;
+
+        while (position + HEADER_LENGTH <= size) {
+            if (bufferStart < 0 || position + HEADER_LENGTH > bufferStart + bufferLength) {
+                buffer.clear();
+                int read = 0;
+                while (buffer.hasRemaining() && read >= 0) {
+                    read = channel.read(buffer, position + buffer.position());
+                }
+                bufferStart = position;
+                bufferLength = buffer.position();
+                if (bufferLength < HEADER_LENGTH) {
+                    break;
+                }
+            }
+
+            byte[] data = buffer.array();
+            int i = (int) (position - bufferStart);
+            int frameLength = frameLength(data, i);
+            if (frameLength < 0 || position + frameLength > size) {
+                break;
+            }
+            if (frameCount == 0) {
+                int sampleRateIndex = (data[i + 2] & 0x3C) >> 2;
+                if (sampleRateIndex >= SAMPLE_RATES.length) {
+                    break;
+                }
+                sampleRate = SAMPLE_RATES[sampleRateIndex];
+                samplesPerFrame = ((data[i + 6] & 0x03) + 1) * 1024;
+            }
+
+            if (frameCount + 1 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[frameCount++] = position;
+            position += frameLength;
+        }
+
+        offsets[frameCount] = position;
+        return new AdtsFrameIndex(offsets, frameCount, sampleRate, samplesPerFrame);
+    }
+
+    /** Returns the number of complete frames. */
+    int getFrameCount() {
+        return frameCount;
+    }
+
+    /** Returns the sampling rate, or 0 when no frame was found. */
+    int getSampleRate() {
+        return sampleRate;
+    }
+
+    /** Returns the byte offset where the given frame starts; {@code frameCount} maps to the end of the last frame. */
+    long offsetOf(int frame) {
+        return offsets[frame];
+    }
+
+    /** Returns the duration of all indexed frames in milliseconds. */
+    long getDurationMs() {
+        return frameToMs(frameCount);
+    }
+
+    /** Returns the presentation time where the given frame starts. */
+    long frameToMs(int frame) {
+        if (sampleRate == 0) {
+            return 0;
+        }
+        return (long) frame * samplesPerFrame * 1000 / sampleRate;
+    }
+
+    /** Returns the first frame that overlaps the given time, clamped to the indexed range. */
+    int frameAtOrBefore(long timeMs) {
+        if (sampleRate == 0 || timeMs <= 0) {
+            return 0;
+        }
+        if (timeMs >= getDurationMs()) {
+            // Also keeps the multiplication below from overflowing for open-ended ranges.
+            return frameCount;
+        }
+        long frame = timeMs * sampleRate / (1000L * samplesPerFrame);
+        return (int) Math.min(frame, frameCount);
+    }
+
+    /** Returns the first frame that starts at or after the given time, clamped to the indexed range. */
+    int frameAtOrAfter(long timeMs) {
+        if (sampleRate == 0 || timeMs <= 0) {
+            return 0;
+        }
+        if (timeMs >= getDurationMs()) {
+            // Also keeps the multiplication below from overflowing for open-ended ranges.
+            return frameCount;
+        }
+        long divisor = 1000L * samplesPerFrame;
+        long frame = (timeMs * sampleRate + divisor - 1) / divisor;
+        return (int) Math.min(frame, frameCount);
+    }
+}
@@ -0,0 +1,373 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Sampled frame index of an AAC ADTS file, persisted as a sidecar next to it.
+ *
+ * <p>Every {@link #STRIDE_FRAMES}th frame contributes a (byte offset, sample position) pair to a packed
+ * {@code long[]}, so the sidecar is about 0.5% of the size of a frame-by-frame index. A frame is located by binary
+ * search over the pairs and a walk over at most {@code STRIDE_FRAMES - 1} headers. The recorder extends the index
+ * while it records; files without a valid sidecar are scanned once and the sidecar is written then. A sidecar only
+ * counts as valid while the file still has the length it was built for.</p>
+ */
+final class AdtsSeekIndex {
+
+    /** Frames between two index entries, about 1.5 s at 44.1 kHz. */
+    static final int STRIDE_FRAMES = 64;
+    /** Suffix appended to the recording file name to name its sidecar. */
+    static final String SIDECAR_SUFFIX = ".idx";
+    /** "ADTSIDX1" in ASCII. */
+    private static final long MAGIC = 0x4144545349445831L;
+    /** Longs before the entries: magic, file length, end offset, frame count, format, layout, entry count. */
+    private static final int HEADER_LONGS = 7;
+    /** Read size while indexing. */
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    /** Length of the indexed file when the index was built. */
+    private final long fileLength;
+    /** End offset of the last complete frame. */
+    private final long endOffset;
+    private final int frameCount;
+    private final int sampleRate;
+    private final int samplesPerFrame;
+    /** Profile, sampling frequency and channel configuration bits of the first header. */
+    private final int audioConfig;
+    /** Byte offset and sample position of every {@link #STRIDE_FRAMES}th frame, interleaved. */
+    private final long[] entries;
+
+    private AdtsSeekIndex(
+        long fileLength,
+        long endOffset,
+        int frameCount,
+        int sampleRate,
+        int samplesPerFrame,
+        int audioConfig,
+        long[] entries
+    ) {
+        this.fileLength = fileLength;
+        this.endOffset = endOffset;
+        this.frameCount = frameCount;
+        this.sampleRate = sampleRate;
+        this.samplesPerFrame = samplesPerFrame;
+        this.audioConfig = audioConfig;
+        this.entries = entries;
+    }
+
+    /** Returns the sidecar file of a recording. */
+    static File sidecarFor(File file) {
+        return new File(file.getParentFile(), file.getName() + SIDECAR_SUFFIX);
+    }
+
+    /** Removes the sidecar after the recording was rewritten in place. */
+    static void invalidate(File file) {
+        sidecarFor(file).delete();
+    }
+
+    /** Loads the sidecar of the file, or scans the file and writes a fresh sidecar when it is missing or stale. */
+    static AdtsSeekIndex forFile(File file) throws IOException {
+        AdtsSeekIndex index = readSidecar(file);
+        if (index != null) {
+            return index;
+        }
+        Builder builder = new Builder();
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            builder.update(channel);
+            index = builder.build(channel.size());
+        }
+        if (index.frameCount > 0) {
+            try {
+                index.writeSidecar(file);
+            } catch (IOException ignored) {
+                // The index is still usable for this call; the next lookup scans again.
+            }
+        }
+        return index;
+    }
+
+    /** Returns the sidecar index when it exists and matches the current file length, otherwise null. */
+    static AdtsSeekIndex readSidecar(File file) {
+        File sidecar = sidecarFor(file);
+        if (!sidecar.isFile() || sidecar.length() < HEADER_LONGS * Long.BYTES || sidecar.length() % Long.BYTES != 0) {
+            return null;
+        }
+        try (FileChannel channel = new FileInputStream(sidecar).getChannel()) {
+            ByteBuffer bytes = ByteBuffer.allocate((int) channel.size());
+            while (bytes.hasRemaining() && channel.read(bytes) >= 0) {}
+            bytes.flip();
+            LongBuffer longs = bytes.asLongBuffer();
+            long[] header = new long[HEADER_LONGS];
+            longs.get(header);
+            int entryCount = (int) header[6];
+            if (header[0] != MAGIC || header[1] != file.length() || longs.remaining() != 2L * entryCount) {
+                return null;
+            }
+            long[] entries = new long[2 * entryCount];
+            longs.get(entries);
+            return new AdtsSeekIndex(
+                header[1],
+                header[2],
+                (int) header[3],
+                (int) (header[4] >>> 32),
+                (int) header[4],
+                (int) (header[5] >>> 32),
+                entries
+            );
+        } catch (IOException | RuntimeException exp) {
+            return null;
+        }
+    }
+
+    /** Writes the index next to the file through a temporary file, so readers never see a partial sidecar. */
+    void writeSidecar(File file) throws IOException {
+        int entryCount = entries.length / 2;
+        ByteBuffer bytes = ByteBuffer.allocate((HEADER_LONGS + entries.length) * Long.BYTES);
+        LongBuffer longs = bytes.asLongBuffer();
+        longs.put(MAGIC).put(fileLength).put(endOffset).put(frameCount);
+        longs.put(((long) sampleRate << 32) | (samplesPerFrame & 0xFFFFFFFFL));
+        longs.put(((long) audioConfig << 32) | STRIDE_FRAMES);
+        longs.put(entryCount);
+        longs.put(entries);
+        File sidecar = sidecarFor(file);
+        File temporary = new File(sidecar.getParentFile(), sidecar.getName() + ".tmp");
+        try (FileChannel output = new FileOutputStream(temporary).getChannel()) {
+            AdtsFile.writeFully(output, bytes);
+        }
+        if (!temporary.renameTo(sidecar)) {
+            temporary.delete();
+            throw new IOException("Failed to write " + sidecar.getName());
+        }
+    }
+
+    /** Returns the number of complete frames. */
+    int getFrameCount() {
+        return frameCount;
+    }
+
+    /** Returns the sampling rate, or 0 when no frame was found. */
+    int getSampleRate() {
+        return sampleRate;
+    }
+
+    /** Returns the channel count from the ADTS channel configuration. */
+    int getChannelCount() {
+        return (((audioConfig >> 8) & 0x01) << 2) | ((audioConfig & 0xC0) >> 6);
+    }
+
+    /** Returns the end offset of the last complete frame, which excludes any trailing partial frame. */
+    long getEndOffset() {
+        return endOffset;
+    }
+
+    /** Returns the duration of all indexed frames in milliseconds. */
+    long getDurationMs() {
+        return frameToMs(frameCount);
+    }
+
+    /** Returns whether both streams share profile, sampling rate and channel layout, so their frames can be joined. */
+    boolean hasSameAudioConfig(AdtsSeekIndex other) {
+        return audioConfig == other.audioConfig && samplesPerFrame == other.samplesPerFrame;
+    }
+
+    /** Returns the presentation time where the given frame starts. */
+    long frameToMs(int frame) {
+        if (sampleRate == 0) {
+            return 0;
+        }
+        return (long) frame * samplesPerFrame * 1000 / sampleRate;
+    }
+
+    /** Returns the first frame that overlaps the given time, clamped to the indexed range. */
+    int frameAtOrBefore(long timeMs) {
+        if (sampleRate == 0 || timeMs <= 0) {
+            return 0;
+        }
+        if (timeMs >= getDurationMs()) {
+            // Also keeps the multiplication below from overflowing for open-ended ranges.
+            return frameCount;
+        }
+        long frame = timeMs * sampleRate / (1000L * samplesPerFrame);
+        return (int) Math.min(frame, frameCount);
+    }
+
+    /** Returns the first frame that starts at or after the given time, clamped to the indexed range. */
+    int frameAtOrAfter(long timeMs) {
+        if (sampleRate == 0 || timeMs <= 0) {
+            return 0;
+        }
+        if (timeMs >= getDurationMs()) {
+            // Also keeps the multiplication below from overflowing for open-ended ranges.
+            return frameCount;
+        }
+        long divisor = 1000L * samplesPerFrame;
+        long frame = (timeMs * sampleRate + divisor - 1) / divisor;
+        return (int) Math.min(frame, frameCount);
+    }
+
+    /**
+     * Returns the byte offset where the given frame starts; {@code frameCount} maps to {@link #getEndOffset()}.
+     * Reads at most {@code STRIDE_FRAMES - 1} headers from the channel.
+     */
+    long offsetOf(FileChannel channel, int frame) throws IOException {
+        if (frame >= frameCount) {
+            return endOffset;
+        }
+        long targetSample = (long) frame * samplesPerFrame;
+        int low = 0;
+        int high = entries.length / 2 - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (entries[2 * middle + 1] <= targetSample) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        long offset = entries[2 * low];
+        int skip = (int) ((targetSample - entries[2 * low + 1]) / samplesPerFrame);
+        ByteBuffer header = ByteBuffer.allocate(AdtsFrameIndex.HEADER_LENGTH);
+        for (int i = 0; i < skip; i++) {
+            header.clear();
+            while (header.hasRemaining()) {
+                if (channel.read(header, offset + header.position()) < 0) {
+                    throw new IOException("ADTS index does not match the file");
+                }
+            }
+            int frameLength = AdtsFrameIndex.frameLength(header.array(), 0);
+            if (frameLength < 0) {
+                throw new IOException("ADTS index does not match the file");
+            }
+            offset += frameLength;
+        }
+        return offset;
+    }
+
+    /**
+     * Extends an index as the file grows. Each {@link #update} call indexes the frames completed since the previous
+     * call, so a recording can be indexed while it is written without reading any byte twice.
+     */
+    static final class Builder {
+        private long[] entries = new long[64];
+        private int entryLongs;
+        private long position;
+        private int frameCount;
+        private int sampleRate;
+        private int samplesPerFrame;
+        private int audioConfig;
+        /** Set once an invalid header was found; later data is not trusted. */
+        private boolean ended;
+        private ByteBuffer buffer;
+
+        /** Indexes the complete frames written after the previous call. */
+        synchronized void update(FileChannel channel) throws IOException {
+            if (ended) {
+                return;
+            }
+            if (buffer == null) {
+                buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            }
+            long size = channel.size();
+            while (position + AdtsFrameIndex.HEADER_LENGTH <= size) {
+                buffer.clear();
+                int read = 0;
+                while (buffer.hasRemaining() && read >= 0) {
+                    read = channel.read(buffer, position + buffer.position());
+                }
+                int length = buffer.position();
+                byte[] data = buffer.array();
+                int i = 0;
+                while (i + AdtsFrameIndex.HEADER_LENGTH <= length) {
+                    int frameLength = AdtsFrameIndex.frameLength(data, i);
+                    if (frameLength < 0 || (frameCount == 0 && !readFormat(data, i))) {
+                        ended = true;
+                        return;
+                    }
+                    if (position + i + frameLength > size) {
+                        position += i;
+                        return;
+                    }
+                    if (frameCount % STRIDE_FRAMES == 0) {
+                        addEntry(position + i, (long) frameCount * samplesPerFrame);
+                    }
+                    frameCount++;
+                    i += frameLength;
+                }
+                if (i == 0) {
+                    return;
+                }
+                position += i;
+            }
+        }
+
+        /**
+         * Indexes a stream that can only be read forwards, such as the plaintext of an encrypted recording, from
+         * the position reached so far. Reads each header and skips the frame payload.
+         */
+        synchronized void update(InputStream input, long length) throws IOException {
+            byte[] header = new byte[AdtsFrameIndex.HEADER_LENGTH];
+            DataInputStream data = new DataInputStream(input);
+            while (!ended && position + AdtsFrameIndex.HEADER_LENGTH <= length) {
+                data.readFully(header);
+                int frameLength = AdtsFrameIndex.frameLength(header, 0);
+                if (frameLength < 0 || (frameCount == 0 && !readFormat(header, 0))) {
+                    ended = true;
+                    return;
+                }
+                if (position + frameLength > length) {
+                    return;
+                }
+                if (frameCount % STRIDE_FRAMES == 0) {
+                    addEntry(position, (long) frameCount * samplesPerFrame);
+                }
+                frameCount++;
+                for (int left = frameLength - AdtsFrameIndex.HEADER_LENGTH; left > 0; ) {
+                    int skipped = data.skipBytes(left);
+                    if (skipped <= 0) {
+                        throw new EOFException();
+                    }
+                    left -= skipped;
+                }
+                position += frameLength;
+            }
+        }
+
+        /** Returns the index of the frames seen so far for a file of the given length. */
+        synchronized AdtsSeekIndex build(long fileLength) {
+            return new AdtsSeekIndex(
+                fileLength,
+                position,
+                frameCount,
+                sampleRate,
+                samplesPerFrame,
+                audioConfig,
+                Arrays.copyOf(entries, entryLongs)
+            );
+        }
+
+        private boolean readFormat(byte[] data, int i) {
+            int sampleRateIndex = (data[i + 2] & 0x3C) >> 2;
+            sampleRate = AdtsFrameIndex.sampleRateOf(sampleRateIndex);
+            samplesPerFrame = ((data[i + 6] & 0x03) + 1) * 1024;
+            audioConfig = ((data[i + 2] & 0xFD) << 8) | (data[i + 3] & 0xC0);
+            return sampleRate > 0;
+        }
+
+        private void addEntry(long offset, long samplePosition) {
+            if (entryLongs + 2 > entries.length) {
+                entries = Arrays.copyOf(entries, entries.length * 2);
+            }
+            entries[entryLongs++] = offset;
+            entries[entryLongs++] = samplePosition;
+        }
+    }
+}
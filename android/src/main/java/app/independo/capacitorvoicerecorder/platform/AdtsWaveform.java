@@ -0,0 +1,123 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+import app.independo.capacitorvoicerecorder.core.WaveformPeaks;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Decodes an in-memory AAC ADTS stream and reduces it to {@link WaveformPeaks}.
+ *
+ * <p>Frames are fed to the decoder straight from the buffer, headers included, so the bytes already read for the
+ * payload are decoded without another pass over the file.</p>
+ */
+final class AdtsWaveform {
+
+    /** Timeout for a dequeue when the previous step made no progress, in microseconds. */
+    private static final long DEQUEUE_TIMEOUT_US = 10_000;
+    /** Dequeue rounds in a row without progress after which the decoder is given up on, about a second. */
+    private static final int MAX_IDLE_ROUNDS = 100;
+
+    private AdtsWaveform() {}
+
+    /**
+     * Returns {@code points} peaks of the stream from index 0 up to its limit, or null when it holds no frames.
+     * Throws when the decoder stops making progress, such as one that never signals the end of the stream.
+     */
+    static float[] compute(ByteBuffer adts, int points) throws IOException {
+        int frameCount = 0;
+        for (int i = 0, length; (length = AdtsFrameIndex.frameLength(adts, i)) > 0 && i + length <= adts.limit(); i += length) {
+            frameCount++;
+        }
+        if (frameCount == 0) {
+            return null;
+        }
+        int sampleRate = AdtsFrameIndex.sampleRateOf((adts.get(2) & 0x3C) >> 2);
+        int channelCount = Math.max(1, ((adts.get(2) & 0x01) << 2) | ((adts.get(3) & 0xC0) >> 6));
+        int samplesPerFrame = ((adts.get(6) & 0x03) + 1) * 1024;
+        if (sampleRate == 0) {
+            return null;
+        }
+
+        WaveformPeaks peaks = new WaveformPeaks(points, (long) frameCount * samplesPerFrame);
+        MediaFormat format = MediaFormat.createAudioFormat(MediaFormat.MIMETYPE_AUDIO_AAC, sampleRate, channelCount);
+        format.setInteger(MediaFormat.KEY_IS_ADTS, 1);
+        MediaCodec decoder = MediaCodec.createDecoderByType(MediaFormat.MIMETYPE_AUDIO_AAC);
+        try {
+            decoder.configure(format, null, null, 0);
+            decoder.start();
+            decode(decoder, adts.duplicate(), frameCount, sampleRate, samplesPerFrame, channelCount, peaks);
+        } finally {
+            Transcoder.releaseCodec(decoder);
+        }
+        return peaks.toArray();
+    }
+
+    private static void decode(
+        MediaCodec decoder,
+        ByteBuffer adts,
+        int frameCount,
+        int sampleRate,
+        int samplesPerFrame,
+        int channelCount,
+        WaveformPeaks peaks
+    ) throws IOException {
+        MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+        int frame = 0;
+        int position = 0;
+        boolean inputDone = false;
+        boolean progressed = true;
+        int idleRounds = 0;
+        while (true) {
+            idleRounds = progressed ? 0 : idleRounds + 1;
+            if (idleRounds > MAX_IDLE_ROUNDS) {
+                throw new IOException("AAC decoder stalled at frame " + frame + (inputDone ? " after end of input" : ""));
+            }
+            boolean fed = false;
+            if (!inputDone) {
+                int index = decoder.dequeueInputBuffer(progressed ? 0 : DEQUEUE_TIMEOUT_US);
+                if (index >= 0) {
+                    long timeUs = (long) frame * samplesPerFrame * 1_000_000L / sampleRate;
+                    if (frame == frameCount) {
+                        decoder.queueInputBuffer(index, 0, 0, timeUs, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                        inputDone = true;
+                    } else {
+                        int length = AdtsFrameIndex.frameLength(adts, position);
+                        ByteBuffer input = decoder.getInputBuffer(index);
+                        input.clear();
+                        adts.limit(position + length).position(position);
+                        input.put(adts);
+                        adts.limit(adts.capacity());
+                        decoder.queueInputBuffer(index, 0, length, timeUs, 0);
+                        position += length;
+                        frame++;
+                    }
+                    fed = true;
+                }
+            }
+
+            int index = decoder.dequeueOutputBuffer(info, fed ? 0 : DEQUEUE_TIMEOUT_US);
+            if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                channelCount = Math.max(1, decoder.getOutputFormat().getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+                progressed = true;
+                continue;
+            }
+            if (index < 0) {
+                progressed = fed;
+                continue;
+            }
+            if (info.size > 0) {
+                ByteBuffer output = decoder.getOutputBuffer(index);
+                output.position(info.offset).limit(info.offset + info.size);
+                peaks.add(output.slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer(), channelCount);
+            }
+            decoder.releaseOutputBuffer(index, false);
+            if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                return;
+            }
+            progressed = true;
+        }
+    }
+}
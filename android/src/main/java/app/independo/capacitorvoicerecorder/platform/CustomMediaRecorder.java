@@ -8,10 +8,22 @@ import android.media.MediaRecorder;
 import android.os.Build;
 import android.os.Environment;
 import app.independo.capacitorvoicerecorder.adapters.RecorderAdapter;
+import app.independo.capacitorvoicerecorder.core.AutoStopReason;
 import app.independo.capacitorvoicerecorder.core.CurrentRecordingStatus;
+import app.independo.capacitorvoicerecorder.core.EncoderSettings;
 import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import app.independo.capacitorvoicerecorder.core.RecordingLimits;
+import app.independo.capacitorvoicerecorder.core.Tracing;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -20,6 +32,16 @@ public class CustomMediaRecorder implements AudioManager.OnAudioFocusChangeListe
 
     /** Maximum amplitude value reported by Android MediaRecorder.getMaxAmplitude(). */
     private static final double MAX_MEDIA_RECORDER_AMPLITUDE = 32767.0;
+    /** Name of the plugin-managed directory inside the app cache directory. */
+    static final String MANAGED_DIRECTORY_NAME = "voice-recorder";
+    /** Interval at which the seek index catches up with the frames MediaRecorder has written. */
+    private static final long INDEX_INTERVAL_MS = 1000;
+    /** Shared daemon thread that extends the seek index of active recordings. */
+    private static final ScheduledExecutorService INDEX_SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "VoiceRecorderIndexer");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     interface MediaRecorderFactory {
         MediaRecorder create();
@@ -49,6 +71,10 @@ public class CustomMediaRecorder implements AudioManager.OnAudioFocusChangeListe
         AudioFocusRequest create(AudioManager.OnAudioFocusChangeListener listener);
     }
 
+    interface EncoderSettingsProvider {
+        EncoderSettings getEncoderSettings();
+    }
+
     private static final class DefaultMediaRecorderFactory implements MediaRecorderFactory {
         @Override
         public MediaRecorder create() {
@@ -56,14 +82,14 @@ public class CustomMediaRecorder implements AudioManager.OnAudioFocusChangeListe
         }
     }
 
-    private static final class DefaultAudioManagerProvider implements AudioManagerProvider {
+    static final class DefaultAudioManagerProvider implements AudioManagerProvider {
         @Override
         public AudioManager getAudioManager(Context context) {
             return (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
         }
     }
 
-    private static final class DefaultDirectoryProvider implements DirectoryProvider {
+    static final class DefaultDirectoryProvider implements DirectoryProvider {
         @Override
         public File getDocumentsDirectory() {
             return Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOCUMENTS);
@@ -90,14 +116,14 @@ public class CustomMediaRecorder implements AudioManager.OnAudioFocusChangeListe
         }
     }
 
-    private static final class DefaultSdkIntProvider implements SdkIntProvider {
+    static final class DefaultSdkIntProvider implements SdkIntProvider {
         @Override
         public int getSdkInt() {
             return Build.VERSION.SDK_INT;
         }
     }
 
-    private static final class DefaultAudioFocusRequestFactory implements AudioFocusRequestFactory {
+    static final class DefaultAudioFocusRequestFactory implements AudioFocusRequestFactory {
         @Override
         public AudioFocusRequest create(AudioManager.OnAudioFocusChangeListener listener) {
             AudioAttributes audioAttributes = new AudioAttributes.Builder()
@@ -138,6 +164,24 @@ public class CustomMediaRecorder implements AudioManager.OnAudioFocusChangeListe
     private Runnable onInterruptionBegan;
     /** Callback invoked when an interruption ends. */
     private Runnable onInterruptionEnded;
+    /** Callback invoked when MediaRecorder stopped itself at a configured limit. */
+    private Consumer<AutoStopReason> onLimitReached;
+    /** Executor that system callbacks are handed to, or null to handle them on the calling thread. */
+    private volatile Executor callbackExecutor;
+    /** Seek index of the output file, extended while recording. */
+    private AdtsSeekIndex.Builder indexBuilder;
+    /** Periodic index update, or null when not recording. */
+    private ScheduledFuture<?> indexTask;
+    /** Protects the data keys of encrypted recordings. */
+    private final RecordingEncryption.KeyWrapper keyWrapper;
+    /** Encrypts the recorder output on its way to disk, or null for plain recordings. */
+    private EncryptedOutputPump encryptedOutput;
+    /** Picks the encoder settings from the device state when the session is prepared. */
+    private final EncoderSettingsProvider encoderSettingsProvider;
+    /** Encoder settings of the current session. */
+    private EncoderSettings encoderSettings;
+    /** Forces the output to storage while recording, or null when the options leave it to writeback. */
+    private RecordingCheckpointer checkpointer;
 
     public CustomMediaRecorder(Context context, RecordOptions options) throws IOException {
         this(
@@ -159,6 +203,52 @@ public class CustomMediaRecorder implements AudioManager.OnAudioFocusChangeListe
         DirectoryProvider directoryProvider,
         SdkIntProvider sdkIntProvider,
         AudioFocusRequestFactory audioFocusRequestFactory
+    ) throws IOException {
+        this(
+            context,
+            options,
+            mediaRecorderFactory,
+            audioManagerProvider,
+            directoryProvider,
+            sdkIntProvider,
+            audioFocusRequestFactory,
+            RecordingEncryption.ANDROID_KEYSTORE
+        );
+    }
+
+    CustomMediaRecorder(
+        Context context,
+        RecordOptions options,
+        MediaRecorderFactory mediaRecorderFactory,
+        AudioManagerProvider audioManagerProvider,
+        DirectoryProvider directoryProvider,
+        SdkIntProvider sdkIntProvider,
+        AudioFocusRequestFactory audioFocusRequestFactory,
+        RecordingEncryption.KeyWrapper keyWrapper
+    ) throws IOException {
+        this(
+            context,
+            options,
+            mediaRecorderFactory,
+            audioManagerProvider,
+            directoryProvider,
+            sdkIntProvider,
+            audioFocusRequestFactory,
+            keyWrapper,
+            new DevicePowerState(context, sdkIntProvider)
+        );
+    }
+
+    CustomMediaRecorder(
+        Context context,
+        RecordOptions options,
+        MediaRecorderFactory mediaRecorderFactory,
+        AudioManagerProvider audioManagerProvider,
+        DirectoryProvider directoryProvider,
+        SdkIntProvider sdkIntProvider,
+        AudioFocusRequestFactory audioFocusRequestFactory,
+        RecordingEncryption.KeyWrapper keyWrapper,
+        EncoderSettingsProvider encoderSettingsProvider
     ) throws IOException {
         this.context = context;
         this.options = options;
@@ -166,6 +256,8 @@ public class CustomMediaRecorder implements AudioManager.OnAudioFocusChangeListe
         this.directoryProvider = directoryProvider;
         this.sdkIntProvider = sdkIntProvider;
         this.audioFocusRequestFactory = audioFocusRequestFactory;
+        this.keyWrapper = keyWrapper;
+        this.encoderSettingsProvider = encoderSettingsProvider;
         this.audioManager = audioManagerProvider.getAudioManager(context);
         generateMediaRecorder();
     }
@@ -180,27 +272,87 @@ public class CustomMediaRecorder implements AudioManager.OnAudioFocusChangeListe
         this.onInterruptionEnded = callback;
     }
 
-    /** Configures the MediaRecorder with audio settings. */
+    /** Sets the executor that audio focus and info callbacks are handed to. */
+    public void setCallbackExecutor(Executor executor) {
+        this.callbackExecutor = executor;
+    }
+
+    /** Sets the callback for limit events. */
+    public void setOnLimitReached(Consumer<AutoStopReason> callback) {
+        this.onLimitReached = callback;
+    }
+
+    /** Configures the MediaRecorder with audio settings chosen for the current device state. */
     private void generateMediaRecorder() throws IOException {
+        encoderSettings = encoderSettingsProvider.getEncoderSettings();
         mediaRecorder = mediaRecorderFactory.create();
         mediaRecorder.setAudioSource(MediaRecorder.AudioSource.MIC);
         mediaRecorder.setOutputFormat(MediaRecorder.OutputFormat.AAC_ADTS);
         mediaRecorder.setAudioEncoder(MediaRecorder.AudioEncoder.AAC);
-        mediaRecorder.setAudioEncodingBitRate(96000);
-        mediaRecorder.setAudioSamplingRate(44100);
+        mediaRecorder.setAudioEncodingBitRate(encoderSettings.bitRate());
+        mediaRecorder.setAudioSamplingRate(encoderSettings.sampleRate());
         setRecorderOutputFile();
-        mediaRecorder.prepare();
+        applyLimits();
+        Tracing.beginSection("VoiceRecorder.prepare");
+        try {
+            mediaRecorder.prepare();
+        } finally {
+            Tracing.endSection();
+        }
     }
 
-    /** Picks a directory and allocates the output file for this session. */
+    /** Lets MediaRecorder enforce the configured caps so they hold regardless of bridge or UI load. */
+    private void applyLimits() {
+        RecordingLimits limits = options.limits();
+        if (limits == null || !limits.isEnabled()) {
+            return;
+        }
+        if (limits.maxDurationMs() != null) {
+            mediaRecorder.setMaxDuration(limits.maxDurationMs());
+        }
+        if (limits.maxFileSizeBytes() != null) {
+            mediaRecorder.setMaxFileSize(limits.maxFileSizeBytes());
+        }
+        mediaRecorder.setOnInfoListener((recorder, what, extra) -> runCallback(() -> onInfo(what)));
+    }
+
+    /** Forwards MediaRecorder limit notifications; the recorder has already stopped writing at this point. */
+    void onInfo(int what) {
+        AutoStopReason reason = switch (what) {
+            case MediaRecorder.MEDIA_RECORDER_INFO_MAX_DURATION_REACHED -> AutoStopReason.MAX_DURATION;
+            case MediaRecorder.MEDIA_RECORDER_INFO_MAX_FILESIZE_REACHED -> AutoStopReason.MAX_FILE_SIZE;
+            default -> null;
+        };
+        if (reason != null) {
+            checkpointSegment();
+        }
+        if (reason != null && onLimitReached != null) {
+            onLimitReached.accept(reason);
+        }
+    }
+
+    /** Allocates the output file for this session and points MediaRecorder at it. */
     private void setRecorderOutputFile() throws IOException {
+        outputFile = createOutputFile(context, directoryProvider, options);
+
+        if (options.isEncrypted()) {
+            encryptedOutput = new EncryptedOutputPump(outputFile, options.encryptionKeyAlias(), keyWrapper);
+            mediaRecorder.setOutputFile(encryptedOutput.getFileDescriptor());
+        } else {
+            mediaRecorder.setOutputFile(outputFile.getAbsolutePath());
+        }
+    }
+
+    /** Picks a directory from the options and allocates a new recording file in it. */
+    static File createOutputFile(Context context, DirectoryProvider directoryProvider, RecordOptions options)
+        throws IOException {
         File outputDir = directoryProvider.getCacheDir(context);
 
         String directory = options.directory();
         String subDirectory = options.subDirectory();
 
         if (directory != null) {
-            outputDir = this.getDirectory(directory);
+            outputDir = getDirectory(context, directoryProvider, directory);
             if (subDirectory != null) {
                 Pattern pattern = Pattern.compile("^/?(.+[^/])/?$");
                 Matcher matcher = pattern.matcher(subDirectory);
@@ -213,32 +365,74 @@ public class CustomMediaRecorder implements AudioManager.OnAudioFocusChangeListe
             }
         }
 
-        outputFile = File.createTempFile(String.format("recording-%d", System.currentTimeMillis()), ".aac", outputDir);
+        File outputFile = File.createTempFile(String.format("recording-%d", System.currentTimeMillis()), ".aac", outputDir);
 
         if (directory == null) {
             outputFile.deleteOnExit();
         }
-
-        mediaRecorder.setOutputFile(outputFile.getAbsolutePath());
+        return outputFile;
     }
 
     /** Maps directory strings to Android file locations. */
-    private File getDirectory(String directory) {
+    private static File getDirectory(Context context, DirectoryProvider directoryProvider, String directory) {
         return switch (directory) {
             case "DOCUMENTS" -> directoryProvider.getDocumentsDirectory();
             case "DATA", "LIBRARY" -> directoryProvider.getFilesDir(context);
             case "CACHE" -> directoryProvider.getCacheDir(context);
             case "EXTERNAL" -> directoryProvider.getExternalFilesDir(context);
             case "EXTERNAL_STORAGE" -> directoryProvider.getExternalStorageDirectory();
+            case RecordOptions.MANAGED_DIRECTORY -> managedDirectory(directoryProvider.getCacheDir(context));
             default -> null;
         };
     }
 
+    /** Returns the plugin-managed directory inside the cache directory, creating it when needed. */
+    static File managedDirectory(File cacheDir) {
+        File directory = new File(cacheDir, MANAGED_DIRECTORY_NAME);
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        return directory;
+    }
+
     /** Starts recording and requests audio focus. */
     public void startRecording() {
         requestAudioFocus();
-        mediaRecorder.start();
+        if (encryptedOutput != null) {
+            encryptedOutput.start();
+        }
+        Tracing.beginSection("VoiceRecorder.start");
+        try {
+            mediaRecorder.start();
+        } finally {
+            Tracing.endSection();
+        }
         currentRecordingStatus = CurrentRecordingStatus.RECORDING;
+        if (encryptedOutput == null) {
+            // The file only holds ciphertext when encrypted, so there are no frames to index.
+            startIndexing();
+        }
+        startCheckpoints();
+    }
+
+    /** Starts forcing the output to storage when the options ask for durability. */
+    private void startCheckpoints() {
+        if (!options.durability().isEnabled()) {
+            return;
+        }
+        // Only plain recordings kept in a directory can be recovered; the others are still forced.
+        File checkpointDirectory = encryptedOutput == null && options.directory() != null
+            ? new File(directoryProvider.getFilesDir(context), RecordingCheckpointer.CHECKPOINT_DIRECTORY)
+            : null;
+        checkpointer = new RecordingCheckpointer(outputFile, options.directory(), options.durability(), checkpointDirectory);
+        checkpointer.start();
+    }
+
+    /** Forces the output at the end of a segment. */
+    private void checkpointSegment() {
+        if (checkpointer != null) {
+            checkpointer.segmentEnded();
+        }
     }
 
     /** Stops recording and releases audio resources. */
@@ -249,6 +443,7 @@ public class CustomMediaRecorder implements AudioManager.OnAudioFocusChangeListe
             return;
         }
 
+        Tracing.beginSection("VoiceRecorder.stop");
         try {
             if (currentRecordingStatus == CurrentRecordingStatus.RECORDING
                 || currentRecordingStatus == CurrentRecordingStatus.PAUSED
@@ -261,7 +456,75 @@ public class CustomMediaRecorder implements AudioManager.OnAudioFocusChangeListe
             mediaRecorder = null;
             abandonAudioFocus();
             currentRecordingStatus = CurrentRecordingStatus.NONE;
+            finishEncryption();
+            finishIndexing();
+            finishCheckpoints();
+            Tracing.endSection();
         }
+        if (Tracing.isEnabled()) {
+            Tracing.setCounter("VoiceRecorder.bytesWritten", outputFile.length());
+        }
+    }
+
+    /** Seals the encrypted output; a file that could not be sealed is deleted rather than left unreadable. */
+    private void finishEncryption() {
+        if (encryptedOutput == null) {
+            return;
+        }
+        try {
+            encryptedOutput.finish();
+        } catch (IOException exp) {
+            outputFile.delete();
+        } finally {
+            encryptedOutput = null;
+        }
+    }
+
+    /** Forces the finished file and drops its checkpoint, since the session ended normally. */
+    private void finishCheckpoints() {
+        if (checkpointer != null) {
+            checkpointer.finish();
+            checkpointer = null;
+        }
+    }
+
+    /** Indexes frames as MediaRecorder writes them, so stopping only has to index the last second. */
+    private void startIndexing() {
+        AdtsSeekIndex.Builder builder = new AdtsSeekIndex.Builder();
+        File file = outputFile;
+        indexBuilder = builder;
+        indexTask = INDEX_SCHEDULER.scheduleWithFixedDelay(
+            () -> updateIndex(builder, file),
+            INDEX_INTERVAL_MS,
+            INDEX_INTERVAL_MS,
+            TimeUnit.MILLISECONDS
+        );
+    }
+
+    /** Indexes the remaining frames of the finished file and writes the sidecar. */
+    private void finishIndexing() {
+        if (indexTask == null) {
+            return;
+        }
+        indexTask.cancel(false);
+        indexTask = null;
+        updateIndex(indexBuilder, outputFile);
+        AdtsSeekIndex index = indexBuilder.build(outputFile.length());
+        indexBuilder = null;
+        if (index.getFrameCount() == 0) {
+            return;
+        }
+        try {
+            index.writeSidecar(outputFile);
+        } catch (IOException ignore) {
+            // Lookups fall back to scanning the file.
+        }
+    }
+
+    private static void updateIndex(AdtsSeekIndex.Builder builder, File file) {
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            builder.update(channel);
+        } catch (IOException ignore) {}
     }
 
     /** Returns the output file for the current session. */
@@ -269,6 +532,16 @@ public class CustomMediaRecorder implements AudioManager.OnAudioFocusChangeListe
         return outputFile;
     }
 
+    /** Returns the encoder settings the session was prepared with. */
+    public EncoderSettings getEncoderSettings() {
+        return encoderSettings;
+    }
+
+    /** MediaRecorder writes a single output, so there is no proxy. */
+    public File getProxyFile() {
+        return null;
+    }
+
     /** Returns the options provided at start time. */
     public RecordOptions getRecordOptions() {
         return options;
@@ -283,6 +556,7 @@ public class CustomMediaRecorder implements AudioManager.OnAudioFocusChangeListe
         if (currentRecordingStatus == CurrentRecordingStatus.RECORDING) {
             mediaRecorder.pause();
             currentRecordingStatus = CurrentRecordingStatus.PAUSED;
+            checkpointSegment();
             return true;
         } else {
             return false;
@@ -323,8 +597,9 @@ public class CustomMediaRecorder implements AudioManager.OnAudioFocusChangeListe
         }
     }
 
-    /** Deletes the output file from disk. */
+    /** Deletes the output file and its seek index from disk. */
     public boolean deleteOutputFile() {
+        AdtsSeekIndex.invalidate(outputFile);
         return outputFile.delete();
     }
 
@@ -354,11 +629,16 @@ public class CustomMediaRecorder implements AudioManager.OnAudioFocusChangeListe
             return;
         }
 
-        if (sdkIntProvider.getSdkInt() >= Build.VERSION_CODES.O) {
-            audioFocusRequest = audioFocusRequestFactory.create(this);
-            audioManager.requestAudioFocus(audioFocusRequest);
-        } else {
-            audioManager.requestAudioFocus(this, AudioManager.STREAM_MUSIC, AudioManager.AUDIOFOCUS_GAIN);
+        Tracing.beginSection("VoiceRecorder.focus");
+        try {
+            if (sdkIntProvider.getSdkInt() >= Build.VERSION_CODES.O) {
+                audioFocusRequest = audioFocusRequestFactory.create(this);
+                audioManager.requestAudioFocus(audioFocusRequest);
+            } else {
+                audioManager.requestAudioFocus(this, AudioManager.STREAM_MUSIC, AudioManager.AUDIOFOCUS_GAIN);
+            }
+        } finally {
+            Tracing.endSection();
         }
     }
 
@@ -387,6 +667,25 @@ public class CustomMediaRecorder implements AudioManager.OnAudioFocusChangeListe
     /** Handles audio focus changes as recording interruptions. */
     @Override
     public void onAudioFocusChange(int focusChange) {
+        // Focus changes arrive on the main looper; hand them over so they cannot race a concurrent stop.
+        runCallback(() -> handleAudioFocusChange(focusChange));
+    }
+
+    /** Runs a system callback on the callback executor when one is set. */
+    private void runCallback(Runnable callback) {
+        Executor executor = callbackExecutor;
+        if (executor == null) {
+            callback.run();
+            return;
+        }
+        try {
+            executor.execute(callback);
+        } catch (RuntimeException ignore) {
+            // The owner has shut down; nothing is left to interrupt.
+        }
+    }
+
+    private void handleAudioFocusChange(int focusChange) {
         switch (focusChange) {
             case AudioManager.AUDIOFOCUS_LOSS:
             case AudioManager.AUDIOFOCUS_LOSS_TRANSIENT:
@@ -397,6 +696,7 @@ public class CustomMediaRecorder implements AudioManager.OnAudioFocusChangeListe
                         if (sdkIntProvider.getSdkInt() >= Build.VERSION_CODES.N) {
                             mediaRecorder.pause();
                             currentRecordingStatus = CurrentRecordingStatus.INTERRUPTED;
+                            checkpointSegment();
                             if (onInterruptionBegan != null) {
                                 onInterruptionBegan.run();
                             }
@@ -0,0 +1,118 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+
+/**
+ * Reads the plaintext of a file in the {@link RecordingEncryption} format, one authenticated chunk at a time.
+ *
+ * <p>Only one chunk is held in memory. A chunk is returned only after its tag has been checked, so tampered or
+ * truncated files surface as an {@link IOException} before any of their data is used.</p>
+ */
+final class DecryptingInputStream extends InputStream {
+
+    private final DataInputStream input;
+    private final RecordingEncryption.Header header;
+    private final SecretKey dataKey;
+    /** Total plaintext length, derived from the file length. */
+    private final long plaintextLength;
+    private final byte[] sealed;
+    private final byte[] chunk;
+    private int chunkLength;
+    private int chunkPosition;
+    private long chunkIndex;
+    /** Plaintext bytes not yet decrypted. */
+    private long remaining;
+
+    DecryptingInputStream(InputStream input, long fileLength, RecordingEncryption.KeyWrapper keyWrapper)
+        throws IOException {
+        this.input = new DataInputStream(input);
+        this.header = RecordingEncryption.readHeader(this.input);
+        this.plaintextLength = RecordingEncryption.plaintextLength(header, fileLength);
+        this.dataKey = RecordingEncryption.unwrapDataKey(header, keyWrapper);
+        this.sealed = new byte[header.chunkSize() + RecordingEncryption.TAG_LENGTH];
+        this.chunk = new byte[header.chunkSize()];
+        this.remaining = plaintextLength;
+        this.chunkIndex = -1;
+    }
+
+    /** Returns the length of the whole plaintext. */
+    long getPlaintextLength() {
+        return plaintextLength;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (chunkPosition == chunkLength && !openNextChunk()) {
+            return -1;
+        }
+        int copied = Math.min(length, chunkLength - chunkPosition);
+        System.arraycopy(chunk, chunkPosition, buffer, offset, copied);
+        chunkPosition += copied;
+        return copied;
+    }
+
+    /** Reads exactly {@code length} plaintext bytes or fails. */
+    void readFully(byte[] buffer, int offset, int length) throws IOException {
+        while (length > 0) {
+            int read = read(buffer, offset, length);
+            if (read < 0) {
+                throw new IOException("encrypted recording ended early");
+            }
+            offset += read;
+            length -= read;
+        }
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        long skipped = 0;
+        while (skipped < count) {
+            if (chunkPosition == chunkLength && !openNextChunk()) {
+                break;
+            }
+            int step = (int) Math.min(count - skipped, chunkLength - chunkPosition);
+            chunkPosition += step;
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    /** Decrypts and authenticates the next chunk; returns false after the last one. */
+    private boolean openNextChunk() throws IOException {
+        if (chunkIndex >= 0 && remaining == 0) {
+            return false;
+        }
+        chunkIndex++;
+        int length = (int) Math.min(header.chunkSize(), remaining);
+        boolean last = remaining <= header.chunkSize();
+        input.readFully(sealed, 0, length + RecordingEncryption.TAG_LENGTH);
+        Cipher cipher = RecordingEncryption.chunkCipher(Cipher.DECRYPT_MODE, dataKey, header, chunkIndex, last);
+        try {
+            chunkLength = cipher.doFinal(sealed, 0, length + RecordingEncryption.TAG_LENGTH, chunk, 0);
+        } catch (GeneralSecurityException exp) {
+            throw new IOException("chunk " + chunkIndex + " failed authentication", exp);
+        }
+        chunkPosition = 0;
+        remaining -= chunkLength;
+        return chunkLength > 0;
+    }
+}
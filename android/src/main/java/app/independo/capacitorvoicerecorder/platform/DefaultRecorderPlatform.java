@@ -1,18 +1,30 @@
 package app.independo.capacitorvoicerecorder.platform;
 
 import android.content.Context;
-import android.media.AudioManager;
 import android.media.MediaPlayer;
 import android.net.Uri;
 import android.util.Base64;
 import app.independo.capacitorvoicerecorder.adapters.RecorderAdapter;
 import app.independo.capacitorvoicerecorder.adapters.RecorderPlatform;
+import app.independo.capacitorvoicerecorder.core.AudioRange;
+import app.independo.capacitorvoicerecorder.core.PcmResampler;
 import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import app.independo.capacitorvoicerecorder.core.RecordingInfo;
+import app.independo.capacitorvoicerecorder.core.RecoveredRecording;
+import app.independo.capacitorvoicerecorder.core.Tracing;
+import app.independo.capacitorvoicerecorder.core.TranscodeProfile;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
 
 /** Default Android platform adapter for recording and file IO. */
 public class DefaultRecorderPlatform implements RecorderPlatform {
@@ -30,12 +42,15 @@ public class DefaultRecorderPlatform implements RecorderPlatform {
     }
 
     interface Base64Encoder {
-        String encode(byte[] data);
+        byte[] encode(byte[] data);
     }
 
     private static final class DefaultRecorderFactory implements RecorderFactory {
         @Override
         public RecorderAdapter create(Context context, RecordOptions options) throws Exception {
+            if (options != null && options.proxy() != null) {
+                return new TeeRecorder(context, options);
+            }
             return new CustomMediaRecorder(context, options);
         }
     }
@@ -56,8 +71,8 @@ public class DefaultRecorderPlatform implements RecorderPlatform {
 
     private static final class DefaultBase64Encoder implements Base64Encoder {
         @Override
-        public String encode(byte[] data) {
-            return Base64.encodeToString(data, Base64.DEFAULT);
+        public byte[] encode(byte[] data) {
+            return Base64.encode(data, Base64.DEFAULT);
         }
     }
 
@@ -71,9 +86,48 @@ public class DefaultRecorderPlatform implements RecorderPlatform {
     private final UriConverter uriConverter;
     /** Base64 encoder for file payloads. */
     private final Base64Encoder base64Encoder;
+    /** Microphone capture that retains audio before a recording starts. */
+    private final PreRollCapture preRollCapture;
+    /** Cached view of whether another client is recording. */
+    private final MicrophoneAvailabilityTracker microphoneTracker;
+    /** Ranked device encoders, shared by every encoding path. */
+    private final EncoderRegistry encoderRegistry;
+    /** Streaming re-encoder for existing recordings. */
+    private final Transcoder transcoder;
+    /** Unwraps the data keys of encrypted recordings. */
+    private final RecordingEncryption.KeyWrapper keyWrapper;
+    /** Multi-core base64 encoder for recordings above {@link ParallelBase64Encoder#DEFAULT_THRESHOLD_BYTES}. */
+    private final ParallelBase64Encoder parallelBase64Encoder = ParallelBase64Encoder.shared();
 
     public DefaultRecorderPlatform(Context context) {
-        this(context, new DefaultRecorderFactory(), new DefaultMediaPlayerFactory(), new DefaultUriConverter(), new DefaultBase64Encoder());
+        this(
+            context,
+            new DefaultRecorderFactory(),
+            new DefaultMediaPlayerFactory(),
+            new DefaultUriConverter(),
+            new DefaultBase64Encoder(),
+            new PreRollCapture()
+        );
+    }
+
+    DefaultRecorderPlatform(
+        Context context,
+        RecorderFactory recorderFactory,
+        MediaPlayerFactory mediaPlayerFactory,
+        UriConverter uriConverter,
+        Base64Encoder base64Encoder,
+        PreRollCapture preRollCapture
+    ) {
+        this(
+            context,
+            recorderFactory,
+            mediaPlayerFactory,
+            uriConverter,
+            base64Encoder,
+            preRollCapture,
+            new MicrophoneAvailabilityTracker(context, preRollCapture::getAudioSessionId),
+            RecordingEncryption.ANDROID_KEYSTORE
+        );
     }
 
     DefaultRecorderPlatform(
@@ -81,13 +135,21 @@ public class DefaultRecorderPlatform implements RecorderPlatform {
         RecorderFactory recorderFactory,
         MediaPlayerFactory mediaPlayerFactory,
         UriConverter uriConverter,
-        Base64Encoder base64Encoder
+        Base64Encoder base64Encoder,
+        PreRollCapture preRollCapture,
+        MicrophoneAvailabilityTracker microphoneTracker,
+        RecordingEncryption.KeyWrapper keyWrapper
     ) {
         this.context = context;
         this.recorderFactory = recorderFactory;
         this.mediaPlayerFactory = mediaPlayerFactory;
         this.uriConverter = uriConverter;
         this.base64Encoder = base64Encoder;
+        this.preRollCapture = preRollCapture;
+        this.microphoneTracker = microphoneTracker;
+        this.keyWrapper = keyWrapper;
+        this.encoderRegistry = EncoderRegistry.shared(context);
+        this.transcoder = new Transcoder(encoderRegistry);
     }
 
     /** Returns whether the device can create a MediaRecorder instance. */
@@ -96,23 +158,55 @@ public class DefaultRecorderPlatform implements RecorderPlatform {
         return CustomMediaRecorder.canPhoneCreateMediaRecorder(context);
     }
 
-    /** Returns true when the system audio mode indicates another recorder. */
+    /** Returns true when another client holds an active recording, from the tracked recording configurations. */
     @Override
     public boolean isMicrophoneOccupied() {
-        AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
-        if (audioManager == null) return true;
-        return audioManager.getMode() != AudioManager.MODE_NORMAL;
+        return !microphoneTracker.isAvailable();
+    }
+
+    /** Reports microphone availability changes as they are published by the audio system. */
+    @Override
+    public void setOnMicrophoneAvailabilityChanged(Consumer<Boolean> listener) {
+        microphoneTracker.setListener(listener);
     }
 
     /** Creates the recorder adapter for the provided options. */
     @Override
     public RecorderAdapter createRecorder(RecordOptions options) throws Exception {
-        return recorderFactory.create(context, options);
+        Tracing.beginSection("VoiceRecorder.createRecorder");
+        try {
+            return recorderFactory.create(context, options);
+        } finally {
+            Tracing.endSection();
+        }
     }
 
-    /** Reads the recorded file as base64, returning null on failure. */
+    /**
+     * Reads the recorded file as base64, returning null on failure. Large files are memory-mapped and encoded in
+     * parallel; small ones go through the single-threaded encoder, which is faster below the threshold. Encrypted
+     * recordings are decrypted chunk by chunk into memory, never into a plaintext file.
+     */
     @Override
-    public String readFileAsBase64(File recordedFile) {
+    public byte[] readFileAsBase64(File recordedFile) {
+        Tracing.beginSection("VoiceRecorder.encode");
+        try {
+            return encodeBase64(recordedFile);
+        } finally {
+            Tracing.endSection();
+        }
+    }
+
+    private byte[] encodeBase64(File recordedFile) {
+        if (RecordingEncryption.isEncrypted(recordedFile)) {
+            return readEncryptedFileAsBase64(recordedFile);
+        }
+        if (recordedFile.length() >= ParallelBase64Encoder.DEFAULT_THRESHOLD_BYTES) {
+            try {
+                return parallelBase64Encoder.encode(recordedFile);
+            } catch (IOException exp) {
+                return null;
+            }
+        }
         try (BufferedInputStream bufferedInputStream = new BufferedInputStream(new FileInputStream(recordedFile))) {
             ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             byte[] buffer = new byte[8192];
@@ -126,9 +220,110 @@ public class DefaultRecorderPlatform implements RecorderPlatform {
         }
     }
 
-    /** Returns the file duration in milliseconds, or -1 on failure. */
+    private byte[] readEncryptedFileAsBase64(File recordedFile) {
+        try {
+            byte[] plaintext = decrypt(recordedFile);
+            if (plaintext == null) {
+                return null;
+            }
+            return plaintext.length >= ParallelBase64Encoder.DEFAULT_THRESHOLD_BYTES
+                ? parallelBase64Encoder.encode(ByteBuffer.wrap(plaintext))
+                : base64Encoder.encode(plaintext);
+        } catch (IOException exp) {
+            return null;
+        }
+    }
+
+    /** Decrypts the whole recording into memory, or returns null when it is too large to encode afterwards. */
+    private byte[] decrypt(File recordedFile) throws IOException {
+        try (DecryptingInputStream input = RecordingEncryption.openDecrypting(recordedFile, keyWrapper)) {
+            long length = input.getPlaintextLength();
+            if (length > ParallelBase64Encoder.MAX_INPUT_BYTES) {
+                return null;
+            }
+            byte[] plaintext = new byte[(int) length];
+            input.readFully(plaintext, 0, plaintext.length);
+            return plaintext;
+        }
+    }
+
+    /**
+     * Maps a plain recording read-only, or decrypts an encrypted one chunk by chunk into memory, returning null on
+     * failure. The mapping stays valid after the file is deleted.
+     */
+    @Override
+    public ByteBuffer readRecording(File recordedFile) {
+        Tracing.beginSection("VoiceRecorder.read");
+        try {
+            if (RecordingEncryption.isEncrypted(recordedFile)) {
+                byte[] plaintext = decrypt(recordedFile);
+                return plaintext != null ? ByteBuffer.wrap(plaintext) : null;
+            }
+            try (FileInputStream input = new FileInputStream(recordedFile); FileChannel channel = input.getChannel()) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        } catch (IOException exp) {
+            return null;
+        } finally {
+            Tracing.endSection();
+        }
+    }
+
+    /** Encodes a read recording as base64, in parallel above the same threshold as {@link #readFileAsBase64(File)}. */
+    @Override
+    public byte[] encodeBase64(ByteBuffer recording) {
+        Tracing.beginSection("VoiceRecorder.encode");
+        try {
+            if (recording.limit() > ParallelBase64Encoder.MAX_INPUT_BYTES) {
+                return null;
+            }
+            if (recording.limit() >= ParallelBase64Encoder.DEFAULT_THRESHOLD_BYTES) {
+                return parallelBase64Encoder.encode(recording);
+            }
+            byte[] bytes = new byte[recording.limit()];
+            ByteBuffer view = recording.duplicate();
+            view.position(0);
+            view.get(bytes);
+            return base64Encoder.encode(bytes);
+        } finally {
+            Tracing.endSection();
+        }
+    }
+
+    /** Decodes the read recording with the platform AAC decoder and returns its peaks, or null on failure. */
+    @Override
+    public float[] computeWaveform(ByteBuffer recording, int points) {
+        Tracing.beginSection("VoiceRecorder.waveform");
+        try {
+            return AdtsWaveform.compute(recording, points);
+        } catch (IOException | RuntimeException exp) {
+            return null;
+        } finally {
+            Tracing.endSection();
+        }
+    }
+
+    /**
+     * Returns the file duration in milliseconds, or -1 on failure. ADTS files are measured with their seek index;
+     * other containers, such as transcoded OGG files, are probed with MediaPlayer.
+     */
     @Override
     public int getDurationMs(File recordedFile) {
+        Tracing.beginSection("VoiceRecorder.probe");
+        try {
+            return probeDurationMs(recordedFile);
+        } finally {
+            Tracing.endSection();
+        }
+    }
+
+    private int probeDurationMs(File recordedFile) {
+        try {
+            AdtsSeekIndex index = indexFor(recordedFile);
+            if (index.getFrameCount() > 0) {
+                return (int) index.getDurationMs();
+            }
+        } catch (IOException ignore) {}
         MediaPlayer mediaPlayer = null;
         try {
             mediaPlayer = mediaPlayerFactory.create();
@@ -144,9 +339,203 @@ public class DefaultRecorderPlatform implements RecorderPlatform {
         }
     }
 
+    /**
+     * Reads the stream properties from the seek index, returning null for files that are not ADTS. Encrypted
+     * recordings are indexed from their decrypted stream; the size is the size on disk.
+     */
+    @Override
+    public RecordingInfo getRecordingInfo(File recordedFile) {
+        try {
+            AdtsSeekIndex index = indexFor(recordedFile);
+            if (index.getFrameCount() == 0) {
+                return null;
+            }
+            long durationMs = index.getDurationMs();
+            long sizeBytes = recordedFile.length();
+            return new RecordingInfo(
+                durationMs,
+                sizeBytes,
+                index.getSampleRate(),
+                index.getChannelCount(),
+                durationMs > 0 ? (int) (index.getEndOffset() * 8000 / durationMs) : 0
+            );
+        } catch (IOException exp) {
+            return null;
+        }
+    }
+
+    /** Returns the seek index of a plain recording, or walks the frame headers of an encrypted one in memory. */
+    private AdtsSeekIndex indexFor(File recordedFile) throws IOException {
+        if (!RecordingEncryption.isEncrypted(recordedFile)) {
+            return AdtsSeekIndex.forFile(recordedFile);
+        }
+        try (DecryptingInputStream input = RecordingEncryption.openDecrypting(recordedFile, keyWrapper)) {
+            AdtsSeekIndex.Builder builder = new AdtsSeekIndex.Builder();
+            builder.update(input, input.getPlaintextLength());
+            return builder.build(input.getPlaintextLength());
+        }
+    }
+
+    /** Returns the managed directory inside the app cache directory. */
+    @Override
+    public File getManagedDirectory() {
+        return CustomMediaRecorder.managedDirectory(context.getCacheDir());
+    }
+
+    /** Recovers the recordings named by checkpoints left in the app files directory. */
+    @Override
+    public List<RecoveredRecording> recoverRecordings() {
+        Tracing.beginSection("VoiceRecorder.recover");
+        try {
+            return RecordingCheckpointer.recover(new File(context.getFilesDir(), RecordingCheckpointer.CHECKPOINT_DIRECTORY));
+        } finally {
+            Tracing.endSection();
+        }
+    }
+
     /** Returns a file:// URI for the given recording. */
     @Override
     public String toUri(File recordedFile) {
         return uriConverter.toUri(recordedFile);
     }
+
+    /** Resolves file:// URIs; other schemes are not backed by a plain file. */
+    @Override
+    public File fromUri(String uri) {
+        try {
+            URI parsed = URI.create(uri);
+            return "file".equals(parsed.getScheme()) ? new File(parsed) : null;
+        } catch (IllegalArgumentException exp) {
+            return null;
+        }
+    }
+
+    /** Transcodes into a sibling file named after the profile, for example {@code recording-opus-16000.ogg}. */
+    @Override
+    public File transcode(File recordedFile, TranscodeProfile profile, DoubleConsumer onProgress) throws Exception {
+        String name = recordedFile.getName();
+        int dotIndex = name.lastIndexOf('.');
+        String baseName = dotIndex > 0 ? name.substring(0, dotIndex) : name;
+        File destination = new File(
+            recordedFile.getParentFile(),
+            baseName + "-" + profile.format() + "-" + profile.sampleRate() + "." + profile.fileExtension()
+        );
+        transcoder.transcode(recordedFile, destination, profile, onProgress);
+        return destination;
+    }
+
+    /** Limits parallel transcodes by the codec instances the device supports and the available CPU cores. */
+    @Override
+    public int getMaxParallelTranscodes(TranscodeProfile profile) {
+        return transcoder.maxParallelSessions(profile, Runtime.getRuntime().availableProcessors());
+    }
+
+    /** Copies whole ADTS frames covering the range into a sibling file, returning null on failure. */
+    @Override
+    public File extractAudioRange(File recordedFile, long startMs, long endMs, String suffix) {
+        String name = recordedFile.getName();
+        int dotIndex = name.lastIndexOf('.');
+        String baseName = dotIndex > 0 ? name.substring(0, dotIndex) : name;
+        String extension = dotIndex > 0 ? name.substring(dotIndex) : "";
+        File destination = new File(recordedFile.getParentFile(), baseName + suffix + extension);
+        try {
+            AdtsFile.copyRange(recordedFile, startMs, endMs, destination);
+            return destination;
+        } catch (IOException exp) {
+            destination.delete();
+            return null;
+        }
+    }
+
+    /** Joins whole ADTS frames of the recordings into a new file next to the first one. */
+    @Override
+    public File concatAudio(List<File> recordedFiles) throws Exception {
+        File first = recordedFiles.get(0);
+        String name = first.getName();
+        int dotIndex = name.lastIndexOf('.');
+        String baseName = dotIndex > 0 ? name.substring(0, dotIndex) : name;
+        String extension = dotIndex > 0 ? name.substring(dotIndex) : ".aac";
+        File destination = File.createTempFile(baseName + "-joined-", extension, first.getParentFile());
+        try {
+            AdtsFile.concat(recordedFiles, destination);
+        } catch (IOException | IncompatibleAudioFormat exp) {
+            destination.delete();
+            throw exp;
+        }
+        return destination;
+    }
+
+    /** Drops whole ADTS frames outside the range without re-encoding, returning null on failure. */
+    @Override
+    public AudioRange trimAudio(File recordedFile, long startMs, long endMs) {
+        try {
+            return AdtsFile.trimInPlace(recordedFile, startMs, endMs);
+        } catch (IOException exp) {
+            return null;
+        }
+    }
+
+    /** Starts retaining microphone audio for the next recording. */
+    @Override
+    public void armPreRoll(int preRollMs) throws Exception {
+        preRollCapture.arm(preRollMs);
+    }
+
+    /** Stops retaining microphone audio. */
+    @Override
+    public void disarmPreRoll() {
+        preRollCapture.disarm();
+    }
+
+    /** Hands over the retained audio and frees the microphone for MediaRecorder. */
+    @Override
+    public short[] takePreRoll() {
+        return preRollCapture.takeSnapshot();
+    }
+
+    /** Encodes the pre-roll to ADTS and prepends its frames, returning the prepended duration or -1. */
+    @Override
+    public long prependPreRoll(File recordedFile, short[] preRoll) {
+        File head = new File(recordedFile.getParentFile(), recordedFile.getName() + ".preroll");
+        try {
+            int sampleRate;
+            try (FileChannel channel = new FileInputStream(recordedFile).getChannel()) {
+                sampleRate = AdtsFrameIndex.firstSampleRate(channel);
+            }
+            // Sessions started under thermal or battery pressure record below the pre-roll rate.
+            if (sampleRate != 0 && sampleRate != PreRollCapture.SAMPLE_RATE) {
+                preRoll = resample(preRoll, PreRollCapture.SAMPLE_RATE, sampleRate);
+            } else {
+                sampleRate = PreRollCapture.SAMPLE_RATE;
+            }
+            int encoderRate = sampleRate;
+            AacEncoder.encodeToAdts(
+                preRoll,
+                encoderRate,
+                head,
+                mimeType -> encoderRegistry.createEncoder(mimeType, encoderRate, AacEncoder.BIT_RATE)
+            );
+            long durationMs;
+            try (FileChannel channel = new FileInputStream(head).getChannel()) {
+                durationMs = AdtsFrameIndex.scan(channel).getDurationMs();
+            }
+            AdtsFile.prepend(head, recordedFile);
+            return durationMs;
+        } catch (IOException exp) {
+            return -1;
+        } finally {
+            head.delete();
+        }
+    }
+
+    /** Resamples a whole PCM buffer, including the filter tail. */
+    private static short[] resample(short[] pcm, int inputRate, int outputRate) {
+        PcmResampler resampler = new PcmResampler(inputRate, outputRate);
+        short[] output = new short[resampler.maxOutputLength(pcm.length) + resampler.maxOutputLength(0)];
+        int length = resampler.process(pcm, 0, pcm.length, output);
+        short[] tail = new short[resampler.maxOutputLength(0)];
+        int tailLength = resampler.flush(tail);
+        System.arraycopy(tail, 0, output, length, tailLength);
+        return Arrays.copyOf(output, length + tailLength);
+    }
 }
@@ -0,0 +1,81 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.PowerManager;
+import app.independo.capacitorvoicerecorder.core.EncoderSettings;
+
+/**
+ * Reads the thermal status and battery saver from {@link PowerManager} and picks the encoder settings for the next
+ * session. MediaRecorder cannot change its settings once prepared, so the state is sampled when a session starts.
+ */
+final class DevicePowerState implements CustomMediaRecorder.EncoderSettingsProvider {
+
+    interface ThermalStatusProvider {
+        /** Returns the current {@code PowerManager} thermal status. */
+        int getThermalStatus();
+    }
+
+    interface PowerSaveModeProvider {
+        boolean isPowerSaveMode();
+    }
+
+    private static final class DefaultThermalStatusProvider implements ThermalStatusProvider {
+        private final PowerManager powerManager;
+        private final CustomMediaRecorder.SdkIntProvider sdkIntProvider;
+
+        DefaultThermalStatusProvider(PowerManager powerManager, CustomMediaRecorder.SdkIntProvider sdkIntProvider) {
+            this.powerManager = powerManager;
+            this.sdkIntProvider = sdkIntProvider;
+        }
+
+        @Override
+        public int getThermalStatus() {
+            if (powerManager == null || sdkIntProvider.getSdkInt() < Build.VERSION_CODES.Q) {
+                return PowerManager.THERMAL_STATUS_NONE;
+            }
+            return powerManager.getCurrentThermalStatus();
+        }
+    }
+
+    private static final class DefaultPowerSaveModeProvider implements PowerSaveModeProvider {
+        private final PowerManager powerManager;
+
+        DefaultPowerSaveModeProvider(PowerManager powerManager) {
+            this.powerManager = powerManager;
+        }
+
+        @Override
+        public boolean isPowerSaveMode() {
+            return powerManager != null && powerManager.isPowerSaveMode();
+        }
+    }
+
+    /** Thermal status source; thermal status is only reported from Android 10 on. */
+    private final ThermalStatusProvider thermalStatusProvider;
+    /** Battery saver source. */
+    private final PowerSaveModeProvider powerSaveModeProvider;
+
+    DevicePowerState(Context context, CustomMediaRecorder.SdkIntProvider sdkIntProvider) {
+        this(powerManager(context), sdkIntProvider);
+    }
+
+    private DevicePowerState(PowerManager powerManager, CustomMediaRecorder.SdkIntProvider sdkIntProvider) {
+        this(new DefaultThermalStatusProvider(powerManager, sdkIntProvider), new DefaultPowerSaveModeProvider(powerManager));
+    }
+
+    DevicePowerState(ThermalStatusProvider thermalStatusProvider, PowerSaveModeProvider powerSaveModeProvider) {
+        this.thermalStatusProvider = thermalStatusProvider;
+        this.powerSaveModeProvider = powerSaveModeProvider;
+    }
+
+    /** Returns the settings for a session starting now. */
+    @Override
+    public EncoderSettings getEncoderSettings() {
+        return EncoderSettings.forDeviceState(thermalStatusProvider.getThermalStatus(), powerSaveModeProvider.isPowerSaveMode());
+    }
+
+    private static PowerManager powerManager(Context context) {
+        return (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+    }
+}
@@ -0,0 +1,325 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import android.content.Context;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.os.Build;
+import android.util.Range;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Ranked list of the audio encoders on the device, used to pick the codec for a profile by name.
+ *
+ * <p>{@code MediaCodecList} is walked once per build: the ranking, hardware encoders first and the platform's own
+ * preference order after that, is written to a small tab-separated file stamped with the build fingerprint and read
+ * back by later processes. Each MIME type, sample rate and bit rate combination is resolved against the ranking the
+ * first time it is asked for and then answered from a map. The ranking also keeps how many instances each encoder
+ * supports; decoder instance counts are looked up once per process.</p>
+ */
+final class EncoderRegistry {
+
+    /** Location of the ranking below the app's files directory. */
+    static final String CACHE_PATH = "voice-recorder/encoder-registry.tsv";
+    /** Marker for a combination that no listed encoder supports. */
+    private static final String NONE = "";
+
+    /** Encoder as listed by the platform, with the capabilities the ranking and lookups need. */
+    record Encoder(
+        String name,
+        String mimeType,
+        boolean hardware,
+        int minSampleRate,
+        int maxSampleRate,
+        int[] sampleRates,
+        int maxChannels,
+        int minBitRate,
+        int maxBitRate,
+        int maxInstances
+    ) {
+        /** Returns whether the encoder accepts mono input at the sample rate and bit rate. */
+        boolean supports(int sampleRate, int bitRate) {
+            if (maxChannels < 1 || bitRate < minBitRate || bitRate > maxBitRate) {
+                return false;
+            }
+            if (sampleRates.length == 0) {
+                return sampleRate >= minSampleRate && sampleRate <= maxSampleRate;
+            }
+            for (int rate : sampleRates) {
+                if (rate == sampleRate) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    interface CodecSource {
+        /** Returns the audio encoders in the platform's preference order. */
+        List<Encoder> listAudioEncoders();
+
+        /** Returns how many instances the preferred decoder for the MIME type supports, or 0 if there is none. */
+        int maxDecoderInstances(String mimeType);
+    }
+
+    private static final class MediaCodecListSource implements CodecSource {
+        private final IntSupplier sdkInt;
+
+        MediaCodecListSource(IntSupplier sdkInt) {
+            this.sdkInt = sdkInt;
+        }
+
+        @Override
+        public List<Encoder> listAudioEncoders() {
+            List<Encoder> encoders = new ArrayList<>();
+            for (MediaCodecInfo info : new MediaCodecList(MediaCodecList.REGULAR_CODECS).getCodecInfos()) {
+                if (!info.isEncoder()) {
+                    continue;
+                }
+                for (String type : info.getSupportedTypes()) {
+                    MediaCodecInfo.AudioCapabilities audio = info.getCapabilitiesForType(type).getAudioCapabilities();
+                    if (audio == null) {
+                        continue;
+                    }
+                    Range<Integer>[] rateRanges = audio.getSupportedSampleRateRanges();
+                    int[] rates = audio.getSupportedSampleRates();
+                    Range<Integer> bitRates = audio.getBitrateRange();
+                    encoders.add(
+                        new Encoder(
+                            info.getName(),
+                            type.toLowerCase(Locale.ROOT),
+                            isHardware(info),
+                            rateRanges.length > 0 ? rateRanges[0].getLower() : 0,
+                            rateRanges.length > 0 ? rateRanges[rateRanges.length - 1].getUpper() : 0,
+                            rates != null ? rates : new int[0],
+                            audio.getMaxInputChannelCount(),
+                            bitRates.getLower(),
+                            bitRates.getUpper(),
+                            info.getCapabilitiesForType(type).getMaxSupportedInstances()
+                        )
+                    );
+                }
+            }
+            return encoders;
+        }
+
+        @Override
+        public int maxDecoderInstances(String mimeType) {
+            // Codecs are listed in preference order, so the first match is the one createDecoderByType picks.
+            for (MediaCodecInfo info : new MediaCodecList(MediaCodecList.REGULAR_CODECS).getCodecInfos()) {
+                if (info.isEncoder()) {
+                    continue;
+                }
+                for (String type : info.getSupportedTypes()) {
+                    if (type.equalsIgnoreCase(mimeType)) {
+                        return info.getCapabilitiesForType(type).getMaxSupportedInstances();
+                    }
+                }
+            }
+            return 0;
+        }
+
+        private boolean isHardware(MediaCodecInfo info) {
+            if (sdkInt.getAsInt() >= Build.VERSION_CODES.Q) {
+                return info.isHardwareAccelerated();
+            }
+            // Before Android 10 the platform's software codecs are only recognisable by name.
+            String name = info.getName().toLowerCase(Locale.ROOT);
+            return !name.startsWith("omx.google.") && !name.startsWith("c2.android.") && !name.contains(".sw.");
+        }
+    }
+
+    private static volatile EncoderRegistry shared;
+
+    /** Platform codec list, read at most once. */
+    private final CodecSource codecSource;
+    /** File the ranking is persisted to. */
+    private final File cacheFile;
+    /** Build the persisted ranking must belong to, read only when the ranking is first needed. */
+    private final Supplier<String> fingerprint;
+    /** Resolved encoder name per MIME type, sample rate and bit rate, {@link #NONE} when nothing supports it. */
+    private final Map<String, String> resolved = new ConcurrentHashMap<>();
+    /** Supported decoder instances per MIME type. */
+    private final Map<String, Integer> decoderInstances = new ConcurrentHashMap<>();
+    private volatile List<Encoder> ranking;
+
+    EncoderRegistry(CodecSource codecSource, File cacheFile, Supplier<String> fingerprint) {
+        this.codecSource = codecSource;
+        this.cacheFile = cacheFile;
+        this.fingerprint = fingerprint;
+    }
+
+    /** Returns the process-wide registry, persisted in the app's files directory. */
+    static EncoderRegistry shared(Context context) {
+        if (shared == null) {
+            synchronized (EncoderRegistry.class) {
+                if (shared == null) {
+                    shared = new EncoderRegistry(
+                        new MediaCodecListSource(() -> Build.VERSION.SDK_INT),
+                        new File(context.getFilesDir(), CACHE_PATH),
+                        () -> Build.FINGERPRINT
+                    );
+                }
+            }
+        }
+        return shared;
+    }
+
+    /** Returns the name of the best encoder for mono input in the format, or null when none is listed. */
+    String encoderFor(String mimeType, int sampleRate, int bitRate) {
+        String key = mimeType + '/' + sampleRate + '/' + bitRate;
+        String name = resolved.get(key);
+        if (name == null) {
+            name = NONE;
+            for (Encoder encoder : ranking()) {
+                if (encoder.mimeType().equalsIgnoreCase(mimeType) && encoder.supports(sampleRate, bitRate)) {
+                    name = encoder.name();
+                    break;
+                }
+            }
+            resolved.put(key, name);
+        }
+        return name.isEmpty() ? null : name;
+    }
+
+    /** Returns how many instances the encoder picked for the format supports, or 0 when none is listed. */
+    int maxEncoderInstances(String mimeType, int sampleRate, int bitRate) {
+        String name = encoderFor(mimeType, sampleRate, bitRate);
+        if (name != null) {
+            for (Encoder encoder : ranking()) {
+                if (encoder.name().equals(name) && encoder.mimeType().equalsIgnoreCase(mimeType)) {
+                    return encoder.maxInstances();
+                }
+            }
+        }
+        return 0;
+    }
+
+    /** Returns how many instances the preferred decoder for the MIME type supports, or 0 if there is none. */
+    int maxDecoderInstances(String mimeType) {
+        return decoderInstances.computeIfAbsent(mimeType.toLowerCase(Locale.ROOT), codecSource::maxDecoderInstances);
+    }
+
+    /** Creates the best encoder for the format, falling back to the platform default when it cannot be created. */
+    MediaCodec createEncoder(String mimeType, int sampleRate, int bitRate) throws IOException {
+        String name = encoderFor(mimeType, sampleRate, bitRate);
+        if (name != null) {
+            try {
+                return MediaCodec.createByCodecName(name);
+            } catch (IOException | IllegalArgumentException ignore) {
+                // A codec that disappeared after an update without a fingerprint change.
+            }
+        }
+        return MediaCodec.createEncoderByType(mimeType);
+    }
+
+    /** Returns the ranked encoders, loading or building the persisted ranking on first use. */
+    List<Encoder> ranking() {
+        List<Encoder> current = ranking;
+        if (current == null) {
+            synchronized (this) {
+                current = ranking;
+                if (current == null) {
+                    current = load();
+                    if (current == null) {
+                        current = rank(codecSource.listAudioEncoders());
+                        save(current);
+                    }
+                    ranking = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /** Orders hardware encoders first, keeping the platform's order within each group. */
+    static List<Encoder> rank(List<Encoder> encoders) {
+        List<Encoder> ranked = new ArrayList<>(encoders);
+        ranked.sort(Comparator.comparing(encoder -> !encoder.hardware()));
+        return List.copyOf(ranked);
+    }
+
+    /** Reads the persisted ranking, or returns null when it is missing, damaged or from another build. */
+    private List<Encoder> load() {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        try {
+            String content = new String(Files.readAllBytes(cacheFile.toPath()), StandardCharsets.UTF_8);
+            String[] lines = content.split("\n");
+            if (lines.length == 0 || !lines[0].equals(String.valueOf(fingerprint.get()))) {
+                return null;
+            }
+            List<Encoder> encoders = new ArrayList<>();
+            for (int i = 1; i < lines.length; i++) {
+                String[] fields = lines[i].split("\t", -1);
+                encoders.add(
+                    new Encoder(
+                        fields[0],
+                        fields[1],
+                        fields[2].equals("1"),
+                        Integer.parseInt(fields[3]),
+                        Integer.parseInt(fields[4]),
+                        parseRates(fields[5]),
+                        Integer.parseInt(fields[6]),
+                        Integer.parseInt(fields[7]),
+                        Integer.parseInt(fields[8]),
+                        Integer.parseInt(fields[9])
+                    )
+                );
+            }
+            return List.copyOf(encoders);
+        } catch (IOException | RuntimeException damaged) {
+            return null;
+        }
+    }
+
+    /** Persists the ranking; a failed write only costs the next process another walk of the codec list. */
+    private void save(List<Encoder> encoders) {
+        StringBuilder lines = new StringBuilder().append(fingerprint.get()).append('\n');
+        for (Encoder encoder : encoders) {
+            lines.append(encoder.name()).append('\t').append(encoder.mimeType()).append('\t');
+            lines.append(encoder.hardware() ? '1' : '0').append('\t');
+            lines.append(encoder.minSampleRate()).append('\t').append(encoder.maxSampleRate()).append('\t');
+            for (int i = 0; i < encoder.sampleRates().length; i++) {
+                lines.append(i > 0 ? "," : "").append(encoder.sampleRates()[i]);
+            }
+            lines.append('\t').append(encoder.maxChannels()).append('\t');
+            lines.append(encoder.minBitRate()).append('\t').append(encoder.maxBitRate()).append('\t');
+            lines.append(encoder.maxInstances()).append('\n');
+        }
+        try {
+            File parent = cacheFile.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                return;
+            }
+            File temporary = new File(parent, cacheFile.getName() + ".tmp");
+            Files.write(temporary.toPath(), lines.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ignore) {}
+    }
+
+    private static int[] parseRates(String field) {
+        if (field.isEmpty()) {
+            return new int[0];
+        }
+        String[] parts = field.split(",");
+        int[] rates = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            rates[i] = Integer.parseInt(parts[i]);
+        }
+        return rates;
+    }
+}
@@ -0,0 +1,99 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import android.os.ParcelFileDescriptor;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Pipe that MediaRecorder writes into, drained by a background thread that encrypts the stream into the output file.
+ *
+ * <p>ADTS output is written strictly forwards, so MediaRecorder can target the write side of a pipe instead of a
+ * file. The plaintext only exists in the pipe buffer and in the chunk being filled, never on disk.</p>
+ */
+final class EncryptedOutputPump {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final ParcelFileDescriptor readSide;
+    private final ParcelFileDescriptor writeSide;
+    private final OutputStream output;
+    private Thread thread;
+    /** First failure of the pump thread, reported by {@link #finish()}. */
+    private volatile IOException failure;
+
+    EncryptedOutputPump(File outputFile, String keyAlias, RecordingEncryption.KeyWrapper keyWrapper) throws IOException {
+        ParcelFileDescriptor[] pipe = ParcelFileDescriptor.createPipe();
+        readSide = pipe[0];
+        writeSide = pipe[1];
+        FileOutputStream file = null;
+        try {
+            file = new FileOutputStream(outputFile);
+            output = RecordingEncryption.openEncrypting(file, keyAlias, keyWrapper);
+        } catch (IOException | RuntimeException exp) {
+            closeQuietly(file);
+            closeQuietly(readSide);
+            closeQuietly(writeSide);
+            throw exp;
+        }
+    }
+
+    /** Returns the descriptor MediaRecorder writes to. */
+    FileDescriptor getFileDescriptor() {
+        return writeSide.getFileDescriptor();
+    }
+
+    /** Starts draining the pipe. */
+    void start() {
+        thread = new Thread(this::pump, "VoiceRecorderEncrypt");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Closes the write side, waits until the pipe is drained and seals the last chunk. Call after MediaRecorder has
+     * been released, so it holds no copy of the write side anymore.
+     */
+    void finish() throws IOException {
+        closeQuietly(writeSide);
+        if (thread == null) {
+            closeQuietly(readSide);
+            output.close();
+            return;
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while sealing the recording", exp);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void pump() {
+        try (InputStream input = new ParcelFileDescriptor.AutoCloseInputStream(readSide); OutputStream sink = output) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                sink.write(buffer, 0, read);
+            }
+        } catch (IOException exp) {
+            failure = exp;
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException ignore) {}
+    }
+}
@@ -0,0 +1,84 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+
+/**
+ * Writes plaintext as authenticated chunks in the {@link RecordingEncryption} format.
+ *
+ * <p>One chunk of plaintext is buffered. A full chunk is only sealed once more data arrives, because the last chunk
+ * is sealed with a different nonce and that is only known on {@link #close()}.</p>
+ */
+final class EncryptingOutputStream extends OutputStream {
+
+    private final OutputStream output;
+    private final RecordingEncryption.Header header;
+    private final SecretKey dataKey;
+    /** Plaintext of the chunk being filled. */
+    private final byte[] chunk;
+    /** Sealed chunk, reused for every write. */
+    private final byte[] sealed;
+    private int chunkLength;
+    private long chunkIndex;
+    private boolean closed;
+
+    EncryptingOutputStream(OutputStream output, RecordingEncryption.Header header, SecretKey dataKey) {
+        this.output = output;
+        this.header = header;
+        this.dataKey = dataKey;
+        this.chunk = new byte[header.chunkSize()];
+        this.sealed = new byte[header.chunkSize() + RecordingEncryption.TAG_LENGTH];
+    }
+
+    @Override
+    public void write(int value) throws IOException {
+        write(new byte[] {(byte) value}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        if (closed) {
+            throw new IOException("stream is closed");
+        }
+        while (length > 0) {
+            if (chunkLength == chunk.length) {
+                seal(false);
+            }
+            int copied = Math.min(length, chunk.length - chunkLength);
+            System.arraycopy(data, offset, chunk, chunkLength, copied);
+            chunkLength += copied;
+            offset += copied;
+            length -= copied;
+        }
+    }
+
+    /** Seals the buffered data as the last chunk and closes the output. */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            seal(true);
+            output.flush();
+        } finally {
+            output.close();
+        }
+    }
+
+    private void seal(boolean last) throws IOException {
+        Cipher cipher = RecordingEncryption.chunkCipher(Cipher.ENCRYPT_MODE, dataKey, header, chunkIndex, last);
+        try {
+            int sealedLength = cipher.doFinal(chunk, 0, chunkLength, sealed, 0);
+            output.write(sealed, 0, sealedLength);
+        } catch (GeneralSecurityException exp) {
+            throw new IOException("could not encrypt chunk " + chunkIndex, exp);
+        }
+        chunkIndex++;
+        chunkLength = 0;
+    }
+}
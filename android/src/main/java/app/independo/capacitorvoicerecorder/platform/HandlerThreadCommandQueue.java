@@ -0,0 +1,44 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import app.independo.capacitorvoicerecorder.adapters.CommandQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Command queue backed by a dedicated {@link HandlerThread}.
+ *
+ * <p>MediaRecorder delivers its info events to the looper of the thread that created it, so creating recorders
+ * on this thread keeps those callbacks on the queue as well.</p>
+ */
+public class HandlerThreadCommandQueue implements CommandQueue {
+
+    /** Thread that runs every queued command. */
+    private final HandlerThread thread;
+    /** Handler posting commands to the thread's looper. */
+    private final Handler handler;
+
+    public HandlerThreadCommandQueue(String name) {
+        thread = new HandlerThread(name);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (!handler.post(command)) {
+            throw new RejectedExecutionException("Command queue has been shut down");
+        }
+    }
+
+    @Override
+    public boolean isQueueThread() {
+        return Looper.myLooper() == thread.getLooper();
+    }
+
+    @Override
+    public void shutdown() {
+        thread.quitSafely();
+    }
+}
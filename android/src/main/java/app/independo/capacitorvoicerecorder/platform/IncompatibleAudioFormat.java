@@ -0,0 +1,4 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+/** Signals that recordings cannot be joined because their audio formats differ. */
+public class IncompatibleAudioFormat extends Exception {}
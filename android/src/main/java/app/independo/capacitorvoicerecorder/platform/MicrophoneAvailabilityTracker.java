@@ -0,0 +1,114 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import android.content.Context;
+import android.media.AudioManager;
+import android.media.AudioRecordingConfiguration;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Keeps a cached view of whether the microphone is free, driven by {@link AudioManager.AudioRecordingCallback}.
+ *
+ * <p>The system reports every change to the active recording configurations, so the start check is a field read
+ * and no longer relies on the audio mode, which also changes while a call is only ringing. The pre-roll capture held
+ * by this plugin is excluded by its audio session. A cached "occupied" is confirmed with a fresh query before it is
+ * reported, because the callback for a recording that just ended can trail behind the next start.</p>
+ */
+public class MicrophoneAvailabilityTracker {
+
+    /** Context used to look up the audio manager on first use. */
+    private final Context context;
+    /** Audio session of this plugin's own pre-roll capture, or {@link AudioManager#AUDIO_SESSION_ID_GENERATE}. */
+    private final IntSupplier ownSessionId;
+    /** Callback registered with the audio manager while tracking. */
+    private final AudioManager.AudioRecordingCallback callback = new AudioManager.AudioRecordingCallback() {
+        @Override
+        public void onRecordingConfigChanged(List<AudioRecordingConfiguration> configs) {
+            update(configs);
+        }
+    };
+    /** Audio manager the callback is registered with, or null while not tracking. */
+    private AudioManager audioManager;
+    /** Latest known availability. */
+    private volatile boolean available;
+    /** Listener notified when the availability changes. */
+    private volatile Consumer<Boolean> listener;
+
+    public MicrophoneAvailabilityTracker(Context context, IntSupplier ownSessionId) {
+        this.context = context;
+        this.ownSessionId = ownSessionId;
+    }
+
+    /** Returns whether no other client is recording; starts tracking on first use. */
+    public boolean isAvailable() {
+        AudioManager manager = ensureStarted();
+        if (manager == null) {
+            return false;
+        }
+        if (available) {
+            return true;
+        }
+        update(manager.getActiveRecordingConfigurations());
+        return available;
+    }
+
+    /** Sets the listener for availability changes; null stops tracking until the next check. */
+    public void setListener(Consumer<Boolean> listener) {
+        this.listener = listener;
+        if (listener != null) {
+            ensureStarted();
+        } else {
+            stop();
+        }
+    }
+
+    /** Unregisters the system callback. */
+    public synchronized void stop() {
+        if (audioManager != null) {
+            audioManager.unregisterAudioRecordingCallback(callback);
+            audioManager = null;
+        }
+    }
+
+    private synchronized AudioManager ensureStarted() {
+        if (audioManager != null) {
+            return audioManager;
+        }
+        AudioManager manager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+        if (manager == null) {
+            return null;
+        }
+        // A null handler delivers changes on the main looper; the update itself is only a scan of a short list.
+        manager.registerAudioRecordingCallback(callback, null);
+        audioManager = manager;
+        available = isAvailable(manager.getActiveRecordingConfigurations(), ownSessionId.getAsInt());
+        return manager;
+    }
+
+    private void update(List<AudioRecordingConfiguration> configs) {
+        boolean nowAvailable = isAvailable(configs, ownSessionId.getAsInt());
+        boolean changed;
+        synchronized (this) {
+            changed = nowAvailable != available;
+            available = nowAvailable;
+        }
+        Consumer<Boolean> currentListener = listener;
+        if (changed && currentListener != null) {
+            currentListener.accept(nowAvailable);
+        }
+    }
+
+    /** Returns whether every active configuration belongs to the given session. */
+    static boolean isAvailable(List<AudioRecordingConfiguration> configs, int ownSessionId) {
+        if (configs == null) {
+            return true;
+        }
+        for (AudioRecordingConfiguration config : configs) {
+            if (ownSessionId == AudioManager.AUDIO_SESSION_ID_GENERATE || config.getClientAudioSessionId() != ownSessionId) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,187 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base64 encoder for large files that splits the work across a bounded fork-join pool.
+ *
+ * <p>The output matches {@code android.util.Base64.DEFAULT}: lines of {@link #LINE_CHARS} characters, each one
+ * ending in {@code '\n'}, including a shorter last line. The file is memory-mapped and cut into slices of whole
+ * lines ({@link #LINE_BYTES} input bytes each), so every slice knows where its text starts and is encoded straight
+ * into its own region of one preallocated output array, without joining partial results.</p>
+ */
+final class ParallelBase64Encoder {
+
+    /** Input bytes per output line. */
+    static final int LINE_BYTES = 57;
+    /** Base64 characters per output line, before the newline. */
+    static final int LINE_CHARS = 76;
+    /** Files below this size are cheaper to encode on the calling thread. */
+    static final long DEFAULT_THRESHOLD_BYTES = 1024 * 1024;
+    /** Smallest slice handed to a worker, about 114 KB of input. */
+    static final int DEFAULT_SLICE_LINES = 2048;
+    /** Largest file whose text still fits into one array. */
+    static final long MAX_INPUT_BYTES = (long) (Integer.MAX_VALUE - 8) / (LINE_CHARS + 1) * LINE_BYTES;
+    /** Lines copied out of the mapping at once. */
+    private static final int CHUNK_LINES = 256;
+    private static final byte[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(
+        StandardCharsets.US_ASCII
+    );
+
+    /** Workers for the slices, or null to encode on the calling thread. */
+    private final ForkJoinPool pool;
+    /** Lines below which a slice is not split further. */
+    private final int sliceLines;
+
+    ParallelBase64Encoder(ForkJoinPool pool, int sliceLines) {
+        this.pool = pool;
+        this.sliceLines = Math.max(1, sliceLines);
+    }
+
+    /** Returns the encoder backed by the shared pool, which leaves one core to the rest of the app. */
+    static ParallelBase64Encoder shared() {
+        return SharedPool.ENCODER;
+    }
+
+    /** Encodes the whole file and returns the ASCII text. */
+    byte[] encode(File file) throws IOException {
+        try (FileInputStream input = new FileInputStream(file); FileChannel channel = input.getChannel()) {
+            long size = channel.size();
+            if (size > MAX_INPUT_BYTES) {
+                throw new IOException("file is too large to encode in memory");
+            }
+            return encode(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /** Encodes the buffer from index 0 up to its limit and returns the ASCII text. */
+    byte[] encode(ByteBuffer data) {
+        long size = data.limit();
+        byte[] output = new byte[(int) encodedLength(size)];
+        int lines = (int) ((size + LINE_BYTES - 1) / LINE_BYTES);
+        SliceTask task = new SliceTask(data, output, 0, lines);
+        if (pool == null || lines <= sliceLines) {
+            task.encodeSlice();
+        } else {
+            pool.invoke(task);
+        }
+        return output;
+    }
+
+    /** Returns the number of output bytes, newlines included, for the given input size. */
+    static long encodedLength(long size) {
+        long lines = (size + LINE_BYTES - 1) / LINE_BYTES;
+        return (size + 2) / 3 * 4 + lines;
+    }
+
+    /**
+     * Encodes {@code length} input bytes starting at a line boundary into {@code output} from {@code outputOffset},
+     * and returns the offset after the written text.
+     */
+    static int encodeLines(byte[] input, int length, byte[] output, int outputOffset) {
+        int out = outputOffset;
+        int in = 0;
+        int fullGroupsEnd = length - length % 3;
+        int groupsInLine = 0;
+        while (in < fullGroupsEnd) {
+            int bits = (input[in] & 0xff) << 16 | (input[in + 1] & 0xff) << 8 | (input[in + 2] & 0xff);
+            output[out] = ALPHABET[bits >>> 18];
+            output[out + 1] = ALPHABET[(bits >>> 12) & 0x3f];
+            output[out + 2] = ALPHABET[(bits >>> 6) & 0x3f];
+            output[out + 3] = ALPHABET[bits & 0x3f];
+            out += 4;
+            in += 3;
+            if (++groupsInLine == LINE_BYTES / 3) {
+                output[out++] = '\n';
+                groupsInLine = 0;
+            }
+        }
+        int remaining = length - in;
+        if (remaining > 0) {
+            int bits = (input[in] & 0xff) << 16 | (remaining == 2 ? (input[in + 1] & 0xff) << 8 : 0);
+            output[out] = ALPHABET[bits >>> 18];
+            output[out + 1] = ALPHABET[(bits >>> 12) & 0x3f];
+            output[out + 2] = remaining == 2 ? ALPHABET[(bits >>> 6) & 0x3f] : (byte) '=';
+            output[out + 3] = '=';
+            out += 4;
+            groupsInLine++;
+        }
+        if (groupsInLine > 0) {
+            output[out++] = '\n';
+        }
+        return out;
+    }
+
+    /** Range of whole lines, split in halves until it is small enough to encode directly. */
+    private final class SliceTask extends RecursiveAction {
+
+        private final ByteBuffer mapped;
+        private final byte[] output;
+        private final int firstLine;
+        private final int endLine;
+
+        SliceTask(ByteBuffer mapped, byte[] output, int firstLine, int endLine) {
+            this.mapped = mapped;
+            this.output = output;
+            this.firstLine = firstLine;
+            this.endLine = endLine;
+        }
+
+        @Override
+        protected void compute() {
+            if (endLine - firstLine <= sliceLines) {
+                encodeSlice();
+                return;
+            }
+            int middle = (firstLine + endLine) >>> 1;
+            invokeAll(new SliceTask(mapped, output, firstLine, middle), new SliceTask(mapped, output, middle, endLine));
+        }
+
+        void encodeSlice() {
+            ByteBuffer view = mapped.duplicate();
+            long size = view.limit();
+            byte[] chunk = new byte[Math.min(CHUNK_LINES, endLine - firstLine) * LINE_BYTES];
+            int out = firstLine * (LINE_CHARS + 1);
+            for (int line = firstLine; line < endLine; line += CHUNK_LINES) {
+                int start = line * LINE_BYTES;
+                int length = (int) Math.min(chunk.length, Math.min(size, (long) endLine * LINE_BYTES) - start);
+                view.position(start);
+                view.get(chunk, 0, length);
+                out = encodeLines(chunk, length, output, out);
+            }
+        }
+    }
+
+    /** Pool created on first use, sized to all cores but one. */
+    private static final class SharedPool {
+        static final ParallelBase64Encoder ENCODER = create();
+
+        private static ParallelBase64Encoder create() {
+            int parallelism = Runtime.getRuntime().availableProcessors() - 1;
+            if (parallelism < 2) {
+                return new ParallelBase64Encoder(null, DEFAULT_SLICE_LINES);
+            }
+            AtomicInteger threadCount = new AtomicInteger();
+            ForkJoinPool pool = new ForkJoinPool(
+                parallelism,
+                forkJoinPool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                    thread.setName("VoiceRecorderBase64-" + threadCount.incrementAndGet());
+                    return thread;
+                },
+                null,
+                false
+            );
+            return new ParallelBase64Encoder(pool, DEFAULT_SLICE_LINES);
+        }
+    }
+}
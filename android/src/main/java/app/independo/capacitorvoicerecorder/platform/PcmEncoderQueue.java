@@ -0,0 +1,147 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded hand-off of captured PCM to one encoder running on its own thread.
+ *
+ * <p>Chunks are preallocated and cycle between a free list and the work queue, so the steady state does not
+ * allocate and the memory held by a slow encoder is capped. {@link #offer} never blocks the capture thread: when the
+ * encoder has fallen behind by the whole queue, the samples are dropped for this encoder only and counted.</p>
+ */
+final class PcmEncoderQueue {
+
+    /** Consumer of mono 16-bit PCM, called on the queue thread only. */
+    interface Encoder {
+        /** Encodes the next samples. */
+        void encode(short[] pcm, int length) throws IOException;
+
+        /** Flushes the encoder and completes the output. */
+        void finish() throws IOException;
+
+        /** Releases the encoder, whether it finished or failed. */
+        void release();
+    }
+
+    /** Marks the end of the stream in the work queue. */
+    private static final Chunk END = new Chunk(0);
+
+    private final String name;
+    private final Encoder encoder;
+    /** Chunks ready to be filled by the capture thread. */
+    private final BlockingQueue<Chunk> free;
+    /** Filled chunks waiting for the encoder, plus room for {@link #END}. */
+    private final BlockingQueue<Chunk> pending;
+    private final AtomicLong droppedSamples = new AtomicLong();
+    private Thread thread;
+    /** Whether the encoder failed; later samples are dropped. */
+    private volatile boolean failed;
+    /** First failure of the encoder, reported by {@link #finish()}. */
+    private volatile IOException failure;
+
+    PcmEncoderQueue(String name, Encoder encoder, int chunkCount, int chunkSamples) {
+        this.name = name;
+        this.encoder = encoder;
+        this.free = new ArrayBlockingQueue<>(chunkCount);
+        this.pending = new ArrayBlockingQueue<>(chunkCount + 1);
+        for (int i = 0; i < chunkCount; i++) {
+            free.add(new Chunk(chunkSamples));
+        }
+    }
+
+    /** Starts the encoder thread. */
+    void start() {
+        thread = new Thread(this::drain, "VoiceRecorderTee-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Copies the samples into the queue without blocking. Returns false when some of them were dropped because the
+     * encoder is behind or has failed.
+     */
+    boolean offer(short[] pcm, int offset, int length) {
+        int end = offset + length;
+        while (offset < end) {
+            Chunk chunk = failed ? null : free.poll();
+            if (chunk == null) {
+                droppedSamples.addAndGet(end - offset);
+                return false;
+            }
+            chunk.length = Math.min(chunk.samples.length, end - offset);
+            System.arraycopy(pcm, offset, chunk.samples, 0, chunk.length);
+            offset += chunk.length;
+            pending.add(chunk);
+        }
+        return true;
+    }
+
+    /** Returns how many samples were dropped for this encoder so far. */
+    long getDroppedSamples() {
+        return droppedSamples.get();
+    }
+
+    /** Waits until the queued samples are encoded and the output is complete, then reports any encoder failure. */
+    void finish() throws IOException {
+        if (thread == null) {
+            pending.add(END);
+            drain();
+        } else {
+            // Every chunk is either free or pending, so the extra slot always has room for the marker.
+            pending.add(END);
+            try {
+                thread.join();
+            } catch (InterruptedException exp) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while finishing the " + name + " encoder", exp);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                Chunk chunk = pending.take();
+                if (chunk == END) {
+                    encoder.finish();
+                    return;
+                }
+                try {
+                    encoder.encode(chunk.samples, chunk.length);
+                } finally {
+                    free.add(chunk);
+                }
+            }
+        } catch (IOException exp) {
+            fail(exp);
+        } catch (RuntimeException exp) {
+            // MediaCodec.CodecException is an IllegalStateException.
+            fail(new IOException("the " + name + " encoder failed", exp));
+        } catch (InterruptedException exp) {
+            fail(new IOException("the " + name + " encoder was interrupted", exp));
+        } finally {
+            encoder.release();
+        }
+    }
+
+    private void fail(IOException exp) {
+        failure = exp;
+        failed = true;
+    }
+
+    /** Preallocated slice of PCM. */
+    private static final class Chunk {
+        final short[] samples;
+        int length;
+
+        Chunk(int capacity) {
+            samples = new short[capacity];
+        }
+    }
+}
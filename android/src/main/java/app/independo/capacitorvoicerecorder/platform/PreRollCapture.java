@@ -0,0 +1,170 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import android.annotation.SuppressLint;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import app.independo.capacitorvoicerecorder.core.PcmRingBuffer;
+import java.io.IOException;
+
+/**
+ * Keeps the microphone open while armed and retains the most recent audio for the next recording.
+ *
+ * <p>Capture runs on a dedicated thread that reads into a preallocated chunk and copies it into a preallocated
+ * {@link PcmRingBuffer}, so memory stays fixed and the armed steady state does not allocate.</p>
+ */
+public class PreRollCapture {
+
+    /** Capture sample rate, matching the MediaRecorder encoder settings. */
+    public static final int SAMPLE_RATE = 44100;
+    /** Upper bound for the retained audio. */
+    public static final int MAX_PRE_ROLL_MS = 10_000;
+
+    interface AudioRecordFactory {
+        AudioRecord create(int sampleRate, int bufferSizeBytes);
+
+        int getMinBufferSize(int sampleRate);
+    }
+
+    static final class DefaultAudioRecordFactory implements AudioRecordFactory {
+        @SuppressLint("MissingPermission")
+        @Override
+        public AudioRecord create(int sampleRate, int bufferSizeBytes) {
+            return new AudioRecord(
+                MediaRecorder.AudioSource.MIC,
+                sampleRate,
+                AudioFormat.CHANNEL_IN_MONO,
+                AudioFormat.ENCODING_PCM_16BIT,
+                bufferSizeBytes
+            );
+        }
+
+        @Override
+        public int getMinBufferSize(int sampleRate) {
+            return AudioRecord.getMinBufferSize(sampleRate, AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
+        }
+    }
+
+    /** Factory for AudioRecord instances. */
+    private final AudioRecordFactory audioRecordFactory;
+    /** Retained audio, reused across arm cycles with the same length. */
+    private PcmRingBuffer ringBuffer;
+    /** Chunk the capture thread reads into. */
+    private short[] readBuffer;
+    /** Active capture source while armed. */
+    private AudioRecord audioRecord;
+    /** Thread draining the capture source. */
+    private Thread captureThread;
+    /** Whether the capture loop should keep reading. */
+    private volatile boolean capturing;
+    /** Audio session of the capture source while armed, readable without the lock. */
+    private volatile int audioSessionId = AudioManager.AUDIO_SESSION_ID_GENERATE;
+
+    public PreRollCapture() {
+        this(new DefaultAudioRecordFactory());
+    }
+
+    PreRollCapture(AudioRecordFactory audioRecordFactory) {
+        this.audioRecordFactory = audioRecordFactory;
+    }
+
+    /** Opens the microphone and starts retaining the last {@code preRollMs} of audio. */
+    public synchronized void arm(int preRollMs) throws IOException {
+        stopCapture();
+        int capacity = (int) ((long) SAMPLE_RATE * Math.min(Math.max(preRollMs, 1), MAX_PRE_ROLL_MS) / 1000);
+        if (ringBuffer == null || ringBuffer.capacity() != capacity) {
+            ringBuffer = new PcmRingBuffer(capacity);
+        } else {
+            ringBuffer.clear();
+        }
+
+        int minBufferBytes = audioRecordFactory.getMinBufferSize(SAMPLE_RATE);
+        int bufferBytes = Math.max(minBufferBytes, SAMPLE_RATE / 10 * 2);
+        if (readBuffer == null || readBuffer.length != bufferBytes / 4) {
+            // Read half the driver buffer at a time so the driver never overruns between reads.
+            readBuffer = new short[bufferBytes / 4];
+        }
+
+        AudioRecord record = audioRecordFactory.create(SAMPLE_RATE, bufferBytes);
+        if (record.getState() != AudioRecord.STATE_INITIALIZED) {
+            record.release();
+            throw new IOException("AudioRecord could not be initialized");
+        }
+        try {
+            record.startRecording();
+        } catch (IllegalStateException exp) {
+            record.release();
+            throw new IOException("AudioRecord could not be started", exp);
+        }
+
+        audioRecord = record;
+        audioSessionId = record.getAudioSessionId();
+        capturing = true;
+        PcmRingBuffer buffer = ringBuffer;
+        short[] chunk = readBuffer;
+        captureThread = new Thread(() -> captureLoop(record, buffer, chunk), "VoiceRecorderPreRoll");
+        captureThread.setDaemon(true);
+        captureThread.start();
+    }
+
+    /** Returns the audio session of the capture source, or {@link AudioManager#AUDIO_SESSION_ID_GENERATE} when not armed. */
+    public int getAudioSessionId() {
+        return audioSessionId;
+    }
+
+    /** Returns whether the microphone is currently held for pre-roll. */
+    public synchronized boolean isArmed() {
+        return audioRecord != null;
+    }
+
+    /**
+     * Releases the microphone and returns the retained audio as mono 16-bit PCM at {@link #SAMPLE_RATE}, or null
+     * when not armed.
+     */
+    public synchronized short[] takeSnapshot() {
+        if (audioRecord == null) {
+            return null;
+        }
+        stopCapture();
+        return ringBuffer.snapshot();
+    }
+
+    /** Releases the microphone and discards the retained audio. */
+    public synchronized void disarm() {
+        stopCapture();
+        if (ringBuffer != null) {
+            ringBuffer.clear();
+        }
+    }
+
+    private void stopCapture() {
+        if (audioRecord == null) {
+            return;
+        }
+        capturing = false;
+        audioSessionId = AudioManager.AUDIO_SESSION_ID_GENERATE;
+        try {
+            audioRecord.stop();
+        } catch (IllegalStateException ignore) {}
+        try {
+            captureThread.join();
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+        }
+        audioRecord.release();
+        audioRecord = null;
+        captureThread = null;
+    }
+
+    private void captureLoop(AudioRecord record, PcmRingBuffer buffer, short[] chunk) {
+        while (capturing) {
+            int read = record.read(chunk, 0, chunk.length);
+            if (read > 0) {
+                buffer.write(chunk, 0, read);
+            } else if (read < 0) {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import app.independo.capacitorvoicerecorder.core.DurabilityOptions;
+import app.independo.capacitorvoicerecorder.core.RecoveredRecording;
+import app.independo.capacitorvoicerecorder.core.Tracing;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forces an in-progress recording to storage as its {@link DurabilityOptions} ask, and recovers recordings whose
+ * session never stopped.
+ *
+ * <p>Recorders write through the page cache and nothing syncs it, so a power loss can take everything since the
+ * last writeback. Each checkpoint forces the output file with {@link FileChannel#force} and then records how many
+ * bytes that made durable in a small file under {@link #CHECKPOINT_DIRECTORY}. Bytes the encoder still holds in its
+ * own buffers are not covered. The checkpoint is deleted when the session stops; one that is still there on the next
+ * launch names a recording whose session died, which {@link #recover} cuts back to its last complete frame.</p>
+ */
+final class RecordingCheckpointer {
+
+    /** Directory of the checkpoint files, relative to the app files directory. */
+    static final String CHECKPOINT_DIRECTORY = "voice-recorder/checkpoints";
+    /** Suffix of checkpoint files. */
+    static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    /** Shared daemon thread that runs periodic checkpoints of active recordings. */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "VoiceRecorderDurability");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /** Output files of sessions running in this process, which recovery must leave alone. */
+    private static final Set<String> ACTIVE = ConcurrentHashMap.newKeySet();
+
+    private final File outputFile;
+    private final String directory;
+    private final DurabilityOptions options;
+    /** Checkpoint of this session, or null when the recording cannot be recovered and is only forced. */
+    private final File checkpointFile;
+    private FileChannel channel;
+    private ScheduledFuture<?> task;
+    private int checkpoints;
+    private long maxCheckpointUs;
+
+    /**
+     * Creates a checkpointer for the output file. Pass a null checkpoint directory for recordings that cannot be
+     * recovered, such as encrypted ones; they are still forced.
+     */
+    RecordingCheckpointer(File outputFile, String directory, DurabilityOptions options, File checkpointDirectory) {
+        this.outputFile = outputFile;
+        this.directory = directory;
+        this.options = options;
+        this.checkpointFile = checkpointDirectory != null
+            ? new File(checkpointDirectory, outputFile.getName() + CHECKPOINT_SUFFIX)
+            : null;
+    }
+
+    /** Opens the output file and, in periodic mode, schedules checkpoints. Call once the recorder has started. */
+    synchronized void start() {
+        ACTIVE.add(outputFile.getAbsolutePath());
+        try {
+            channel = FileChannel.open(outputFile.toPath(), StandardOpenOption.READ);
+        } catch (IOException exp) {
+            // Without a descriptor there is nothing to force; the recording itself is unaffected.
+            return;
+        }
+        checkpoint();
+        if (options.mode() == DurabilityOptions.Mode.PERIODIC) {
+            task = SCHEDULER.scheduleWithFixedDelay(this::checkpoint, options.intervalMs(), options.intervalMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Checkpoints at the end of a segment: a pause, an interruption or a reached limit. */
+    void segmentEnded() {
+        checkpoint();
+    }
+
+    /** Forces the output file and records how many bytes are now durable. Failures only skip this checkpoint. */
+    synchronized void checkpoint() {
+        if (channel == null) {
+            return;
+        }
+        Tracing.beginSection("VoiceRecorder.checkpoint");
+        long startNs = System.nanoTime();
+        try {
+            long durableBytes = channel.size();
+            channel.force(false);
+            if (checkpointFile != null) {
+                writeCheckpoint(durableBytes);
+            }
+            long elapsedUs = (System.nanoTime() - startNs) / 1000;
+            checkpoints++;
+            maxCheckpointUs = Math.max(maxCheckpointUs, elapsedUs);
+            if (Tracing.isEnabled()) {
+                Tracing.setCounter("VoiceRecorder.checkpointUs", elapsedUs);
+                Tracing.setCounter("VoiceRecorder.durableBytes", durableBytes);
+            }
+        } catch (IOException ignore) {
+            // The next checkpoint tries again.
+        } finally {
+            Tracing.endSection();
+        }
+    }
+
+    /**
+     * Stops the periodic checkpoints, forces the finished file and deletes the checkpoint. Call after the recorder
+     * has written its last bytes.
+     */
+    void finish() {
+        ScheduledFuture<?> periodic;
+        synchronized (this) {
+            periodic = task;
+            task = null;
+        }
+        if (periodic != null) {
+            periodic.cancel(false);
+        }
+        synchronized (this) {
+            if (channel != null) {
+                if (outputFile.isFile()) {
+                    checkpoint();
+                }
+                closeChannel();
+            }
+            if (checkpointFile != null) {
+                checkpointFile.delete();
+            }
+            ACTIVE.remove(outputFile.getAbsolutePath());
+            if (Tracing.isEnabled()) {
+                Tracing.setCounter("VoiceRecorder.checkpoints", checkpoints);
+                Tracing.setCounter("VoiceRecorder.checkpointMaxUs", maxCheckpointUs);
+            }
+        }
+    }
+
+    /** Returns how many checkpoints completed. */
+    synchronized int getCheckpointCount() {
+        return checkpoints;
+    }
+
+    /** Writes the checkpoint beside a temporary copy and renames it, so a crash leaves the old or the new one. */
+    private void writeCheckpoint(long durableBytes) throws IOException {
+        File parent = checkpointFile.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("cannot create " + parent);
+        }
+        String line = outputFile.getAbsolutePath() + "\t" + (directory != null ? directory : "") + "\t" + durableBytes + "\n";
+        File temporary = new File(parent, checkpointFile.getName() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temporary)) {
+            output.write(line.getBytes(StandardCharsets.UTF_8));
+            output.getChannel().force(false);
+        }
+        Files.move(temporary.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException ignore) {}
+        channel = null;
+    }
+
+    /**
+     * Recovers the recordings named by checkpoints left in the directory by sessions that never stopped, skipping
+     * sessions still running in this process. Each file is cut back to its last trustworthy ADTS frame, as
+     * {@link #cutToCompleteFrames} decides from the checkpointed length, and its seek index dropped; files without
+     * such a frame are deleted. The checkpoints are deleted either way.
+     */
+    static List<RecoveredRecording> recover(File checkpointDirectory) {
+        File[] checkpoints = checkpointDirectory.listFiles((dir, name) -> name.endsWith(CHECKPOINT_SUFFIX));
+        List<RecoveredRecording> recovered = new ArrayList<>();
+        if (checkpoints == null) {
+            return recovered;
+        }
+        for (File checkpoint : checkpoints) {
+            String[] fields;
+            try {
+                fields = new String(Files.readAllBytes(checkpoint.toPath()), StandardCharsets.UTF_8).trim().split("\t", -1);
+            } catch (IOException exp) {
+                continue;
+            }
+            if (fields.length < 3 || ACTIVE.contains(fields[0])) {
+                continue;
+            }
+            try {
+                File recording = new File(fields[0]);
+                long checkpointBytes = Long.parseLong(fields[2]);
+                if (recording.isFile() && cutToCompleteFrames(recording, checkpointBytes)) {
+                    recovered.add(new RecoveredRecording(recording, fields[1].isEmpty() ? null : fields[1], checkpointBytes));
+                }
+            } catch (IOException | RuntimeException malformed) {
+                // A damaged checkpoint loses its recording's recovery, not the others'.
+            }
+            checkpoint.delete();
+        }
+        return recovered;
+    }
+
+    /**
+     * Truncates the file after its last trustworthy frame; deletes it and returns false when it has none. Frames
+     * that end within the checkpointed bytes were forced to storage, so a valid header is enough. Pages past them may
+     * never have been written back and can hold stale or zeroed data, so a frame there is only kept when it also
+     * repeats the fixed header of the first frame.
+     */
+    private static boolean cutToCompleteFrames(File recording, long checkpointBytes) throws IOException {
+        long end;
+        try (FileChannel channel = FileChannel.open(recording.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            AdtsFrameIndex index = AdtsFrameIndex.scan(channel);
+            int frames = index.getFrameCount();
+            if (frames > 0) {
+                byte[] first = readHeader(channel, 0);
+                for (int frame = 1; frame < frames; frame++) {
+                    if (index.offsetOf(frame + 1) > checkpointBytes
+                        && !sameFixedHeader(first, readHeader(channel, index.offsetOf(frame)))) {
+                        frames = frame;
+                        break;
+                    }
+                }
+            }
+            end = index.offsetOf(frames);
+            if (end > 0 && end < channel.size()) {
+                channel.truncate(end);
+                channel.force(false);
+            }
+        }
+        AdtsSeekIndex.invalidate(recording);
+        if (end == 0) {
+            recording.delete();
+            return false;
+        }
+        return true;
+    }
+
+    private static byte[] readHeader(FileChannel channel, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(AdtsFrameIndex.HEADER_LENGTH);
+        int read = 0;
+        while (header.hasRemaining() && read >= 0) {
+            read = channel.read(header, offset + header.position());
+        }
+        return header.array();
+    }
+
+    /** Compares the fields every frame of a stream repeats: version, profile, sampling rate and channels. */
+    private static boolean sameFixedHeader(byte[] first, byte[] header) {
+        return first[1] == header[1] && first[2] == header[2] && (first[3] & 0xF0) == (header[3] & 0xF0);
+    }
+}
@@ -0,0 +1,239 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * File format of recordings encrypted at rest.
+ *
+ * <p>Each file has its own random AES-256 data key. The key is wrapped by a key in the Android Keystore, named by
+ * the alias in the header, so the data key never touches the disk in the clear and the Keystore is used once per
+ * file rather than once per chunk. The audio follows as AES-GCM chunks of {@link #DEFAULT_CHUNK_SIZE} plaintext bytes,
+ * each carrying its own tag. The chunk nonce holds the chunk number and a last-chunk flag, and the header is
+ * authenticated with every chunk, so reordered, truncated or extended files fail to decrypt.</p>
+ *
+ * <p>Layout: magic, chunk size, alias, wrapped data key and nonce prefix; then the chunks. Every chunk except the
+ * last one holds exactly the chunk size, which makes the plaintext length computable from the file length.</p>
+ */
+final class RecordingEncryption {
+
+    /** Plaintext bytes per chunk, about five seconds of 96 kbps AAC. */
+    static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    /** GCM tag length in bytes. */
+    static final int TAG_LENGTH = 16;
+    /** Largest chunk size accepted from a header, which bounds the read buffer. */
+    static final int MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+    /** Length of the random part of the chunk nonce. */
+    static final int NONCE_PREFIX_LENGTH = 7;
+    /** "VRAESGC1" in ASCII. */
+    private static final long MAGIC = 0x5652414553474331L;
+    private static final int DATA_KEY_LENGTH = 32;
+    private static final String CIPHER = "AES/GCM/NoPadding";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /** Protects data keys with a long-lived key that stays outside the app process. */
+    interface KeyWrapper {
+        /** Encrypts a data key with the key behind the alias, creating that key when it does not exist yet. */
+        byte[] wrap(String alias, byte[] dataKey) throws GeneralSecurityException, IOException;
+
+        /** Decrypts a data key produced by {@link #wrap}. */
+        byte[] unwrap(String alias, byte[] wrappedKey) throws GeneralSecurityException, IOException;
+    }
+
+    /** Key wrapper backed by AES-GCM keys in the Android Keystore. */
+    static final KeyWrapper ANDROID_KEYSTORE = new AndroidKeyStoreWrapper();
+
+    /** Parsed header of an encrypted recording. */
+    record Header(byte[] encoded, int chunkSize, String alias, byte[] wrappedKey, byte[] noncePrefix) {}
+
+    private RecordingEncryption() {}
+
+    /** Returns whether the file starts with the header of an encrypted recording. */
+    static boolean isEncrypted(File file) {
+        if (file.length() < Long.BYTES) {
+            return false;
+        }
+        try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+            return input.readLong() == MAGIC;
+        } catch (IOException exp) {
+            return false;
+        }
+    }
+
+    /** Reads and validates the header at the start of the stream. */
+    static Header readHeader(InputStream stream) throws IOException {
+        DataInputStream input = new DataInputStream(stream);
+        if (input.readLong() != MAGIC) {
+            throw new IOException("not an encrypted recording");
+        }
+        int chunkSize = input.readInt();
+        String alias = input.readUTF();
+        int wrappedLength = input.readUnsignedShort();
+        if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE || wrappedLength == 0) {
+            throw new IOException("corrupt encryption header");
+        }
+        byte[] wrappedKey = new byte[wrappedLength];
+        input.readFully(wrappedKey);
+        byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+        input.readFully(noncePrefix);
+        return header(chunkSize, alias, wrappedKey, noncePrefix);
+    }
+
+    private static Header header(int chunkSize, String alias, byte[] wrappedKey, byte[] noncePrefix) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeLong(MAGIC);
+            output.writeInt(chunkSize);
+            output.writeUTF(alias);
+            output.writeShort(wrappedKey.length);
+            output.write(wrappedKey);
+            output.write(noncePrefix);
+        }
+        return new Header(bytes.toByteArray(), chunkSize, alias, wrappedKey, noncePrefix);
+    }
+
+    /** Returns the length of the decrypted content of a file with the given header and total length. */
+    static long plaintextLength(Header header, long fileLength) throws IOException {
+        long body = fileLength - header.encoded().length;
+        long chunkOnDisk = (long) header.chunkSize() + TAG_LENGTH;
+        long chunks = (body + chunkOnDisk - 1) / chunkOnDisk;
+        long plaintext = body - chunks * TAG_LENGTH;
+        if (body < TAG_LENGTH || plaintext < 0) {
+            throw new IOException("encrypted recording is truncated");
+        }
+        return plaintext;
+    }
+
+    /** Opens a decrypting stream over the file. */
+    static DecryptingInputStream openDecrypting(File file, KeyWrapper keyWrapper) throws IOException {
+        InputStream input = new FileInputStream(file);
+        try {
+            return new DecryptingInputStream(input, file.length(), keyWrapper);
+        } catch (IOException | RuntimeException exp) {
+            input.close();
+            throw exp;
+        }
+    }
+
+    /** Opens an encrypting stream that writes the header of a new file, with a fresh data key, to the output. */
+    static EncryptingOutputStream openEncrypting(OutputStream output, String alias, KeyWrapper keyWrapper)
+        throws IOException {
+        byte[] dataKey = new byte[DATA_KEY_LENGTH];
+        byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+        RANDOM.nextBytes(dataKey);
+        RANDOM.nextBytes(noncePrefix);
+        try {
+            Header header = header(DEFAULT_CHUNK_SIZE, alias, keyWrapper.wrap(alias, dataKey), noncePrefix);
+            output.write(header.encoded());
+            return new EncryptingOutputStream(output, header, new SecretKeySpec(dataKey, "AES"));
+        } catch (GeneralSecurityException exp) {
+            throw new IOException("could not wrap the recording key", exp);
+        } finally {
+            Arrays.fill(dataKey, (byte) 0);
+        }
+    }
+
+    /** Returns a cipher for one chunk; the nonce binds the chunk number and whether it is the last one. */
+    static Cipher chunkCipher(int mode, SecretKey dataKey, Header header, long chunkIndex, boolean last)
+        throws IOException {
+        if (chunkIndex > 0xFFFFFFFFL) {
+            throw new IOException("encrypted recording has too many chunks");
+        }
+        byte[] nonce = ByteBuffer.allocate(12)
+            .put(header.noncePrefix())
+            .putInt((int) chunkIndex)
+            .put((byte) (last ? 1 : 0))
+            .array();
+        try {
+            Cipher cipher = Cipher.getInstance(CIPHER);
+            cipher.init(mode, dataKey, new GCMParameterSpec(TAG_LENGTH * 8, nonce));
+            cipher.updateAAD(header.encoded());
+            return cipher;
+        } catch (GeneralSecurityException exp) {
+            throw new IOException("could not set up chunk cipher", exp);
+        }
+    }
+
+    /** Recovers the data key of a file from its header. */
+    static SecretKey unwrapDataKey(Header header, KeyWrapper keyWrapper) throws IOException {
+        try {
+            byte[] dataKey = keyWrapper.unwrap(header.alias(), header.wrappedKey());
+            try {
+                return new SecretKeySpec(dataKey, "AES");
+            } finally {
+                Arrays.fill(dataKey, (byte) 0);
+            }
+        } catch (GeneralSecurityException exp) {
+            throw new IOException("could not unwrap the recording key", exp);
+        }
+    }
+
+    /** Wraps data keys with AES-GCM keys that never leave the Keystore. */
+    private static final class AndroidKeyStoreWrapper implements KeyWrapper {
+        private static final String PROVIDER = "AndroidKeyStore";
+        private static final int IV_LENGTH = 12;
+
+        @Override
+        public byte[] wrap(String alias, byte[] dataKey) throws GeneralSecurityException, IOException {
+            Cipher cipher = Cipher.getInstance(CIPHER);
+            cipher.init(Cipher.ENCRYPT_MODE, getOrCreateKey(alias));
+            byte[] iv = cipher.getIV();
+            byte[] sealed = cipher.doFinal(dataKey);
+            byte[] wrapped = Arrays.copyOf(iv, IV_LENGTH + sealed.length);
+            System.arraycopy(sealed, 0, wrapped, IV_LENGTH, sealed.length);
+            return wrapped;
+        }
+
+        @Override
+        public byte[] unwrap(String alias, byte[] wrappedKey) throws GeneralSecurityException, IOException {
+            KeyStore keyStore = loadKeyStore();
+            SecretKey key = (SecretKey) keyStore.getKey(alias, null);
+            if (key == null || wrappedKey.length <= IV_LENGTH) {
+                throw new GeneralSecurityException("no Keystore key for alias " + alias);
+            }
+            Cipher cipher = Cipher.getInstance(CIPHER);
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, wrappedKey, 0, IV_LENGTH));
+            return cipher.doFinal(wrappedKey, IV_LENGTH, wrappedKey.length - IV_LENGTH);
+        }
+
+        private static synchronized SecretKey getOrCreateKey(String alias) throws GeneralSecurityException, IOException {
+            SecretKey key = (SecretKey) loadKeyStore().getKey(alias, null);
+            if (key != null) {
+                return key;
+            }
+            KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, PROVIDER);
+            generator.init(
+                new KeyGenParameterSpec.Builder(alias, KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                    .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                    .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                    .setKeySize(256)
+                    .build()
+            );
+            return generator.generateKey();
+        }
+
+        private static KeyStore loadKeyStore() throws GeneralSecurityException, IOException {
+            KeyStore keyStore = KeyStore.getInstance(PROVIDER);
+            keyStore.load(null);
+            return keyStore;
+        }
+    }
+}
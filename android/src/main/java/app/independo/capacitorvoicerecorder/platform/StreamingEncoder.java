@@ -0,0 +1,137 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import android.media.MediaCodec;
+import android.media.MediaMuxer;
+import app.independo.capacitorvoicerecorder.core.PcmResampler;
+import app.independo.capacitorvoicerecorder.core.TranscodeProfile;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Encodes live mono PCM into a {@link TranscodeProfile}, resampling on the way, and writes the packets to a file.
+ *
+ * <p>Input arrives in chunks from a {@link PcmEncoderQueue}; each chunk is resampled into a reused buffer, copied
+ * into codec input buffers and the finished packets are drained after every chunk, so the codec never holds more
+ * than a few frames. Opus is muxed into OGG, which needs API 29; AAC is written as ADTS.</p>
+ */
+final class StreamingEncoder implements PcmEncoderQueue.Encoder {
+
+    /** Timeout for codec buffer dequeues in microseconds. */
+    private static final long DEQUEUE_TIMEOUT_US = 10_000;
+
+    private final MediaCodec codec;
+    private final Transcoder.EncodedSink sink;
+    private final PcmResampler resampler;
+    private final int outputRate;
+    private final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+    private short[] resampled = new short[0];
+    private long queuedSamples;
+    private boolean done;
+
+    StreamingEncoder(MediaCodec codec, Transcoder.EncodedSink sink, int inputRate, int outputRate) {
+        this.codec = codec;
+        this.sink = sink;
+        this.resampler = new PcmResampler(inputRate, outputRate);
+        this.outputRate = outputRate;
+    }
+
+    /** Creates and starts the registry's best encoder for the profile, writing into the destination. */
+    static StreamingEncoder open(TranscodeProfile profile, int inputRate, File destination, EncoderRegistry registry)
+        throws IOException {
+        String mimeType = Transcoder.encoderMimeType(profile);
+        MediaCodec codec = registry.createEncoder(mimeType, profile.sampleRate(), profile.bitRate());
+        Transcoder.EncodedSink sink = null;
+        try {
+            codec.configure(Transcoder.encoderFormat(profile), null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            codec.start();
+            sink = profile.isOpus()
+                ? new Transcoder.OggSink(new MediaMuxer(destination.getAbsolutePath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_OGG))
+                : new Transcoder.AdtsSink(destination, profile.sampleRate());
+            return new StreamingEncoder(codec, sink, inputRate, profile.sampleRate());
+        } catch (IOException | RuntimeException exp) {
+            if (sink != null) {
+                sink.release();
+            }
+            Transcoder.releaseCodec(codec);
+            throw exp instanceof IOException ? (IOException) exp : new IOException("could not start the encoder", exp);
+        }
+    }
+
+    @Override
+    public void encode(short[] pcm, int length) throws IOException {
+        int capacity = resampler.maxOutputLength(length);
+        if (resampled.length < capacity) {
+            resampled = new short[capacity];
+        }
+        queue(resampler.process(pcm, 0, length, resampled), false);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (resampled.length < resampler.maxOutputLength(0)) {
+            resampled = new short[resampler.maxOutputLength(0)];
+        }
+        queue(resampler.flush(resampled), true);
+        while (!done) {
+            drain(DEQUEUE_TIMEOUT_US);
+        }
+        sink.finish();
+    }
+
+    @Override
+    public void release() {
+        sink.release();
+        Transcoder.releaseCodec(codec);
+    }
+
+    /** Copies the resampled samples into codec input buffers, draining output whenever the codec is full. */
+    private void queue(int samples, boolean endOfStream) throws IOException {
+        if (samples == 0 && !endOfStream) {
+            return;
+        }
+        int offset = 0;
+        while (true) {
+            int index = codec.dequeueInputBuffer(DEQUEUE_TIMEOUT_US);
+            if (index < 0) {
+                drain(0);
+                continue;
+            }
+            ByteBuffer input = codec.getInputBuffer(index);
+            input.clear();
+            int count = Math.min(samples - offset, input.remaining() / 2);
+            input.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().put(resampled, offset, count);
+            long presentationUs = queuedSamples * 1_000_000 / outputRate;
+            queuedSamples += count;
+            offset += count;
+            boolean last = endOfStream && offset == samples;
+            codec.queueInputBuffer(index, 0, count * 2, presentationUs, last ? MediaCodec.BUFFER_FLAG_END_OF_STREAM : 0);
+            if (offset == samples) {
+                break;
+            }
+        }
+        drain(0);
+    }
+
+    /** Writes the packets the codec has ready to the sink. */
+    private void drain(long timeoutUs) throws IOException {
+        while (!done) {
+            int index = codec.dequeueOutputBuffer(info, timeoutUs);
+            if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                sink.start(codec.getOutputFormat());
+                continue;
+            }
+            if (index < 0) {
+                return;
+            }
+            if ((info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0 && info.size > 0) {
+                ByteBuffer encoded = codec.getOutputBuffer(index);
+                encoded.position(info.offset).limit(info.offset + info.size);
+                sink.write(encoded, info);
+            }
+            codec.releaseOutputBuffer(index, false);
+            done = (info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+        }
+    }
+}
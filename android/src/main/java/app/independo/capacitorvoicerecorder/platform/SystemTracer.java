@@ -0,0 +1,52 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import android.os.Build;
+import android.os.Trace;
+import app.independo.capacitorvoicerecorder.core.VoiceRecorderTracer;
+import java.util.function.IntSupplier;
+
+/** Writes trace sections and counters to {@link Trace}; async slices and counters need Android 10. */
+public final class SystemTracer implements VoiceRecorderTracer {
+
+    /** Whether async slices and counters are available. */
+    private final boolean asyncSupported;
+
+    public SystemTracer() {
+        this(() -> Build.VERSION.SDK_INT);
+    }
+
+    SystemTracer(IntSupplier sdkInt) {
+        this.asyncSupported = sdkInt.getAsInt() >= Build.VERSION_CODES.Q;
+    }
+
+    @Override
+    public void beginSection(String name) {
+        Trace.beginSection(name);
+    }
+
+    @Override
+    public void endSection() {
+        Trace.endSection();
+    }
+
+    @Override
+    public void beginAsyncSection(String name, int cookie) {
+        if (asyncSupported) {
+            Trace.beginAsyncSection(name, cookie);
+        }
+    }
+
+    @Override
+    public void endAsyncSection(String name, int cookie) {
+        if (asyncSupported) {
+            Trace.endAsyncSection(name, cookie);
+        }
+    }
+
+    @Override
+    public void setCounter(String name, long value) {
+        if (asyncSupported) {
+            Trace.setCounter(name, value);
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import android.content.Context;
+import android.media.AudioFocusRequest;
+import android.media.AudioManager;
+import android.media.AudioRecord;
+import android.os.Build;
+import app.independo.capacitorvoicerecorder.adapters.RecorderAdapter;
+import app.independo.capacitorvoicerecorder.core.AutoStopReason;
+import app.independo.capacitorvoicerecorder.core.CurrentRecordingStatus;
+import app.independo.capacitorvoicerecorder.core.EncoderSettings;
+import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import app.independo.capacitorvoicerecorder.core.RecordingLimits;
+import app.independo.capacitorvoicerecorder.core.TranscodeProfile;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Recorder that captures PCM once and tees it into two encoders: the archive, in the same AAC format and
+ * {@link EncoderSettings} MediaRecorder would use, and a low-bitrate proxy in the requested {@link TranscodeProfile}.
+ *
+ * <p>The capture thread only copies each chunk into the {@link PcmEncoderQueue} of each encoder and never waits on
+ * them. Each encoder runs on its own thread behind {@link #QUEUE_MS} of preallocated buffers, so a slow encoder
+ * loses its own samples once it falls that far behind instead of stalling the microphone or the other output.</p>
+ */
+final class TeeRecorder implements AudioManager.OnAudioFocusChangeListener, RecorderAdapter {
+
+    /** Capture sample rate, matching the MediaRecorder encoder settings. */
+    static final int SAMPLE_RATE = PreRollCapture.SAMPLE_RATE;
+    /** Audio each encoder may fall behind by before its samples are dropped. */
+    static final int QUEUE_MS = 2000;
+
+    interface EncoderFactory {
+        PcmEncoderQueue.Encoder create(TranscodeProfile profile, int inputRate, File destination) throws IOException;
+    }
+
+    private final RecordOptions options;
+    private final EncoderSettings encoderSettings;
+    private final CustomMediaRecorder.SdkIntProvider sdkIntProvider;
+    private final CustomMediaRecorder.AudioFocusRequestFactory audioFocusRequestFactory;
+    private final AudioManager audioManager;
+    private final AudioRecord audioRecord;
+    /** Chunk the capture thread reads into. */
+    private final short[] readBuffer;
+    private final File outputFile;
+    private File proxyFile;
+    private final PcmEncoderQueue archive;
+    private final PcmEncoderQueue proxy;
+    /** Forces the archive to storage while recording, or null when the options leave it to writeback. */
+    private final RecordingCheckpointer checkpointer;
+    /** Loudest sample since the amplitude was last read. */
+    private final AtomicInteger peakAmplitude = new AtomicInteger();
+    private Thread captureThread;
+    /** Whether the capture loop should keep reading. */
+    private volatile boolean capturing;
+    /** Whether captured samples are discarded instead of encoded, while paused or after a limit. */
+    private volatile boolean discarding;
+    /** Whether the capture and both encoders were released, by a stop or by a start that failed. */
+    private boolean released;
+    private CurrentRecordingStatus currentRecordingStatus = CurrentRecordingStatus.NONE;
+    private AudioFocusRequest audioFocusRequest;
+    private Runnable onInterruptionBegan;
+    private Runnable onInterruptionEnded;
+    private Consumer<AutoStopReason> onLimitReached;
+    private volatile Executor callbackExecutor;
+
+    TeeRecorder(Context context, RecordOptions options) throws IOException, NotSupportedOsVersion {
+        this(
+            context,
+            options,
+            new PreRollCapture.DefaultAudioRecordFactory(),
+            (profile, inputRate, destination) ->
+                StreamingEncoder.open(profile, inputRate, destination, EncoderRegistry.shared(context)),
+            new CustomMediaRecorder.DefaultAudioManagerProvider(),
+            new CustomMediaRecorder.DefaultDirectoryProvider(),
+            new CustomMediaRecorder.DefaultSdkIntProvider(),
+            new CustomMediaRecorder.DefaultAudioFocusRequestFactory(),
+            new DevicePowerState(context, new CustomMediaRecorder.DefaultSdkIntProvider())
+        );
+    }
+
+    TeeRecorder(
+        Context context,
+        RecordOptions options,
+        PreRollCapture.AudioRecordFactory audioRecordFactory,
+        EncoderFactory encoderFactory,
+        CustomMediaRecorder.AudioManagerProvider audioManagerProvider,
+        CustomMediaRecorder.DirectoryProvider directoryProvider,
+        CustomMediaRecorder.SdkIntProvider sdkIntProvider,
+        CustomMediaRecorder.AudioFocusRequestFactory audioFocusRequestFactory,
+        CustomMediaRecorder.EncoderSettingsProvider encoderSettingsProvider
+    ) throws IOException, NotSupportedOsVersion {
+        TranscodeProfile proxyProfile = options.proxy();
+        if (proxyProfile.isOpus() && sdkIntProvider.getSdkInt() < Build.VERSION_CODES.Q) {
+            throw new NotSupportedOsVersion();
+        }
+        this.options = options;
+        this.sdkIntProvider = sdkIntProvider;
+        this.audioFocusRequestFactory = audioFocusRequestFactory;
+        this.audioManager = audioManagerProvider.getAudioManager(context);
+        this.encoderSettings = encoderSettingsProvider.getEncoderSettings();
+
+        int bufferBytes = Math.max(audioRecordFactory.getMinBufferSize(SAMPLE_RATE), SAMPLE_RATE / 10 * 2);
+        // Read half the driver buffer at a time so the driver never overruns between reads.
+        readBuffer = new short[bufferBytes / 4];
+        int queueChunks = (int) Math.max(2, (long) SAMPLE_RATE * QUEUE_MS / 1000 / readBuffer.length);
+
+        outputFile = CustomMediaRecorder.createOutputFile(context, directoryProvider, options);
+        proxyFile = proxyFileFor(outputFile, proxyProfile);
+        checkpointer = options.durability().isEnabled()
+            ? new RecordingCheckpointer(
+                outputFile,
+                options.directory(),
+                options.durability(),
+                options.directory() != null
+                    ? new File(directoryProvider.getFilesDir(context), RecordingCheckpointer.CHECKPOINT_DIRECTORY)
+                    : null
+            )
+            : null;
+        if (options.directory() == null) {
+            proxyFile.deleteOnExit();
+        }
+        PcmEncoderQueue.Encoder archiveEncoder = null;
+        PcmEncoderQueue.Encoder proxyEncoder = null;
+        AudioRecord record = null;
+        try {
+            TranscodeProfile archiveProfile = new TranscodeProfile(
+                TranscodeProfile.FORMAT_AAC,
+                encoderSettings.sampleRate(),
+                encoderSettings.bitRate()
+            );
+            archiveEncoder = encoderFactory.create(archiveProfile, SAMPLE_RATE, outputFile);
+            proxyEncoder = encoderFactory.create(proxyProfile, SAMPLE_RATE, proxyFile);
+            archive = new PcmEncoderQueue("archive", archiveEncoder, queueChunks, readBuffer.length);
+            proxy = new PcmEncoderQueue("proxy", proxyEncoder, queueChunks, readBuffer.length);
+            record = audioRecordFactory.create(SAMPLE_RATE, bufferBytes);
+            if (record.getState() != AudioRecord.STATE_INITIALIZED) {
+                throw new IOException("AudioRecord could not be initialized");
+            }
+            audioRecord = record;
+        } catch (IOException | RuntimeException exp) {
+            if (record != null) {
+                record.release();
+            }
+            if (archiveEncoder != null) {
+                archiveEncoder.release();
+            }
+            if (proxyEncoder != null) {
+                proxyEncoder.release();
+            }
+            outputFile.delete();
+            proxyFile.delete();
+            throw exp;
+        }
+    }
+
+    /** Returns the proxy file next to the archive, named after it. */
+    static File proxyFileFor(File outputFile, TranscodeProfile profile) {
+        String name = outputFile.getName();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return new File(outputFile.getParentFile(), base + "-proxy." + profile.fileExtension());
+    }
+
+    @Override
+    public void setOnInterruptionBegan(Runnable callback) {
+        this.onInterruptionBegan = callback;
+    }
+
+    @Override
+    public void setOnInterruptionEnded(Runnable callback) {
+        this.onInterruptionEnded = callback;
+    }
+
+    @Override
+    public void setOnLimitReached(Consumer<AutoStopReason> callback) {
+        this.onLimitReached = callback;
+    }
+
+    @Override
+    public void setCallbackExecutor(Executor executor) {
+        this.callbackExecutor = executor;
+    }
+
+    /** Starts both encoders, then the microphone. */
+    @Override
+    public void startRecording() {
+        requestAudioFocus();
+        try {
+            audioRecord.startRecording();
+        } catch (RuntimeException exp) {
+            // The microphone is taken; give back the focus, the capture and both codecs before reporting it.
+            stopRecording();
+            throw exp;
+        }
+        archive.start();
+        proxy.start();
+        capturing = true;
+        captureThread = new Thread(this::captureLoop, "VoiceRecorderTee");
+        captureThread.setDaemon(true);
+        captureThread.start();
+        currentRecordingStatus = CurrentRecordingStatus.RECORDING;
+        if (checkpointer != null) {
+            checkpointer.start();
+        }
+    }
+
+    /**
+     * Releases the microphone and waits for both encoders to drain. A proxy that failed is deleted and dropped from
+     * the result; an archive that failed is deleted, which surfaces as an empty recording.
+     */
+    @Override
+    public void stopRecording() {
+        if (released) {
+            return;
+        }
+        released = true;
+        capturing = false;
+        try {
+            audioRecord.stop();
+        } catch (IllegalStateException ignore) {}
+        if (captureThread != null) {
+            try {
+                captureThread.join();
+            } catch (InterruptedException exp) {
+                Thread.currentThread().interrupt();
+            }
+            captureThread = null;
+        }
+        audioRecord.release();
+        abandonAudioFocus();
+        currentRecordingStatus = CurrentRecordingStatus.NONE;
+        try {
+            archive.finish();
+        } catch (IOException exp) {
+            outputFile.delete();
+        }
+        if (checkpointer != null) {
+            checkpointer.finish();
+        }
+        try {
+            proxy.finish();
+        } catch (IOException exp) {
+            proxyFile.delete();
+            proxyFile = null;
+        }
+    }
+
+    @Override
+    public boolean pauseRecording() {
+        if (currentRecordingStatus != CurrentRecordingStatus.RECORDING) {
+            return false;
+        }
+        discarding = true;
+        currentRecordingStatus = CurrentRecordingStatus.PAUSED;
+        checkpointSegment();
+        return true;
+    }
+
+    @Override
+    public boolean resumeRecording() {
+        if (currentRecordingStatus != CurrentRecordingStatus.PAUSED && currentRecordingStatus != CurrentRecordingStatus.INTERRUPTED) {
+            return false;
+        }
+        requestAudioFocus();
+        discarding = false;
+        currentRecordingStatus = CurrentRecordingStatus.RECORDING;
+        return true;
+    }
+
+    @Override
+    public CurrentRecordingStatus getCurrentStatus() {
+        return currentRecordingStatus;
+    }
+
+    /** Returns the loudest sample since the last call, normalized to [0, 1], like MediaRecorder.getMaxAmplitude(). */
+    @Override
+    public double getCurrentAmplitude() {
+        if (currentRecordingStatus != CurrentRecordingStatus.RECORDING) {
+            return 0;
+        }
+        return peakAmplitude.getAndSet(0) / 32767.0;
+    }
+
+    @Override
+    public File getOutputFile() {
+        return outputFile;
+    }
+
+    @Override
+    public EncoderSettings getEncoderSettings() {
+        return encoderSettings;
+    }
+
+    @Override
+    public File getProxyFile() {
+        return proxyFile;
+    }
+
+    @Override
+    public RecordOptions getRecordOptions() {
+        return options;
+    }
+
+    /** Deletes both outputs and the seek index of the archive. */
+    @Override
+    public boolean deleteOutputFile() {
+        AdtsSeekIndex.invalidate(outputFile);
+        if (proxyFile != null) {
+            proxyFile.delete();
+        }
+        return outputFile.delete();
+    }
+
+    /** Returns how many samples the archive encoder dropped because it fell behind. */
+    long getDroppedArchiveSamples() {
+        return archive.getDroppedSamples();
+    }
+
+    /** Returns how many samples the proxy encoder dropped because it fell behind. */
+    long getDroppedProxySamples() {
+        return proxy.getDroppedSamples();
+    }
+
+    private void captureLoop() {
+        RecordingLimits limits = options.limits();
+        Integer maxDurationMs = limits != null && limits.isEnabled() ? limits.maxDurationMs() : null;
+        Long maxFileSizeBytes = limits != null && limits.isEnabled() ? limits.maxFileSizeBytes() : null;
+        long maxSamples = maxDurationMs != null ? (long) maxDurationMs * SAMPLE_RATE / 1000 : Long.MAX_VALUE;
+        long encodedSamples = 0;
+        while (capturing) {
+            int read = audioRecord.read(readBuffer, 0, readBuffer.length);
+            if (read < 0) {
+                break;
+            }
+            if (read == 0 || discarding) {
+                continue;
+            }
+            int length = (int) Math.min(read, maxSamples - encodedSamples);
+            trackPeak(length);
+            archive.offer(readBuffer, 0, length);
+            proxy.offer(readBuffer, 0, length);
+            encodedSamples += length;
+            if (encodedSamples >= maxSamples) {
+                reachLimit(AutoStopReason.MAX_DURATION);
+            } else if (maxFileSizeBytes != null && outputFile.length() >= maxFileSizeBytes) {
+                reachLimit(AutoStopReason.MAX_FILE_SIZE);
+            }
+        }
+    }
+
+    private void trackPeak(int length) {
+        int peak = 0;
+        for (int i = 0; i < length; i++) {
+            peak = Math.max(peak, Math.abs((int) readBuffer[i]));
+        }
+        int current;
+        do {
+            current = peakAmplitude.get();
+        } while (peak > current && !peakAmplitude.compareAndSet(current, peak));
+    }
+
+    /** Stops encoding at a limit, like MediaRecorder does, and reports it. */
+    private void reachLimit(AutoStopReason reason) {
+        discarding = true;
+        runCallback(() -> {
+            checkpointSegment();
+            if (onLimitReached != null) {
+                onLimitReached.accept(reason);
+            }
+        });
+    }
+
+    /** Forces what the archive encoder has written so far at the end of a segment. */
+    private void checkpointSegment() {
+        if (checkpointer != null) {
+            checkpointer.segmentEnded();
+        }
+    }
+
+    private void requestAudioFocus() {
+        if (audioManager == null) {
+            return;
+        }
+        if (sdkIntProvider.getSdkInt() >= Build.VERSION_CODES.O) {
+            audioFocusRequest = audioFocusRequestFactory.create(this);
+            audioManager.requestAudioFocus(audioFocusRequest);
+        } else {
+            audioManager.requestAudioFocus(this, AudioManager.STREAM_MUSIC, AudioManager.AUDIOFOCUS_GAIN);
+        }
+    }
+
+    private void abandonAudioFocus() {
+        if (audioManager == null) {
+            return;
+        }
+        if (sdkIntProvider.getSdkInt() >= Build.VERSION_CODES.O && audioFocusRequest != null) {
+            audioManager.abandonAudioFocusRequest(audioFocusRequest);
+            audioFocusRequest = null;
+        } else {
+            audioManager.abandonAudioFocus(this);
+        }
+    }
+
+    @Override
+    public void onAudioFocusChange(int focusChange) {
+        runCallback(() -> handleAudioFocusChange(focusChange));
+    }
+
+    private void runCallback(Runnable callback) {
+        Executor executor = callbackExecutor;
+        if (executor == null) {
+            callback.run();
+            return;
+        }
+        try {
+            executor.execute(callback);
+        } catch (RuntimeException ignore) {
+            // The owner has shut down; nothing is left to report to.
+        }
+    }
+
+    /** Treats every focus loss as an interruption, like {@link CustomMediaRecorder}. */
+    private void handleAudioFocusChange(int focusChange) {
+        switch (focusChange) {
+            case AudioManager.AUDIOFOCUS_LOSS:
+            case AudioManager.AUDIOFOCUS_LOSS_TRANSIENT:
+            case AudioManager.AUDIOFOCUS_LOSS_TRANSIENT_CAN_DUCK:
+                if (currentRecordingStatus == CurrentRecordingStatus.RECORDING) {
+                    discarding = true;
+                    currentRecordingStatus = CurrentRecordingStatus.INTERRUPTED;
+                    checkpointSegment();
+                    if (onInterruptionBegan != null) {
+                        onInterruptionBegan.run();
+                    }
+                }
+                break;
+            case AudioManager.AUDIOFOCUS_GAIN:
+                if (currentRecordingStatus == CurrentRecordingStatus.INTERRUPTED && onInterruptionEnded != null) {
+                    onInterruptionEnded.run();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,509 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.os.Build;
+import app.independo.capacitorvoicerecorder.core.PcmResampler;
+import app.independo.capacitorvoicerecorder.core.TranscodeProfile;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Re-encodes a recording to a {@link TranscodeProfile} with MediaExtractor and MediaCodec.
+ *
+ * <p>Decoding, resampling and encoding run as one streaming loop on the calling thread. Decoded PCM is downmixed and
+ * resampled in fixed-size chunks into a direct staging buffer that feeds the encoder, and encoded buffers are written
+ * straight from the codec, so memory use is constant regardless of the recording length. Opus is muxed into OGG,
+ * which needs API 29; AAC is written as ADTS.</p>
+ */
+final class Transcoder {
+
+    /** Timeout for the encoder output dequeue when no other stage made progress, in microseconds. */
+    private static final long DEQUEUE_TIMEOUT_US = 10_000;
+    /** Decoded frames downmixed and resampled per step. */
+    private static final int CHUNK_FRAMES = 2048;
+
+    interface MediaFactory {
+        MediaExtractor createExtractor();
+
+        MediaCodec createDecoder(String mimeType) throws IOException;
+
+        MediaCodec createEncoder(TranscodeProfile profile) throws IOException;
+
+        MediaMuxer createOggMuxer(String path) throws IOException;
+
+        /** Returns how many instances the encoder picked for the profile supports, or 0 if there is none. */
+        int maxEncoderInstances(TranscodeProfile profile);
+
+        /** Returns how many instances the preferred decoder for the MIME type supports, or 0 if there is none. */
+        int maxDecoderInstances(String mimeType);
+    }
+
+    private static final class DefaultMediaFactory implements MediaFactory {
+        private final EncoderRegistry encoderRegistry;
+
+        DefaultMediaFactory(EncoderRegistry encoderRegistry) {
+            this.encoderRegistry = encoderRegistry;
+        }
+
+        @Override
+        public MediaExtractor createExtractor() {
+            return new MediaExtractor();
+        }
+
+        @Override
+        public MediaCodec createDecoder(String mimeType) throws IOException {
+            return MediaCodec.createDecoderByType(mimeType);
+        }
+
+        @Override
+        public MediaCodec createEncoder(TranscodeProfile profile) throws IOException {
+            return encoderRegistry.createEncoder(encoderMimeType(profile), profile.sampleRate(), profile.bitRate());
+        }
+
+        @Override
+        public MediaMuxer createOggMuxer(String path) throws IOException {
+            return new MediaMuxer(path, MediaMuxer.OutputFormat.MUXER_OUTPUT_OGG);
+        }
+
+        @Override
+        public int maxEncoderInstances(TranscodeProfile profile) {
+            return encoderRegistry.maxEncoderInstances(encoderMimeType(profile), profile.sampleRate(), profile.bitRate());
+        }
+
+        @Override
+        public int maxDecoderInstances(String mimeType) {
+            return encoderRegistry.maxDecoderInstances(mimeType);
+        }
+    }
+
+    /** Factory for extractor, codec and muxer instances. */
+    private final MediaFactory mediaFactory;
+    /** SDK version provider for API gating. */
+    private final IntSupplier sdkInt;
+
+    Transcoder(EncoderRegistry encoderRegistry) {
+        this(new DefaultMediaFactory(encoderRegistry), () -> Build.VERSION.SDK_INT);
+    }
+
+    Transcoder(MediaFactory mediaFactory, IntSupplier sdkInt) {
+        this.mediaFactory = mediaFactory;
+        this.sdkInt = sdkInt;
+    }
+
+    /**
+     * Returns how many transcodes into the profile can run at once. Bounded by the instances the AAC decoder and the
+     * target encoder support and by the CPU cores, keeping one core free for recording and the UI.
+     */
+    int maxParallelSessions(TranscodeProfile profile, int availableProcessors) {
+        int limit = Math.max(1, availableProcessors - 1);
+        limit = Math.min(limit, mediaFactory.maxDecoderInstances(MediaFormat.MIMETYPE_AUDIO_AAC));
+        limit = Math.min(limit, mediaFactory.maxEncoderInstances(profile));
+        return Math.max(1, limit);
+    }
+
+    /**
+     * Transcodes the first audio track of the source into the destination, reporting progress in [0, 1] as it goes.
+     * The destination is removed when transcoding fails.
+     */
+    void transcode(File source, File destination, TranscodeProfile profile, DoubleConsumer onProgress)
+        throws IOException, NotSupportedOsVersion {
+        if (profile.isOpus() && sdkInt.getAsInt() < Build.VERSION_CODES.Q) {
+            throw new NotSupportedOsVersion();
+        }
+
+        MediaExtractor extractor = mediaFactory.createExtractor();
+        MediaCodec decoder = null;
+        MediaCodec encoder = null;
+        EncodedSink sink = null;
+        boolean completed = false;
+        try {
+            extractor.setDataSource(source.getAbsolutePath());
+            int track = selectAudioTrack(extractor);
+            if (track < 0) {
+                throw new IOException("No audio track in " + source.getName());
+            }
+            extractor.selectTrack(track);
+            MediaFormat inputFormat = extractor.getTrackFormat(track);
+
+            decoder = mediaFactory.createDecoder(inputFormat.getString(MediaFormat.KEY_MIME));
+            decoder.configure(inputFormat, null, null, 0);
+            decoder.start();
+
+            encoder = mediaFactory.createEncoder(profile);
+            encoder.configure(encoderFormat(profile), null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            encoder.start();
+
+            sink = profile.isOpus()
+                ? new OggSink(mediaFactory.createOggMuxer(destination.getAbsolutePath()))
+                : new AdtsSink(destination, profile.sampleRate());
+            new Pipeline(extractor, decoder, encoder, sink, inputFormat, profile.sampleRate(), onProgress).run();
+            sink.finish();
+            completed = true;
+            onProgress.accept(1);
+        } catch (IllegalStateException | IllegalArgumentException exp) {
+            // MediaCodec.CodecException is an IllegalStateException.
+            throw new IOException("Transcoding failed", exp);
+        } finally {
+            if (sink != null) {
+                sink.release();
+            }
+            releaseCodec(encoder);
+            releaseCodec(decoder);
+            extractor.release();
+            if (!completed) {
+                destination.delete();
+            }
+        }
+    }
+
+    /** Returns the MIME type of the encoder for the profile. */
+    static String encoderMimeType(TranscodeProfile profile) {
+        return profile.isOpus() ? MediaFormat.MIMETYPE_AUDIO_OPUS : MediaFormat.MIMETYPE_AUDIO_AAC;
+    }
+
+    /** Returns the mono encoder configuration for the profile. */
+    static MediaFormat encoderFormat(TranscodeProfile profile) {
+        MediaFormat format = MediaFormat.createAudioFormat(encoderMimeType(profile), profile.sampleRate(), 1);
+        format.setInteger(MediaFormat.KEY_BIT_RATE, profile.bitRate());
+        if (!profile.isOpus()) {
+            format.setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+        }
+        return format;
+    }
+
+    private static int selectAudioTrack(MediaExtractor extractor) {
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            String mimeType = extractor.getTrackFormat(i).getString(MediaFormat.KEY_MIME);
+            if (mimeType != null && mimeType.startsWith("audio/")) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static void releaseCodec(MediaCodec codec) {
+        if (codec == null) {
+            return;
+        }
+        try {
+            codec.stop();
+        } catch (IllegalStateException ignore) {}
+        codec.release();
+    }
+
+    /** Streaming loop moving buffers from the extractor through decoder, resampler and encoder into the sink. */
+    private static final class Pipeline {
+        private final MediaExtractor extractor;
+        private final MediaCodec decoder;
+        private final MediaCodec encoder;
+        private final EncodedSink sink;
+        private final int outputRate;
+        private final DoubleConsumer onProgress;
+        private final long durationUs;
+        private final MediaCodec.BufferInfo decodedInfo = new MediaCodec.BufferInfo();
+        private final MediaCodec.BufferInfo encodedInfo = new MediaCodec.BufferInfo();
+        private final short[] interleaved;
+        private final short[] mono = new short[CHUNK_FRAMES];
+        private int channelCount;
+        private int inputRate;
+        private PcmResampler resampler;
+        private short[] resampled;
+        /** Resampled PCM waiting for encoder input, in write mode. */
+        private ByteBuffer staging;
+        /** Decoder output being consumed, or null. */
+        private ShortBuffer pendingDecoded;
+        private int pendingDecodedIndex = -1;
+        private long queuedSamples;
+        private boolean extractorDone;
+        private boolean decoderEndOfStream;
+        private boolean decoderDone;
+        private boolean encoderInputDone;
+        private boolean encoderDone;
+
+        Pipeline(
+            MediaExtractor extractor,
+            MediaCodec decoder,
+            MediaCodec encoder,
+            EncodedSink sink,
+            MediaFormat inputFormat,
+            int outputRate,
+            DoubleConsumer onProgress
+        ) {
+            this.extractor = extractor;
+            this.decoder = decoder;
+            this.encoder = encoder;
+            this.sink = sink;
+            this.outputRate = outputRate;
+            this.onProgress = onProgress;
+            this.durationUs = inputFormat.containsKey(MediaFormat.KEY_DURATION) ? inputFormat.getLong(MediaFormat.KEY_DURATION) : 0;
+            this.channelCount = Math.max(1, inputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+            this.interleaved = new short[CHUNK_FRAMES * 8];
+            configureResampler(inputFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE));
+        }
+
+        void run() throws IOException {
+            boolean progressed = true;
+            while (!encoderDone) {
+                boolean fed = feedDecoder();
+                boolean decoded = drainDecoder();
+                boolean encoded = feedEncoder();
+                progressed = drainEncoder(progressed ? 0 : DEQUEUE_TIMEOUT_US) | fed | decoded | encoded;
+            }
+        }
+
+        private void configureResampler(int sampleRate) {
+            if (resampler != null && sampleRate == inputRate) {
+                return;
+            }
+            inputRate = sampleRate;
+            resampler = new PcmResampler(sampleRate, outputRate);
+            resampled = new short[resampler.maxOutputLength(CHUNK_FRAMES)];
+            int stagingBytes = resampled.length * 2 * 4;
+            if (staging == null || staging.capacity() < stagingBytes) {
+                ByteBuffer grown = ByteBuffer.allocateDirect(stagingBytes).order(ByteOrder.LITTLE_ENDIAN);
+                if (staging != null) {
+                    staging.flip();
+                    grown.put(staging);
+                }
+                staging = grown;
+            }
+        }
+
+        private boolean feedDecoder() {
+            if (extractorDone) {
+                return false;
+            }
+            int index = decoder.dequeueInputBuffer(0);
+            if (index < 0) {
+                return false;
+            }
+            ByteBuffer input = decoder.getInputBuffer(index);
+            int size = extractor.readSampleData(input, 0);
+            if (size < 0) {
+                decoder.queueInputBuffer(index, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                extractorDone = true;
+            } else {
+                decoder.queueInputBuffer(index, 0, size, extractor.getSampleTime(), 0);
+                extractor.advance();
+            }
+            return true;
+        }
+
+        private boolean drainDecoder() {
+            if (decoderDone) {
+                return false;
+            }
+            boolean progressed = false;
+            if (pendingDecoded == null && !decoderEndOfStream) {
+                int index = decoder.dequeueOutputBuffer(decodedInfo, 0);
+                if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    MediaFormat format = decoder.getOutputFormat();
+                    channelCount = Math.max(1, format.getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+                    configureResampler(format.getInteger(MediaFormat.KEY_SAMPLE_RATE));
+                    return true;
+                }
+                if (index < 0) {
+                    return false;
+                }
+                decoderEndOfStream = (decodedInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+                if (decodedInfo.size > 0) {
+                    ByteBuffer output = decoder.getOutputBuffer(index);
+                    output.position(decodedInfo.offset).limit(decodedInfo.offset + decodedInfo.size);
+                    pendingDecoded = output.slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+                    pendingDecodedIndex = index;
+                } else {
+                    decoder.releaseOutputBuffer(index, false);
+                }
+                if (durationUs > 0) {
+                    onProgress.accept(Math.min(0.99, (double) decodedInfo.presentationTimeUs / durationUs));
+                }
+                progressed = true;
+            }
+
+            if (pendingDecoded != null) {
+                while (pendingDecoded.remaining() >= channelCount && staging.remaining() >= resampled.length * 2) {
+                    int frames = Math.min(Math.min(CHUNK_FRAMES, interleaved.length / channelCount), pendingDecoded.remaining() / channelCount);
+                    pendingDecoded.get(interleaved, 0, frames * channelCount);
+                    downmix(frames);
+                    stage(resampler.process(mono, 0, frames, resampled));
+                    progressed = true;
+                }
+                if (pendingDecoded.remaining() < channelCount) {
+                    decoder.releaseOutputBuffer(pendingDecodedIndex, false);
+                    pendingDecoded = null;
+                    pendingDecodedIndex = -1;
+                }
+            }
+
+            if (pendingDecoded == null && decoderEndOfStream && staging.remaining() >= resampled.length * 2) {
+                stage(resampler.flush(resampled));
+                decoderDone = true;
+                progressed = true;
+            }
+            return progressed;
+        }
+
+        private void downmix(int frames) {
+            if (channelCount == 1) {
+                System.arraycopy(interleaved, 0, mono, 0, frames);
+                return;
+            }
+            for (int frame = 0; frame < frames; frame++) {
+                int sum = 0;
+                int base = frame * channelCount;
+                for (int channel = 0; channel < channelCount; channel++) {
+                    sum += interleaved[base + channel];
+                }
+                mono[frame] = (short) (sum / channelCount);
+            }
+        }
+
+        private void stage(int samples) {
+            for (int i = 0; i < samples; i++) {
+                staging.putShort(resampled[i]);
+            }
+        }
+
+        private boolean feedEncoder() {
+            if (encoderInputDone || (staging.position() == 0 && !decoderDone)) {
+                return false;
+            }
+            int index = encoder.dequeueInputBuffer(0);
+            if (index < 0) {
+                return false;
+            }
+            ByteBuffer input = encoder.getInputBuffer(index);
+            input.clear();
+            staging.flip();
+            int bytes = Math.min(staging.remaining(), input.remaining()) & ~1;
+            int limit = staging.limit();
+            staging.limit(staging.position() + bytes);
+            input.put(staging);
+            staging.limit(limit);
+            staging.compact();
+
+            long presentationUs = queuedSamples * 1_000_000 / outputRate;
+            queuedSamples += bytes / 2;
+            encoderInputDone = decoderDone && staging.position() == 0;
+            int flags = encoderInputDone ? MediaCodec.BUFFER_FLAG_END_OF_STREAM : 0;
+            encoder.queueInputBuffer(index, 0, bytes, presentationUs, flags);
+            return true;
+        }
+
+        private boolean drainEncoder(long timeoutUs) throws IOException {
+            int index = encoder.dequeueOutputBuffer(encodedInfo, timeoutUs);
+            if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                sink.start(encoder.getOutputFormat());
+                return true;
+            }
+            if (index < 0) {
+                return false;
+            }
+            if ((encodedInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0 && encodedInfo.size > 0) {
+                ByteBuffer encoded = encoder.getOutputBuffer(index);
+                encoded.position(encodedInfo.offset).limit(encodedInfo.offset + encodedInfo.size);
+                sink.write(encoded, encodedInfo);
+            }
+            encoder.releaseOutputBuffer(index, false);
+            encoderDone = (encodedInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+            return true;
+        }
+    }
+
+    /** Destination for encoded buffers. */
+    interface EncodedSink {
+        void start(MediaFormat format) throws IOException;
+
+        void write(ByteBuffer encoded, MediaCodec.BufferInfo info) throws IOException;
+
+        void finish() throws IOException;
+
+        void release();
+    }
+
+    /** Muxes Opus packets into an OGG file. */
+    static final class OggSink implements EncodedSink {
+        private final MediaMuxer muxer;
+        private int track = -1;
+
+        OggSink(MediaMuxer muxer) {
+            this.muxer = muxer;
+        }
+
+        @Override
+        public void start(MediaFormat format) {
+            track = muxer.addTrack(format);
+            muxer.start();
+        }
+
+        @Override
+        public void write(ByteBuffer encoded, MediaCodec.BufferInfo info) throws IOException {
+            if (track < 0) {
+                throw new IOException("Encoder produced data before its format");
+            }
+            muxer.writeSampleData(track, encoded, info);
+        }
+
+        @Override
+        public void finish() {
+            if (track >= 0) {
+                muxer.stop();
+                track = -1;
+            }
+        }
+
+        @Override
+        public void release() {
+            try {
+                finish();
+            } catch (IllegalStateException ignore) {}
+            muxer.release();
+        }
+    }
+
+    /** Writes AAC frames with ADTS headers, straight from the codec buffers. */
+    static final class AdtsSink implements EncodedSink {
+        private final FileChannel channel;
+        private final int sampleRateIndex;
+        private final byte[] header = new byte[AdtsFrameIndex.HEADER_LENGTH];
+
+        AdtsSink(File destination, int sampleRate) throws IOException {
+            this.sampleRateIndex = AdtsFrameIndex.sampleRateIndex(sampleRate);
+            if (sampleRateIndex < 0) {
+                throw new IOException("Unsupported ADTS sample rate " + sampleRate);
+            }
+            this.channel = new FileOutputStream(destination).getChannel();
+        }
+
+        @Override
+        public void start(MediaFormat format) {}
+
+        @Override
+        public void write(ByteBuffer encoded, MediaCodec.BufferInfo info) throws IOException {
+            AdtsFile.writeHeader(header, info.size + header.length, sampleRateIndex, 1);
+            AdtsFile.writeFully(channel, ByteBuffer.wrap(header));
+            AdtsFile.writeFully(channel, encoded);
+        }
+
+        @Override
+        public void finish() {}
+
+        @Override
+        public void release() {
+            try {
+                channel.close();
+            } catch (IOException ignore) {}
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import app.independo.capacitorvoicerecorder.adapters.RecorderAdapter;
+import app.independo.capacitorvoicerecorder.core.CurrentRecordingStatus;
+import app.independo.capacitorvoicerecorder.core.Tracing;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/** Samples the recorder amplitude once per analysis window and fans it out to window listeners. */
+final class AmplitudeMeter {
+
+    /** Default analysis window length in milliseconds. */
+    static final int DEFAULT_WINDOW_MS = 50;
+
+    /** Receives one normalized level per recorded analysis window. */
+    interface WindowListener {
+        /** Called with the window level in [0, 1] and the recorded position at the end of the window. */
+        void onWindow(double level, long positionMs);
+    }
+
+    /** Drives the periodic sampling; replaced in tests to advance windows manually. */
+    interface Ticker {
+        /** Starts invoking the tick at the given period and returns a handle that stops it. */
+        AutoCloseable start(Runnable tick, int periodMs);
+    }
+
+    /** Default ticker backed by a single daemon scheduler thread. */
+    static final Ticker SCHEDULED_TICKER = (tick, periodMs) -> {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "VoiceRecorderMeter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(tick, periodMs, periodMs, TimeUnit.MILLISECONDS);
+        return executor::shutdown;
+    };
+
+    /** Recorder sampled by this meter. */
+    private final RecorderAdapter recorder;
+    /** Analysis window length in milliseconds. */
+    private final int windowMs;
+    /** Ticker that schedules window sampling. */
+    private final Ticker ticker;
+    /** Listeners notified for each recorded window. */
+    private final List<WindowListener> listeners = new CopyOnWriteArrayList<>();
+    /** Handle for the running ticker. */
+    private AutoCloseable tickerHandle;
+    /** Level of the latest window, published for amplitude reads. */
+    private volatile double lastLevel;
+    /** Recorded position in milliseconds; paused and interrupted time is not counted. */
+    private long positionMs;
+    /** Windows sampled since {@link #rateStartNanos}, for the metering rate counter. */
+    private int rateWindows;
+    /** Start of the current metering rate interval, or 0 before the first traced window. */
+    private long rateStartNanos;
+
+    AmplitudeMeter(RecorderAdapter recorder, int windowMs, Ticker ticker) {
+        this.recorder = recorder;
+        this.windowMs = windowMs;
+        this.ticker = ticker;
+    }
+
+    /** Registers a listener for recorded windows. */
+    void addListener(WindowListener listener) {
+        listeners.add(listener);
+    }
+
+    /** Starts periodic sampling. */
+    void start() {
+        tickerHandle = ticker.start(this::sampleWindow, windowMs);
+    }
+
+    /** Stops periodic sampling; safe to call from a listener. */
+    void stop() {
+        if (tickerHandle == null) {
+            return;
+        }
+        try {
+            tickerHandle.close();
+        } catch (Exception ignore) {
+        }
+        tickerHandle = null;
+    }
+
+    /** Returns the level of the latest sampled window normalized to [0, 1]. */
+    double getLastLevel() {
+        return lastLevel;
+    }
+
+    /** Returns the analysis window length in milliseconds. */
+    int getWindowMs() {
+        return windowMs;
+    }
+
+    /** Samples one window; skipped while the recorder is not capturing. */
+    void sampleWindow() {
+        if (recorder.getCurrentStatus() != CurrentRecordingStatus.RECORDING) {
+            lastLevel = 0;
+            return;
+        }
+        double level = recorder.getCurrentAmplitude();
+        lastLevel = level;
+        positionMs += windowMs;
+        if (Tracing.isEnabled()) {
+            traceRate();
+        }
+        for (WindowListener listener : listeners) {
+            listener.onWindow(level, positionMs);
+        }
+    }
+
+    /** Publishes the windows sampled per second, once per second. */
+    private void traceRate() {
+        long now = System.nanoTime();
+        if (rateStartNanos == 0) {
+            rateStartNanos = now;
+        }
+        rateWindows++;
+        long elapsedNanos = now - rateStartNanos;
+        if (elapsedNanos >= 1_000_000_000L) {
+            Tracing.setCounter("VoiceRecorder.meteringRate", rateWindows * 1_000_000_000L / elapsedNanos);
+            rateWindows = 0;
+            rateStartNanos = now;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Lifetime of the files in the plugin-managed recording directory.
+ *
+ * <p>Recordings returned by reference without a directory live here until the app releases them or they are older
+ * than the TTL. Expiry is enforced when the directory is swept, so a file may outlive its TTL until the next sweep.
+ * Releasing a file also removes its siblings named {@code <file>.*}, such as the seek index.</p>
+ */
+public class ManagedRecordingCache {
+
+    /** Default lifetime of unreleased recordings: one day. */
+    public static final long DEFAULT_TTL_MS = 24L * 60 * 60 * 1000;
+
+    /** Directory owned by the plugin. */
+    private final File directory;
+    /** Age after which files are deleted, or 0 to keep them until released. */
+    private final long ttlMs;
+    /** Wall clock in milliseconds, comparable with file modification times. */
+    private final LongSupplier clock;
+
+    public ManagedRecordingCache(File directory, long ttlMs) {
+        this(directory, ttlMs, System::currentTimeMillis);
+    }
+
+    ManagedRecordingCache(File directory, long ttlMs, LongSupplier clock) {
+        this.directory = directory;
+        this.ttlMs = ttlMs;
+        this.clock = clock;
+    }
+
+    /** Returns whether the file lives directly in the managed directory. */
+    public boolean contains(File file) {
+        try {
+            File parent = file.getCanonicalFile().getParentFile();
+            return parent != null && parent.equals(directory.getCanonicalFile());
+        } catch (IOException exp) {
+            return false;
+        }
+    }
+
+    /** Deletes a managed file and its siblings; returns false for files outside the managed directory. */
+    public boolean release(File file) {
+        if (!contains(file)) {
+            return false;
+        }
+        String prefix = file.getName() + ".";
+        File[] siblings = directory.listFiles((dir, name) -> name.startsWith(prefix));
+        if (siblings != null) {
+            for (File sibling : siblings) {
+                sibling.delete();
+            }
+        }
+        return file.delete();
+    }
+
+    /** Deletes files older than the TTL and returns them. */
+    public List<File> sweep() {
+        File[] files = directory.listFiles(File::isFile);
+        if (ttlMs <= 0 || files == null) {
+            return List.of();
+        }
+        long cutoff = clock.getAsLong() - ttlMs;
+        List<File> deleted = new ArrayList<>();
+        for (File file : files) {
+            if (file.lastModified() < cutoff && file.delete()) {
+                deleted.add(file);
+            }
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,406 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import app.independo.capacitorvoicerecorder.adapters.CommandQueue;
+import app.independo.capacitorvoicerecorder.adapters.PermissionChecker;
+import app.independo.capacitorvoicerecorder.adapters.RecorderPlatform;
+import app.independo.capacitorvoicerecorder.core.AutoStopReason;
+import app.independo.capacitorvoicerecorder.core.CurrentRecordingStatus;
+import app.independo.capacitorvoicerecorder.core.EncoderSettings;
+import app.independo.capacitorvoicerecorder.core.RecordData;
+import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import app.independo.capacitorvoicerecorder.core.RecordingPage;
+import app.independo.capacitorvoicerecorder.core.SpeechRegion;
+import app.independo.capacitorvoicerecorder.core.StorageUsage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recording API for native Android code that does not go through the Capacitor bridge.
+ *
+ * <p>Sessions are recorded into a directory, the plugin-managed one unless the options name another, and results
+ * are returned as {@link File}s that can be mapped into a {@link ByteBuffer}. No base64 or JSON is produced. While a
+ * session runs, levels and, when enabled, newly written bytes are polled on a background thread and handed to the
+ * {@link Listener}. Commands wait for the service's command queue, so call them off the main thread.</p>
+ *
+ * <pre>{@code
+ * NativeVoiceRecorder recorder = NativeVoiceRecorder
+ *     .builder(new DefaultRecorderPlatform(context), () -> hasRecordAudioPermission(context))
+ *     .streamChunks(true)
+ *     .build();
+ * recorder.start(null, listener);
+ * File file = recorder.stop().getFile();
+ * }</pre>
+ *
+ * <p>The Capacitor plugin is built on the same service through {@link #getService()}.</p>
+ */
+public final class NativeVoiceRecorder {
+
+    /** Default interval between level callbacks and chunk reads in milliseconds. */
+    public static final int DEFAULT_LEVEL_INTERVAL_MS = AmplitudeMeter.DEFAULT_WINDOW_MS;
+
+    /** Receives session events. Callbacks run on background threads and must not block. */
+    public interface Listener {
+        /** Called every level interval with the input level normalized to [0, 1]. */
+        default void onLevel(double level) {}
+
+        /**
+         * Called with the bytes appended to the recording file since the previous chunk, when chunk streaming is
+         * enabled. Chunks are the file as stored, so they are ciphertext for encrypted recordings, and they do not
+         * include pre-roll audio or silence trimming, which are applied when the session stops.
+         */
+        default void onChunk(ByteBuffer chunk) {}
+
+        /** Called when another app or a call takes the audio focus. */
+        default void onInterruptionBegan() {}
+
+        /** Called when the recording resumes after an interruption. */
+        default void onInterruptionEnded() {}
+
+        /** Called once the session is finalized, by {@link #stop()} or by an automatic stop. */
+        default void onCompleted(Recording recording) {}
+
+        /** Called when finalizing the session failed. */
+        default void onFailed(VoiceRecorderServiceException exception) {}
+    }
+
+    /** Finished recording on disk. */
+    public static final class Recording {
+        private final RecordData recordData;
+        private final AutoStopReason stopReason;
+
+        Recording(RecordData recordData, AutoStopReason stopReason) {
+            this.recordData = recordData;
+            this.stopReason = stopReason;
+        }
+
+        /** Returns the recorded file. */
+        public File getFile() {
+            return recordData.getFile();
+        }
+
+        /** Returns the low-bitrate copy, or null when none was requested or its encoder failed. */
+        public File getProxyFile() {
+            return recordData.getProxy() != null ? recordData.getProxy().getFile() : null;
+        }
+
+        /** Returns the recording duration in milliseconds. */
+        public int getDurationMs() {
+            return recordData.getMsDuration();
+        }
+
+        /** Returns the MIME type of the recording. */
+        public String getMimeType() {
+            return recordData.getMimeType();
+        }
+
+        /** Returns the detected speech regions, or null when segmentation was not requested. */
+        public List<SpeechRegion> getSpeechRegions() {
+            return recordData.getSpeechRegions();
+        }
+
+        /** Returns the encoder settings the recording was written with, or null when unknown. */
+        public EncoderSettings getEncoderSettings() {
+            return recordData.getEncoderSettings();
+        }
+
+        /** Returns why the session stopped on its own, or null when it was stopped by the caller. */
+        public AutoStopReason getStopReason() {
+            return stopReason;
+        }
+
+        /** Maps the file read-only into memory; encrypted recordings map as ciphertext. */
+        public ByteBuffer map() throws IOException {
+            try (FileInputStream input = new FileInputStream(getFile()); FileChannel channel = input.getChannel()) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+    }
+
+    /** Configures a {@link NativeVoiceRecorder}. */
+    public static final class Builder {
+        private final RecorderPlatform platform;
+        private final PermissionChecker permissionChecker;
+        private CommandQueue commandQueue;
+        private long managedRecordingTtlMs = ManagedRecordingCache.DEFAULT_TTL_MS;
+        private int levelIntervalMs = DEFAULT_LEVEL_INTERVAL_MS;
+        private boolean streamChunks;
+        private RecordingCatalog recordingCatalog;
+        private AmplitudeMeter.Ticker ticker = AmplitudeMeter.SCHEDULED_TICKER;
+
+        private Builder(RecorderPlatform platform, PermissionChecker permissionChecker) {
+            this.platform = platform;
+            this.permissionChecker = permissionChecker;
+        }
+
+        /** Sets the queue recorder commands run on; defaults to a dedicated background thread. */
+        public Builder commandQueue(CommandQueue commandQueue) {
+            this.commandQueue = commandQueue;
+            return this;
+        }
+
+        /** Sets how long unreleased recordings in the managed directory are kept; 0 keeps them until released. */
+        public Builder managedRecordingTtlMs(long managedRecordingTtlMs) {
+            this.managedRecordingTtlMs = managedRecordingTtlMs;
+            return this;
+        }
+
+        /** Sets the interval between level callbacks and chunk reads in milliseconds. */
+        public Builder levelIntervalMs(int levelIntervalMs) {
+            this.levelIntervalMs = Math.max(1, levelIntervalMs);
+            return this;
+        }
+
+        /** Enables {@link Listener#onChunk(ByteBuffer)} callbacks. */
+        public Builder streamChunks(boolean streamChunks) {
+            this.streamChunks = streamChunks;
+            return this;
+        }
+
+        /** Catalogues every recording kept on disk, for {@link VoiceRecorderService#listRecordings}. */
+        public Builder recordingCatalog(RecordingCatalog recordingCatalog) {
+            this.recordingCatalog = recordingCatalog;
+            return this;
+        }
+
+        Builder ticker(AmplitudeMeter.Ticker ticker) {
+            this.ticker = ticker;
+            return this;
+        }
+
+        public NativeVoiceRecorder build() {
+            VoiceRecorderService service = commandQueue != null
+                ? new VoiceRecorderService(platform, permissionChecker, commandQueue)
+                : new VoiceRecorderService(platform, permissionChecker);
+            File managedDirectory = platform.getManagedDirectory();
+            service.setManagedRecordings(new ManagedRecordingCache(managedDirectory, managedRecordingTtlMs));
+            service.setRecordingCatalog(recordingCatalog);
+            return new NativeVoiceRecorder(service, ticker, levelIntervalMs, streamChunks);
+        }
+    }
+
+    /** Polling and listener of the active session. */
+    private final class Session implements Runnable {
+        private final Listener listener;
+        private AutoCloseable tickerHandle;
+        private FileChannel channel;
+        private long position;
+        /** Set once the session has ended, possibly before start() could install it; guarded by the recorder. */
+        private boolean ended;
+
+        Session(Listener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public synchronized void run() {
+            if (service.getCurrentStatus() == CurrentRecordingStatus.NONE) {
+                return;
+            }
+            listener.onLevel(service.getCurrentAmplitude());
+            if (streamChunks) {
+                readChunk();
+            }
+        }
+
+        private void readChunk() {
+            try {
+                if (channel == null) {
+                    File file = service.getActiveOutputFile();
+                    if (file == null || !file.isFile()) {
+                        return;
+                    }
+                    channel = new FileInputStream(file).getChannel();
+                }
+                long size = channel.size();
+                if (size <= position) {
+                    return;
+                }
+                ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(size - position, Integer.MAX_VALUE));
+                while (chunk.hasRemaining()) {
+                    int read = channel.read(chunk, position);
+                    if (read <= 0) {
+                        break;
+                    }
+                    position += read;
+                }
+                chunk.flip();
+                listener.onChunk(chunk);
+            } catch (IOException ignore) {
+                // The next tick retries; the file is still complete after stop.
+            }
+        }
+
+        synchronized void close() {
+            try {
+                if (tickerHandle != null) {
+                    tickerHandle.close();
+                }
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (Exception ignore) {
+            } finally {
+                tickerHandle = null;
+                channel = null;
+            }
+        }
+    }
+
+    private final VoiceRecorderService service;
+    private final AmplitudeMeter.Ticker ticker;
+    private final int levelIntervalMs;
+    private final boolean streamChunks;
+    /** Active session, or null when idle. */
+    private Session session;
+
+    private NativeVoiceRecorder(
+        VoiceRecorderService service,
+        AmplitudeMeter.Ticker ticker,
+        int levelIntervalMs,
+        boolean streamChunks
+    ) {
+        this.service = service;
+        this.ticker = ticker;
+        this.levelIntervalMs = levelIntervalMs;
+        this.streamChunks = streamChunks;
+    }
+
+    /** Returns a builder for a recorder on the platform, usually {@code new DefaultRecorderPlatform(context)}. */
+    public static Builder builder(RecorderPlatform platform, PermissionChecker permissionChecker) {
+        return new Builder(platform, permissionChecker);
+    }
+
+    /** Returns the service the recorder runs on, for callers that need its other operations. */
+    public VoiceRecorderService getService() {
+        return service;
+    }
+
+    /** Starts a session; options may be null, and without a directory the plugin-managed one is used. */
+    public void start(RecordOptions options, Listener listener) throws VoiceRecorderServiceException {
+        RecordOptions sessionOptions = options == null
+            ? new RecordOptions(RecordOptions.MANAGED_DIRECTORY, null)
+            : options.directory() == null ? options.withDirectory(RecordOptions.MANAGED_DIRECTORY) : options;
+        Session started = new Session(listener);
+        service.startRecording(
+            sessionOptions,
+            listener::onInterruptionBegan,
+            listener::onInterruptionEnded,
+            new RecordingEventListener() {
+                @Override
+                public void onAutoStopped(AutoStopReason reason, RecordData recordData) {
+                    endSession(started);
+                    listener.onCompleted(new Recording(recordData, reason));
+                }
+
+                @Override
+                public void onAutoStopFailed(AutoStopReason reason, VoiceRecorderServiceException exception) {
+                    endSession(started);
+                    listener.onFailed(exception);
+                }
+            }
+        );
+        synchronized (this) {
+            // A limit can stop the session before this thread gets here; it must not be polled then.
+            if (started.ended) {
+                return;
+            }
+            endSession();
+            session = started;
+            started.tickerHandle = ticker.start(started, levelIntervalMs);
+        }
+    }
+
+    /** Stops the session and returns the finished recording. */
+    public Recording stop() throws VoiceRecorderServiceException {
+        Session ended = endSession();
+        try {
+            Recording recording = new Recording(service.stopRecording(), null);
+            if (ended != null) {
+                ended.listener.onCompleted(recording);
+            }
+            return recording;
+        } catch (VoiceRecorderServiceException exp) {
+            if (ended != null) {
+                ended.listener.onFailed(exp);
+            }
+            throw exp;
+        }
+    }
+
+    /** Pauses the session; returns false when the device cannot pause. */
+    public boolean pause() throws VoiceRecorderServiceException {
+        return service.pauseRecording();
+    }
+
+    /** Resumes a paused session. */
+    public boolean resume() throws VoiceRecorderServiceException {
+        return service.resumeRecording();
+    }
+
+    /** Returns the session status without waiting for the command queue. */
+    public CurrentRecordingStatus getCurrentStatus() {
+        return service.getCurrentStatus();
+    }
+
+    /** Returns a page of the catalogued recordings, newest first; empty unless the builder set a catalog. */
+    public RecordingPage listRecordings(int offset, int limit, String directory) throws VoiceRecorderServiceException {
+        return service.listRecordings(offset, limit, directory);
+    }
+
+    /**
+     * Recovers recordings whose session ended without stopping, such as on a crash, when they were started with
+     * durability enabled. Call once at startup, before the first recording starts.
+     */
+    public List<Recording> recoverRecordings() {
+        List<Recording> recordings = new ArrayList<>();
+        for (RecordData recordData : service.recoverRecordings()) {
+            recordings.add(new Recording(recordData, null));
+        }
+        return recordings;
+    }
+
+    /** Pins or unpins a catalogued recording so it is kept, or again evicted, when its directory is over budget. */
+    public void pin(Recording recording, boolean pinned) throws VoiceRecorderServiceException {
+        service.pinRecording(recording.getFile(), pinned);
+    }
+
+    /** Returns the storage used per directory option by catalogued recordings; empty unless the builder set a catalog. */
+    public List<StorageUsage> getStorageUsage() throws VoiceRecorderServiceException {
+        return service.getStorageUsage();
+    }
+
+    /** Deletes a recording kept in the managed directory; returns false for files outside it. */
+    public boolean release(Recording recording) {
+        File file = recording.getFile();
+        return file != null && service.releaseRecording(file);
+    }
+
+    /** Stops polling and shuts the service down; an active session is abandoned. */
+    public void shutdown() {
+        endSession();
+        service.shutdown();
+    }
+
+    /** Detaches and closes the active session, returning it. */
+    private synchronized Session endSession() {
+        Session ended = session;
+        if (ended != null) {
+            endSession(ended);
+        }
+        return ended;
+    }
+
+    /** Closes the session and detaches it when it is the active one; a session not installed yet never will be. */
+    private synchronized void endSession(Session ended) {
+        ended.ended = true;
+        if (session == ended) {
+            session = null;
+        }
+        ended.close();
+    }
+}
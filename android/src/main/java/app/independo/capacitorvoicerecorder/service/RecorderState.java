@@ -0,0 +1,17 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import app.independo.capacitorvoicerecorder.adapters.RecorderAdapter;
+import app.independo.capacitorvoicerecorder.core.CurrentRecordingStatus;
+
+/**
+ * Immutable view of the recorder state, published by the command queue after every transition.
+ *
+ * @param status status of the active session, or NONE
+ * @param recorder recorder of the active session, or null
+ * @param meter amplitude meter of the active session, or null
+ * @param preRollArmed whether pre-roll capture is armed
+ */
+record RecorderState(CurrentRecordingStatus status, RecorderAdapter recorder, AmplitudeMeter meter, boolean preRollArmed) {
+    /** State without an active session or pre-roll. */
+    static final RecorderState IDLE = new RecorderState(CurrentRecordingStatus.NONE, null, null, false);
+}
@@ -0,0 +1,452 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import app.independo.capacitorvoicerecorder.core.RecordingEntry;
+import app.independo.capacitorvoicerecorder.core.RecordingPage;
+import app.independo.capacitorvoicerecorder.core.StorageUsage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Append-only index of finished recordings, so they can be listed without scanning directories or probing files.
+ *
+ * <p>Every added recording, removal, access and pin change is one tab-separated line. The file is replayed on first
+ * use, entries whose file no longer exists are dropped, and the result is rewritten in compact form; it is also
+ * rewritten once superseded lines outnumber live entries. Pages are served from memory, newest first, per directory
+ * or across all of them, and the files of a page are checked as it is read, so recordings deleted behind the catalog's
+ * back drop out without a full scan. Like {@link TranscodeJournal}, lines survive process death but are not synced to
+ * disk.</p>
+ *
+ * <p>The catalog also enforces per-directory storage budgets. Usage is summed from the sizes recorded when recordings
+ * are added, never from the filesystem. When an added recording takes its directory over budget, entries whose file is
+ * gone are dropped first, then the least recently accessed unpinned recordings of that directory that are not in use
+ * are deleted, with their seek index and waveform, until it fits again.</p>
+ */
+public class RecordingCatalog {
+
+    /** Default page size of {@link #list}. */
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    /** Largest page {@link #list} returns. */
+    public static final int MAX_PAGE_SIZE = 500;
+    /** Suffix of the file that keeps a recording's peak levels, removed with the recording. */
+    static final String WAVEFORM_SUFFIX = ".waveform";
+    /** Suffix of the seek index the platform keeps next to a recording, removed with the recording. */
+    static final String SEEK_INDEX_SUFFIX = ".idx";
+    /** Superseded lines tolerated before the file is compacted, regardless of how many entries are live. */
+    static final int COMPACT_MIN_DEAD_LINES = 64;
+
+    private static final String ADDED = "A";
+    private static final String REMOVED = "R";
+    private static final String ACCESSED = "U";
+    private static final String PINNED = "P";
+
+    /** Catalogued recording, the path it is tracked by and when it was last accessed. */
+    private static final class Item {
+        final String path;
+        RecordingEntry entry;
+        long accessedAtMs;
+
+        Item(String path, RecordingEntry entry, long accessedAtMs) {
+            this.path = path;
+            this.entry = entry;
+            this.accessedAtMs = accessedAtMs;
+        }
+    }
+
+    /** Live items and usage of one directory option. */
+    private static final class Directory {
+        /** Items in the order they were added, for paging. */
+        final List<Item> added = new ArrayList<>();
+        /** Items from least to most recently accessed, for eviction. */
+        final LinkedHashMap<String, Item> byAccess = new LinkedHashMap<>(16, 0.75f, true);
+        long usedBytes;
+        long pinnedBytes;
+    }
+
+    private final File file;
+    /** Wall clock in milliseconds for creation and access times. */
+    private final LongSupplier clock;
+    /** Storage budget in bytes per directory option; directories without one grow freely. */
+    private final Map<String, Long> budgets = new HashMap<>();
+    /** Live items by path. */
+    private final Map<String, Item> byPath = new HashMap<>();
+    /** Live items in the order they were added, for paging across directories. */
+    private final List<Item> all = new ArrayList<>();
+    /** Live items per directory option. */
+    private final Map<String, Directory> directories = new HashMap<>();
+    /** Recordings that eviction must leave alone because a job or an edit is reading them. */
+    private Predicate<File> inUse = file -> false;
+    /** Lines in the file that no longer describe live state. */
+    private int deadLines;
+    private boolean loaded;
+
+    public RecordingCatalog(File file) {
+        this(file, System::currentTimeMillis);
+    }
+
+    RecordingCatalog(File file, LongSupplier clock) {
+        this.file = file;
+        this.clock = clock;
+    }
+
+    /** Sets the storage budget of a directory option in bytes; 0 or less removes it. Enforced on the next add. */
+    public synchronized void setBudget(String directory, long budgetBytes) {
+        if (budgetBytes > 0) {
+            budgets.put(directory, budgetBytes);
+        } else {
+            budgets.remove(directory);
+        }
+    }
+
+    /** Sets the check that keeps recordings being read by a job or an edit from being evicted. */
+    public synchronized void setInUse(Predicate<File> inUse) {
+        this.inUse = inUse;
+    }
+
+    /**
+     * Adds a finished recording, replacing an earlier entry for the same file, then evicts the least recently
+     * accessed unpinned recordings of its directory while it is over budget. The added recording itself and
+     * recordings in use are never evicted. Returns the evicted entries, whose files have been deleted.
+     */
+    public synchronized List<RecordingEntry> add(File recording, RecordingEntry entry) throws IOException {
+        load();
+        String path = recording.getAbsolutePath();
+        if (byPath.containsKey(path)) {
+            forget(path);
+            deadLines++;
+        }
+        Item item = new Item(path, entry, clock.getAsLong());
+        remember(item);
+        StringBuilder lines = new StringBuilder();
+        appendAddedLine(lines, item);
+        List<RecordingEntry> evicted = evict(entry.directory(), item, lines);
+        append(lines.toString());
+        compactIfNeeded();
+        return evicted;
+    }
+
+    /** Drops the entry for a file; returns false when it was not catalogued. */
+    public synchronized boolean remove(File recording) throws IOException {
+        load();
+        String path = recording.getAbsolutePath();
+        if (!byPath.containsKey(path)) {
+            return false;
+        }
+        forget(path);
+        deadLines += 2;
+        append(REMOVED + "\t" + path + "\n");
+        compactIfNeeded();
+        return true;
+    }
+
+    /** Marks a catalogued recording as accessed, moving it away from eviction; ignores other files. */
+    public synchronized void touch(File recording) throws IOException {
+        load();
+        Item item = byPath.get(recording.getAbsolutePath());
+        if (item == null) {
+            return;
+        }
+        item.accessedAtMs = clock.getAsLong();
+        directories.get(item.entry.directory()).byAccess.get(item.path);
+        deadLines++;
+        append(ACCESSED + "\t" + item.path + "\t" + item.accessedAtMs + "\n");
+        compactIfNeeded();
+    }
+
+    /** Pins or unpins a catalogued recording; returns false when the file is not catalogued. */
+    public synchronized boolean pin(File recording, boolean pinned) throws IOException {
+        load();
+        Item item = byPath.get(recording.getAbsolutePath());
+        if (item == null) {
+            return false;
+        }
+        if (item.entry.pinned() != pinned) {
+            Directory directory = directories.get(item.entry.directory());
+            directory.pinnedBytes += pinned ? item.entry.sizeBytes() : -item.entry.sizeBytes();
+            item.entry = item.entry.withPinned(pinned);
+            deadLines++;
+            append(PINNED + "\t" + item.path + "\t" + (pinned ? 1 : 0) + "\n");
+            compactIfNeeded();
+        }
+        return true;
+    }
+
+    /**
+     * Returns up to {@code limit} recordings after skipping {@code offset}, newest first, from one directory option
+     * or from all when {@code directory} is null. Entries whose file is gone are dropped while the page is read.
+     */
+    public synchronized RecordingPage list(int offset, int limit, String directory) throws IOException {
+        load();
+        int pageSize = Math.max(0, Math.min(limit, MAX_PAGE_SIZE));
+        List<Item> items = directory == null ? all : directories.containsKey(directory) ? directories.get(directory).added : List.of();
+        List<RecordingEntry> page = new ArrayList<>(pageSize);
+        List<Item> missing = new ArrayList<>();
+        for (int index = items.size() - 1 - Math.max(0, offset); index >= 0 && page.size() < pageSize; index--) {
+            Item item = items.get(index);
+            if (new File(item.path).isFile()) {
+                page.add(item.entry);
+            } else {
+                missing.add(item);
+            }
+        }
+        if (!missing.isEmpty()) {
+            StringBuilder lines = new StringBuilder();
+            for (Item item : missing) {
+                forget(item.path);
+                deadLines += 2;
+                lines.append(REMOVED).append('\t').append(item.path).append('\n');
+            }
+            append(lines.toString());
+            compactIfNeeded();
+        }
+        return new RecordingPage(page, items.size());
+    }
+
+    /** Returns the usage of every directory option that has recordings or a budget, ordered by name. */
+    public synchronized List<StorageUsage> getUsage() throws IOException {
+        load();
+        Map<String, StorageUsage> usage = new TreeMap<>();
+        for (Map.Entry<String, Long> budget : budgets.entrySet()) {
+            usage.put(budget.getKey(), new StorageUsage(budget.getKey(), 0, 0, 0, budget.getValue()));
+        }
+        for (Map.Entry<String, Directory> directory : directories.entrySet()) {
+            Directory items = directory.getValue();
+            if (!items.added.isEmpty()) {
+                usage.put(
+                    directory.getKey(),
+                    new StorageUsage(
+                        directory.getKey(),
+                        items.usedBytes,
+                        items.pinnedBytes,
+                        items.added.size(),
+                        budgets.getOrDefault(directory.getKey(), 0L)
+                    )
+                );
+            }
+        }
+        return new ArrayList<>(usage.values());
+    }
+
+    /** Writes the peak levels next to the recording and returns the file, or null when it could not be written. */
+    static File writeWaveform(File recording, float[] waveform) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < waveform.length; i++) {
+            text.append(i > 0 ? "," : "").append(Math.round(waveform[i] * 1000) / 1000.0);
+        }
+        File sidecar = new File(recording.getAbsolutePath() + WAVEFORM_SUFFIX);
+        try {
+            Files.write(sidecar.toPath(), text.toString().getBytes(StandardCharsets.US_ASCII));
+            return sidecar;
+        } catch (IOException exp) {
+            return null;
+        }
+    }
+
+    /**
+     * Replays the file, drops entries whose file is gone and rewrites it in compact form. Runs once, on first use
+     * unless called earlier, for example on a background thread at startup.
+     */
+    public synchronized void load() throws IOException {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!file.isFile()) {
+            return;
+        }
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        Map<String, Item> replayed = new LinkedHashMap<>();
+        int lineStart = 0;
+        for (int lineEnd = content.indexOf('\n'); lineEnd >= 0; lineEnd = content.indexOf('\n', lineStart)) {
+            String[] fields = content.substring(lineStart, lineEnd).split("\t", -1);
+            lineStart = lineEnd + 1;
+            try {
+                switch (fields[0]) {
+                    case ADDED -> {
+                        long createdAtMs = Long.parseLong(fields[1]);
+                        RecordingEntry entry = new RecordingEntry(
+                            fields[10],
+                            fields[6],
+                            Long.parseLong(fields[2]),
+                            Long.parseLong(fields[3]),
+                            fields[4],
+                            fields[5],
+                            createdAtMs,
+                            emptyToNull(fields[7]),
+                            emptyToNull(fields[8]),
+                            fields.length > 12 && fields[12].equals("1")
+                        );
+                        long accessedAtMs = fields.length > 11 ? Long.parseLong(fields[11]) : createdAtMs;
+                        replayed.remove(fields[9]);
+                        replayed.put(fields[9], new Item(fields[9], entry, accessedAtMs));
+                    }
+                    case REMOVED -> replayed.remove(fields[1]);
+                    case ACCESSED -> {
+                        Item item = replayed.get(fields[1]);
+                        if (item != null) {
+                            item.accessedAtMs = Long.parseLong(fields[2]);
+                        }
+                    }
+                    case PINNED -> {
+                        Item item = replayed.get(fields[1]);
+                        if (item != null) {
+                            item.entry = item.entry.withPinned(fields[2].equals("1"));
+                        }
+                    }
+                    default -> {}
+                }
+            } catch (RuntimeException malformed) {
+                // A line damaged by an earlier crash only loses its own entry.
+            }
+        }
+        List<Item> byAccess = new ArrayList<>();
+        for (Item item : replayed.values()) {
+            if (new File(item.path).isFile()) {
+                remember(item);
+                byAccess.add(item);
+            }
+        }
+        // Rebuild the eviction order from the replayed access times.
+        byAccess.sort((a, b) -> Long.compare(a.accessedAtMs, b.accessedAtMs));
+        for (Item item : byAccess) {
+            directories.get(item.entry.directory()).byAccess.get(item.path);
+        }
+        rewrite();
+    }
+
+    /**
+     * Drops entries whose file is gone, then deletes least recently accessed unpinned recordings that are not in use
+     * while the directory is over budget, keeping {@code kept}.
+     */
+    private List<RecordingEntry> evict(String directoryName, Item kept, StringBuilder lines) {
+        Long budget = budgets.get(directoryName);
+        Directory directory = directories.get(directoryName);
+        if (budget == null || directory.usedBytes <= budget) {
+            return List.of();
+        }
+        // Recordings deleted behind the catalog's back still count until dropped, and may be all that is over.
+        for (Item item : new ArrayList<>(directory.added)) {
+            if (!new File(item.path).isFile()) {
+                forget(item.path);
+                deadLines += 2;
+                lines.append(REMOVED).append('\t').append(item.path).append('\n');
+            }
+        }
+        List<Item> victims = new ArrayList<>();
+        long usedBytes = directory.usedBytes;
+        Iterator<Item> candidates = directory.byAccess.values().iterator();
+        while (usedBytes > budget && candidates.hasNext()) {
+            Item candidate = candidates.next();
+            if (candidate != kept && !candidate.entry.pinned() && !inUse.test(new File(candidate.path))) {
+                victims.add(candidate);
+                usedBytes -= candidate.entry.sizeBytes();
+            }
+        }
+        List<RecordingEntry> evicted = new ArrayList<>(victims.size());
+        for (Item victim : victims) {
+            deleteWithSiblings(new File(victim.path));
+            forget(victim.path);
+            deadLines += 2;
+            lines.append(REMOVED).append('\t').append(victim.path).append('\n');
+            evicted.add(victim.entry);
+        }
+        return evicted;
+    }
+
+    /** Deletes a recording with its seek index and waveform. */
+    private static void deleteWithSiblings(File recording) {
+        new File(recording.getPath() + SEEK_INDEX_SUFFIX).delete();
+        new File(recording.getPath() + WAVEFORM_SUFFIX).delete();
+        recording.delete();
+    }
+
+    private void remember(Item item) {
+        byPath.put(item.path, item);
+        all.add(item);
+        Directory directory = directories.computeIfAbsent(item.entry.directory(), key -> new Directory());
+        directory.added.add(item);
+        directory.byAccess.put(item.path, item);
+        directory.usedBytes += item.entry.sizeBytes();
+        if (item.entry.pinned()) {
+            directory.pinnedBytes += item.entry.sizeBytes();
+        }
+    }
+
+    private void forget(String path) {
+        Item item = byPath.remove(path);
+        if (item == null) {
+            return;
+        }
+        all.remove(item);
+        Directory directory = directories.get(item.entry.directory());
+        directory.added.remove(item);
+        directory.byAccess.remove(path);
+        directory.usedBytes -= item.entry.sizeBytes();
+        if (item.entry.pinned()) {
+            directory.pinnedBytes -= item.entry.sizeBytes();
+        }
+    }
+
+    private void compactIfNeeded() throws IOException {
+        if (deadLines >= COMPACT_MIN_DEAD_LINES && deadLines > byPath.size()) {
+            rewrite();
+        }
+    }
+
+    /** Replaces the file with one line per live item. */
+    private void rewrite() throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (Item item : all) {
+            appendAddedLine(lines, item);
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("cannot create " + parent);
+        }
+        File temporary = new File(parent, file.getName() + ".tmp");
+        Files.write(temporary.toPath(), lines.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        deadLines = 0;
+    }
+
+    private void append(String lines) throws IOException {
+        if (!file.isFile()) {
+            rewrite();
+            return;
+        }
+        try (OutputStream stream = new FileOutputStream(file, true)) {
+            stream.write(lines.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void appendAddedLine(StringBuilder lines, Item item) {
+        RecordingEntry entry = item.entry;
+        lines.append(ADDED).append('\t').append(entry.createdAtMs()).append('\t').append(entry.sizeBytes()).append('\t');
+        lines.append(entry.durationMs()).append('\t').append(entry.mimeType()).append('\t');
+        lines.append(entry.fileExtension()).append('\t').append(entry.directory()).append('\t');
+        lines.append(nullToEmpty(entry.sha256())).append('\t').append(nullToEmpty(entry.waveformUri())).append('\t');
+        lines.append(item.path).append('\t').append(entry.uri()).append('\t').append(item.accessedAtMs).append('\t');
+        lines.append(entry.pinned() ? '1' : '0').append('\n');
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,19 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import app.independo.capacitorvoicerecorder.core.AutoStopReason;
+import app.independo.capacitorvoicerecorder.core.RecordData;
+
+/** Receives native session events that are not tied to a bridge call. */
+public interface RecordingEventListener {
+    /** Called when voice activity detection reports the start of speech. */
+    default void onVoiceActivityStart() {}
+
+    /** Called when voice activity detection reports the end of speech. */
+    default void onVoiceActivityEnd() {}
+
+    /** Called after the service stopped and finalized a session on its own. */
+    default void onAutoStopped(AutoStopReason reason, RecordData recordData) {}
+
+    /** Called when a native stop was triggered but finalizing the recording failed. */
+    default void onAutoStopFailed(AutoStopReason reason, VoiceRecorderServiceException exception) {}
+}
@@ -0,0 +1,193 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import app.independo.capacitorvoicerecorder.adapters.RecorderPlatform;
+import app.independo.capacitorvoicerecorder.core.ErrorCodes;
+import app.independo.capacitorvoicerecorder.core.RecordData;
+import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import app.independo.capacitorvoicerecorder.core.Tracing;
+import app.independo.capacitorvoicerecorder.core.TranscodeProfile;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Builds the payload of a stopped recording as a small graph of tasks on a bounded pool.
+ *
+ * <p>Duration, payload, digest, waveform and proxy do not depend on each other, so stopping takes about as long as
+ * the slowest of them rather than their sum. The digest, the waveform and, when either is requested, the base64
+ * payload share one read of the recording from {@link RecorderPlatform#readRecording(File)}; without them the
+ * platform reads the file for base64 on its own. For catalogued recordings the waveform is also stored next to the
+ * recording once decoded. {@link #run} returns only after every task has finished, so the caller may delete the files
+ * afterwards.</p>
+ */
+final class RecordingFinalizer {
+
+    /** Upper bound on the tasks running at once; there are at most five. */
+    static final int MAX_THREADS = 4;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final RecorderPlatform platform;
+    private final Executor executor;
+
+    RecordingFinalizer(RecorderPlatform platform) {
+        this(platform, SharedPool.EXECUTOR);
+    }
+
+    RecordingFinalizer(RecorderPlatform platform, Executor executor) {
+        this.platform = platform;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the payload of the recording and its proxy. A task that throws fails the whole run with its exception;
+     * a missing payload is left for the caller to reject. A requested digest that cannot be computed fails the run
+     * with {@link ErrorCodes#FAILED_TO_FETCH_RECORDING}, while a waveform that cannot be decoded is left out.
+     */
+    RecordData run(File recordedFile, File proxyFile, RecordOptions options) throws Exception {
+        return run(recordedFile, proxyFile, options, false);
+    }
+
+    /** Like {@link #run(File, File, RecordOptions)}, also storing the waveform of a recording kept by reference. */
+    RecordData run(File recordedFile, File proxyFile, RecordOptions options, boolean storesWaveform) throws Exception {
+        boolean byReference = options.directory() != null;
+        CompletableFuture<Integer> duration = supply(() -> platform.getDurationMs(recordedFile));
+        CompletableFuture<ByteBuffer> bytes = options.analyzesBytes()
+            ? supply(() -> platform.readRecording(recordedFile))
+            : CompletableFuture.completedFuture(null);
+        CompletableFuture<String> uri = byReference
+            ? supply(() -> platform.toUri(recordedFile))
+            : CompletableFuture.completedFuture(null);
+        CompletableFuture<byte[]> base64;
+        if (byReference) {
+            base64 = CompletableFuture.completedFuture(null);
+        } else if (options.analyzesBytes()) {
+            base64 = bytes.thenApplyAsync(data -> data != null ? platform.encodeBase64(data) : null, executor);
+        } else {
+            base64 = supply(() -> platform.readFileAsBase64(recordedFile));
+        }
+        CompletableFuture<String> digest = options.digest()
+            ? bytes.thenApplyAsync(RecordingFinalizer::requireSha256, executor)
+            : CompletableFuture.completedFuture(null);
+        CompletableFuture<float[]> waveform = options.waveformPoints() > 0
+            ? bytes.thenApplyAsync(data -> data != null ? platform.computeWaveform(data, options.waveformPoints()) : null, executor)
+            : CompletableFuture.completedFuture(null);
+        CompletableFuture<String> waveformUri = storesWaveform && byReference
+            ? waveform.thenApply(peaks -> storeWaveform(recordedFile, peaks))
+            : CompletableFuture.completedFuture(null);
+        CompletableFuture<RecordData> proxy = proxyFile != null
+            ? supply(() -> toProxyRecordData(proxyFile, options))
+            : CompletableFuture.completedFuture(null);
+
+        try {
+            CompletableFuture.allOf(duration, uri, base64, digest, waveform, waveformUri, proxy).join();
+        } catch (CompletionException exp) {
+            Throwable cause = exp.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw exp;
+        }
+
+        RecordData recordData = new RecordData(base64.join(), duration.join(), "audio/aac", "aac", uri.join());
+        if (byReference) {
+            recordData.setFile(recordedFile);
+        }
+        recordData.setSha256(digest.join());
+        recordData.setWaveform(waveform.join());
+        recordData.setWaveformUri(waveformUri.join());
+        recordData.setProxy(proxy.join());
+        return recordData;
+    }
+
+    /** Writes the peak levels next to the recording and returns their URI, or null when there are none to store. */
+    private String storeWaveform(File recordedFile, float[] peaks) {
+        File waveformFile = peaks != null ? RecordingCatalog.writeWaveform(recordedFile, peaks) : null;
+        return waveformFile != null ? platform.toUri(waveformFile) : null;
+    }
+
+    /** Returns the proxy the same way as the recording: by reference when a directory is set, inline otherwise. */
+    private RecordData toProxyRecordData(File proxyFile, RecordOptions options) {
+        TranscodeProfile profile = options.proxy();
+        byte[] recordDataBase64 = options.directory() == null ? platform.readFileAsBase64(proxyFile) : null;
+        String uri = options.directory() != null ? platform.toUri(proxyFile) : null;
+        RecordData proxy = new RecordData(
+            recordDataBase64,
+            platform.getDurationMs(proxyFile),
+            profile.mimeType(),
+            profile.fileExtension(),
+            uri
+        );
+        if (uri != null) {
+            proxy.setFile(proxyFile);
+        }
+        return proxy;
+    }
+
+    private <T> CompletableFuture<T> supply(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, executor);
+    }
+
+    /** Returns the digest of bytes from {@link RecorderPlatform#readRecording(File)}, failing when they are missing. */
+    private static String requireSha256(ByteBuffer data) {
+        if (data == null) {
+            throw new CompletionException(new VoiceRecorderServiceException(ErrorCodes.FAILED_TO_FETCH_RECORDING));
+        }
+        return sha256(data);
+    }
+
+    /** Returns the lowercase hex SHA-256 of the buffer from index 0 up to its limit. */
+    static String sha256(ByteBuffer data) {
+        Tracing.beginSection("VoiceRecorder.digest");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer view = data.duplicate();
+            view.position(0);
+            digest.update(view);
+            byte[] hash = digest.digest();
+            char[] hex = new char[hash.length * 2];
+            for (int i = 0; i < hash.length; i++) {
+                hex[i * 2] = HEX[(hash[i] >> 4) & 0x0F];
+                hex[i * 2 + 1] = HEX[hash[i] & 0x0F];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException exp) {
+            // Every Java and Android runtime is required to provide SHA-256.
+            throw new IllegalStateException(exp);
+        } finally {
+            Tracing.endSection();
+        }
+    }
+
+    /** Pool created on first use; idle threads exit so a stopped recorder holds none. */
+    private static final class SharedPool {
+        static final Executor EXECUTOR = create();
+
+        private static Executor create() {
+            int threads = Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+            AtomicInteger threadCount = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                threads,
+                threads,
+                30,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "VoiceRecorderFinalize-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            );
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+}
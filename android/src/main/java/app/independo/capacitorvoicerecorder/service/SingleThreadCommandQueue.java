@@ -0,0 +1,38 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import app.independo.capacitorvoicerecorder.adapters.CommandQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** Command queue backed by a single daemon executor thread, used when no platform queue is supplied. */
+final class SingleThreadCommandQueue implements CommandQueue {
+
+    /** Executor running the queued commands. */
+    private final ExecutorService executor;
+    /** Thread owned by the executor, set once it has been created. */
+    private volatile Thread queueThread;
+
+    SingleThreadCommandQueue(String name) {
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            queueThread = thread;
+            return thread;
+        });
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        executor.execute(command);
+    }
+
+    @Override
+    public boolean isQueueThread() {
+        return Thread.currentThread() == queueThread;
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
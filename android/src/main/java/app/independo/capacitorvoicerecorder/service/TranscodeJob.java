@@ -0,0 +1,12 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import app.independo.capacitorvoicerecorder.core.TranscodeProfile;
+
+/**
+ * A queued batch transcode.
+ *
+ * @param id journal identifier, increasing in queue order
+ * @param uri source recording URI
+ * @param profile target profile
+ */
+record TranscodeJob(long id, String uri, TranscodeProfile profile) {}
@@ -0,0 +1,148 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import app.independo.capacitorvoicerecorder.core.TranscodeProfile;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only checkpoint file of the batch transcode queue.
+ *
+ * <p>Every queued job, completion and failure is one tab-separated line, so process death can at most lose the line
+ * being written. Replay ignores a trailing line without terminator, and jobs that were running have no completion
+ * line, so they run again. Loading and draining rewrite the file to the totals plus the jobs still pending, which
+ * keeps it from growing across batches. Lines are not synced to disk; they survive process death but not a power
+ * loss.</p>
+ */
+final class TranscodeJournal {
+
+    private static final String QUEUED = "Q";
+    private static final String COMPLETED = "D";
+    private static final String FAILED = "F";
+    private static final String TOTALS = "T";
+
+    /** Replayed queue state. */
+    record Snapshot(List<TranscodeJob> pending, int completed, int failed, long nextId) {}
+
+    private final File file;
+
+    TranscodeJournal(File file) {
+        this.file = file;
+    }
+
+    /** Replays the file and rewrites it in compact form. */
+    synchronized Snapshot load() throws IOException {
+        if (!file.isFile()) {
+            return new Snapshot(List.of(), 0, 0, 1);
+        }
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        Map<Long, TranscodeJob> pending = new LinkedHashMap<>();
+        int completed = 0;
+        int failed = 0;
+        long nextId = 1;
+        int lineStart = 0;
+        for (int lineEnd = content.indexOf('\n'); lineEnd >= 0; lineEnd = content.indexOf('\n', lineStart)) {
+            String[] fields = content.substring(lineStart, lineEnd).split("\t", 6);
+            lineStart = lineEnd + 1;
+            try {
+                switch (fields[0]) {
+                    case QUEUED -> {
+                        TranscodeJob job = new TranscodeJob(
+                            Long.parseLong(fields[1]),
+                            fields[5],
+                            new TranscodeProfile(fields[2], Integer.parseInt(fields[3]), Integer.parseInt(fields[4]))
+                        );
+                        pending.put(job.id(), job);
+                        nextId = Math.max(nextId, job.id() + 1);
+                    }
+                    case COMPLETED -> {
+                        if (pending.remove(Long.parseLong(fields[1])) != null) {
+                            completed++;
+                        }
+                    }
+                    case FAILED -> {
+                        if (pending.remove(Long.parseLong(fields[1])) != null) {
+                            failed++;
+                        }
+                    }
+                    case TOTALS -> {
+                        completed = Integer.parseInt(fields[1]);
+                        failed = Integer.parseInt(fields[2]);
+                        nextId = Math.max(nextId, Long.parseLong(fields[3]));
+                    }
+                    default -> {}
+                }
+            } catch (RuntimeException malformed) {
+                // A line damaged by an earlier crash only loses its own entry.
+            }
+        }
+        List<TranscodeJob> jobs = new ArrayList<>(pending.values());
+        rewrite(jobs, completed, failed, nextId);
+        return new Snapshot(jobs, completed, failed, nextId);
+    }
+
+    /** Records newly queued jobs. */
+    synchronized void appendQueued(List<TranscodeJob> jobs) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (TranscodeJob job : jobs) {
+            appendQueuedLine(lines, job);
+        }
+        append(lines.toString());
+    }
+
+    /** Records that a job produced its output. */
+    synchronized void appendCompleted(long id) throws IOException {
+        append(COMPLETED + "\t" + id + "\n");
+    }
+
+    /** Records that a job failed with the given error code. */
+    synchronized void appendFailed(long id, String code) throws IOException {
+        append(FAILED + "\t" + id + "\t" + code + "\n");
+    }
+
+    /** Replaces the file with the totals and the given pending jobs. */
+    synchronized void rewrite(List<TranscodeJob> pending, int completed, int failed, long nextId) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        lines.append(TOTALS).append('\t').append(completed).append('\t').append(failed).append('\t').append(nextId);
+        lines.append('\n');
+        for (TranscodeJob job : pending) {
+            appendQueuedLine(lines, job);
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("cannot create " + parent);
+        }
+        File temporary = new File(parent, file.getName() + ".tmp");
+        Files.write(temporary.toPath(), lines.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Removes the file, forgetting all jobs and totals. */
+    synchronized void delete() {
+        file.delete();
+    }
+
+    private void append(String lines) throws IOException {
+        if (!file.isFile()) {
+            rewrite(List.of(), 0, 0, 1);
+        }
+        try (OutputStream stream = new FileOutputStream(file, true)) {
+            stream.write(lines.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void appendQueuedLine(StringBuilder lines, TranscodeJob job) {
+        TranscodeProfile profile = job.profile();
+        lines.append(QUEUED).append('\t').append(job.id()).append('\t').append(profile.format()).append('\t');
+        lines.append(profile.sampleRate()).append('\t').append(profile.bitRate()).append('\t').append(job.uri());
+        lines.append('\n');
+    }
+}
@@ -0,0 +1,306 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import app.independo.capacitorvoicerecorder.core.ErrorCodes;
+import app.independo.capacitorvoicerecorder.core.RecordData;
+import app.independo.capacitorvoicerecorder.core.TranscodeProfile;
+import app.independo.capacitorvoicerecorder.core.TranscodeQueueProgress;
+import app.independo.capacitorvoicerecorder.core.TranscodeQueueStatus;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Persistent batch transcoding on a bounded worker pool.
+ *
+ * <p>Jobs are checkpointed in a {@link TranscodeJournal} before they are scheduled and after each one finishes, so
+ * {@link #resume()} picks up the remaining work after process death. Each finished job reports its outcome with the
+ * aggregate throughput since the queue last became busy. Workers exit when idle.</p>
+ *
+ * <p>How many jobs of a profile run at once is looked up on a worker when the first job of that profile runs, since
+ * the codec limits behind it can be slow to read; until then one job of the profile runs. Jobs that write the same
+ * file, the same recording in the same profile, never run at the same time, and duplicates within one batch are
+ * queued once.</p>
+ */
+public class TranscodeQueue {
+
+    /** Name prefix of the worker threads. */
+    private static final String WORKER_THREAD_NAME = "VoiceRecorderBatch-";
+    /** Time an idle worker waits for new jobs before it exits. */
+    private static final long WORKER_KEEP_ALIVE_SECONDS = 30;
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+    /** File a job writes, named after its source recording and profile. */
+    private record Destination(String uri, TranscodeProfile profile) {}
+
+    private final VoiceRecorderService service;
+    private final TranscodeJournal journal;
+    private final Executor executor;
+    private final Consumer<TranscodeQueueProgress> listener;
+    /** Jobs waiting or running, by journal id; a job dropped from here by {@link #clear()} is skipped. */
+    private final Map<Long, TranscodeJob> pending = new LinkedHashMap<>();
+    /** Pending jobs not handed to a worker yet, in queue order. */
+    private final Deque<TranscodeJob> waiting = new ArrayDeque<>();
+    /** Jobs handed to a worker, per profile. */
+    private final Map<TranscodeProfile, Integer> running = new HashMap<>();
+    /** Destinations of the jobs handed to a worker. */
+    private final Set<Destination> writing = new HashSet<>();
+    /** Jobs of a profile that may run at once, once a worker has looked it up. */
+    private final Map<TranscodeProfile, Integer> parallelism = new ConcurrentHashMap<>();
+    private int completed;
+    private int failed;
+    private long nextId = 1;
+    /** Start of the current busy period, for throughput. */
+    private long busySinceNanos;
+    private int filesSinceBusy;
+    private long bytesSinceBusy;
+
+    /** Creates a queue that checkpoints to the journal file and runs jobs on up to one worker per core. */
+    public TranscodeQueue(VoiceRecorderService service, File journalFile, Consumer<TranscodeQueueProgress> listener) {
+        this(
+            service,
+            new TranscodeJournal(journalFile),
+            createWorkerPool(Runtime.getRuntime().availableProcessors()),
+            listener
+        );
+    }
+
+    TranscodeQueue(
+        VoiceRecorderService service,
+        TranscodeJournal journal,
+        Executor executor,
+        Consumer<TranscodeQueueProgress> listener
+    ) {
+        this.service = service;
+        this.journal = journal;
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    /** Replays the journal and schedules the jobs that had not finished. Call once, before {@link #enqueue}. */
+    public TranscodeQueueStatus resume() {
+        List<TranscodeJob> jobs;
+        TranscodeQueueStatus status;
+        synchronized (this) {
+            TranscodeJournal.Snapshot snapshot;
+            try {
+                snapshot = journal.load();
+            } catch (IOException exception) {
+                return getStatus();
+            }
+            completed = snapshot.completed();
+            failed = snapshot.failed();
+            nextId = Math.max(nextId, snapshot.nextId());
+            jobs = snapshot.pending();
+            addPending(jobs);
+            status = getStatus();
+        }
+        startWaiting();
+        return status;
+    }
+
+    /**
+     * Queues one job per URI, all with the same profile. The batch is checkpointed before this returns and is
+     * rejected as a whole if the profile is invalid or a URI does not point to a recording.
+     */
+    public TranscodeQueueStatus enqueue(List<String> uris, TranscodeProfile profile)
+        throws VoiceRecorderServiceException {
+        if (profile == null || !profile.isSupported()) {
+            throw new VoiceRecorderServiceException(ErrorCodes.INVALID_TRANSCODE_PROFILE);
+        }
+        for (String uri : uris) {
+            if (uri == null || uri.indexOf('\n') >= 0 || service.getRecordingSize(uri) < 0) {
+                throw new VoiceRecorderServiceException(ErrorCodes.RECORDING_NOT_FOUND);
+            }
+        }
+        List<TranscodeJob> jobs = new ArrayList<>();
+        TranscodeQueueStatus status;
+        synchronized (this) {
+            for (String uri : new LinkedHashSet<>(uris)) {
+                jobs.add(new TranscodeJob(nextId++, uri, profile));
+            }
+            try {
+                journal.appendQueued(jobs);
+            } catch (IOException exception) {
+                throw new VoiceRecorderServiceException(ErrorCodes.FAILED_TO_QUEUE_TRANSCODE, exception);
+            }
+            addPending(jobs);
+            status = getStatus();
+        }
+        startWaiting();
+        return status;
+    }
+
+    /** Returns the current job counts. */
+    public synchronized TranscodeQueueStatus getStatus() {
+        return new TranscodeQueueStatus(pending.size(), completed, failed);
+    }
+
+    /** Drops all pending jobs and resets the counts. Jobs already running finish without being reported. */
+    public synchronized void clear() {
+        for (TranscodeJob job : pending.values()) {
+            service.unholdRecording(job.uri());
+        }
+        pending.clear();
+        waiting.clear();
+        completed = 0;
+        failed = 0;
+        journal.delete();
+    }
+
+    /** Stops the workers after the running jobs; pending jobs stay in the journal for the next {@link #resume()}. */
+    public void shutdown() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void addPending(List<TranscodeJob> jobs) {
+        if (pending.isEmpty() && !jobs.isEmpty()) {
+            busySinceNanos = System.nanoTime();
+            filesSinceBusy = 0;
+            bytesSinceBusy = 0;
+        }
+        for (TranscodeJob job : jobs) {
+            // Keeps the source from being evicted to make room while the job waits.
+            service.holdRecording(job.uri());
+            pending.put(job.id(), job);
+            waiting.add(job);
+        }
+    }
+
+    /** Hands every waiting job whose profile has a free slot and whose destination is idle to a worker. */
+    private void startWaiting() {
+        List<TranscodeJob> startable = new ArrayList<>();
+        synchronized (this) {
+            for (Iterator<TranscodeJob> jobs = waiting.iterator(); jobs.hasNext(); ) {
+                TranscodeJob job = jobs.next();
+                Destination destination = new Destination(job.uri(), job.profile());
+                int limit = parallelism.getOrDefault(job.profile(), 1);
+                if (running.getOrDefault(job.profile(), 0) >= limit || writing.contains(destination)) {
+                    continue;
+                }
+                jobs.remove();
+                running.merge(job.profile(), 1, Integer::sum);
+                writing.add(destination);
+                startable.add(job);
+            }
+        }
+        try {
+            for (TranscodeJob job : startable) {
+                executor.execute(() -> run(job));
+            }
+        } catch (RejectedExecutionException shutDown) {
+            // The jobs stay in the journal for the next resume().
+        }
+    }
+
+    private void run(TranscodeJob job) {
+        if (!parallelism.containsKey(job.profile())) {
+            parallelism.put(job.profile(), service.getTranscodeParallelism(job.profile()));
+            startWaiting();
+        }
+        try {
+            runJob(job);
+        } finally {
+            synchronized (this) {
+                running.merge(job.profile(), -1, Integer::sum);
+                writing.remove(new Destination(job.uri(), job.profile()));
+            }
+            startWaiting();
+        }
+    }
+
+    private void runJob(TranscodeJob job) {
+        synchronized (this) {
+            if (!pending.containsKey(job.id())) {
+                return;
+            }
+        }
+        long bytes = Math.max(0, service.getRecordingSize(job.uri()));
+        String outputUri = null;
+        String error = null;
+        try {
+            RecordData output = service.transcodeRecording(job.uri(), job.profile(), progress -> {});
+            outputUri = output.getUri();
+        } catch (VoiceRecorderServiceException exception) {
+            error = exception.getCode();
+        }
+
+        TranscodeQueueProgress progress;
+        synchronized (this) {
+            if (pending.remove(job.id()) == null) {
+                return;
+            }
+            service.unholdRecording(job.uri());
+            if (error == null) {
+                completed++;
+            } else {
+                failed++;
+            }
+            filesSinceBusy++;
+            bytesSinceBusy += bytes;
+            checkpoint(job, error);
+            double elapsedSeconds = Math.max(1e-9, (System.nanoTime() - busySinceNanos) / 1e9);
+            progress = new TranscodeQueueProgress(
+                job.uri(),
+                outputUri,
+                error,
+                getStatus(),
+                filesSinceBusy / elapsedSeconds,
+                bytesSinceBusy / BYTES_PER_MEGABYTE / elapsedSeconds
+            );
+        }
+        listener.accept(progress);
+    }
+
+    /** Records the outcome; a lost checkpoint only means the job runs again after a restart. */
+    private void checkpoint(TranscodeJob job, String error) {
+        try {
+            if (pending.isEmpty()) {
+                journal.rewrite(List.of(), completed, failed, nextId);
+            } else if (error == null) {
+                journal.appendCompleted(job.id());
+            } else {
+                journal.appendFailed(job.id(), error);
+            }
+        } catch (IOException ignored) {}
+    }
+
+    private static ExecutorService createWorkerPool(int parallelism) {
+        int workers = Math.max(1, parallelism);
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+            workers,
+            workers,
+            WORKER_KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, WORKER_THREAD_NAME + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
@@ -0,0 +1,81 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import app.independo.capacitorvoicerecorder.core.AutoStopReason;
+import app.independo.capacitorvoicerecorder.core.VoiceActivityDetector;
+import app.independo.capacitorvoicerecorder.core.VoiceActivityOptions;
+import java.util.function.Consumer;
+
+/** Applies voice activity detection to metered windows and decides when silence should stop a session. */
+final class VoiceActivityTracker implements AmplitudeMeter.WindowListener {
+
+    /** Detector that classifies each window. */
+    private final VoiceActivityDetector detector;
+    /** Auto-stop thresholds requested for the session. */
+    private final VoiceActivityOptions options;
+    /** Listener for voice activity events. */
+    private final RecordingEventListener listener;
+    /** Invoked once when silence thresholds are exceeded. */
+    private final Consumer<AutoStopReason> onAutoStop;
+    /** Whether any speech has been detected in this session. */
+    private boolean heardSpeech;
+    /** Recorded position of the last voiced window. */
+    private long lastVoicedPositionMs;
+    /** Whether an auto-stop has already been requested. */
+    private boolean stopRequested;
+
+    VoiceActivityTracker(
+        int windowMs,
+        VoiceActivityOptions options,
+        RecordingEventListener listener,
+        Consumer<AutoStopReason> onAutoStop
+    ) {
+        this.detector = new VoiceActivityDetector(windowMs);
+        this.options = options;
+        this.listener = listener;
+        this.onAutoStop = onAutoStop;
+    }
+
+    @Override
+    public void onWindow(double level, long positionMs) {
+        if (stopRequested) {
+            return;
+        }
+
+        VoiceActivityDetector.Transition transition = detector.process(level);
+        if (transition == VoiceActivityDetector.Transition.SPEECH_STARTED) {
+            heardSpeech = true;
+            listener.onVoiceActivityStart();
+        } else if (transition == VoiceActivityDetector.Transition.SPEECH_ENDED) {
+            listener.onVoiceActivityEnd();
+        }
+        if (detector.isLastWindowVoiced()) {
+            lastVoicedPositionMs = positionMs;
+        }
+
+        AutoStopReason reason = evaluateAutoStop(positionMs);
+        if (reason != null) {
+            stopRequested = true;
+            if (detector.isSpeaking()) {
+                listener.onVoiceActivityEnd();
+            }
+            onAutoStop.accept(reason);
+        }
+    }
+
+    /** Returns the auto-stop reason for the current position, or null to keep recording. */
+    private AutoStopReason evaluateAutoStop(long positionMs) {
+        if (!heardSpeech) {
+            Integer maxLeadingSilenceMs = options.maxLeadingSilenceMs();
+            if (maxLeadingSilenceMs != null && positionMs >= maxLeadingSilenceMs) {
+                return AutoStopReason.LEADING_SILENCE;
+            }
+            return null;
+        }
+
+        Integer autoStopAfterSilenceMs = options.autoStopAfterSilenceMs();
+        if (autoStopAfterSilenceMs != null && positionMs - lastVoicedPositionMs >= autoStopAfterSilenceMs) {
+            return AutoStopReason.TRAILING_SILENCE;
+        }
+        return null;
+    }
+}
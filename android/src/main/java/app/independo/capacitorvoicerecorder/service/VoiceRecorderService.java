@@ -1,28 +1,119 @@
 package app.independo.capacitorvoicerecorder.service;
 
+import app.independo.capacitorvoicerecorder.adapters.CommandQueue;
 import app.independo.capacitorvoicerecorder.adapters.PermissionChecker;
 import app.independo.capacitorvoicerecorder.adapters.RecorderAdapter;
 import app.independo.capacitorvoicerecorder.adapters.RecorderPlatform;
+import app.independo.capacitorvoicerecorder.core.AudioRange;
+import app.independo.capacitorvoicerecorder.core.AutoStopReason;
 import app.independo.capacitorvoicerecorder.core.CurrentRecordingStatus;
 import app.independo.capacitorvoicerecorder.core.ErrorCodes;
+import app.independo.capacitorvoicerecorder.core.ProgressThrottle;
 import app.independo.capacitorvoicerecorder.core.RecordData;
 import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import app.independo.capacitorvoicerecorder.core.RecordingEntry;
+import app.independo.capacitorvoicerecorder.core.RecordingInfo;
+import app.independo.capacitorvoicerecorder.core.RecordingLimits;
+import app.independo.capacitorvoicerecorder.core.RecordingPage;
+import app.independo.capacitorvoicerecorder.core.RecoveredRecording;
+import app.independo.capacitorvoicerecorder.core.SegmentationOptions;
+import app.independo.capacitorvoicerecorder.core.SpeechRegion;
+import app.independo.capacitorvoicerecorder.core.SpeechSegmenter;
+import app.independo.capacitorvoicerecorder.core.StorageUsage;
+import app.independo.capacitorvoicerecorder.core.Tracing;
+import app.independo.capacitorvoicerecorder.core.TranscodeProfile;
+import app.independo.capacitorvoicerecorder.core.VoiceActivityOptions;
+import app.independo.capacitorvoicerecorder.platform.IncompatibleAudioFormat;
 import app.independo.capacitorvoicerecorder.platform.NotSupportedOsVersion;
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
 
-/** Service layer that orchestrates recording operations. */
+/**
+ * Service layer that orchestrates recording operations.
+ *
+ * <p>Every state transition runs on a single {@link CommandQueue}, including interruption and limit callbacks and
+ * amplitude analysis, so recorder access is serialized without locks. Status and amplitude reads use an immutable
+ * {@link RecorderState} published after each transition and never wait behind a slow stop or prepare.</p>
+ */
 public class VoiceRecorderService {
 
+    /** Audio kept before the first and after the last voiced window when trimming silence, so soft onsets survive. */
+    static final int TRIM_PADDING_MS = 200;
+    /** Name of the command thread created when no queue is supplied. */
+    private static final String COMMAND_THREAD_NAME = "VoiceRecorderCommands";
+
     /** Platform adapter that owns file and recorder creation. */
     private final RecorderPlatform platform;
     /** Permission checker injected from the bridge layer. */
     private final PermissionChecker permissionChecker;
+    /** Ticker used to drive amplitude metering for native analysis. */
+    private final AmplitudeMeter.Ticker meterTicker;
+    /** Queue that runs every state transition; the fields below are only touched on its thread. */
+    private final CommandQueue commandQueue;
+    /** Latest published state, read without going through the queue. */
+    private volatile RecorderState state = RecorderState.IDLE;
     /** Current recorder instance for an active session. */
     private RecorderAdapter recorder;
+    /** Amplitude meter for sessions that use native analysis. */
+    private AmplitudeMeter meter;
+    /** Speech segmenter for sessions that request a speech region map or silence trimming. */
+    private SpeechSegmenter speechSegmenter;
+    /** Pre-roll length while armed, or null when not armed. */
+    private Integer armedPreRollMs;
+    /** Audio captured before the active session started, prepended when it stops. */
+    private short[] sessionPreRoll;
+    /** Cookie of the trace slice spanning the active session. */
+    private int sessionTraceCookie;
+    /** Stop-time tasks that turn the recorded file into its payload. */
+    private final RecordingFinalizer finalizer;
+    /** Amplitude last sampled on the queue for sessions without a meter. */
+    private volatile double sampledAmplitude;
+    /** Whether an amplitude sample is waiting on the queue, so polling queues at most one. */
+    private final AtomicBoolean amplitudeSampleQueued = new AtomicBoolean();
+    /** Listener for microphone availability changes, or null. */
+    private volatile Consumer<Boolean> microphoneListener;
+    /** Availability last passed to the listener; only touched on the queue. */
+    private boolean reportedMicrophoneAvailable;
+    /** Recordings being read by an edit, a transcode or a queued batch job, by path, with how many hold each. */
+    private final Map<String, Integer> recordingsInUse = new ConcurrentHashMap<>();
+    /** Index of finished recordings returned by reference, or null when recordings are not catalogued. */
+    private volatile RecordingCatalog recordingCatalog;
+    /** Lifetime of recordings kept in the managed directory, or null when reference-only responses are off. */
+    private volatile ManagedRecordingCache managedRecordings;
 
     public VoiceRecorderService(RecorderPlatform platform, PermissionChecker permissionChecker) {
+        this(platform, permissionChecker, new SingleThreadCommandQueue(COMMAND_THREAD_NAME));
+    }
+
+    public VoiceRecorderService(RecorderPlatform platform, PermissionChecker permissionChecker, CommandQueue commandQueue) {
+        this(platform, permissionChecker, AmplitudeMeter.SCHEDULED_TICKER, commandQueue);
+    }
+
+    VoiceRecorderService(RecorderPlatform platform, PermissionChecker permissionChecker, AmplitudeMeter.Ticker meterTicker) {
+        this(platform, permissionChecker, meterTicker, new SingleThreadCommandQueue(COMMAND_THREAD_NAME));
+    }
+
+    VoiceRecorderService(
+        RecorderPlatform platform,
+        PermissionChecker permissionChecker,
+        AmplitudeMeter.Ticker meterTicker,
+        CommandQueue commandQueue
+    ) {
         this.platform = platform;
         this.permissionChecker = permissionChecker;
+        this.meterTicker = meterTicker;
+        this.commandQueue = commandQueue;
+        this.finalizer = new RecordingFinalizer(platform);
     }
 
     /** Returns whether the device can record audio. */
@@ -35,11 +126,503 @@ public class VoiceRecorderService {
         return permissionChecker.hasAudioPermission();
     }
 
+    /**
+     * Runs the task on the command queue. Service calls made from the task execute inline, so callers can chain
+     * work behind a transition without blocking their own thread. Returns false when the queue has shut down and
+     * the task will never run.
+     */
+    public boolean dispatch(Runnable task) {
+        try {
+            commandQueue.execute(task);
+            return true;
+        } catch (RejectedExecutionException exp) {
+            return false;
+        }
+    }
+
+    /**
+     * Reports whether the microphone is free whenever another app starts or stops recording. Changes seen while a
+     * session runs are ignored, since the session's own recorder shows up as a client; the change its recorder
+     * leaving causes then reports what other apps did meanwhile, if that differs from the last report.
+     */
+    public void setOnMicrophoneAvailabilityChanged(Consumer<Boolean> listener) {
+        microphoneListener = listener;
+        if (listener != null) {
+            // Platform changes are relative to this, so it is the baseline for the first report.
+            boolean available = !platform.isMicrophoneOccupied();
+            dispatch(() -> reportedMicrophoneAvailable = available);
+        }
+        platform.setOnMicrophoneAvailabilityChanged(listener != null ? this::onMicrophoneAvailabilityChanged : null);
+    }
+
+    /** Enables releasing and expiring recordings kept in the managed directory. */
+    public void setManagedRecordings(ManagedRecordingCache managedRecordings) {
+        this.managedRecordings = managedRecordings;
+    }
+
+    /** Enables cataloguing recordings returned by reference for {@link #listRecordings}. */
+    public void setRecordingCatalog(RecordingCatalog recordingCatalog) {
+        if (recordingCatalog != null) {
+            recordingCatalog.setInUse(file -> recordingsInUse.containsKey(file.getAbsolutePath()));
+        }
+        this.recordingCatalog = recordingCatalog;
+    }
+
+    /**
+     * Returns a page of the catalogued recordings, newest first, from one directory option or from all when
+     * {@code directory} is null. Returns an empty page when no catalog is set.
+     */
+    public RecordingPage listRecordings(int offset, int limit, String directory) throws VoiceRecorderServiceException {
+        RecordingCatalog catalog = recordingCatalog;
+        if (catalog == null) {
+            return new RecordingPage(List.of(), 0);
+        }
+        try {
+            return catalog.list(offset, limit, directory);
+        } catch (IOException exp) {
+            throw new VoiceRecorderServiceException(ErrorCodes.FAILED_TO_FETCH_RECORDING, exp);
+        }
+    }
+
+    /**
+     * Recovers recordings whose session ended without stopping, cut back to their last complete frame, and catalogues
+     * them. Returns them by reference; each is returned once.
+     */
+    public List<RecordData> recoverRecordings() {
+        List<RecordData> recovered = new ArrayList<>();
+        for (RecoveredRecording recording : platform.recoverRecordings()) {
+            File file = recording.file();
+            RecordData recordData = new RecordData(null, platform.getDurationMs(file), "audio/aac", "aac", platform.toUri(file));
+            recordData.setFile(file);
+            if (recording.directory() != null) {
+                catalog(recordData, recording.directory());
+            }
+            recovered.add(recordData);
+        }
+        return recovered;
+    }
+
+    /**
+     * Pins or unpins a catalogued recording; pinned recordings are never evicted to bring their directory back under
+     * budget. Fails with RECORDING_NOT_FOUND when the recording is not catalogued.
+     */
+    public void pinRecording(String uri, boolean pinned) throws VoiceRecorderServiceException {
+        pinRecording(uri != null ? platform.fromUri(uri) : null, pinned);
+    }
+
+    /** Pins or unpins the catalogued recording behind a file; see {@link #pinRecording(String, boolean)}. */
+    public void pinRecording(File file, boolean pinned) throws VoiceRecorderServiceException {
+        RecordingCatalog catalog = recordingCatalog;
+        try {
+            if (catalog == null || file == null || !catalog.pin(file, pinned)) {
+                throw new VoiceRecorderServiceException(ErrorCodes.RECORDING_NOT_FOUND);
+            }
+        } catch (IOException exp) {
+            throw new VoiceRecorderServiceException(ErrorCodes.FAILED_TO_FETCH_RECORDING, exp);
+        }
+    }
+
+    /** Returns the storage used per directory option by catalogued recordings; empty when no catalog is set. */
+    public List<StorageUsage> getStorageUsage() throws VoiceRecorderServiceException {
+        RecordingCatalog catalog = recordingCatalog;
+        if (catalog == null) {
+            return List.of();
+        }
+        try {
+            return catalog.getUsage();
+        } catch (IOException exp) {
+            throw new VoiceRecorderServiceException(ErrorCodes.FAILED_TO_FETCH_RECORDING, exp);
+        }
+    }
+
+    /**
+     * Deletes a recording kept in the managed directory. Returns false when the file is already gone or lives
+     * outside the managed directory, which is left untouched.
+     */
+    public boolean releaseRecording(String uri) {
+        return releaseRecording(uri != null ? platform.fromUri(uri) : null);
+    }
+
+    /** Deletes a recording kept in the managed directory, identified by its file. */
+    public boolean releaseRecording(File file) {
+        ManagedRecordingCache cache = managedRecordings;
+        if (cache == null || file == null || !file.isFile() || !cache.release(file)) {
+            return false;
+        }
+        uncatalog(file);
+        return true;
+    }
+
+    /** Deletes managed recordings older than their TTL and drops them from the catalog. */
+    public void sweepManagedRecordings() {
+        ManagedRecordingCache cache = managedRecordings;
+        if (cache != null) {
+            for (File file : cache.sweep()) {
+                uncatalog(file);
+            }
+        }
+    }
+
+    /** Disarms pre-roll, stops microphone tracking and stops the command queue once queued commands have run. */
+    public void shutdown() {
+        microphoneListener = null;
+        platform.setOnMicrophoneAvailabilityChanged(null);
+        commandQueue.execute(() -> {
+            armedPreRollMs = null;
+            platform.disarmPreRoll();
+            publishState();
+        });
+        commandQueue.shutdown();
+    }
+
+    /**
+     * Opens the microphone ahead of time and keeps the last {@code preRollMs} of audio, which is prepended to the
+     * next recording. Stays armed across recordings until {@link #disarmPreRoll()} is called.
+     */
+    public void armPreRoll(int preRollMs) throws VoiceRecorderServiceException {
+        runOnQueue(() -> {
+            arm(preRollMs);
+            return null;
+        });
+    }
+
+    /** Releases the microphone held for pre-roll. */
+    public void disarmPreRoll() {
+        runOnQueueQuietly(() -> {
+            armedPreRollMs = null;
+            platform.disarmPreRoll();
+            publishState();
+        });
+    }
+
+    /** Returns whether pre-roll capture is armed. */
+    public boolean isPreRollArmed() {
+        return state.preRollArmed();
+    }
+
     /** Starts a recording session or throws a service exception. */
     public void startRecording(
         RecordOptions options,
         Runnable onInterruptionBegan,
         Runnable onInterruptionEnded
+    ) throws VoiceRecorderServiceException {
+        startRecording(options, onInterruptionBegan, onInterruptionEnded, new RecordingEventListener() {});
+    }
+
+    /** Starts a recording session and reports native session events to the listener. */
+    public void startRecording(
+        RecordOptions options,
+        Runnable onInterruptionBegan,
+        Runnable onInterruptionEnded,
+        RecordingEventListener eventListener
+    ) throws VoiceRecorderServiceException {
+        runOnQueue(() -> {
+            Tracing.beginSection("VoiceRecorder.startSession");
+            try {
+                startSession(options, onInterruptionBegan, onInterruptionEnded, eventListener);
+            } finally {
+                Tracing.endSection();
+                publishState();
+            }
+            return null;
+        });
+    }
+
+    /** Stops the active recording session and returns the payload. */
+    public RecordData stopRecording() throws VoiceRecorderServiceException {
+        return runOnQueue(() -> {
+            Tracing.beginSection("VoiceRecorder.stopSession");
+            try {
+                return stopSession();
+            } finally {
+                Tracing.endSection();
+                publishState();
+            }
+        });
+    }
+
+    /** Pauses the active recording session. */
+    public boolean pauseRecording() throws VoiceRecorderServiceException {
+        return runOnQueue(() -> {
+            if (recorder == null) {
+                throw new VoiceRecorderServiceException(ErrorCodes.RECORDING_HAS_NOT_STARTED);
+            }
+            try {
+                return recorder.pauseRecording();
+            } catch (NotSupportedOsVersion exception) {
+                throw new VoiceRecorderServiceException(ErrorCodes.NOT_SUPPORTED_OS_VERSION, exception);
+            } finally {
+                publishState();
+            }
+        });
+    }
+
+    /** Resumes a paused recording session. */
+    public boolean resumeRecording() throws VoiceRecorderServiceException {
+        return runOnQueue(() -> {
+            if (recorder == null) {
+                throw new VoiceRecorderServiceException(ErrorCodes.RECORDING_HAS_NOT_STARTED);
+            }
+            try {
+                return recorder.resumeRecording();
+            } catch (NotSupportedOsVersion exception) {
+                throw new VoiceRecorderServiceException(ErrorCodes.NOT_SUPPORTED_OS_VERSION, exception);
+            } finally {
+                publishState();
+            }
+        });
+    }
+
+    /**
+     * Re-encodes a recording returned by reference into the profile and returns the new file by reference. Progress
+     * is throttled before it reaches the listener. Runs on the calling thread without touching the recorder, so it
+     * can run while another session records.
+     */
+    public RecordData transcodeRecording(String uri, TranscodeProfile profile, DoubleConsumer onProgress)
+        throws VoiceRecorderServiceException {
+        if (profile == null || !profile.isSupported()) {
+            throw new VoiceRecorderServiceException(ErrorCodes.INVALID_TRANSCODE_PROFILE);
+        }
+        File source = resolveAndHold(uri);
+
+        ProgressThrottle throttle = new ProgressThrottle();
+        File output;
+        try {
+            output = platform.transcode(source, profile, progress -> {
+                if (throttle.shouldReport(progress, System.nanoTime() / 1_000_000)) {
+                    onProgress.accept(progress);
+                }
+            });
+        } catch (NotSupportedOsVersion exception) {
+            throw new VoiceRecorderServiceException(ErrorCodes.NOT_SUPPORTED_OS_VERSION, exception);
+        } catch (Exception exception) {
+            throw new VoiceRecorderServiceException(ErrorCodes.FAILED_TO_TRANSCODE, exception);
+        } finally {
+            unhold(source);
+        }
+        return new RecordData(
+            null,
+            platform.getDurationMs(output),
+            profile.mimeType(),
+            profile.fileExtension(),
+            platform.toUri(output)
+        );
+    }
+
+    /**
+     * Copies the frames covering [startMs, endMs) of a recording into a new file without re-encoding and returns it
+     * by reference. The cut snaps outwards to frame boundaries, about 23 ms at 44.1 kHz.
+     */
+    public RecordData trimRecording(String uri, long startMs, long endMs) throws VoiceRecorderServiceException {
+        return trimRecording(uri, startMs, endMs, "-trim-" + startMs + "-" + endMs);
+    }
+
+    /** Copies the frames from startMs to the end of a recording into a new file; see {@link #trimRecording}. */
+    public RecordData trimRecording(String uri, long startMs) throws VoiceRecorderServiceException {
+        return trimRecording(uri, startMs, Long.MAX_VALUE, "-trim-" + startMs + "-end");
+    }
+
+    private RecordData trimRecording(String uri, long startMs, long endMs, String suffix) throws VoiceRecorderServiceException {
+        if (startMs < 0 || endMs <= startMs) {
+            resolveRecording(uri);
+            throw new VoiceRecorderServiceException(ErrorCodes.INVALID_RANGE);
+        }
+        File source = resolveAndHold(uri);
+        File output;
+        try {
+            output = platform.extractAudioRange(source, startMs, endMs, suffix);
+        } finally {
+            unhold(source);
+        }
+        if (output == null) {
+            throw new VoiceRecorderServiceException(ErrorCodes.FAILED_TO_EDIT_RECORDING);
+        }
+        return toEditedRecordData(output);
+    }
+
+    /** Joins recordings in order into a new file without re-encoding and returns it by reference. */
+    public RecordData concatRecordings(List<String> uris) throws VoiceRecorderServiceException {
+        if (uris == null || uris.isEmpty()) {
+            throw new VoiceRecorderServiceException(ErrorCodes.RECORDING_NOT_FOUND);
+        }
+        List<File> sources = new ArrayList<>();
+        File output;
+        try {
+            for (String uri : uris) {
+                sources.add(resolveAndHold(uri));
+            }
+            output = platform.concatAudio(sources);
+        } catch (VoiceRecorderServiceException exception) {
+            throw exception;
+        } catch (IncompatibleAudioFormat exception) {
+            throw new VoiceRecorderServiceException(ErrorCodes.INCOMPATIBLE_RECORDINGS, exception);
+        } catch (Exception exception) {
+            throw new VoiceRecorderServiceException(ErrorCodes.FAILED_TO_EDIT_RECORDING, exception);
+        } finally {
+            sources.forEach(this::unhold);
+        }
+        return toEditedRecordData(output);
+    }
+
+    /** Returns duration, size and format of a recording returned by reference, without decoding it. */
+    public RecordingInfo getRecordingInfo(String uri) throws VoiceRecorderServiceException {
+        RecordingInfo info = platform.getRecordingInfo(resolveRecording(uri));
+        if (info == null) {
+            throw new VoiceRecorderServiceException(ErrorCodes.FAILED_TO_FETCH_RECORDING);
+        }
+        return info;
+    }
+
+    /** Returns how many batch transcodes into the profile should run at once. */
+    public int getTranscodeParallelism(TranscodeProfile profile) {
+        return Math.max(1, platform.getMaxParallelTranscodes(profile));
+    }
+
+    /** Returns the file behind a recording URI, or fails with RECORDING_NOT_FOUND. */
+    private File resolveRecording(String uri) throws VoiceRecorderServiceException {
+        File file = uri != null ? platform.fromUri(uri) : null;
+        if (file == null || !file.isFile()) {
+            throw new VoiceRecorderServiceException(ErrorCodes.RECORDING_NOT_FOUND);
+        }
+        RecordingCatalog catalog = recordingCatalog;
+        if (catalog != null) {
+            try {
+                catalog.touch(file);
+            } catch (IOException ignore) {
+                // A lost access only makes the recording an earlier eviction candidate.
+            }
+        }
+        return file;
+    }
+
+    /** Resolves a recording like {@link #resolveRecording} and holds it against eviction until {@link #unhold}. */
+    private File resolveAndHold(String uri) throws VoiceRecorderServiceException {
+        File file = uri != null ? platform.fromUri(uri) : null;
+        if (file != null) {
+            hold(file);
+        }
+        try {
+            return resolveRecording(uri);
+        } catch (VoiceRecorderServiceException exp) {
+            if (file != null) {
+                unhold(file);
+            }
+            throw exp;
+        }
+    }
+
+    /** Keeps the recording behind a URI from being evicted, for a queued job; undo with {@link #unholdRecording}. */
+    void holdRecording(String uri) {
+        File file = platform.fromUri(uri);
+        if (file != null) {
+            hold(file);
+        }
+    }
+
+    /** Releases one {@link #holdRecording} of the recording behind a URI. */
+    void unholdRecording(String uri) {
+        File file = platform.fromUri(uri);
+        if (file != null) {
+            unhold(file);
+        }
+    }
+
+    private void hold(File file) {
+        recordingsInUse.merge(file.getAbsolutePath(), 1, Integer::sum);
+    }
+
+    private void unhold(File file) {
+        recordingsInUse.computeIfPresent(file.getAbsolutePath(), (path, holds) -> holds > 1 ? holds - 1 : null);
+    }
+
+    /** Describes an edited ADTS file by reference. */
+    private RecordData toEditedRecordData(File output) {
+        return new RecordData(null, platform.getDurationMs(output), "audio/aac", "aac", platform.toUri(output));
+    }
+
+    /** Returns the size in bytes of the recording behind a URI, or -1 if it cannot be found. */
+    long getRecordingSize(String uri) {
+        File file = platform.fromUri(uri);
+        return file != null && file.isFile() ? file.length() : -1;
+    }
+
+    /** Returns the current recording status from the latest published state, without waiting for the queue. */
+    public CurrentRecordingStatus getCurrentStatus() {
+        return state.status();
+    }
+
+    /** Returns the file the active session is writing, or null when idle, without waiting for the queue. */
+    public File getActiveOutputFile() {
+        RecorderAdapter active = state.recorder();
+        return active != null ? active.getOutputFile() : null;
+    }
+
+    /** Returns the current input amplitude normalized to [0, 1], without waiting for the queue. */
+    public double getCurrentAmplitude() {
+        RecorderState current = state;
+        if (current.status() != CurrentRecordingStatus.RECORDING) {
+            return 0;
+        }
+        if (current.meter() != null) {
+            // The meter drains MediaRecorder's max-amplitude counter every window, so reuse its latest reading.
+            return current.meter().getLastLevel();
+        }
+        // The recorder may only be touched on the queue, where it cannot be stopped or released mid-read.
+        if (commandQueue.isQueueThread()) {
+            sampleAmplitude();
+        } else if (amplitudeSampleQueued.compareAndSet(false, true)) {
+            try {
+                commandQueue.execute(() -> {
+                    amplitudeSampleQueued.set(false);
+                    sampleAmplitude();
+                });
+            } catch (RejectedExecutionException exp) {
+                amplitudeSampleQueued.set(false);
+            }
+        }
+        return sampledAmplitude;
+    }
+
+    /** Reads the active recorder's amplitude into {@link #sampledAmplitude}; runs on the queue. */
+    private void sampleAmplitude() {
+        sampledAmplitude = recorder != null && recorder.getCurrentStatus() == CurrentRecordingStatus.RECORDING
+            ? recorder.getCurrentAmplitude()
+            : 0;
+    }
+
+    /** Arms pre-roll capture; runs on the queue. */
+    private void arm(int preRollMs) throws VoiceRecorderServiceException {
+        try {
+            if (!platform.canDeviceVoiceRecord()) {
+                throw new VoiceRecorderServiceException(ErrorCodes.DEVICE_CANNOT_VOICE_RECORD);
+            }
+
+            if (!permissionChecker.hasAudioPermission()) {
+                throw new VoiceRecorderServiceException(ErrorCodes.MISSING_PERMISSION);
+            }
+
+            if (recorder != null) {
+                throw new VoiceRecorderServiceException(ErrorCodes.ALREADY_RECORDING);
+            }
+
+            try {
+                platform.armPreRoll(preRollMs);
+                armedPreRollMs = preRollMs;
+            } catch (Exception exp) {
+                armedPreRollMs = null;
+                throw new VoiceRecorderServiceException(ErrorCodes.FAILED_TO_RECORD, exp);
+            }
+        } finally {
+            publishState();
+        }
+    }
+
+    /** Creates and starts the recorder for a new session; runs on the queue. */
+    private void startSession(
+        RecordOptions options,
+        Runnable onInterruptionBegan,
+        Runnable onInterruptionEnded,
+        RecordingEventListener eventListener
     ) throws VoiceRecorderServiceException {
         if (!platform.canDeviceVoiceRecord()) {
             throw new VoiceRecorderServiceException(ErrorCodes.DEVICE_CANNOT_VOICE_RECORD);
@@ -49,31 +632,126 @@ public class VoiceRecorderService {
             throw new VoiceRecorderServiceException(ErrorCodes.MISSING_PERMISSION);
         }
 
+        if (recorder != null) {
+            throw new VoiceRecorderServiceException(ErrorCodes.ALREADY_RECORDING);
+        }
+
+        // Encrypted output is never decrypted to disk, so steps that rewrite the finished file cannot run on it.
+        if (options != null && options.isEncrypted() && (options.trimSilence() || splitsOutput(options))) {
+            throw new VoiceRecorderServiceException(ErrorCodes.UNSUPPORTED_WITH_ENCRYPTION);
+        }
+        if (options != null && options.proxy() != null) {
+            validateProxy(options);
+        }
+        // An inline payload deletes its recording on stop, and nothing would ever delete the utterances beside it.
+        if (options != null && options.directory() == null && splitsOutput(options)) {
+            throw new VoiceRecorderServiceException(ErrorCodes.SPLIT_OUTPUT_REQUIRES_DIRECTORY);
+        }
+
+        // Checked after the active session, which the platform counts as a recording client like any other.
         if (platform.isMicrophoneOccupied()) {
             throw new VoiceRecorderServiceException(ErrorCodes.MICROPHONE_BEING_USED);
         }
 
-        if (recorder != null) {
-            throw new VoiceRecorderServiceException(ErrorCodes.ALREADY_RECORDING);
+        // The pre-roll capture keeps filling until the recorder is running, so audio spoken during setup is kept.
+        // Its length is not known until then, so the limits reserve the whole armed window. Prepending rewrites the
+        // recording alone, so encrypted and proxied sessions still stop the capture but drop the retained audio.
+        boolean keepsPreRoll = armedPreRollMs != null
+            && (options == null || (!options.isEncrypted() && options.proxy() == null));
+        RecordOptions sessionOptions = reserveLimitsForPreRoll(options, keepsPreRoll ? armedPreRollMs : 0);
+        short[] preRoll = null;
+        try {
+            startRecorder(sessionOptions, onInterruptionBegan, onInterruptionEnded, eventListener);
+        } catch (RecorderNotStartedException exp) {
+            if (armedPreRollMs == null) {
+                throw exp;
+            }
+            // Before Android 10 a second capture cannot open a microphone that is already held; hand it over.
+            // Failures to create the recorder would only repeat, so they keep the armed audio.
+            preRoll = platform.takePreRoll();
+            try {
+                startRecorder(sessionOptions, onInterruptionBegan, onInterruptionEnded, eventListener);
+            } catch (VoiceRecorderServiceException retryExp) {
+                rearmPreRoll();
+                throw retryExp;
+            }
+        }
+        if (armedPreRollMs != null && preRoll == null) {
+            preRoll = platform.takePreRoll();
         }
+        sessionPreRoll = keepsPreRoll ? preRoll : null;
+        Tracing.beginAsyncSection("VoiceRecorder.session", ++sessionTraceCookie);
+
+        startMeter(options, eventListener);
+    }
 
+    /**
+     * Creates the session recorder, wires its callbacks through the queue and starts it; runs on the queue. A recorder
+     * that was created but failed to start, as MediaRecorder does when another capture holds the microphone, is
+     * stopped and its file deleted, and the failure is reported as {@link RecorderNotStartedException}.
+     */
+    private void startRecorder(
+        RecordOptions options,
+        Runnable onInterruptionBegan,
+        Runnable onInterruptionEnded,
+        RecordingEventListener eventListener
+    ) throws VoiceRecorderServiceException {
         try {
             recorder = platform.createRecorder(options);
-            recorder.setOnInterruptionBegan(onInterruptionBegan);
-            recorder.setOnInterruptionEnded(onInterruptionEnded);
-            recorder.startRecording();
+        } catch (NotSupportedOsVersion exp) {
+            recorder = null;
+            throw new VoiceRecorderServiceException(ErrorCodes.NOT_SUPPORTED_OS_VERSION, exp);
         } catch (Exception exp) {
             recorder = null;
             throw new VoiceRecorderServiceException(ErrorCodes.FAILED_TO_RECORD, exp);
         }
+        RecorderAdapter sessionRecorder = recorder;
+        try {
+            // System callbacks arrive on other threads; routing them through the queue serializes them with
+            // bridge commands, and the wrappers republish the state they changed.
+            recorder.setCallbackExecutor(commandQueue);
+            recorder.setOnInterruptionBegan(() -> {
+                publishState();
+                onInterruptionBegan.run();
+            });
+            recorder.setOnInterruptionEnded(() -> {
+                publishState();
+                onInterruptionEnded.run();
+            });
+            recorder.setOnLimitReached(reason -> autoStop(sessionRecorder, reason, eventListener));
+            recorder.startRecording();
+        } catch (RuntimeException exp) {
+            recorder = null;
+            // Releases what the recorder already holds: its codec, audio focus, pump and checkpoint threads.
+            try {
+                sessionRecorder.stopRecording();
+            } catch (RuntimeException ignore) {}
+            sessionRecorder.deleteOutputFile();
+            throw new RecorderNotStartedException(exp);
+        }
     }
 
-    /** Stops the active recording session and returns the payload. */
-    public RecordData stopRecording() throws VoiceRecorderServiceException {
+    /** A created recorder failed to start; before Android 10 this is how a microphone held by pre-roll shows. */
+    private static final class RecorderNotStartedException extends VoiceRecorderServiceException {
+        RecorderNotStartedException(Exception cause) {
+            super(ErrorCodes.FAILED_TO_RECORD, cause);
+        }
+    }
+
+    /** Stops the recorder and finalizes the payload; runs on the queue. */
+    private RecordData stopSession() throws VoiceRecorderServiceException {
         if (recorder == null) {
             throw new VoiceRecorderServiceException(ErrorCodes.RECORDING_HAS_NOT_STARTED);
         }
 
+        // Readers see the session as finished before the potentially slow stop begins.
+        state = new RecorderState(CurrentRecordingStatus.NONE, null, null, armedPreRollMs != null);
+        Tracing.endAsyncSection("VoiceRecorder.session", sessionTraceCookie);
+        stopMeter();
+        SpeechSegmenter segmenter = speechSegmenter;
+        speechSegmenter = null;
+        short[] preRoll = sessionPreRoll;
+        sessionPreRoll = null;
         RecordOptions options = recorder.getRecordOptions();
 
         try {
@@ -83,19 +761,31 @@ public class VoiceRecorderService {
                 throw new VoiceRecorderServiceException(ErrorCodes.FAILED_TO_FETCH_RECORDING);
             }
 
-            String recordDataBase64 = null;
-            String uri = null;
-            if (options.directory() != null) {
-                uri = platform.toUri(recordedFile);
-            } else {
-                recordDataBase64 = platform.readFileAsBase64(recordedFile);
+            // Metered positions start with MediaRecorder; this tracks where they sit in the final file.
+            long timelineOffsetMs = prependPreRoll(recordedFile, preRoll);
+
+            // Trim before the payload is read so the silent frames are never encoded or returned.
+            AudioRange keptRange = options.trimSilence() && segmenter != null
+                ? trimSilence(segmenter, recordedFile, timelineOffsetMs)
+                : null;
+            if (keptRange != null) {
+                timelineOffsetMs -= keptRange.startMs();
             }
 
-            int duration = platform.getDurationMs(recordedFile);
-            RecordData recordData = new RecordData(recordDataBase64, duration, "audio/aac", "aac", uri);
-            if ((recordDataBase64 == null && uri == null) || recordData.getMsDuration() < 0) {
+            RecordData recordData = finalizer.run(recordedFile, recorder.getProxyFile(), options, recordingCatalog != null);
+            if ((recordData.getRecordDataBase64Bytes() == null && recordData.getUri() == null) || recordData.getMsDuration() < 0) {
                 throw new VoiceRecorderServiceException(ErrorCodes.EMPTY_RECORDING);
             }
+            // Splitting writes files next to the recording, so it waits until the payload is known to be valid.
+            if (options.segmentation() != null) {
+                recordData.setSpeechRegions(
+                    finishSegmentation(segmenter, recordedFile, options.segmentation(), timelineOffsetMs, recordData.getMsDuration())
+                );
+            }
+            recordData.setEncoderSettings(recorder.getEncoderSettings());
+            if (recordData.getFile() != null) {
+                catalog(recordData, options.directory());
+            }
 
             return recordData;
         } catch (VoiceRecorderServiceException exp) {
@@ -107,46 +797,294 @@ public class VoiceRecorderService {
                 recorder.deleteOutputFile();
             }
             recorder = null;
+            rearmPreRoll();
         }
     }
 
-    /** Pauses the active recording session. */
-    public boolean pauseRecording() throws VoiceRecorderServiceException {
-        if (recorder == null) {
-            throw new VoiceRecorderServiceException(ErrorCodes.RECORDING_HAS_NOT_STARTED);
+    /** Reports a platform availability change from the queue, where it is ordered with session starts and stops. */
+    private void onMicrophoneAvailabilityChanged(boolean available) {
+        try {
+            commandQueue.execute(() -> {
+                Consumer<Boolean> listener = microphoneListener;
+                if (listener == null || recorder != null || available == reportedMicrophoneAvailable) {
+                    return;
+                }
+                reportedMicrophoneAvailable = available;
+                listener.accept(available);
+            });
+        } catch (RejectedExecutionException ignore) {
+            // Shut down; nobody is listening any more.
         }
+    }
+
+    /** Adds a recording returned by reference to the catalog; a failed write only leaves it unlisted. */
+    private void catalog(RecordData recordData, String directory) {
+        RecordingCatalog catalog = recordingCatalog;
+        if (catalog == null) {
+            return;
+        }
+        File recordedFile = recordData.getFile();
         try {
-            return recorder.pauseRecording();
-        } catch (NotSupportedOsVersion exception) {
-            throw new VoiceRecorderServiceException(ErrorCodes.NOT_SUPPORTED_OS_VERSION, exception);
+            catalog.add(
+                recordedFile,
+                new RecordingEntry(
+                    recordData.getUri(),
+                    directory,
+                    recordedFile.length(),
+                    recordData.getMsDuration(),
+                    recordData.getMimeType(),
+                    recordData.getFileExtension(),
+                    System.currentTimeMillis(),
+                    recordData.getSha256(),
+                    recordData.getWaveformUri(),
+                    false
+                )
+            );
+        } catch (IOException ignore) {}
+    }
+
+    private void uncatalog(File file) {
+        RecordingCatalog catalog = recordingCatalog;
+        if (catalog != null) {
+            try {
+                catalog.remove(file);
+            } catch (IOException ignore) {
+                // The entry is dropped when a page finds its file missing.
+            }
         }
     }
 
-    /** Resumes a paused recording session. */
-    public boolean resumeRecording() throws VoiceRecorderServiceException {
-        if (recorder == null) {
-            throw new VoiceRecorderServiceException(ErrorCodes.RECORDING_HAS_NOT_STARTED);
+    /** Starts amplitude metering when the options request native analysis. */
+    private void startMeter(RecordOptions options, RecordingEventListener eventListener) {
+        if (options == null) {
+            return;
+        }
+        VoiceActivityOptions voiceActivity = options.voiceActivity();
+        boolean detectVoiceActivity = voiceActivity != null && voiceActivity.isEnabled();
+        SegmentationOptions segmentation = options.segmentation();
+        if (!detectVoiceActivity && segmentation == null && !options.trimSilence()) {
+            return;
+        }
+
+        RecorderAdapter sessionRecorder = recorder;
+        // Windows are sampled on the queue so analysis and any auto-stop it triggers are ordered with other commands.
+        AmplitudeMeter.Ticker queuedTicker = (tick, periodMs) -> meterTicker.start(() -> runOnQueueQuietly(tick), periodMs);
+        meter = new AmplitudeMeter(sessionRecorder, AmplitudeMeter.DEFAULT_WINDOW_MS, queuedTicker);
+        if (detectVoiceActivity) {
+            meter.addListener(
+                new VoiceActivityTracker(
+                    meter.getWindowMs(),
+                    voiceActivity,
+                    eventListener,
+                    reason -> autoStop(sessionRecorder, reason, eventListener)
+                )
+            );
+        }
+        if (segmentation != null || options.trimSilence()) {
+            speechSegmenter = new SpeechSegmenter(
+                meter.getWindowMs(),
+                segmentation != null ? segmentation : SegmentationOptions.of(null, null, false)
+            );
+            meter.addListener(speechSegmenter::onWindow);
+        }
+        meter.start();
+    }
+
+    /** Rejects proxy sessions whose options the dual-output recorder cannot honour. */
+    private static void validateProxy(RecordOptions options) throws VoiceRecorderServiceException {
+        if (!options.proxy().isSupported()) {
+            throw new VoiceRecorderServiceException(ErrorCodes.INVALID_TRANSCODE_PROFILE);
+        }
+        if (options.isEncrypted()) {
+            throw new VoiceRecorderServiceException(ErrorCodes.UNSUPPORTED_WITH_ENCRYPTION);
+        }
+        // Trimming and splitting rewrite the recording after stop, which would leave the proxy out of step with it.
+        if (options.trimSilence() || splitsOutput(options)) {
+            throw new VoiceRecorderServiceException(ErrorCodes.UNSUPPORTED_WITH_PROXY);
+        }
+    }
+
+    private static boolean splitsOutput(RecordOptions options) {
+        return options.segmentation() != null && options.segmentation().splitOutput();
+    }
+
+    /** Shrinks the recorder limits by the pre-roll that will be prepended, so the final file stays within them. */
+    private static RecordOptions reserveLimitsForPreRoll(RecordOptions options, long preRollMs) {
+        RecordingLimits limits = options != null ? options.limits() : null;
+        if (limits == null || !limits.isEnabled() || preRollMs <= 0) {
+            return options;
+        }
+        return options.withLimits(limits.reservedFor(preRollMs));
+    }
+
+    /** Prepends the pre-roll audio and returns its duration, or 0 when there is none or it could not be added. */
+    private long prependPreRoll(File recordedFile, short[] preRoll) {
+        if (preRoll == null || preRoll.length == 0) {
+            return 0;
+        }
+        return Math.max(0, platform.prependPreRoll(recordedFile, preRoll));
+    }
+
+    /** Resumes pre-roll capture after a session ends while armed; failures leave the service disarmed. */
+    private void rearmPreRoll() {
+        if (armedPreRollMs == null) {
+            return;
         }
         try {
-            return recorder.resumeRecording();
-        } catch (NotSupportedOsVersion exception) {
-            throw new VoiceRecorderServiceException(ErrorCodes.NOT_SUPPORTED_OS_VERSION, exception);
+            platform.armPreRoll(armedPreRollMs);
+        } catch (Exception exp) {
+            armedPreRollMs = null;
         }
     }
 
-    /** Returns the current recording status. */
-    public CurrentRecordingStatus getCurrentStatus() {
-        if (recorder == null) {
-            return CurrentRecordingStatus.NONE;
+    /** Cuts leading and trailing silence from the recording and returns the kept span, or null if unchanged. */
+    private AudioRange trimSilence(SpeechSegmenter segmenter, File recordedFile, long timelineOffsetMs) {
+        AudioRange voicedRange = segmenter.getVoicedRange();
+        if (voicedRange == null) {
+            // Nothing but silence: keep the recording rather than returning an empty file.
+            return null;
         }
-        return recorder.getCurrentStatus();
+        return platform.trimAudio(
+            recordedFile,
+            Math.max(0, timelineOffsetMs + voicedRange.startMs() - TRIM_PADDING_MS),
+            timelineOffsetMs + voicedRange.endMs() + TRIM_PADDING_MS
+        );
     }
 
-    /** Returns the current input amplitude normalized to [0, 1]. */
-    public double getCurrentAmplitude() {
+    /**
+     * Closes the speech region map and, when requested, writes one file per utterance. Regions are shifted into the
+     * timeline of the final file when pre-roll was prepended or silence was cut.
+     */
+    private List<SpeechRegion> finishSegmentation(
+        SpeechSegmenter segmenter,
+        File recordedFile,
+        SegmentationOptions segmentation,
+        long timelineOffsetMs,
+        long durationMs
+    ) {
+        List<SpeechRegion> regions = segmenter.finish();
+        if (timelineOffsetMs != 0) {
+            regions = shiftRegions(regions, timelineOffsetMs, durationMs);
+        }
+        if (!segmentation.splitOutput()) {
+            return regions;
+        }
+
+        List<SpeechRegion> splitRegions = new ArrayList<>(regions.size());
+        for (int i = 0; i < regions.size(); i++) {
+            SpeechRegion region = regions.get(i);
+            File utteranceFile = platform.extractAudioRange(recordedFile, region.startMs(), region.endMs(), "-utterance-" + (i + 1));
+            splitRegions.add(utteranceFile != null ? region.withUri(platform.toUri(utteranceFile)) : region);
+        }
+        return splitRegions;
+    }
+
+    /** Moves regions by the offset, clamped to the length of the final file. */
+    private static List<SpeechRegion> shiftRegions(List<SpeechRegion> regions, long offsetMs, long lengthMs) {
+        List<SpeechRegion> shifted = new ArrayList<>(regions.size());
+        for (SpeechRegion region : regions) {
+            long start = Math.min(lengthMs, Math.max(0, region.startMs() + offsetMs));
+            long end = Math.min(lengthMs, Math.max(start, region.endMs() + offsetMs));
+            shifted.add(new SpeechRegion(start, end, region.meanEnergy(), region.uri()));
+        }
+        return shifted;
+    }
+
+    /** Stops amplitude metering for the current session. */
+    private void stopMeter() {
+        if (meter != null) {
+            meter.stop();
+            meter = null;
+        }
+    }
+
+    /** Finalizes the given session natively unless it has already been stopped. */
+    private void autoStop(RecorderAdapter sessionRecorder, AutoStopReason reason, RecordingEventListener eventListener) {
+        runOnQueueQuietly(() -> {
+            if (recorder != sessionRecorder) {
+                return;
+            }
+            RecordData recordData;
+            try {
+                recordData = stopSession();
+            } catch (VoiceRecorderServiceException exception) {
+                eventListener.onAutoStopFailed(reason, exception);
+                return;
+            } finally {
+                publishState();
+            }
+            eventListener.onAutoStopped(reason, recordData);
+        });
+    }
+
+    /** Publishes an immutable snapshot of the queue-owned fields for lock-free reads. */
+    private void publishState() {
+        boolean preRollArmed = armedPreRollMs != null;
         if (recorder == null) {
-            return 0;
+            sampledAmplitude = 0;
+            state = preRollArmed ? new RecorderState(CurrentRecordingStatus.NONE, null, null, true) : RecorderState.IDLE;
+        } else {
+            state = new RecorderState(recorder.getCurrentStatus(), recorder, meter, preRollArmed);
+        }
+    }
+
+    /** Runs the command on the queue and waits for its result; runs inline when already on the queue. */
+    private <T> T runOnQueue(Command<T> command) throws VoiceRecorderServiceException {
+        if (commandQueue.isQueueThread()) {
+            return command.run();
         }
-        return recorder.getCurrentAmplitude();
+        FutureTask<T> task = new FutureTask<>(command::run);
+        commandQueue.execute(task);
+        try {
+            return awaitUninterruptibly(task);
+        } catch (ExecutionException exp) {
+            Throwable cause = exp.getCause();
+            if (cause instanceof VoiceRecorderServiceException serviceException) {
+                throw serviceException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /** Runs the task on the queue and waits for it; does nothing once the queue has been shut down. */
+    private void runOnQueueQuietly(Runnable task) {
+        if (commandQueue.isQueueThread()) {
+            task.run();
+            return;
+        }
+        FutureTask<Void> future = new FutureTask<>(task, null);
+        try {
+            commandQueue.execute(future);
+            awaitUninterruptibly(future);
+        } catch (RejectedExecutionException | ExecutionException ignore) {}
+    }
+
+    /** Waits for the task; the command runs regardless, so an interrupt only gets restored afterwards. */
+    private static <T> T awaitUninterruptibly(FutureTask<T> task) throws ExecutionException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException exp) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** A queued command that may fail with a service exception. */
+    private interface Command<T> {
+        T run() throws VoiceRecorderServiceException;
     }
 }
@@ -6,13 +6,14 @@ import static org.junit.Assert.assertTrue;
 
 import app.independo.capacitorvoicerecorder.core.RecordData;
 import com.getcapacitor.JSObject;
+import java.nio.charset.StandardCharsets;
 import org.junit.Test;
 
 public class RecordDataMapperTest {
 
     @Test
     public void toLegacyJSObjectCopiesAllFields() {
-        RecordData recordData = new RecordData("BASE64", 1200, "audio/aac", "file:///tmp/recording.aac");
+        RecordData recordData = new RecordData(ascii("BASE64"), 1200, "audio/aac", "file:///tmp/recording.aac");
 
         JSObject result = RecordDataMapper.toLegacyJSObject(recordData);
 
@@ -25,7 +26,7 @@ public class RecordDataMapperTest {
 
     @Test
     public void toNormalizedJSObjectPrefersUriOverBase64() {
-        RecordData recordData = new RecordData("BASE64", 1200, "audio/aac", "file:///tmp/recording.aac");
+        RecordData recordData = new RecordData(ascii("BASE64"), 1200, "audio/aac", "file:///tmp/recording.aac");
 
         JSObject result = RecordDataMapper.toNormalizedJSObject(recordData);
 
@@ -37,7 +38,7 @@ public class RecordDataMapperTest {
 
     @Test
     public void toNormalizedJSObjectUsesBase64WhenUriMissing() {
-        RecordData recordData = new RecordData("BASE64", 1200, "audio/aac", null);
+        RecordData recordData = new RecordData(ascii("BASE64"), 1200, "audio/aac", null);
 
         JSObject result = RecordDataMapper.toNormalizedJSObject(recordData);
 
@@ -49,7 +50,7 @@ public class RecordDataMapperTest {
 
     @Test
     public void toNormalizedJSObjectOmitsEmptyBase64() {
-        RecordData recordData = new RecordData("", 1200, "audio/aac", null);
+        RecordData recordData = new RecordData(ascii(""), 1200, "audio/aac", null);
 
         JSObject result = RecordDataMapper.toNormalizedJSObject(recordData);
 
@@ -57,4 +58,8 @@ public class RecordDataMapperTest {
         assertEquals("aac", result.optString("fileExtension"));
         assertFalse(result.has("uri"));
     }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
 }
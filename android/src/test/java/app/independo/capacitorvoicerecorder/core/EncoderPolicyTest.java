@@ -0,0 +1,31 @@
+package app.independo.capacitorvoicerecorder.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+public class EncoderPolicyTest {
+
+    @Test
+    public void selectsTierFromThermalStatusAndBatterySaver() {
+        assertEquals(EncoderPolicy.STANDARD, EncoderPolicy.select(0, false));
+        assertEquals(EncoderPolicy.STANDARD, EncoderPolicy.select(1, false));
+        assertEquals(EncoderPolicy.REDUCED, EncoderPolicy.select(0, true));
+        assertEquals(EncoderPolicy.REDUCED, EncoderPolicy.select(EncoderPolicy.THERMAL_STATUS_MODERATE, false));
+        assertEquals(EncoderPolicy.MINIMAL, EncoderPolicy.select(EncoderPolicy.THERMAL_STATUS_SEVERE, true));
+        assertEquals(EncoderPolicy.MINIMAL, EncoderPolicy.select(6, false));
+    }
+
+    @Test
+    public void settingsSerializeTheChosenTierAndDeviceState() throws JSONException {
+        EncoderSettings settings = EncoderSettings.forDeviceState(EncoderPolicy.THERMAL_STATUS_MODERATE, false);
+
+        assertEquals("REDUCED", settings.toJSObject().getString("policy"));
+        assertEquals(32_000, settings.toJSObject().getInt("sampleRate"));
+        assertEquals(64_000, settings.toJSObject().getInt("bitRate"));
+        assertEquals(2, settings.toJSObject().getInt("thermalStatus"));
+        assertFalse(settings.toJSObject().getBoolean("powerSaveMode"));
+    }
+}
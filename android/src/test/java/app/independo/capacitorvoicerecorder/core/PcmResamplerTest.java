@@ -0,0 +1,110 @@
+package app.independo.capacitorvoicerecorder.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+public class PcmResamplerTest {
+
+    @Test
+    public void equalRatesPassThrough() {
+        PcmResampler resampler = new PcmResampler(16_000, 16_000);
+        short[] input = { 1, -2, 3, -4 };
+        short[] output = new short[resampler.maxOutputLength(input.length)];
+
+        int written = resampler.process(input, 0, input.length, output);
+
+        assertEquals(4, written);
+        assertArrayEquals(input, Arrays.copyOf(output, written));
+    }
+
+    @Test
+    public void outputLengthFollowsRateRatio() {
+        short[] output = resampleAll(tone(44_100, 1_000, 44_100, 8_000), 44_100, 16_000, 4_096);
+
+        assertEquals(16_000, output.length);
+    }
+
+    @Test
+    public void constantSignalKeepsItsLevel() {
+        short[] input = new short[44_100];
+        Arrays.fill(input, (short) 10_000);
+
+        short[] output = resampleAll(input, 44_100, 16_000, 4_096);
+
+        for (int i = 200; i < output.length - 200; i++) {
+            assertEquals(10_000, output[i], 2);
+        }
+    }
+
+    @Test
+    public void toneInsidePassbandIsKept() {
+        short[] output = resampleAll(tone(44_100, 1_000, 44_100, 8_000), 44_100, 16_000, 4_096);
+
+        double rms = rms(output, 500, output.length - 500);
+        assertEquals(8_000 / Math.sqrt(2), rms, 150);
+    }
+
+    @Test
+    public void toneAboveNewNyquistIsRemoved() {
+        short[] output = resampleAll(tone(44_100, 11_000, 44_100, 8_000), 44_100, 16_000, 4_096);
+
+        assertTrue(rms(output, 500, output.length - 500) < 60);
+    }
+
+    @Test
+    public void chunkingDoesNotChangeOutput() {
+        short[] input = tone(44_100, 440, 22_050, 12_000);
+
+        short[] whole = resampleAll(input, 44_100, 16_000, input.length);
+        short[] chunked = resampleAll(input, 44_100, 16_000, 333);
+
+        assertArrayEquals(whole, chunked);
+    }
+
+    @Test
+    public void upsamplingDoublesLength() {
+        short[] output = resampleAll(tone(8_000, 300, 8_000, 8_000), 8_000, 16_000, 1_000);
+
+        assertEquals(16_000, output.length);
+        assertEquals(8_000 / Math.sqrt(2), rms(output, 500, output.length - 500), 150);
+    }
+
+    private static short[] resampleAll(short[] input, int inputRate, int outputRate, int chunk) {
+        PcmResampler resampler = new PcmResampler(inputRate, outputRate);
+        short[] buffer = new short[resampler.maxOutputLength(chunk)];
+        short[] result = new short[0];
+        for (int offset = 0; offset < input.length; offset += chunk) {
+            int length = Math.min(chunk, input.length - offset);
+            int written = resampler.process(input, offset, length, buffer);
+            result = append(result, buffer, written);
+        }
+        int written = resampler.flush(buffer);
+        return append(result, buffer, written);
+    }
+
+    private static short[] append(short[] result, short[] buffer, int count) {
+        short[] joined = Arrays.copyOf(result, result.length + count);
+        System.arraycopy(buffer, 0, joined, result.length, count);
+        return joined;
+    }
+
+    private static short[] tone(int sampleRate, double frequency, int samples, int amplitude) {
+        short[] pcm = new short[samples];
+        for (int i = 0; i < samples; i++) {
+            pcm[i] = (short) Math.round(amplitude * Math.sin(2 * Math.PI * frequency * i / sampleRate));
+        }
+        return pcm;
+    }
+
+    private static double rms(short[] pcm, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += (double) pcm[i] * pcm[i];
+        }
+        return Math.sqrt(sum / (to - from));
+    }
+}
@@ -0,0 +1,60 @@
+package app.independo.capacitorvoicerecorder.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+
+public class PcmRingBufferTest {
+
+    @Test
+    public void snapshotReturnsSamplesInWriteOrderBeforeWrapping() {
+        PcmRingBuffer buffer = new PcmRingBuffer(8);
+
+        buffer.write(new short[] { 1, 2, 3 }, 0, 3);
+        buffer.write(new short[] { 9, 4, 5 }, 1, 2);
+
+        assertArrayEquals(new short[] { 1, 2, 3, 4, 5 }, buffer.snapshot());
+        assertEquals(5, buffer.size());
+    }
+
+    @Test
+    public void keepsOnlyMostRecentSamplesAfterWrapping() {
+        PcmRingBuffer buffer = new PcmRingBuffer(4);
+
+        buffer.write(new short[] { 1, 2, 3 }, 0, 3);
+        buffer.write(new short[] { 4, 5, 6 }, 0, 3);
+
+        assertArrayEquals(new short[] { 3, 4, 5, 6 }, buffer.snapshot());
+        assertEquals(4, buffer.size());
+    }
+
+    @Test
+    public void oversizedWriteKeepsItsTail() {
+        PcmRingBuffer buffer = new PcmRingBuffer(3);
+
+        buffer.write(new short[] { 7 }, 0, 1);
+        buffer.write(new short[] { 1, 2, 3, 4, 5 }, 0, 5);
+        buffer.write(new short[] { 6 }, 0, 1);
+
+        assertArrayEquals(new short[] { 4, 5, 6 }, buffer.snapshot());
+    }
+
+    @Test
+    public void clearDiscardsSamplesButKeepsCapacity() {
+        PcmRingBuffer buffer = new PcmRingBuffer(4);
+        buffer.write(new short[] { 1, 2, 3 }, 0, 3);
+
+        buffer.clear();
+        buffer.write(new short[] { 8 }, 0, 1);
+
+        assertArrayEquals(new short[] { 8 }, buffer.snapshot());
+        assertEquals(4, buffer.capacity());
+    }
+
+    @Test
+    public void rejectsEmptyCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new PcmRingBuffer(0));
+    }
+}
@@ -0,0 +1,35 @@
+package app.independo.capacitorvoicerecorder.core;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ProgressThrottleTest {
+
+    @Test
+    public void firstUpdateIsReported() {
+        ProgressThrottle throttle = new ProgressThrottle(250, 0.01);
+
+        assertTrue(throttle.shouldReport(0.0, 0));
+    }
+
+    @Test
+    public void updatesNeedBothStepAndInterval() {
+        ProgressThrottle throttle = new ProgressThrottle(250, 0.01);
+        throttle.shouldReport(0.0, 0);
+
+        assertFalse(throttle.shouldReport(0.5, 100));
+        assertFalse(throttle.shouldReport(0.005, 1000));
+        assertTrue(throttle.shouldReport(0.5, 300));
+    }
+
+    @Test
+    public void completionIsReportedExactlyOnce() {
+        ProgressThrottle throttle = new ProgressThrottle(250, 0.01);
+        throttle.shouldReport(0.99, 0);
+
+        assertTrue(throttle.shouldReport(1.0, 1));
+        assertFalse(throttle.shouldReport(1.0, 1000));
+    }
+}
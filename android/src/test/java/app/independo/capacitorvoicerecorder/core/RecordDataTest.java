@@ -2,15 +2,19 @@ package app.independo.capacitorvoicerecorder.core;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import com.getcapacitor.JSObject;
+import java.nio.charset.StandardCharsets;
+import org.json.JSONObject;
 import org.junit.Test;
 
 public class RecordDataTest {
 
     @Test
     public void toJSObjectIncludesProvidedValues() {
-        RecordData recordData = new RecordData("BASE64", 1200, "audio/aac", "file:///tmp/recording.aac");
+        RecordData recordData = new RecordData("BASE64".getBytes(StandardCharsets.US_ASCII), 1200, "audio/aac", "file:///tmp/recording.aac");
 
         JSObject result = recordData.toJSObject();
 
@@ -30,4 +34,28 @@ public class RecordDataTest {
         assertFalse(result.has("recordDataBase64"));
         assertFalse(result.has("uri"));
     }
+
+    @Test
+    public void base64PayloadIsKeptAsBytesUntilRequestedAsString() {
+        byte[] payload = "QkFTRTY0\n".getBytes(StandardCharsets.US_ASCII);
+        RecordData recordData = new RecordData(payload, 100, "audio/aac", null);
+
+        assertSame(payload, recordData.getRecordDataBase64Bytes());
+        assertTrue(recordData.hasRecordDataBase64());
+        assertEquals("QkFTRTY0\n", recordData.getRecordDataBase64());
+        assertFalse(new RecordData(new byte[0], 100, "audio/aac", null).hasRecordDataBase64());
+    }
+
+    @Test
+    public void toJSObjectNestsProxy() {
+        RecordData recordData = new RecordData(null, 1200, "audio/aac", "file:///tmp/recording.aac");
+        recordData.setProxy(new RecordData(null, 1190, "audio/ogg", "ogg", "file:///tmp/recording-proxy.ogg"));
+
+        JSONObject proxy = recordData.toJSObject().optJSONObject("proxy");
+
+        assertEquals("audio/ogg", proxy.optString("mimeType"));
+        assertEquals("ogg", proxy.optString("fileExtension"));
+        assertEquals(1190, proxy.optInt("msDuration"));
+        assertEquals("file:///tmp/recording-proxy.ogg", proxy.optString("uri"));
+    }
 }
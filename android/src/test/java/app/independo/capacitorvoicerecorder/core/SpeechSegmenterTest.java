@@ -0,0 +1,94 @@
+package app.independo.capacitorvoicerecorder.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import org.junit.Test;
+
+public class SpeechSegmenterTest {
+
+    private static final int WINDOW_MS = 50;
+    private static final double NOISE = 0.002;
+    private static final double SPEECH = 0.3;
+
+    private long position;
+
+    @Test
+    public void reportsSpeechRegionWithVoicedBoundsAndEnergy() {
+        SpeechSegmenter segmenter = new SpeechSegmenter(WINDOW_MS, SegmentationOptions.of(null, null, false));
+
+        feed(segmenter, NOISE, 20);
+        feed(segmenter, SPEECH, 40);
+        feed(segmenter, NOISE, 20);
+        List<SpeechRegion> regions = segmenter.finish();
+
+        assertEquals(1, regions.size());
+        assertEquals(1000, regions.get(0).startMs());
+        assertEquals(3000, regions.get(0).endMs());
+        assertEquals(SPEECH * SPEECH, regions.get(0).meanEnergy(), 0.0001);
+    }
+
+    @Test
+    public void groupsBurstsUntilMinimumLengthAndCutsAtNextPause() {
+        SpeechSegmenter segmenter = new SpeechSegmenter(WINDOW_MS, SegmentationOptions.of(3000, 10000, false));
+
+        feed(segmenter, NOISE, 20);
+        for (int i = 0; i < 4; i++) {
+            feed(segmenter, SPEECH, 30);
+            feed(segmenter, NOISE, 20);
+        }
+        List<SpeechRegion> regions = segmenter.finish();
+
+        assertEquals(2, regions.size());
+        assertEquals(1000, regions.get(0).startMs());
+        assertEquals(5000, regions.get(0).endMs());
+        assertEquals(6000, regions.get(1).startMs());
+        assertEquals(10000, regions.get(1).endMs());
+    }
+
+    @Test
+    public void splitsContinuousSpeechLongerThanMaximum() {
+        SpeechSegmenter segmenter = new SpeechSegmenter(WINDOW_MS, SegmentationOptions.of(1000, 2000, false));
+
+        feed(segmenter, NOISE, 10);
+        feed(segmenter, SPEECH, 100);
+        List<SpeechRegion> regions = segmenter.finish();
+
+        assertEquals(3, regions.size());
+        for (SpeechRegion region : regions) {
+            assertTrue(region.endMs() - region.startMs() <= 2000);
+        }
+        assertEquals(regions.get(0).startMs() + 5000, regions.get(2).endMs());
+    }
+
+    @Test
+    public void voicedRangeSpansFirstToLastBurstIncludingOpenSpeech() {
+        SpeechSegmenter segmenter = new SpeechSegmenter(WINDOW_MS, SegmentationOptions.of(null, null, false));
+
+        feed(segmenter, NOISE, 20);
+        assertNull(segmenter.getVoicedRange());
+        feed(segmenter, SPEECH, 20);
+        feed(segmenter, NOISE, 20);
+        feed(segmenter, SPEECH, 10);
+
+        assertEquals(new AudioRange(1000, 3500), segmenter.getVoicedRange());
+    }
+
+    @Test
+    public void returnsEmptyMapForSilence() {
+        SpeechSegmenter segmenter = new SpeechSegmenter(WINDOW_MS, SegmentationOptions.of(null, null, false));
+
+        feed(segmenter, NOISE, 100);
+
+        assertTrue(segmenter.finish().isEmpty());
+    }
+
+    private void feed(SpeechSegmenter segmenter, double level, int windows) {
+        for (int i = 0; i < windows; i++) {
+            position += WINDOW_MS;
+            segmenter.onWindow(level, position);
+        }
+    }
+}
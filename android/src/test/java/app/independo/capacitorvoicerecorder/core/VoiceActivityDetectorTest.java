@@ -0,0 +1,95 @@
+package app.independo.capacitorvoicerecorder.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class VoiceActivityDetectorTest {
+
+    private static final double NOISE = 0.002;
+    private static final double SPEECH = 0.3;
+
+    @Test
+    public void reportsSpeechStartAfterOnsetWindows() {
+        VoiceActivityDetector detector = new VoiceActivityDetector(50, 100, 200, 12, -50);
+        feed(detector, NOISE, 10);
+
+        assertEquals(VoiceActivityDetector.Transition.NONE, detector.process(SPEECH));
+        assertEquals(VoiceActivityDetector.Transition.SPEECH_STARTED, detector.process(SPEECH));
+        assertTrue(detector.isSpeaking());
+    }
+
+    @Test
+    public void ignoresSingleLoudWindow() {
+        VoiceActivityDetector detector = new VoiceActivityDetector(50, 100, 200, 12, -50);
+        feed(detector, NOISE, 10);
+
+        detector.process(SPEECH);
+        detector.process(NOISE);
+        detector.process(NOISE);
+
+        assertFalse(detector.isSpeaking());
+    }
+
+    @Test
+    public void keepsSpeechActiveDuringHangover() {
+        VoiceActivityDetector detector = new VoiceActivityDetector(50, 50, 200, 12, -50);
+        feed(detector, NOISE, 10);
+        detector.process(SPEECH);
+
+        assertEquals(VoiceActivityDetector.Transition.NONE, detector.process(NOISE));
+        assertEquals(VoiceActivityDetector.Transition.NONE, detector.process(NOISE));
+        assertEquals(VoiceActivityDetector.Transition.NONE, detector.process(NOISE));
+        assertEquals(VoiceActivityDetector.Transition.SPEECH_ENDED, detector.process(NOISE));
+        assertFalse(detector.isSpeaking());
+    }
+
+    @Test
+    public void pauseShorterThanHangoverDoesNotEndSpeech() {
+        VoiceActivityDetector detector = new VoiceActivityDetector(50, 50, 200, 12, -50);
+        feed(detector, NOISE, 10);
+        detector.process(SPEECH);
+
+        feed(detector, NOISE, 3);
+        detector.process(SPEECH);
+        feed(detector, NOISE, 3);
+
+        assertTrue(detector.isSpeaking());
+    }
+
+    @Test
+    public void noiseFloorAdaptsToSteadyBackgroundNoise() {
+        VoiceActivityDetector detector = new VoiceActivityDetector(50, 50, 200, 12, -50);
+        feed(detector, NOISE, 5);
+        double quietFloor = detector.getNoiseFloorDb();
+
+        feed(detector, 0.02, 400);
+
+        assertTrue(detector.getNoiseFloorDb() > quietFloor + 15);
+        assertFalse(detector.isSpeaking());
+    }
+
+    @Test
+    public void quietWindowsBelowAbsoluteMinimumAreNeverVoiced() {
+        VoiceActivityDetector detector = new VoiceActivityDetector(50, 50, 200, 12, -50);
+        feed(detector, 0.00001, 10);
+
+        detector.process(0.001);
+
+        assertFalse(detector.isLastWindowVoiced());
+    }
+
+    @Test
+    public void toDbClampsSilence() {
+        assertEquals(VoiceActivityDetector.SILENCE_DB, VoiceActivityDetector.toDb(0), 0);
+        assertEquals(0, VoiceActivityDetector.toDb(1), 0.0001);
+    }
+
+    private static void feed(VoiceActivityDetector detector, double level, int windows) {
+        for (int i = 0; i < windows; i++) {
+            detector.process(level);
+        }
+    }
+}
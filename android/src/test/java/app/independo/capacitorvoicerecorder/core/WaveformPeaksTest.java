@@ -0,0 +1,29 @@
+package app.independo.capacitorvoicerecorder.core;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.nio.ShortBuffer;
+import org.junit.Test;
+
+public class WaveformPeaksTest {
+
+    @Test
+    public void peaksCoverEqualSharesOfTheExpectedFrames() {
+        WaveformPeaks peaks = new WaveformPeaks(4, 8);
+
+        peaks.add(ShortBuffer.wrap(new short[] { 16384, -8192, 0, 0, -32768, 100 }), 1);
+        peaks.add(ShortBuffer.wrap(new short[] { 0, 8192 }), 1);
+
+        assertArrayEquals(new float[] { 0.5f, 0f, 1f, 0.25f }, peaks.toArray(), 1e-4f);
+    }
+
+    @Test
+    public void channelsShareAFrameAndOverflowLandsInTheLastPoint() {
+        WaveformPeaks peaks = new WaveformPeaks(2, 2);
+
+        // Stereo frames: the louder channel sets the peak, and frames past the expected length count as the last.
+        peaks.add(ShortBuffer.wrap(new short[] { 100, -16384, 0, 0, 0, 32767 }), 2);
+
+        assertArrayEquals(new float[] { 0.5f, 1f }, peaks.toArray(), 1e-4f);
+    }
+}
@@ -0,0 +1,191 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import app.independo.capacitorvoicerecorder.core.AudioRange;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+
+public class AdtsFileTest {
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void scanIndexesEveryFrameAndReadsSampleRate() throws Exception {
+        File file = AdtsTestFrames.writeFile(tempFolder.newFile("scan.aac"), 100);
+
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            AdtsFrameIndex index = AdtsFrameIndex.scan(channel);
+
+            assertEquals(100, index.getFrameCount());
+            assertEquals(44100, index.getSampleRate());
+            assertEquals(file.length(), index.offsetOf(100));
+            assertEquals(Math.round(100 * AdtsTestFrames.FRAME_MS_44100), index.getDurationMs(), 1);
+        }
+    }
+
+    @Test
+    public void scanIgnoresTruncatedTrailingFrame() throws Exception {
+        File file = AdtsTestFrames.writeFile(tempFolder.newFile("truncated.aac"), 10);
+        try (FileOutputStream output = new FileOutputStream(file, true)) {
+            byte[] frame = AdtsTestFrames.frame(40, (byte) 99);
+            output.write(frame, 0, 20);
+        }
+
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            assertEquals(10, AdtsFrameIndex.scan(channel).getFrameCount());
+        }
+    }
+
+    @Test
+    public void scanHandlesHeadersAcrossBufferBoundaries() throws Exception {
+        File file = AdtsTestFrames.writeFile(tempFolder.newFile("large.aac"), 5000);
+
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            assertEquals(5000, AdtsFrameIndex.scan(channel).getFrameCount());
+        }
+    }
+
+    @Test
+    public void copyRangeCopiesWholeFramesCoveringTheRange() throws Exception {
+        File source = AdtsTestFrames.writeFile(tempFolder.newFile("source.aac"), 100);
+        File destination = new File(tempFolder.getRoot(), "range.aac");
+        long startMs = Math.round(10.5 * AdtsTestFrames.FRAME_MS_44100);
+        long endMs = Math.round(19.5 * AdtsTestFrames.FRAME_MS_44100);
+
+        AdtsFile.copyRange(source, startMs, endMs, destination);
+
+        byte[] sourceBytes = Files.readAllBytes(source.toPath());
+        try (FileChannel channel = new FileInputStream(source).getChannel()) {
+            AdtsFrameIndex index = AdtsFrameIndex.scan(channel);
+            byte[] expected = java.util.Arrays.copyOfRange(sourceBytes, (int) index.offsetOf(10), (int) index.offsetOf(20));
+            assertArrayEquals(expected, Files.readAllBytes(destination.toPath()));
+        }
+    }
+
+    @Test
+    public void trimInPlaceKeepsOnlyFramesCoveringTheRange() throws Exception {
+        File file = AdtsTestFrames.writeFile(tempFolder.newFile("trim.aac"), 100);
+        byte[] original = Files.readAllBytes(file.toPath());
+        AdtsFrameIndex originalIndex;
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            originalIndex = AdtsFrameIndex.scan(channel);
+        }
+
+        AudioRange kept = AdtsFile.trimInPlace(
+            file,
+            Math.round(20.5 * AdtsTestFrames.FRAME_MS_44100),
+            Math.round(79.5 * AdtsTestFrames.FRAME_MS_44100)
+        );
+
+        assertEquals(originalIndex.frameToMs(20), kept.startMs());
+        assertEquals(originalIndex.frameToMs(80), kept.endMs());
+        byte[] expected = java.util.Arrays.copyOfRange(original, (int) originalIndex.offsetOf(20), (int) originalIndex.offsetOf(80));
+        assertArrayEquals(expected, Files.readAllBytes(file.toPath()));
+        assertFalse(new File(tempFolder.getRoot(), "trim.aac.trim").exists());
+    }
+
+    @Test
+    public void trimInPlaceLeavesFileUntouchedWhenRangeCoversEverything() throws Exception {
+        File file = AdtsTestFrames.writeFile(tempFolder.newFile("full.aac"), 10);
+        long modified = file.lastModified();
+        byte[] original = Files.readAllBytes(file.toPath());
+
+        AudioRange kept = AdtsFile.trimInPlace(file, 0, 10_000);
+
+        assertEquals(0, kept.startMs());
+        assertArrayEquals(original, Files.readAllBytes(file.toPath()));
+        assertEquals(modified, file.lastModified());
+    }
+
+    @Test
+    public void prependPlacesHeadFramesBeforeRecording() throws Exception {
+        File head = AdtsTestFrames.writeFile(tempFolder.newFile("head.aac"), 3);
+        File file = AdtsTestFrames.writeFile(tempFolder.newFile("body.aac"), 5);
+        byte[] headBytes = Files.readAllBytes(head.toPath());
+        byte[] bodyBytes = Files.readAllBytes(file.toPath());
+
+        AdtsFile.prepend(head, file);
+
+        byte[] combined = Files.readAllBytes(file.toPath());
+        assertEquals(headBytes.length + bodyBytes.length, combined.length);
+        assertArrayEquals(headBytes, java.util.Arrays.copyOfRange(combined, 0, headBytes.length));
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            assertEquals(8, AdtsFrameIndex.scan(channel).getFrameCount());
+        }
+    }
+
+    @Test
+    public void writeHeaderMatchesScannedFrameLayout() throws Exception {
+        byte[] header = new byte[AdtsFrameIndex.HEADER_LENGTH];
+        AdtsFile.writeHeader(header, 30, AdtsFrameIndex.sampleRateIndex(44100), 1);
+
+        assertArrayEquals(java.util.Arrays.copyOf(AdtsTestFrames.frame(23, (byte) 0), AdtsFrameIndex.HEADER_LENGTH), header);
+    }
+
+    @Test
+    public void copyRangeWithAnOpenEndCopiesToTheLastFrame() throws Exception {
+        File source = AdtsTestFrames.writeFile(tempFolder.newFile("open-end.aac"), 100);
+        File destination = new File(tempFolder.getRoot(), "tail.aac");
+
+        AdtsFile.copyRange(source, Math.round(90.5 * AdtsTestFrames.FRAME_MS_44100), Long.MAX_VALUE, destination);
+
+        byte[] sourceBytes = Files.readAllBytes(source.toPath());
+        try (FileChannel channel = new FileInputStream(source).getChannel()) {
+            AdtsFrameIndex index = AdtsFrameIndex.scan(channel);
+            byte[] expected = java.util.Arrays.copyOfRange(sourceBytes, (int) index.offsetOf(90), sourceBytes.length);
+            assertArrayEquals(expected, Files.readAllBytes(destination.toPath()));
+        }
+    }
+
+    @Test
+    public void copyRangeRejectsEmptyRanges() throws Exception {
+        File source = AdtsTestFrames.writeFile(tempFolder.newFile("empty-range.aac"), 10);
+        File destination = new File(tempFolder.getRoot(), "empty.aac");
+
+        assertThrows(java.io.IOException.class, () -> AdtsFile.copyRange(source, 5000, 6000, destination));
+    }
+
+    @Test
+    public void concatJoinsFramesAndDropsTrailingGarbage() throws Exception {
+        File first = AdtsTestFrames.writeFile(tempFolder.newFile("first.aac"), 30);
+        File second = AdtsTestFrames.writeFile(tempFolder.newFile("second.aac"), 20);
+        byte[] firstBytes = Files.readAllBytes(first.toPath());
+        try (FileOutputStream output = new FileOutputStream(first, true)) {
+            output.write(new byte[] { 1, 2, 3 });
+        }
+        File destination = new File(tempFolder.getRoot(), "joined.aac");
+
+        AdtsFile.concat(java.util.List.of(first, second), destination);
+
+        byte[] secondBytes = Files.readAllBytes(second.toPath());
+        byte[] expected = java.util.Arrays.copyOf(firstBytes, firstBytes.length + secondBytes.length);
+        System.arraycopy(secondBytes, 0, expected, firstBytes.length, secondBytes.length);
+        assertArrayEquals(expected, Files.readAllBytes(destination.toPath()));
+        try (FileChannel channel = new FileInputStream(destination).getChannel()) {
+            assertEquals(50, AdtsFrameIndex.scan(channel).getFrameCount());
+        }
+    }
+
+    @Test
+    public void concatRejectsDifferentSampleRates() throws Exception {
+        File first = AdtsTestFrames.writeFile(tempFolder.newFile("rate-a.aac"), 5);
+        File second = tempFolder.newFile("rate-b.aac");
+        byte[] frame = AdtsTestFrames.frame(20, (byte) 1);
+        frame[2] = (byte) ((1 << 6) | (8 << 2));
+        Files.write(second.toPath(), frame);
+        File destination = new File(tempFolder.getRoot(), "mixed.aac");
+
+        assertThrows(IncompatibleAudioFormat.class, () -> AdtsFile.concat(java.util.List.of(first, second), destination));
+        assertFalse(destination.exists());
+    }
+}
@@ -0,0 +1,118 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AdtsSeekIndexTest {
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void sampledIndexLocatesEveryFrameLikeAFullScan() throws Exception {
+        File file = AdtsTestFrames.writeFile(tempFolder.newFile("seek.aac"), 1000);
+
+        AdtsSeekIndex index = AdtsSeekIndex.forFile(file);
+
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            AdtsFrameIndex full = AdtsFrameIndex.scan(channel);
+            assertEquals(full.getFrameCount(), index.getFrameCount());
+            assertEquals(full.getDurationMs(), index.getDurationMs());
+            for (int frame = 0; frame <= 1000; frame++) {
+                assertEquals("frame " + frame, full.offsetOf(frame), index.offsetOf(channel, frame));
+            }
+        }
+        assertEquals(44100, index.getSampleRate());
+        assertEquals(1, index.getChannelCount());
+    }
+
+    @Test
+    public void firstSampleRateReadsOnlyTheFirstHeader() throws Exception {
+        File file = AdtsTestFrames.writeFile(tempFolder.newFile("head.aac"), 1);
+        Files.write(file.toPath(), new byte[64], StandardOpenOption.APPEND);
+        File empty = tempFolder.newFile("empty.aac");
+
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            assertEquals(44_100, AdtsFrameIndex.firstSampleRate(channel));
+        }
+        try (FileChannel channel = FileChannel.open(empty.toPath())) {
+            assertEquals(0, AdtsFrameIndex.firstSampleRate(channel));
+        }
+    }
+
+    @Test
+    public void sidecarIsWrittenCompactAndReused() throws Exception {
+        File file = AdtsTestFrames.writeFile(tempFolder.newFile("sidecar.aac"), 5000);
+
+        AdtsSeekIndex.forFile(file);
+
+        File sidecar = AdtsSeekIndex.sidecarFor(file);
+        int entries = (5000 + AdtsSeekIndex.STRIDE_FRAMES - 1) / AdtsSeekIndex.STRIDE_FRAMES;
+        assertEquals((7 + 2 * entries) * Long.BYTES, sidecar.length());
+        AdtsSeekIndex loaded = AdtsSeekIndex.readSidecar(file);
+        assertNotNull(loaded);
+        assertEquals(5000, loaded.getFrameCount());
+    }
+
+    @Test
+    public void sidecarIsIgnoredOnceTheFileChanges() throws Exception {
+        File file = AdtsTestFrames.writeFile(tempFolder.newFile("stale.aac"), 100);
+        AdtsSeekIndex.forFile(file);
+
+        try (FileOutputStream output = new FileOutputStream(file, true)) {
+            output.write(AdtsTestFrames.frame(30, (byte) 7));
+        }
+
+        assertNull(AdtsSeekIndex.readSidecar(file));
+        assertEquals(101, AdtsSeekIndex.forFile(file).getFrameCount());
+    }
+
+    @Test
+    public void builderIndexesAGrowingFileIncrementally() throws Exception {
+        File complete = AdtsTestFrames.writeFile(tempFolder.newFile("complete.aac"), 700);
+        byte[] bytes = Files.readAllBytes(complete.toPath());
+        File growing = tempFolder.newFile("growing.aac");
+        AdtsSeekIndex.Builder builder = new AdtsSeekIndex.Builder();
+
+        try (
+            FileOutputStream output = new FileOutputStream(growing);
+            FileChannel channel = new FileInputStream(growing).getChannel()
+        ) {
+            // Chunks end mid-header and mid-payload, like a file that is still being written.
+            for (int start = 0; start < bytes.length; start += 997) {
+                output.write(Arrays.copyOfRange(bytes, start, Math.min(bytes.length, start + 997)));
+                builder.update(channel);
+            }
+        }
+
+        AdtsSeekIndex index = builder.build(growing.length());
+        assertEquals(700, index.getFrameCount());
+        assertEquals(bytes.length, index.getEndOffset());
+        try (FileChannel channel = new FileInputStream(complete).getChannel()) {
+            AdtsFrameIndex full = AdtsFrameIndex.scan(channel);
+            assertEquals(full.offsetOf(450), index.offsetOf(channel, 450));
+        }
+    }
+
+    @Test
+    public void trimInPlaceInvalidatesSidecar() throws Exception {
+        File file = AdtsTestFrames.writeFile(tempFolder.newFile("edited.aac"), 200);
+        AdtsSeekIndex.forFile(file);
+
+        AdtsFile.trimInPlace(file, 1000, 2000);
+
+        assertTrue(!AdtsSeekIndex.sidecarFor(file).exists());
+    }
+}
@@ -0,0 +1,43 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+final class AdtsTestFrames {
+
+    /** ADTS sampling frequency index for 44.1 kHz. */
+    static final int SAMPLE_RATE_INDEX_44100 = 4;
+    /** Duration of one 1024-sample frame at 44.1 kHz in milliseconds. */
+    static final double FRAME_MS_44100 = 1024 * 1000.0 / 44100;
+
+    private AdtsTestFrames() {}
+
+    /** Builds a mono AAC-LC ADTS frame whose payload bytes all carry the given marker. */
+    static byte[] frame(int payloadLength, byte marker) {
+        int length = AdtsFrameIndex.HEADER_LENGTH + payloadLength;
+        byte[] frame = new byte[length];
+        frame[0] = (byte) 0xFF;
+        frame[1] = (byte) 0xF1;
+        frame[2] = (byte) ((1 << 6) | (SAMPLE_RATE_INDEX_44100 << 2));
+        frame[3] = (byte) ((1 << 6) | ((length >> 11) & 0x03));
+        frame[4] = (byte) ((length >> 3) & 0xFF);
+        frame[5] = (byte) (((length & 0x07) << 5) | 0x1F);
+        frame[6] = (byte) 0xFC;
+        for (int i = AdtsFrameIndex.HEADER_LENGTH; i < length; i++) {
+            frame[i] = marker;
+        }
+        return frame;
+    }
+
+    /** Writes a file with the given number of frames; frame {@code i} has payload marker {@code i}. */
+    static File writeFile(File file, int frameCount) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (int i = 0; i < frameCount; i++) {
+            output.write(frame(20 + (i % 5), (byte) i));
+        }
+        Files.write(file.toPath(), output.toByteArray());
+        return file;
+    }
+}
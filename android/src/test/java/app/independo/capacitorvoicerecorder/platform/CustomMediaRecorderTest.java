@@ -4,18 +4,31 @@ import android.content.Context;
 import android.media.AudioFocusRequest;
 import android.media.AudioManager;
 import android.media.MediaRecorder;
+import app.independo.capacitorvoicerecorder.core.AutoStopReason;
 import app.independo.capacitorvoicerecorder.core.CurrentRecordingStatus;
+import app.independo.capacitorvoicerecorder.core.DurabilityOptions;
+import app.independo.capacitorvoicerecorder.core.EncoderPolicy;
+import app.independo.capacitorvoicerecorder.core.EncoderSettings;
 import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import app.independo.capacitorvoicerecorder.core.RecordingLimits;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.InOrder;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -31,6 +44,18 @@ public class CustomMediaRecorderTest {
         File cacheDir,
         int sdkInt,
         AudioFocusRequest focusRequest
+    ) throws Exception {
+        return createRecorder(options, mediaRecorder, audioManager, cacheDir, sdkInt, focusRequest, EncoderSettings.STANDARD);
+    }
+
+    private CustomMediaRecorder createRecorder(
+        RecordOptions options,
+        MediaRecorder mediaRecorder,
+        AudioManager audioManager,
+        File cacheDir,
+        int sdkInt,
+        AudioFocusRequest focusRequest,
+        EncoderSettings encoderSettings
     ) throws Exception {
         Context context = mock(Context.class);
         CustomMediaRecorder.MediaRecorderFactory mediaRecorderFactory = () -> mediaRecorder;
@@ -70,10 +95,74 @@ public class CustomMediaRecorderTest {
             audioManagerProvider,
             directoryProvider,
             sdkIntProvider,
-            audioFocusRequestFactory
+            audioFocusRequestFactory,
+            RecordingEncryption.ANDROID_KEYSTORE,
+            () -> encoderSettings
         );
     }
 
+    @Test
+    public void encoderSettingsFollowTheDeviceState() throws Exception {
+        MediaRecorder mediaRecorder = mock(MediaRecorder.class);
+        CustomMediaRecorder recorder = createRecorder(
+            new RecordOptions(null, null),
+            mediaRecorder,
+            mock(AudioManager.class),
+            tempFolder.newFolder("cache-encoder"),
+            android.os.Build.VERSION_CODES.O,
+            mock(AudioFocusRequest.class),
+            EncoderSettings.forDeviceState(EncoderPolicy.THERMAL_STATUS_SEVERE, false)
+        );
+
+        verify(mediaRecorder).setAudioSamplingRate(22_050);
+        verify(mediaRecorder).setAudioEncodingBitRate(48_000);
+        assertEquals(EncoderPolicy.MINIMAL, recorder.getEncoderSettings().policy());
+    }
+
+    @Test
+    public void limitsAreAppliedBeforePrepareAndReported() throws Exception {
+        MediaRecorder mediaRecorder = mock(MediaRecorder.class);
+        File cacheDir = tempFolder.newFolder("cache-limits");
+        CustomMediaRecorder recorder = createRecorder(
+            new RecordOptions(null, null, null, null, false, RecordingLimits.of(30_000, 2_000_000L)),
+            mediaRecorder,
+            mock(AudioManager.class),
+            cacheDir,
+            android.os.Build.VERSION_CODES.O,
+            mock(AudioFocusRequest.class)
+        );
+        List<AutoStopReason> reasons = new ArrayList<>();
+        recorder.setOnLimitReached(reasons::add);
+
+        recorder.onInfo(MediaRecorder.MEDIA_RECORDER_INFO_MAX_DURATION_REACHED);
+        recorder.onInfo(MediaRecorder.MEDIA_RECORDER_INFO_UNKNOWN);
+        recorder.onInfo(MediaRecorder.MEDIA_RECORDER_INFO_MAX_FILESIZE_REACHED);
+
+        InOrder inOrder = inOrder(mediaRecorder);
+        inOrder.verify(mediaRecorder).setMaxDuration(30_000);
+        inOrder.verify(mediaRecorder).setMaxFileSize(2_000_000L);
+        inOrder.verify(mediaRecorder).setOnInfoListener(any());
+        inOrder.verify(mediaRecorder).prepare();
+        assertEquals(List.of(AutoStopReason.MAX_DURATION, AutoStopReason.MAX_FILE_SIZE), reasons);
+    }
+
+    @Test
+    public void limitsAreNotAppliedWhenUnset() throws Exception {
+        MediaRecorder mediaRecorder = mock(MediaRecorder.class);
+        File cacheDir = tempFolder.newFolder("cache-no-limits");
+        createRecorder(
+            new RecordOptions(null, null),
+            mediaRecorder,
+            mock(AudioManager.class),
+            cacheDir,
+            android.os.Build.VERSION_CODES.O,
+            mock(AudioFocusRequest.class)
+        );
+
+        verify(mediaRecorder, never()).setMaxDuration(anyInt());
+        verify(mediaRecorder, never()).setOnInfoListener(any());
+    }
+
     @Test
     public void startRecordingRequestsAudioFocusAndStartsRecorder() throws Exception {
         MediaRecorder mediaRecorder = mock(MediaRecorder.class);
@@ -142,6 +231,29 @@ public class CustomMediaRecorderTest {
         assertEquals(CurrentRecordingStatus.NONE, recorder.getCurrentStatus());
     }
 
+    @Test
+    public void stopRecordingWritesSeekIndexAndDeleteRemovesIt() throws Exception {
+        MediaRecorder mediaRecorder = mock(MediaRecorder.class);
+        CustomMediaRecorder recorder = createRecorder(
+            new RecordOptions(null, null),
+            mediaRecorder,
+            mock(AudioManager.class),
+            tempFolder.newFolder("cache-index"),
+            android.os.Build.VERSION_CODES.N,
+            mock(AudioFocusRequest.class)
+        );
+
+        recorder.startRecording();
+        AdtsTestFrames.writeFile(recorder.getOutputFile(), 300);
+        recorder.stopRecording();
+
+        AdtsSeekIndex index = AdtsSeekIndex.readSidecar(recorder.getOutputFile());
+        assertEquals(300, index.getFrameCount());
+
+        recorder.deleteOutputFile();
+        assertFalse(AdtsSeekIndex.sidecarFor(recorder.getOutputFile()).exists());
+    }
+
     @Test
     public void stopRecordingAbandonsFocusRequestOnOAndAbove() throws Exception {
         MediaRecorder mediaRecorder = mock(MediaRecorder.class);
@@ -292,6 +404,45 @@ public class CustomMediaRecorderTest {
         assertEquals(0, recorder.getCurrentAmplitude(), 0);
     }
 
+    @Test
+    public void segmentDurabilityCheckpointsOnPauseUntilTheRecordingStops() throws Exception {
+        File cacheDir = tempFolder.newFolder("cache-durable");
+        RecordOptions options = new RecordOptions(
+            "DATA",
+            null,
+            null,
+            null,
+            false,
+            null,
+            null,
+            null,
+            false,
+            0,
+            DurabilityOptions.of("segment", null)
+        );
+        CustomMediaRecorder recorder = createRecorder(
+            options,
+            mock(MediaRecorder.class),
+            mock(AudioManager.class),
+            cacheDir,
+            android.os.Build.VERSION_CODES.N,
+            mock(AudioFocusRequest.class)
+        );
+        File checkpoint = new File(
+            new File(cacheDir, RecordingCheckpointer.CHECKPOINT_DIRECTORY),
+            recorder.getOutputFile().getName() + RecordingCheckpointer.CHECKPOINT_SUFFIX
+        );
+
+        recorder.startRecording();
+        recorder.pauseRecording();
+
+        assertTrue(checkpoint.isFile());
+
+        recorder.stopRecording();
+
+        assertFalse(checkpoint.exists());
+    }
+
     @Test
     public void pauseRecordingUpdatesStatusAndCallsPause() throws Exception {
         MediaRecorder mediaRecorder = mock(MediaRecorder.class);
@@ -391,6 +542,33 @@ public class CustomMediaRecorderTest {
         assertEquals(CurrentRecordingStatus.INTERRUPTED, recorder.getCurrentStatus());
     }
 
+    @Test
+    public void onAudioFocusChangeRunsOnCallbackExecutor() throws Exception {
+        MediaRecorder mediaRecorder = mock(MediaRecorder.class);
+        AudioManager audioManager = mock(AudioManager.class);
+        AudioFocusRequest focusRequest = mock(AudioFocusRequest.class);
+        File cacheDir = tempFolder.newFolder("cache-focus-executor");
+        CustomMediaRecorder recorder = createRecorder(
+            new RecordOptions(null, null),
+            mediaRecorder,
+            audioManager,
+            cacheDir,
+            android.os.Build.VERSION_CODES.N,
+            focusRequest
+        );
+        List<Runnable> queued = new ArrayList<>();
+        recorder.setCallbackExecutor(queued::add);
+
+        recorder.startRecording();
+        recorder.onAudioFocusChange(AudioManager.AUDIOFOCUS_LOSS);
+
+        verify(mediaRecorder, never()).pause();
+        assertEquals(1, queued.size());
+        queued.get(0).run();
+        verify(mediaRecorder).pause();
+        assertEquals(CurrentRecordingStatus.INTERRUPTED, recorder.getCurrentStatus());
+    }
+
     @Test
     public void setRecorderOutputFileUsesSubDirectory() throws Exception {
         MediaRecorder mediaRecorder = mock(MediaRecorder.class);
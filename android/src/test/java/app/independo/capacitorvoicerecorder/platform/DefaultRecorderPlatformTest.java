@@ -5,9 +5,12 @@ import android.media.AudioManager;
 import android.media.MediaPlayer;
 import app.independo.capacitorvoicerecorder.adapters.RecorderAdapter;
 import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import app.independo.capacitorvoicerecorder.core.RecordingInfo;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.Base64;
+import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -32,7 +35,14 @@ public class DefaultRecorderPlatformTest {
         DefaultRecorderPlatform.UriConverter uriConverter,
         DefaultRecorderPlatform.Base64Encoder base64Encoder
     ) {
-        return new DefaultRecorderPlatform(context, recorderFactory, mediaPlayerFactory, uriConverter, base64Encoder);
+        return new DefaultRecorderPlatform(
+            context,
+            recorderFactory,
+            mediaPlayerFactory,
+            uriConverter,
+            base64Encoder,
+            new PreRollCapture()
+        );
     }
 
     @Test
@@ -44,24 +54,25 @@ public class DefaultRecorderPlatformTest {
             (ctx, options) -> mock(RecorderAdapter.class),
             MediaPlayer::new,
             file -> "file://ignored",
-            data -> java.util.Base64.getEncoder().encodeToString(data)
+            data -> java.util.Base64.getEncoder().encode(data)
         );
 
         assertTrue(platform.isMicrophoneOccupied());
     }
 
     @Test
-    public void isMicrophoneOccupiedReturnsFalseWhenModeNormal() {
+    public void isMicrophoneOccupiedReturnsFalseWhenNothingIsRecording() {
         Context context = mock(Context.class);
         AudioManager audioManager = mock(AudioManager.class);
         when(context.getSystemService(Context.AUDIO_SERVICE)).thenReturn(audioManager);
-        when(audioManager.getMode()).thenReturn(AudioManager.MODE_NORMAL);
+        when(audioManager.getMode()).thenReturn(AudioManager.MODE_RINGTONE);
+        when(audioManager.getActiveRecordingConfigurations()).thenReturn(List.of());
         DefaultRecorderPlatform platform = createPlatform(
             context,
             (ctx, options) -> mock(RecorderAdapter.class),
             MediaPlayer::new,
             file -> "file://ignored",
-            data -> java.util.Base64.getEncoder().encodeToString(data)
+            data -> java.util.Base64.getEncoder().encode(data)
         );
 
         assertFalse(platform.isMicrophoneOccupied());
@@ -78,7 +89,7 @@ public class DefaultRecorderPlatformTest {
             recorderFactory,
             MediaPlayer::new,
             file -> "file://ignored",
-            data -> java.util.Base64.getEncoder().encodeToString(data)
+            data -> java.util.Base64.getEncoder().encode(data)
         );
 
         RecorderAdapter result = platform.createRecorder(new RecordOptions(null, null));
@@ -95,15 +106,15 @@ public class DefaultRecorderPlatformTest {
             (ctx, options) -> mock(RecorderAdapter.class),
             MediaPlayer::new,
             file -> "file://ignored",
-            data -> java.util.Base64.getEncoder().encodeToString(data)
+            data -> java.util.Base64.getEncoder().encode(data)
         );
         File file = tempFolder.newFile("payload.aac");
         Files.write(file.toPath(), "payload".getBytes());
 
-        String result = platform.readFileAsBase64(file);
+        byte[] result = platform.readFileAsBase64(file);
 
         String expected = Base64.getEncoder().encodeToString("payload".getBytes());
-        assertEquals(expected, result.trim());
+        assertEquals(expected, new String(result, StandardCharsets.US_ASCII).trim());
     }
 
     @Test
@@ -114,13 +125,50 @@ public class DefaultRecorderPlatformTest {
             (ctx, options) -> mock(RecorderAdapter.class),
             MediaPlayer::new,
             file -> "file://ignored",
-            data -> java.util.Base64.getEncoder().encodeToString(data)
+            data -> java.util.Base64.getEncoder().encode(data)
         );
         File missingFile = new File("missing-recording.aac");
 
         assertNull(platform.readFileAsBase64(missingFile));
     }
 
+    @Test
+    public void encryptedRecordingsAreDecryptedInMemoryForPayloadAndInfo() throws Exception {
+        Context context = mock(Context.class);
+        RecordingEncryptionTest.TestKeyWrapper keyWrapper = new RecordingEncryptionTest.TestKeyWrapper(1);
+        DefaultRecorderPlatform platform = new DefaultRecorderPlatform(
+            context,
+            (ctx, options) -> mock(RecorderAdapter.class),
+            MediaPlayer::new,
+            file -> "file://ignored",
+            data -> java.util.Base64.getEncoder().encode(data),
+            new PreRollCapture(),
+            new MicrophoneAvailabilityTracker(context, () -> 0),
+            keyWrapper
+        );
+        File plain = AdtsTestFrames.writeFile(tempFolder.newFile("plain.aac"), 500);
+        byte[] plaintext = Files.readAllBytes(plain.toPath());
+        File encrypted = tempFolder.newFile("encrypted.aac");
+        try (EncryptingOutputStream output = RecordingEncryption.openEncrypting(
+            new java.io.FileOutputStream(encrypted),
+            "alias",
+            keyWrapper
+        )) {
+            output.write(plaintext, 0, plaintext.length);
+        }
+
+        byte[] payload = platform.readFileAsBase64(encrypted);
+        RecordingInfo info = platform.getRecordingInfo(encrypted);
+
+        assertEquals(Base64.getEncoder().encodeToString(plaintext), new String(payload, StandardCharsets.US_ASCII));
+        assertEquals(platform.getRecordingInfo(plain).durationMs(), info.durationMs());
+        assertEquals(44100, info.sampleRate());
+        assertEquals(1, info.channels());
+        assertEquals(encrypted.length(), info.sizeBytes());
+        assertEquals(info.durationMs(), platform.getDurationMs(encrypted));
+        assertFalse(AdtsSeekIndex.sidecarFor(encrypted).exists());
+    }
+
     @Test
     public void getDurationMsReturnsDurationAndReleases() throws Exception {
         Context context = mock(Context.class);
@@ -131,7 +179,7 @@ public class DefaultRecorderPlatformTest {
             (ctx, options) -> mock(RecorderAdapter.class),
             () -> mediaPlayer,
             file -> "file://ignored",
-            data -> java.util.Base64.getEncoder().encodeToString(data)
+            data -> java.util.Base64.getEncoder().encode(data)
         );
         File file = tempFolder.newFile("duration.aac");
 
@@ -153,7 +201,7 @@ public class DefaultRecorderPlatformTest {
             (ctx, options) -> mock(RecorderAdapter.class),
             () -> mediaPlayer,
             file -> "file://ignored",
-            data -> java.util.Base64.getEncoder().encodeToString(data)
+            data -> java.util.Base64.getEncoder().encode(data)
         );
         File file = tempFolder.newFile("duration-fail.aac");
 
@@ -171,7 +219,7 @@ public class DefaultRecorderPlatformTest {
             (ctx, options) -> mock(RecorderAdapter.class),
             MediaPlayer::new,
             file -> "file://converted",
-            data -> java.util.Base64.getEncoder().encodeToString(data)
+            data -> java.util.Base64.getEncoder().encode(data)
         );
         File file = new File("recording.aac");
 
@@ -0,0 +1,123 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EncoderRegistryTest {
+
+    private static final String AAC = "audio/mp4a-latm";
+    private static final String OPUS = "audio/opus";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static final class FakeCodecSource implements EncoderRegistry.CodecSource {
+        final List<EncoderRegistry.Encoder> encoders;
+        int listings;
+        int decoderLookups;
+
+        FakeCodecSource(EncoderRegistry.Encoder... encoders) {
+            this.encoders = List.of(encoders);
+        }
+
+        @Override
+        public List<EncoderRegistry.Encoder> listAudioEncoders() {
+            listings++;
+            return encoders;
+        }
+
+        @Override
+        public int maxDecoderInstances(String mimeType) {
+            decoderLookups++;
+            return mimeType.equals(AAC) ? 16 : 0;
+        }
+    }
+
+    private static EncoderRegistry.Encoder software(String name, String mimeType) {
+        return new EncoderRegistry.Encoder(name, mimeType, false, 8_000, 48_000, new int[0], 6, 8_000, 512_000, 32);
+    }
+
+    private static EncoderRegistry.Encoder hardwareAac(String name) {
+        return new EncoderRegistry.Encoder(name, AAC, true, 0, 0, new int[] { 44_100, 48_000 }, 2, 32_000, 320_000, 4);
+    }
+
+    @Test
+    public void prefersHardwareEncodersThatSupportTheFormat() throws Exception {
+        FakeCodecSource source = new FakeCodecSource(
+            software("c2.android.aac.encoder", AAC),
+            hardwareAac("c2.vendor.aac.encoder"),
+            software("c2.android.opus.encoder", OPUS)
+        );
+        File cacheFile = new File(tempFolder.getRoot(), "encoders.tsv");
+        EncoderRegistry registry = new EncoderRegistry(source, cacheFile, () -> "build/1");
+
+        assertEquals("c2.vendor.aac.encoder", registry.encoderFor(AAC, 44_100, 96_000));
+        // The hardware encoder lists discrete rates and a bit rate floor; other formats fall back to software.
+        assertEquals("c2.android.aac.encoder", registry.encoderFor(AAC, 22_050, 96_000));
+        assertEquals("c2.android.aac.encoder", registry.encoderFor(AAC, 44_100, 16_000));
+        assertEquals("c2.android.opus.encoder", registry.encoderFor("AUDIO/OPUS", 16_000, 24_000));
+        assertNull(registry.encoderFor("audio/flac", 44_100, 96_000));
+        assertNull(registry.encoderFor(OPUS, 96_000, 24_000));
+        assertEquals(1, source.listings);
+    }
+
+    @Test
+    public void rankingIsPersistedPerBuildFingerprint() throws Exception {
+        File cacheFile = new File(tempFolder.getRoot(), "registry/encoders.tsv");
+        FakeCodecSource first = new FakeCodecSource(
+            software("c2.android.aac.encoder", AAC),
+            hardwareAac("c2.vendor.aac.encoder")
+        );
+        new EncoderRegistry(first, cacheFile, () -> "build/1").ranking();
+
+        FakeCodecSource sameBuild = new FakeCodecSource();
+        EncoderRegistry reloaded = new EncoderRegistry(sameBuild, cacheFile, () -> "build/1");
+        assertEquals("c2.vendor.aac.encoder", reloaded.encoderFor(AAC, 48_000, 128_000));
+        assertEquals("c2.android.aac.encoder", reloaded.encoderFor(AAC, 32_000, 64_000));
+        assertEquals(0, sameBuild.listings);
+
+        FakeCodecSource updatedBuild = new FakeCodecSource(software("c2.android.aac.encoder", AAC));
+        EncoderRegistry updated = new EncoderRegistry(updatedBuild, cacheFile, () -> "build/2");
+        assertEquals("c2.android.aac.encoder", updated.encoderFor(AAC, 48_000, 128_000));
+        assertEquals(1, updatedBuild.listings);
+    }
+
+    @Test
+    public void instanceLimitsComeFromTheRankingWithoutAnotherCodecWalk() throws Exception {
+        File cacheFile = new File(tempFolder.getRoot(), "encoders.tsv");
+        new EncoderRegistry(
+            new FakeCodecSource(software("c2.android.aac.encoder", AAC), hardwareAac("c2.vendor.aac.encoder")),
+            cacheFile,
+            () -> "build/1"
+        ).ranking();
+        FakeCodecSource source = new FakeCodecSource();
+        EncoderRegistry registry = new EncoderRegistry(source, cacheFile, () -> "build/1");
+
+        assertEquals(4, registry.maxEncoderInstances(AAC, 44_100, 96_000));
+        assertEquals(32, registry.maxEncoderInstances(AAC, 22_050, 96_000));
+        assertEquals(0, registry.maxEncoderInstances(OPUS, 16_000, 24_000));
+        assertEquals(16, registry.maxDecoderInstances("AUDIO/MP4A-LATM"));
+        assertEquals(16, registry.maxDecoderInstances(AAC));
+        assertEquals(0, source.listings);
+        assertEquals(1, source.decoderLookups);
+    }
+
+    @Test
+    public void damagedCacheIsRebuiltFromTheCodecList() throws Exception {
+        File cacheFile = tempFolder.newFile("encoders.tsv");
+        Files.write(cacheFile.toPath(), "build/1\nc2.vendor.aac.encoder\taudio/mp4a-latm\t1\n".getBytes());
+        FakeCodecSource source = new FakeCodecSource(software("c2.android.aac.encoder", AAC));
+
+        EncoderRegistry registry = new EncoderRegistry(source, cacheFile, () -> "build/1");
+
+        assertEquals("c2.android.aac.encoder", registry.encoderFor(AAC, 44_100, 96_000));
+        assertEquals(1, source.listings);
+    }
+}
@@ -0,0 +1,132 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import android.content.Context;
+import android.media.AudioManager;
+import android.media.AudioRecordingConfiguration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MicrophoneAvailabilityTrackerTest {
+
+    private static AudioRecordingConfiguration config(int sessionId) {
+        AudioRecordingConfiguration config = mock(AudioRecordingConfiguration.class);
+        when(config.getClientAudioSessionId()).thenReturn(sessionId);
+        return config;
+    }
+
+    private static Context contextWith(AudioManager audioManager) {
+        Context context = mock(Context.class);
+        when(context.getSystemService(Context.AUDIO_SERVICE)).thenReturn(audioManager);
+        return context;
+    }
+
+    @Test
+    public void otherRecordingMakesMicrophoneUnavailable() {
+        AudioRecordingConfiguration otherRecording = config(7);
+        AudioManager audioManager = mock(AudioManager.class);
+        when(audioManager.getActiveRecordingConfigurations()).thenReturn(List.of(otherRecording));
+        MicrophoneAvailabilityTracker tracker = new MicrophoneAvailabilityTracker(
+            contextWith(audioManager),
+            () -> AudioManager.AUDIO_SESSION_ID_GENERATE
+        );
+
+        assertFalse(tracker.isAvailable());
+    }
+
+    @Test
+    public void ownPreRollSessionIsIgnored() {
+        AudioRecordingConfiguration preRoll = config(42);
+        AudioManager audioManager = mock(AudioManager.class);
+        when(audioManager.getActiveRecordingConfigurations()).thenReturn(List.of(preRoll));
+        MicrophoneAvailabilityTracker tracker = new MicrophoneAvailabilityTracker(contextWith(audioManager), () -> 42);
+
+        assertTrue(tracker.isAvailable());
+    }
+
+    @Test
+    public void availableStateIsReadFromCacheAfterRegistration() {
+        AudioManager audioManager = mock(AudioManager.class);
+        when(audioManager.getActiveRecordingConfigurations()).thenReturn(List.of());
+        MicrophoneAvailabilityTracker tracker = new MicrophoneAvailabilityTracker(
+            contextWith(audioManager),
+            () -> AudioManager.AUDIO_SESSION_ID_GENERATE
+        );
+
+        assertTrue(tracker.isAvailable());
+        assertTrue(tracker.isAvailable());
+
+        verify(audioManager, times(1)).registerAudioRecordingCallback(any(), isNull());
+        verify(audioManager, times(1)).getActiveRecordingConfigurations();
+    }
+
+    @Test
+    public void cachedOccupiedStateIsConfirmedBeforeReporting() {
+        AudioRecordingConfiguration endedRecording = config(7);
+        AudioManager audioManager = mock(AudioManager.class);
+        when(audioManager.getActiveRecordingConfigurations()).thenReturn(List.of(endedRecording), List.of());
+        MicrophoneAvailabilityTracker tracker = new MicrophoneAvailabilityTracker(
+            contextWith(audioManager),
+            () -> AudioManager.AUDIO_SESSION_ID_GENERATE
+        );
+
+        assertTrue(tracker.isAvailable());
+    }
+
+    @Test
+    public void configurationChangesNotifyListenerOnce() {
+        AudioManager audioManager = mock(AudioManager.class);
+        when(audioManager.getActiveRecordingConfigurations()).thenReturn(List.of());
+        MicrophoneAvailabilityTracker tracker = new MicrophoneAvailabilityTracker(
+            contextWith(audioManager),
+            () -> AudioManager.AUDIO_SESSION_ID_GENERATE
+        );
+        List<Boolean> changes = new ArrayList<>();
+        tracker.setListener(changes::add);
+        ArgumentCaptor<AudioManager.AudioRecordingCallback> callback = ArgumentCaptor.forClass(
+            AudioManager.AudioRecordingCallback.class
+        );
+        verify(audioManager).registerAudioRecordingCallback(callback.capture(), isNull());
+
+        callback.getValue().onRecordingConfigChanged(List.of(config(7)));
+        callback.getValue().onRecordingConfigChanged(List.of(config(7), config(8)));
+        callback.getValue().onRecordingConfigChanged(List.of());
+
+        assertEquals(List.of(false, true), changes);
+    }
+
+    @Test
+    public void clearingListenerUnregistersCallback() {
+        AudioManager audioManager = mock(AudioManager.class);
+        MicrophoneAvailabilityTracker tracker = new MicrophoneAvailabilityTracker(
+            contextWith(audioManager),
+            () -> AudioManager.AUDIO_SESSION_ID_GENERATE
+        );
+        tracker.setListener(available -> {});
+
+        tracker.setListener(null);
+
+        verify(audioManager).unregisterAudioRecordingCallback(any());
+    }
+
+    @Test
+    public void missingAudioManagerReportsUnavailable() {
+        MicrophoneAvailabilityTracker tracker = new MicrophoneAvailabilityTracker(
+            contextWith(null),
+            () -> AudioManager.AUDIO_SESSION_ID_GENERATE
+        );
+
+        assertFalse(tracker.isAvailable());
+    }
+}
@@ -0,0 +1,124 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the line layout against {@code android.util.Base64.DEFAULT} and compares the single-threaded and parallel
+ * paths. The benchmark only runs when {@code -DvoiceRecorder.base64.benchmarkBytes} is set, for example to
+ * {@code 52428800} for a 50 MB recording, and prints both timings.
+ */
+public class ParallelBase64EncoderTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void matchesAndroidDefaultLayoutAroundLineBoundaries() throws Exception {
+        ParallelBase64Encoder encoder = new ParallelBase64Encoder(null, ParallelBase64Encoder.DEFAULT_SLICE_LINES);
+        Random random = new Random(7);
+        for (int size : new int[] {0, 1, 2, 3, 56, 57, 58, 113, 114, 115, 57 * 300 + 1}) {
+            byte[] data = new byte[size];
+            random.nextBytes(data);
+
+            assertEquals("size " + size, androidDefault(data), text(encoder.encode(write(data))));
+        }
+    }
+
+    @Test
+    public void parallelSlicesProduceTheSameTextAsOneSlice() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ParallelBase64Encoder parallel = new ParallelBase64Encoder(pool, 3);
+        Random random = new Random(11);
+        try {
+            for (int size : new int[] {57 * 64, 57 * 64 + 1, 57 * 64 + 2, 100_003}) {
+                byte[] data = new byte[size];
+                random.nextBytes(data);
+
+                assertEquals("size " + size, androidDefault(data), text(parallel.encode(write(data))));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void encodedLengthCountsNewlines() {
+        assertEquals(0, ParallelBase64Encoder.encodedLength(0));
+        assertEquals(5, ParallelBase64Encoder.encodedLength(1));
+        assertEquals(77, ParallelBase64Encoder.encodedLength(57));
+        assertEquals(82, ParallelBase64Encoder.encodedLength(58));
+    }
+
+    @Test
+    public void benchmarkSingleThreadedAgainstParallel() throws Exception {
+        Integer size = Integer.getInteger("voiceRecorder.base64.benchmarkBytes");
+        Assume.assumeNotNull(size);
+        byte[] data = new byte[size];
+        new Random(3).nextBytes(data);
+        File file = write(data);
+        int parallelism = Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        ParallelBase64Encoder single = new ParallelBase64Encoder(null, ParallelBase64Encoder.DEFAULT_SLICE_LINES);
+        ParallelBase64Encoder parallel = new ParallelBase64Encoder(pool, ParallelBase64Encoder.DEFAULT_SLICE_LINES);
+        try {
+            byte[] expected = single.encode(file);
+            assertArrayEquals(expected, parallel.encode(file));
+            double singleMs = bestOf(single, file);
+            double parallelMs = bestOf(parallel, file);
+
+            System.out.printf(
+                Locale.ROOT,
+                "ParallelBase64EncoderTest: %.1f MB, single-threaded %.1f ms, %d workers %.1f ms%n",
+                size / (1024.0 * 1024.0),
+                singleMs,
+                parallelism,
+                parallelMs
+            );
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static double bestOf(ParallelBase64Encoder encoder, File file) throws Exception {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            encoder.encode(file);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+
+    private File write(byte[] data) throws Exception {
+        File file = tempFolder.newFile();
+        Files.write(file.toPath(), data);
+        return file;
+    }
+
+    private static String text(byte[] encoded) {
+        return new String(encoded, StandardCharsets.US_ASCII);
+    }
+
+    /** Standard base64 wrapped like Android's DEFAULT flags: 76 characters per line, each line ending in '\n'. */
+    private static String androidDefault(byte[] data) {
+        String plain = Base64.getEncoder().encodeToString(data);
+        StringBuilder wrapped = new StringBuilder();
+        for (int start = 0; start < plain.length(); start += ParallelBase64Encoder.LINE_CHARS) {
+            wrapped.append(plain, start, Math.min(plain.length(), start + ParallelBase64Encoder.LINE_CHARS)).append('\n');
+        }
+        return wrapped.toString();
+    }
+}
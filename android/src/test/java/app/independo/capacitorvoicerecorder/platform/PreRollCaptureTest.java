@@ -0,0 +1,84 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.media.AudioRecord;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class PreRollCaptureTest {
+
+    @Test
+    public void snapshotHoldsMostRecentAudioAndReleasesMicrophone() throws Exception {
+        AudioRecord audioRecord = mock(AudioRecord.class);
+        CountDownLatch filled = new CountDownLatch(200);
+        when(audioRecord.getState()).thenReturn(AudioRecord.STATE_INITIALIZED);
+        when(audioRecord.read(any(short[].class), anyInt(), anyInt())).thenAnswer(invocation -> {
+            short[] chunk = invocation.getArgument(0);
+            int length = invocation.getArgument(2);
+            Arrays.fill(chunk, 0, length, (short) 7);
+            filled.countDown();
+            return length;
+        });
+        PreRollCapture capture = new PreRollCapture(new FakeAudioRecordFactory(audioRecord));
+
+        capture.arm(100);
+        assertTrue(capture.isArmed());
+        assertTrue(filled.await(5, TimeUnit.SECONDS));
+        short[] snapshot = capture.takeSnapshot();
+
+        assertEquals(PreRollCapture.SAMPLE_RATE / 10, snapshot.length);
+        assertEquals(7, snapshot[snapshot.length - 1]);
+        assertFalse(capture.isArmed());
+        verify(audioRecord).stop();
+        verify(audioRecord).release();
+    }
+
+    @Test
+    public void takeSnapshotReturnsNullWhenNotArmed() {
+        PreRollCapture capture = new PreRollCapture(new FakeAudioRecordFactory(mock(AudioRecord.class)));
+
+        assertNull(capture.takeSnapshot());
+    }
+
+    @Test
+    public void armFailsWhenAudioRecordIsNotInitialized() {
+        AudioRecord audioRecord = mock(AudioRecord.class);
+        when(audioRecord.getState()).thenReturn(AudioRecord.STATE_UNINITIALIZED);
+        PreRollCapture capture = new PreRollCapture(new FakeAudioRecordFactory(audioRecord));
+
+        assertThrows(IOException.class, () -> capture.arm(500));
+        assertFalse(capture.isArmed());
+        verify(audioRecord).release();
+    }
+
+    private static final class FakeAudioRecordFactory implements PreRollCapture.AudioRecordFactory {
+        private final AudioRecord audioRecord;
+
+        FakeAudioRecordFactory(AudioRecord audioRecord) {
+            this.audioRecord = audioRecord;
+        }
+
+        @Override
+        public AudioRecord create(int sampleRate, int bufferSizeBytes) {
+            return audioRecord;
+        }
+
+        @Override
+        public int getMinBufferSize(int sampleRate) {
+            return 3528;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import app.independo.capacitorvoicerecorder.core.DurabilityOptions;
+import app.independo.capacitorvoicerecorder.core.RecoveredRecording;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RecordingCheckpointerTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void checkpointRecordsTheDurableLengthUntilTheSessionFinishes() throws Exception {
+        File recording = AdtsTestFrames.writeFile(tempFolder.newFile("recording.aac"), 3);
+        File checkpoints = new File(tempFolder.getRoot(), "checkpoints");
+        RecordingCheckpointer checkpointer = new RecordingCheckpointer(
+            recording,
+            "DATA",
+            DurabilityOptions.of("segment", null),
+            checkpoints
+        );
+
+        checkpointer.start();
+        Files.write(recording.toPath(), AdtsTestFrames.frame(10, (byte) 9), StandardOpenOption.APPEND);
+        checkpointer.segmentEnded();
+
+        File checkpoint = new File(checkpoints, "recording.aac" + RecordingCheckpointer.CHECKPOINT_SUFFIX);
+        assertEquals(
+            recording.getAbsolutePath() + "\tDATA\t" + recording.length(),
+            new String(Files.readAllBytes(checkpoint.toPath()), StandardCharsets.UTF_8).trim()
+        );
+        // A running session is never recovered from under its recorder.
+        assertTrue(RecordingCheckpointer.recover(checkpoints).isEmpty());
+
+        checkpointer.finish();
+
+        assertFalse(checkpoint.exists());
+        assertEquals(3, checkpointer.getCheckpointCount());
+    }
+
+    @Test
+    public void periodicModeCheckpointsOnTheTimer() throws Exception {
+        File recording = AdtsTestFrames.writeFile(tempFolder.newFile("recording.aac"), 1);
+        RecordingCheckpointer checkpointer = new RecordingCheckpointer(
+            recording,
+            null,
+            DurabilityOptions.of("periodic", 1),
+            null
+        );
+
+        checkpointer.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (checkpointer.getCheckpointCount() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        checkpointer.finish();
+
+        assertTrue(checkpointer.getCheckpointCount() >= 3);
+    }
+
+    @Test
+    public void recoveryCutsTheTornTailAndDropsEmptyRecordings() throws Exception {
+        File checkpoints = tempFolder.newFolder("checkpoints");
+        File torn = AdtsTestFrames.writeFile(tempFolder.newFile("torn.aac"), 4);
+        long complete = torn.length();
+        byte[] partial = AdtsTestFrames.frame(40, (byte) 7);
+        Files.write(torn.toPath(), Arrays.copyOf(partial, 20), StandardOpenOption.APPEND);
+        File empty = tempFolder.newFile("empty.aac");
+        writeCheckpoint(checkpoints, torn, "DOCUMENTS", complete - 10);
+        writeCheckpoint(checkpoints, empty, "DATA", 0);
+
+        List<RecoveredRecording> recovered = RecordingCheckpointer.recover(checkpoints);
+
+        assertEquals(List.of(new RecoveredRecording(torn, "DOCUMENTS", complete - 10)), recovered);
+        assertEquals(complete, torn.length());
+        assertFalse(empty.exists());
+        assertEquals(0, checkpoints.list().length);
+        assertTrue(RecordingCheckpointer.recover(checkpoints).isEmpty());
+    }
+
+    @Test
+    public void framesPastTheCheckpointMustMatchTheStream() throws Exception {
+        File checkpoints = tempFolder.newFolder("checkpoints");
+        byte[] stale = AdtsTestFrames.frame(30, (byte) 5);
+        // A page that was never written back can hold a valid-looking frame from another stream.
+        stale[2] = (byte) ((1 << 6) | (8 << 2));
+        File unforced = AdtsTestFrames.writeFile(tempFolder.newFile("unforced.aac"), 3);
+        long checkpointed = unforced.length();
+        Files.write(unforced.toPath(), AdtsTestFrames.frame(30, (byte) 4), StandardOpenOption.APPEND);
+        long kept = unforced.length();
+        Files.write(unforced.toPath(), stale, StandardOpenOption.APPEND);
+        Files.write(unforced.toPath(), AdtsTestFrames.frame(30, (byte) 6), StandardOpenOption.APPEND);
+        File forced = AdtsTestFrames.writeFile(tempFolder.newFile("forced.aac"), 3);
+        Files.write(forced.toPath(), stale, StandardOpenOption.APPEND);
+        long forcedLength = forced.length();
+        writeCheckpoint(checkpoints, unforced, "DATA", checkpointed);
+        writeCheckpoint(checkpoints, forced, "DATA", forcedLength);
+
+        RecordingCheckpointer.recover(checkpoints);
+
+        assertEquals(kept, unforced.length());
+        // Inside the checkpointed bytes the same frame was forced by this session, so it stays.
+        assertEquals(forcedLength, forced.length());
+    }
+
+    private static void writeCheckpoint(File checkpoints, File recording, String directory, long durableBytes) throws Exception {
+        File checkpoint = new File(checkpoints, recording.getName() + RecordingCheckpointer.CHECKPOINT_SUFFIX);
+        String line = recording.getAbsolutePath() + "\t" + directory + "\t" + durableBytes + "\n";
+        Files.write(checkpoint.toPath(), line.getBytes(StandardCharsets.UTF_8));
+    }
+}
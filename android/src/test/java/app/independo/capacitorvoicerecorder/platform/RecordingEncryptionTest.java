@@ -0,0 +1,154 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Random;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class RecordingEncryptionTest {
+
+    private static final int CHUNK = RecordingEncryption.DEFAULT_CHUNK_SIZE;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void roundTripsAroundChunkBoundaries() throws Exception {
+        Random random = new Random(5);
+        for (int size : new int[] {0, 1, CHUNK - 1, CHUNK, CHUNK + 1, 3 * CHUNK + 5}) {
+            byte[] plaintext = new byte[size];
+            random.nextBytes(plaintext);
+            File file = encrypt(plaintext);
+
+            assertTrue(RecordingEncryption.isEncrypted(file));
+            assertArrayEquals("size " + size, plaintext, decrypt(file));
+        }
+    }
+
+    @Test
+    public void fileHoldsNoPlaintextAndOnlyTheWrappedKey() throws Exception {
+        byte[] plaintext = new byte[2 * CHUNK];
+        Arrays.fill(plaintext, (byte) 0x5A);
+        File file = encrypt(plaintext);
+
+        byte[] stored = Files.readAllBytes(file.toPath());
+        byte[] run = new byte[64];
+        Arrays.fill(run, (byte) 0x5A);
+        assertEquals(-1, indexOf(stored, run));
+        assertFalse(RecordingEncryption.isEncrypted(tempFolder.newFile("plain.aac")));
+    }
+
+    @Test
+    public void tamperedChunkFailsAuthentication() throws Exception {
+        File file = encrypt(new byte[CHUNK + 100]);
+        try (RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+            access.seek(file.length() - 50);
+            int value = access.read();
+            access.seek(file.length() - 50);
+            access.write(value ^ 0x01);
+        }
+
+        assertThrows(IOException.class, () -> decrypt(file));
+    }
+
+    @Test
+    public void truncatedFileFailsAuthentication() throws Exception {
+        File file = encrypt(new byte[2 * CHUNK + 100]);
+        try (RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+            access.setLength(file.length() - (100 + RecordingEncryption.TAG_LENGTH));
+        }
+
+        assertThrows(IOException.class, () -> decrypt(file));
+    }
+
+    @Test
+    public void wrongKeyIsRejected() throws Exception {
+        File file = encrypt(new byte[10]);
+
+        assertThrows(IOException.class, () -> RecordingEncryption.openDecrypting(file, new TestKeyWrapper(2)).close());
+    }
+
+    private File encrypt(byte[] plaintext) throws IOException {
+        File file = tempFolder.newFile();
+        try (EncryptingOutputStream output = RecordingEncryption.openEncrypting(
+            new FileOutputStream(file),
+            "alias",
+            new TestKeyWrapper(1)
+        )) {
+            // Uneven writes exercise the chunk buffering.
+            for (int offset = 0; offset < plaintext.length; offset += 1000) {
+                output.write(plaintext, offset, Math.min(1000, plaintext.length - offset));
+            }
+        }
+        return file;
+    }
+
+    private static byte[] decrypt(File file) throws IOException {
+        try (DecryptingInputStream input = RecordingEncryption.openDecrypting(file, new TestKeyWrapper(1))) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[777];
+            int read;
+            while ((read = input.read(buffer, 0, buffer.length)) >= 0) {
+                output.write(buffer, 0, read);
+            }
+            assertEquals(input.getPlaintextLength(), output.size());
+            return output.toByteArray();
+        }
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern) {
+        for (int i = 0; i + pattern.length <= data.length; i++) {
+            if (Arrays.equals(Arrays.copyOfRange(data, i, i + pattern.length), pattern)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Software stand-in for the Keystore: a fixed AES key per seed. */
+    static final class TestKeyWrapper implements RecordingEncryption.KeyWrapper {
+        private final SecretKeySpec key;
+
+        TestKeyWrapper(int seed) {
+            byte[] bytes = new byte[32];
+            Arrays.fill(bytes, (byte) seed);
+            key = new SecretKeySpec(bytes, "AES");
+        }
+
+        @Override
+        public byte[] wrap(String alias, byte[] dataKey) throws GeneralSecurityException {
+            byte[] iv = new byte[12];
+            new Random().nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+            byte[] sealed = cipher.doFinal(dataKey);
+            byte[] wrapped = Arrays.copyOf(iv, 12 + sealed.length);
+            System.arraycopy(sealed, 0, wrapped, 12, sealed.length);
+            return wrapped;
+        }
+
+        @Override
+        public byte[] unwrap(String alias, byte[] wrappedKey) throws GeneralSecurityException {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(128, wrappedKey, 0, 12));
+            return cipher.doFinal(wrappedKey, 12, wrappedKey.length - 12);
+        }
+    }
+}
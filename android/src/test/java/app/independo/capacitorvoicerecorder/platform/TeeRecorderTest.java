@@ -0,0 +1,230 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.media.AudioRecord;
+import app.independo.capacitorvoicerecorder.core.CurrentRecordingStatus;
+import app.independo.capacitorvoicerecorder.core.EncoderPolicy;
+import app.independo.capacitorvoicerecorder.core.EncoderSettings;
+import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import app.independo.capacitorvoicerecorder.core.TranscodeProfile;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TeeRecorderTest {
+
+    private static final TranscodeProfile PROXY = TranscodeProfile.of(TranscodeProfile.FORMAT_AAC, 16_000, 16_000);
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void slowProxyDropsOnlyItsOwnSamplesWithoutStallingCapture() throws Exception {
+        AtomicLong captured = new AtomicLong();
+        CountDownLatch reads = new CountDownLatch(150);
+        CountDownLatch proxyReleased = new CountDownLatch(1);
+        CollectingEncoder archive = new CollectingEncoder(null);
+        CollectingEncoder proxy = new CollectingEncoder(proxyReleased);
+        TeeRecorder recorder = createRecorder(countingAudioRecord(captured, reads), archive, proxy);
+
+        recorder.startRecording();
+        // The proxy blocks on its first chunk; capture has to keep going regardless.
+        assertTrue(reads.await(10, TimeUnit.SECONDS));
+        proxyReleased.countDown();
+        recorder.stopRecording();
+
+        assertTrue(archive.finished);
+        assertTrue(proxy.finished);
+        assertEquals(0, recorder.getDroppedArchiveSamples());
+        assertEquals(captured.get(), archive.samples);
+        assertTrue(archive.inOrder);
+        assertTrue(recorder.getDroppedProxySamples() > 0);
+        assertEquals(captured.get(), proxy.samples + recorder.getDroppedProxySamples());
+    }
+
+    @Test
+    public void failedProxyIsDeletedAndArchiveKept() throws Exception {
+        CollectingEncoder archive = new CollectingEncoder(null);
+        CollectingEncoder proxy = new CollectingEncoder(null);
+        proxy.failure = new IOException("encoder failed");
+        CountDownLatch reads = new CountDownLatch(5);
+        TeeRecorder recorder = createRecorder(countingAudioRecord(new AtomicLong(), reads), archive, proxy);
+        File proxyFile = recorder.getProxyFile();
+
+        recorder.startRecording();
+        assertTrue(reads.await(10, TimeUnit.SECONDS));
+        recorder.stopRecording();
+
+        assertNull(recorder.getProxyFile());
+        assertFalse(proxyFile.exists());
+        assertTrue(recorder.getOutputFile().exists());
+        assertTrue(archive.finished);
+    }
+
+    @Test
+    public void startThatCannotOpenTheMicrophoneReleasesEverything() throws Exception {
+        AudioRecord audioRecord = countingAudioRecord(new AtomicLong(), new CountDownLatch(1));
+        doThrow(new IllegalStateException("startRecording() called on an uninitialized AudioRecord"))
+            .when(audioRecord)
+            .startRecording();
+        CollectingEncoder archive = new CollectingEncoder(null);
+        CollectingEncoder proxy = new CollectingEncoder(null);
+        TeeRecorder recorder = createRecorder(audioRecord, archive, proxy);
+
+        assertThrows(IllegalStateException.class, recorder::startRecording);
+        recorder.stopRecording();
+
+        assertTrue(archive.finished);
+        assertTrue(proxy.finished);
+        assertEquals(2, archive.released + proxy.released);
+        verify(audioRecord, times(1)).release();
+        assertEquals(CurrentRecordingStatus.NONE, recorder.getCurrentStatus());
+    }
+
+    @Test
+    public void archiveFollowsEncoderSettings() throws Exception {
+        AtomicReference<TranscodeProfile> archiveProfile = new AtomicReference<>();
+        TeeRecorder recorder = createRecorder(
+            countingAudioRecord(new AtomicLong(), new CountDownLatch(1)),
+            (profile, inputRate, destination) -> {
+                if (profile != PROXY) {
+                    archiveProfile.set(profile);
+                }
+                return new CollectingEncoder(null);
+            },
+            EncoderSettings.forDeviceState(0, true)
+        );
+
+        assertEquals(EncoderPolicy.REDUCED, recorder.getEncoderSettings().policy());
+        assertEquals(32_000, archiveProfile.get().sampleRate());
+        assertEquals(64_000, archiveProfile.get().bitRate());
+    }
+
+    private TeeRecorder createRecorder(AudioRecord audioRecord, CollectingEncoder archive, CollectingEncoder proxy)
+        throws Exception {
+        return createRecorder(
+            audioRecord,
+            (profile, inputRate, destination) -> {
+                destination.createNewFile();
+                return profile == PROXY ? proxy : archive;
+            },
+            EncoderSettings.STANDARD
+        );
+    }
+
+    private TeeRecorder createRecorder(
+        AudioRecord audioRecord,
+        TeeRecorder.EncoderFactory encoderFactory,
+        EncoderSettings encoderSettings
+    ) throws Exception {
+        File cacheDir = tempFolder.newFolder("cache");
+        CustomMediaRecorder.DirectoryProvider directoryProvider = mock(CustomMediaRecorder.DirectoryProvider.class);
+        when(directoryProvider.getCacheDir(any())).thenReturn(cacheDir);
+        return new TeeRecorder(
+            mock(Context.class),
+            new RecordOptions(null, null, null, null, false, null, null, PROXY),
+            new FakeAudioRecordFactory(audioRecord),
+            encoderFactory,
+            context -> null,
+            directoryProvider,
+            () -> 34,
+            listener -> null,
+            () -> encoderSettings
+        );
+    }
+
+    /** Returns a source that fills each chunk with a running sample counter at a real-time-like pace. */
+    private static AudioRecord countingAudioRecord(AtomicLong captured, CountDownLatch reads) {
+        AudioRecord audioRecord = mock(AudioRecord.class);
+        when(audioRecord.getState()).thenReturn(AudioRecord.STATE_INITIALIZED);
+        when(audioRecord.read(any(short[].class), anyInt(), anyInt())).thenAnswer(invocation -> {
+            short[] chunk = invocation.getArgument(0);
+            int length = invocation.getArgument(2);
+            for (int i = 0; i < length; i++) {
+                chunk[i] = (short) captured.getAndIncrement();
+            }
+            reads.countDown();
+            Thread.sleep(1);
+            return length;
+        });
+        return audioRecord;
+    }
+
+    private static final class CollectingEncoder implements PcmEncoderQueue.Encoder {
+        private final CountDownLatch gate;
+        IOException failure;
+        volatile long samples;
+        volatile boolean inOrder = true;
+        volatile boolean finished;
+        volatile int released;
+
+        CollectingEncoder(CountDownLatch gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        public void encode(short[] pcm, int length) throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException exp) {
+                    throw new IOException(exp);
+                }
+            }
+            for (int i = 0; i < length; i++) {
+                inOrder &= pcm[i] == (short) (samples + i);
+            }
+            samples += length;
+        }
+
+        @Override
+        public void finish() {
+            finished = true;
+        }
+
+        @Override
+        public void release() {
+            released++;
+        }
+    }
+
+    private static final class FakeAudioRecordFactory implements PreRollCapture.AudioRecordFactory {
+        private final AudioRecord audioRecord;
+
+        FakeAudioRecordFactory(AudioRecord audioRecord) {
+            this.audioRecord = audioRecord;
+        }
+
+        @Override
+        public AudioRecord create(int sampleRate, int bufferSizeBytes) {
+            return audioRecord;
+        }
+
+        @Override
+        public int getMinBufferSize(int sampleRate) {
+            return 4096;
+        }
+    }
+}
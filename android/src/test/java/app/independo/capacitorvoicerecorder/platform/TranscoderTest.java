@@ -0,0 +1,116 @@
+package app.independo.capacitorvoicerecorder.platform;
+
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import app.independo.capacitorvoicerecorder.core.TranscodeProfile;
+import java.io.File;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TranscoderTest {
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static final class FakeMediaFactory implements Transcoder.MediaFactory {
+        final MediaExtractor extractor = mock(MediaExtractor.class);
+        int decoderInstances = 32;
+        int encoderInstances = 32;
+
+        @Override
+        public MediaExtractor createExtractor() {
+            return extractor;
+        }
+
+        @Override
+        public MediaCodec createDecoder(String mimeType) {
+            return mock(MediaCodec.class);
+        }
+
+        @Override
+        public MediaCodec createEncoder(TranscodeProfile profile) {
+            return mock(MediaCodec.class);
+        }
+
+        @Override
+        public MediaMuxer createOggMuxer(String path) {
+            return mock(MediaMuxer.class);
+        }
+
+        @Override
+        public int maxEncoderInstances(TranscodeProfile profile) {
+            return encoderInstances;
+        }
+
+        @Override
+        public int maxDecoderInstances(String mimeType) {
+            return decoderInstances;
+        }
+    }
+
+    @Test
+    public void parallelSessionsLeaveOneCoreFree() {
+        Transcoder transcoder = new Transcoder(new FakeMediaFactory(), () -> android.os.Build.VERSION_CODES.Q);
+
+        assertEquals(7, transcoder.maxParallelSessions(TranscodeProfile.of("opus", null, null), 8));
+        assertEquals(1, transcoder.maxParallelSessions(TranscodeProfile.of("opus", null, null), 1));
+    }
+
+    @Test
+    public void parallelSessionsAreBoundedByCodecInstances() {
+        FakeMediaFactory mediaFactory = new FakeMediaFactory();
+        mediaFactory.encoderInstances = 2;
+        Transcoder transcoder = new Transcoder(mediaFactory, () -> android.os.Build.VERSION_CODES.Q);
+
+        assertEquals(2, transcoder.maxParallelSessions(TranscodeProfile.of("aac", null, null), 8));
+
+        mediaFactory.decoderInstances = 0;
+        assertEquals(1, transcoder.maxParallelSessions(TranscodeProfile.of("aac", null, null), 8));
+    }
+
+    @Test
+    public void opusNeedsApi29() {
+        FakeMediaFactory mediaFactory = new FakeMediaFactory();
+        Transcoder transcoder = new Transcoder(mediaFactory, () -> android.os.Build.VERSION_CODES.P);
+
+        assertThrows(
+            NotSupportedOsVersion.class,
+            () -> transcoder.transcode(
+                new File("in.aac"),
+                new File("out.ogg"),
+                TranscodeProfile.of("opus", null, null),
+                progress -> {}
+            )
+        );
+    }
+
+    @Test
+    public void sourceWithoutAudioFailsAndLeavesNoOutput() throws Exception {
+        FakeMediaFactory mediaFactory = new FakeMediaFactory();
+        MediaFormat videoFormat = mock(MediaFormat.class);
+        when(videoFormat.getString(MediaFormat.KEY_MIME)).thenReturn("video/avc");
+        when(mediaFactory.extractor.getTrackCount()).thenReturn(1);
+        when(mediaFactory.extractor.getTrackFormat(0)).thenReturn(videoFormat);
+        File source = tempFolder.newFile("in.mp4");
+        File destination = tempFolder.newFile("out.aac");
+        Transcoder transcoder = new Transcoder(mediaFactory, () -> android.os.Build.VERSION_CODES.Q);
+
+        assertThrows(
+            IOException.class,
+            () -> transcoder.transcode(source, destination, TranscodeProfile.of("aac", null, null), progress -> {})
+        );
+
+        assertFalse(destination.exists());
+        verify(mediaFactory.extractor).release();
+    }
+}
@@ -0,0 +1,79 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ManagedRecordingCacheTest {
+
+    private static final long NOW = 1_000_000_000L;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = tempFolder.newFolder("voice-recorder");
+    }
+
+    @Test
+    public void releaseDeletesRecordingAndSidecars() throws IOException {
+        ManagedRecordingCache cache = new ManagedRecordingCache(directory, 0, () -> NOW);
+        File recording = file(directory, "recording.aac", NOW);
+        File index = file(directory, "recording.aac.idx", NOW);
+        File other = file(directory, "other.aac", NOW);
+
+        assertTrue(cache.release(recording));
+
+        assertFalse(recording.exists());
+        assertFalse(index.exists());
+        assertTrue(other.exists());
+    }
+
+    @Test
+    public void releaseLeavesFilesOutsideManagedDirectory() throws IOException {
+        ManagedRecordingCache cache = new ManagedRecordingCache(directory, 0, () -> NOW);
+        File outside = file(tempFolder.getRoot(), "recording.aac", NOW);
+
+        assertFalse(cache.release(outside));
+        assertFalse(cache.release(new File(directory, "../recording.aac")));
+        assertTrue(outside.exists());
+    }
+
+    @Test
+    public void sweepDeletesOnlyExpiredRecordings() throws IOException {
+        ManagedRecordingCache cache = new ManagedRecordingCache(directory, 60_000, () -> NOW);
+        File expired = file(directory, "expired.aac", NOW - 60_001);
+        File fresh = file(directory, "fresh.aac", NOW - 59_000);
+
+        assertEquals(List.of(expired), cache.sweep());
+        assertFalse(expired.exists());
+        assertTrue(fresh.exists());
+    }
+
+    @Test
+    public void sweepKeepsEverythingWithoutTtl() throws IOException {
+        ManagedRecordingCache cache = new ManagedRecordingCache(directory, 0, () -> NOW);
+        File old = file(directory, "old.aac", 0);
+
+        assertTrue(cache.sweep().isEmpty());
+        assertTrue(old.exists());
+    }
+
+    private static File file(File parent, String name, long modifiedAt) throws IOException {
+        File file = new File(parent, name);
+        assertTrue(file.createNewFile());
+        assertTrue(file.setLastModified(modifiedAt));
+        return file;
+    }
+}
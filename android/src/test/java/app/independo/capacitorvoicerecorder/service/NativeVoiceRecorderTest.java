@@ -0,0 +1,160 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import app.independo.capacitorvoicerecorder.core.AutoStopReason;
+import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class NativeVoiceRecorderTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static final class RecordingListener implements NativeVoiceRecorder.Listener {
+        final List<Double> levels = new ArrayList<>();
+        final List<byte[]> chunks = new ArrayList<>();
+        volatile NativeVoiceRecorder.Recording completed;
+
+        @Override
+        public void onLevel(double level) {
+            levels.add(level);
+        }
+
+        @Override
+        public void onChunk(ByteBuffer chunk) {
+            byte[] bytes = new byte[chunk.remaining()];
+            chunk.get(bytes);
+            chunks.add(bytes);
+        }
+
+        @Override
+        public void onCompleted(NativeVoiceRecorder.Recording recording) {
+            completed = recording;
+        }
+    }
+
+    @Test
+    public void sessionStreamsLevelsAndChunksAndReturnsTheFile() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        File output = tempFolder.newFile("recording.aac");
+        platform.recorder.outputFile = output;
+        platform.uri = "file://" + output.getAbsolutePath();
+        platform.durationMs = 1200;
+        VoiceRecorderServiceFixtures.ManualTicker ticker = new VoiceRecorderServiceFixtures.ManualTicker();
+        NativeVoiceRecorder recorder = NativeVoiceRecorder
+            .builder(platform, () -> true)
+            .streamChunks(true)
+            .ticker(ticker)
+            .build();
+        RecordingListener listener = new RecordingListener();
+
+        recorder.start(null, listener);
+        append(output, new byte[] { 1, 2, 3 });
+        ticker.advance(1);
+        append(output, new byte[] { 4, 5 });
+        ticker.advance(1);
+        ticker.advance(1);
+        NativeVoiceRecorder.Recording recording = recorder.stop();
+
+        assertEquals(RecordOptions.MANAGED_DIRECTORY, platform.recorder.options.directory());
+        assertEquals(3, listener.levels.size());
+        assertEquals(2, listener.chunks.size());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, listener.chunks.get(0));
+        assertArrayEquals(new byte[] { 4, 5 }, listener.chunks.get(1));
+        assertSame(recording, listener.completed);
+        assertEquals(output, recording.getFile());
+        assertEquals(1200, recording.getDurationMs());
+        assertNull(recording.getStopReason());
+        assertNull(ticker.tick);
+        assertFalse(platform.readFileCalled);
+        ByteBuffer mapped = recording.map();
+        assertEquals(5, mapped.remaining());
+        assertEquals(4, mapped.get(3));
+        recorder.shutdown();
+    }
+
+    @Test
+    public void explicitDirectoryIsKept() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        platform.recorder.outputFile = tempFolder.newFile("recording.aac");
+        Files.write(platform.recorder.outputFile.toPath(), new byte[] { 1 });
+        platform.uri = "file://recording.aac";
+        NativeVoiceRecorder recorder = NativeVoiceRecorder.builder(platform, () -> true)
+            .ticker(new VoiceRecorderServiceFixtures.ManualTicker())
+            .build();
+
+        recorder.start(new RecordOptions("DATA", "notes"), new NativeVoiceRecorder.Listener() {});
+        recorder.stop();
+
+        assertEquals("DATA", platform.recorder.options.directory());
+        assertEquals("notes", platform.recorder.options.subDirectory());
+        recorder.shutdown();
+    }
+
+    @Test
+    public void limitReachedWhileStartingLeavesNoSessionBehind() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        platform.recorder.onStart = () -> {
+            CountDownLatch limitQueued = new CountDownLatch(1);
+            // The limit fires from the recorder's own thread and queues its stop right behind the start.
+            new Thread(() -> {
+                limitQueued.countDown();
+                platform.recorder.onLimitReached.accept(AutoStopReason.MAX_DURATION);
+            }).start();
+            try {
+                limitQueued.await();
+            } catch (InterruptedException exp) {
+                Thread.currentThread().interrupt();
+            }
+            sleepQuietly(5);
+        };
+        platform.recorder.outputFile = tempFolder.newFile("recording.aac");
+        Files.write(platform.recorder.outputFile.toPath(), new byte[] { 1 });
+        VoiceRecorderServiceFixtures.ManualTicker ticker = new VoiceRecorderServiceFixtures.ManualTicker();
+        NativeVoiceRecorder recorder = NativeVoiceRecorder.builder(platform, () -> true).ticker(ticker).build();
+
+        for (int session = 0; session < 200; session++) {
+            RecordingListener listener = new RecordingListener();
+            recorder.start(null, listener);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (listener.completed == null && System.currentTimeMillis() < deadline) {
+                Thread.onSpinWait();
+            }
+
+            assertEquals(AutoStopReason.MAX_DURATION, listener.completed.getStopReason());
+            synchronized (recorder) {
+                assertNull("session " + session, ticker.tick);
+            }
+        }
+        recorder.shutdown();
+    }
+
+    private static void sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void append(File file, byte[] bytes) throws IOException {
+        try (FileOutputStream output = new FileOutputStream(file, true)) {
+            output.write(bytes);
+        }
+    }
+}
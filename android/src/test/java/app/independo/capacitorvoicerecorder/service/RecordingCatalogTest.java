@@ -0,0 +1,204 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import app.independo.capacitorvoicerecorder.core.RecordingEntry;
+import app.independo.capacitorvoicerecorder.core.RecordingPage;
+import app.independo.capacitorvoicerecorder.core.StorageUsage;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RecordingCatalogTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File recording(String name, String directory, RecordingCatalog catalog) throws Exception {
+        File file = tempFolder.newFile(name);
+        catalog.add(file, entry(name, directory));
+        return file;
+    }
+
+    private File recording(String name, long sizeBytes, RecordingCatalog catalog) throws Exception {
+        File file = tempFolder.newFile(name);
+        RecordingEntry entry = new RecordingEntry("file:///" + name, "CACHE", sizeBytes, 1000, "audio/aac", "aac", 1, null, null, false);
+        catalog.add(file, entry);
+        return file;
+    }
+
+    private static RecordingEntry entry(String name, String directory) {
+        return new RecordingEntry("file:///" + name, directory, 10, 1000, "audio/aac", "aac", 1, null, null, false);
+    }
+
+    private static List<String> uris(RecordingPage page) {
+        return page.recordings().stream().map(RecordingEntry::uri).toList();
+    }
+
+    @Test
+    public void pagesNewestFirstPerDirectory() throws Exception {
+        RecordingCatalog catalog = new RecordingCatalog(new File(tempFolder.getRoot(), "catalog/recordings.catalog"));
+        recording("a.aac", "DOCUMENTS", catalog);
+        recording("b.aac", "DATA", catalog);
+        recording("c.aac", "DOCUMENTS", catalog);
+        recording("d.aac", "DOCUMENTS", catalog);
+
+        assertEquals(List.of("file:///d.aac", "file:///c.aac"), uris(catalog.list(0, 2, null)));
+        assertEquals(List.of("file:///b.aac", "file:///a.aac"), uris(catalog.list(2, 2, null)));
+        RecordingPage documents = catalog.list(1, 10, "DOCUMENTS");
+        assertEquals(List.of("file:///c.aac", "file:///a.aac"), uris(documents));
+        assertEquals(3, documents.total());
+        assertEquals(0, catalog.list(0, 10, "CACHE").total());
+    }
+
+    @Test
+    public void reloadReplaysTheFileAndDropsMissingRecordings() throws Exception {
+        File catalogFile = new File(tempFolder.getRoot(), "recordings.catalog");
+        RecordingCatalog catalog = new RecordingCatalog(catalogFile);
+        File kept = recording("kept.aac", "DATA", catalog);
+        File released = recording("released.aac", "DATA", catalog);
+        File deleted = recording("deleted.aac", "DATA", catalog);
+        catalog.add(kept, new RecordingEntry("file:///kept.aac", "DATA", 20, 2000, "audio/aac", "aac", 2, "ab", "file:///kept.aac.waveform", false));
+        assertTrue(catalog.remove(released));
+        assertTrue(deleted.delete());
+        // A line torn by process death is ignored.
+        Files.write(catalogFile.toPath(), "A\t3\t10".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        RecordingCatalog reloaded = new RecordingCatalog(catalogFile);
+        RecordingPage page = reloaded.list(0, 10, null);
+
+        assertEquals(
+            List.of(new RecordingEntry("file:///kept.aac", "DATA", 20, 2000, "audio/aac", "aac", 2, "ab", "file:///kept.aac.waveform", false)),
+            page.recordings()
+        );
+        assertEquals(1, Files.readAllLines(catalogFile.toPath()).size());
+        assertFalse(reloaded.remove(released));
+    }
+
+    @Test
+    public void pageDropsRecordingsDeletedBehindTheCatalog() throws Exception {
+        File catalogFile = new File(tempFolder.getRoot(), "recordings.catalog");
+        RecordingCatalog catalog = new RecordingCatalog(catalogFile);
+        recording("a.aac", "DATA", catalog);
+        File b = recording("b.aac", "DATA", catalog);
+        recording("c.aac", "DATA", catalog);
+        assertTrue(b.delete());
+
+        RecordingPage page = catalog.list(1, 1, null);
+
+        assertEquals(List.of("file:///a.aac"), uris(page));
+        assertEquals(2, page.total());
+        assertEquals(List.of("file:///c.aac", "file:///a.aac"), uris(new RecordingCatalog(catalogFile).list(0, 10, null)));
+    }
+
+    @Test
+    public void removalsAreCompactedOnceTheyOutnumberLiveEntries() throws Exception {
+        File catalogFile = new File(tempFolder.getRoot(), "recordings.catalog");
+        RecordingCatalog catalog = new RecordingCatalog(catalogFile);
+        File live = recording("live.aac", "DATA", catalog);
+        for (int i = 0; i < RecordingCatalog.COMPACT_MIN_DEAD_LINES / 2 - 1; i++) {
+            catalog.remove(recording("removed-" + i + ".aac", "DATA", catalog));
+        }
+        assertEquals(RecordingCatalog.COMPACT_MIN_DEAD_LINES - 1, Files.readAllLines(catalogFile.toPath()).size());
+
+        catalog.remove(recording("last.aac", "DATA", catalog));
+
+        assertEquals(List.of("file:///live.aac"), uris(catalog.list(0, 10, null)));
+        assertEquals(1, Files.readAllLines(catalogFile.toPath()).size());
+        assertTrue(Files.readAllLines(catalogFile.toPath()).get(0).contains(live.getAbsolutePath() + "\tfile:///live.aac\t"));
+    }
+
+    @Test
+    public void overBudgetEvictsLeastRecentlyUsedUnpinnedRecordings() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        RecordingCatalog catalog = new RecordingCatalog(new File(tempFolder.getRoot(), "recordings.catalog"), clock::incrementAndGet);
+        catalog.setBudget("CACHE", 30);
+        File a = recording("a.aac", 10, catalog);
+        File b = recording("b.aac", 10, catalog);
+        File c = recording("c.aac", 10, catalog);
+        File seekIndex = tempFolder.newFile("b.aac" + RecordingCatalog.SEEK_INDEX_SUFFIX);
+        File waveform = tempFolder.newFile("b.aac" + RecordingCatalog.WAVEFORM_SUFFIX);
+        File unrelated = tempFolder.newFile("b.aac.keep");
+        catalog.touch(a);
+        assertTrue(catalog.pin(c, true));
+
+        File d = tempFolder.newFile("d.aac");
+        List<RecordingEntry> evicted = catalog.add(d, new RecordingEntry("file:///d.aac", "CACHE", 10, 1000, "audio/aac", "aac", 1, null, null, false));
+
+        assertEquals(List.of("file:///b.aac"), evicted.stream().map(RecordingEntry::uri).toList());
+        assertFalse(b.exists());
+        assertFalse(seekIndex.exists() || waveform.exists());
+        assertTrue(unrelated.exists());
+        assertTrue(a.exists() && c.exists() && d.exists());
+        assertEquals(List.of(new StorageUsage("CACHE", 30, 10, 3, 30)), catalog.getUsage());
+    }
+
+    @Test
+    public void pinnedRecordingsAndTheNewestAreKeptEvenOverBudget() throws Exception {
+        RecordingCatalog catalog = new RecordingCatalog(new File(tempFolder.getRoot(), "recordings.catalog"));
+        catalog.setBudget("CACHE", 15);
+        File pinned = recording("pinned.aac", 10, catalog);
+        catalog.pin(pinned, true);
+
+        File large = tempFolder.newFile("large.aac");
+        List<RecordingEntry> evicted = catalog.add(large, new RecordingEntry("file:///large.aac", "CACHE", 20, 1000, "audio/aac", "aac", 1, null, null, false));
+
+        assertTrue(evicted.isEmpty());
+        assertTrue(pinned.exists() && large.exists());
+        assertFalse(catalog.pin(new File(tempFolder.getRoot(), "unknown.aac"), true));
+        assertEquals(List.of(new StorageUsage("CACHE", 30, 10, 2, 15)), catalog.getUsage());
+    }
+
+    @Test
+    public void evictionDropsMissingFilesFirstAndSkipsRecordingsInUse() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        RecordingCatalog catalog = new RecordingCatalog(new File(tempFolder.getRoot(), "recordings.catalog"), clock::incrementAndGet);
+        catalog.setBudget("CACHE", 30);
+        File gone = recording("gone.aac", 10, catalog);
+        File busy = recording("busy.aac", 10, catalog);
+        File idle = recording("idle.aac", 10, catalog);
+        catalog.setInUse(busy::equals);
+        assertTrue(gone.delete());
+
+        File next = tempFolder.newFile("next.aac");
+        List<RecordingEntry> evicted = catalog.add(next, new RecordingEntry("file:///next.aac", "CACHE", 10, 1000, "audio/aac", "aac", 1, null, null, false));
+        // Dropping the deleted entry was enough to fit.
+        assertTrue(evicted.isEmpty());
+        assertTrue(busy.exists() && idle.exists());
+        assertEquals(List.of(new StorageUsage("CACHE", 30, 0, 3, 30)), catalog.getUsage());
+
+        File last = tempFolder.newFile("last.aac");
+        evicted = catalog.add(last, new RecordingEntry("file:///last.aac", "CACHE", 10, 1000, "audio/aac", "aac", 1, null, null, false));
+
+        assertEquals(List.of("file:///idle.aac"), evicted.stream().map(RecordingEntry::uri).toList());
+        assertTrue(busy.exists());
+    }
+
+    @Test
+    public void accessAndPinsSurviveAReload() throws Exception {
+        File catalogFile = new File(tempFolder.getRoot(), "recordings.catalog");
+        AtomicLong clock = new AtomicLong();
+        RecordingCatalog catalog = new RecordingCatalog(catalogFile, clock::incrementAndGet);
+        File a = recording("a.aac", 10, catalog);
+        File b = recording("b.aac", 10, catalog);
+        File c = recording("c.aac", 10, catalog);
+        catalog.touch(a);
+        catalog.pin(b, true);
+
+        RecordingCatalog reloaded = new RecordingCatalog(catalogFile, clock::incrementAndGet);
+        reloaded.setBudget("CACHE", 30);
+        reloaded.add(tempFolder.newFile("d.aac"), new RecordingEntry("file:///d.aac", "CACHE", 10, 1000, "audio/aac", "aac", 1, null, null, false));
+
+        assertFalse(c.exists());
+        assertTrue(a.exists() && b.exists());
+        assertTrue(reloaded.list(0, 10, null).recordings().stream().anyMatch(entry -> entry.uri().equals("file:///b.aac") && entry.pinned()));
+    }
+}
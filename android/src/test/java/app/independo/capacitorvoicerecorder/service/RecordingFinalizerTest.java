@@ -0,0 +1,154 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import app.independo.capacitorvoicerecorder.core.ErrorCodes;
+import app.independo.capacitorvoicerecorder.core.RecordData;
+import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RecordingFinalizerTest {
+
+    private static final File RECORDING = new File("build/tmp/recording.aac");
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static RecordOptions analyzing(String directory) {
+        return new RecordOptions(directory, null, null, null, false, null, null, null, true, 2);
+    }
+
+    @Test
+    public void independentTasksRunAtTheSameTime() throws Exception {
+        // Duration and base64 each wait for the other; run one after the other, the barrier would time out.
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        VoiceRecorderServiceFixtures.FakePlatform platform = new VoiceRecorderServiceFixtures.FakePlatform() {
+            @Override
+            public int getDurationMs(File recordedFile) {
+                await(barrier);
+                return super.getDurationMs(recordedFile);
+            }
+
+            @Override
+            public byte[] readFileAsBase64(File recordedFile) {
+                await(barrier);
+                return super.readFileAsBase64(recordedFile);
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        RecordData recordData;
+        try {
+            recordData = new RecordingFinalizer(platform, executor).run(RECORDING, null, new RecordOptions(null, null));
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals("BASE64", recordData.getRecordDataBase64());
+        assertEquals(1000, recordData.getMsDuration());
+        assertNull(recordData.getSha256());
+        assertNull(recordData.getWaveform());
+    }
+
+    @Test
+    public void byteTasksShareOneRead() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        platform.recording = ByteBuffer.wrap("abc".getBytes(StandardCharsets.US_ASCII));
+        RecordingFinalizer finalizer = new RecordingFinalizer(platform);
+
+        RecordData recordData = finalizer.run(RECORDING, null, analyzing(null));
+
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", recordData.getSha256());
+        assertSame(platform.waveform, recordData.getWaveform());
+        assertEquals("BASE64", recordData.getRecordDataBase64());
+        assertEquals(1, platform.calls.stream().filter("readRecording"::equals).count());
+        assertEquals(List.of("computeWaveform:2", "encodeBase64", "readRecording"), sorted(platform.calls));
+    }
+
+    @Test
+    public void referencePayloadSkipsBase64AndKeepsAnalysis() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        RecordingFinalizer finalizer = new RecordingFinalizer(platform);
+
+        RecordData recordData = finalizer.run(RECORDING, null, analyzing("CACHE"));
+
+        assertEquals(platform.uri, recordData.getUri());
+        assertSame(RECORDING, recordData.getFile());
+        assertNull(recordData.getRecordDataBase64Bytes());
+        assertArrayEquals(platform.waveform, recordData.getWaveform(), 0f);
+        assertEquals(List.of("computeWaveform:2", "readRecording"), sorted(platform.calls));
+    }
+
+    @Test
+    public void waveformIsStoredOnlyWhenAsked() throws Exception {
+        File recording = tempFolder.newFile("recording.aac");
+        File sidecar = new File(recording.getPath() + RecordingCatalog.WAVEFORM_SUFFIX);
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        RecordingFinalizer finalizer = new RecordingFinalizer(platform);
+
+        assertNull(finalizer.run(recording, null, analyzing("CACHE")).getWaveformUri());
+        assertFalse(sidecar.exists());
+
+        RecordData recordData = finalizer.run(recording, null, analyzing("CACHE"), true);
+
+        assertEquals(platform.uri, recordData.getWaveformUri());
+        assertEquals("0.25,1.0", new String(Files.readAllBytes(sidecar.toPath()), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void failingTaskFailsTheRunWithItsException() {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        platform.readThrows = true;
+        RecordingFinalizer finalizer = new RecordingFinalizer(platform);
+
+        RuntimeException exception = assertThrows(
+            RuntimeException.class,
+            () -> finalizer.run(RECORDING, null, new RecordOptions(null, null))
+        );
+
+        assertEquals("readFileAsBase64 failed", exception.getMessage());
+    }
+
+    @Test
+    public void unreadableRecordingFailsARequestedDigest() {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        platform.recording = null;
+        RecordingFinalizer finalizer = new RecordingFinalizer(platform);
+
+        VoiceRecorderServiceException exception = assertThrows(
+            VoiceRecorderServiceException.class,
+            () -> finalizer.run(RECORDING, null, analyzing("CACHE"))
+        );
+
+        assertEquals(ErrorCodes.FAILED_TO_FETCH_RECORDING, exception.getCode());
+    }
+
+    private static List<String> sorted(List<String> calls) {
+        synchronized (calls) {
+            return calls.stream().sorted().toList();
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+        } catch (Exception exp) {
+            throw new IllegalStateException("tasks did not overlap", exp);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import app.independo.capacitorvoicerecorder.core.ErrorCodes;
+import app.independo.capacitorvoicerecorder.core.TranscodeProfile;
+import app.independo.capacitorvoicerecorder.core.TranscodeQueueProgress;
+import app.independo.capacitorvoicerecorder.core.TranscodeQueueStatus;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TranscodeQueueTest {
+
+    private static final TranscodeProfile PROFILE = TranscodeProfile.of(null, null, null);
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private BatchPlatform platform;
+    private VoiceRecorderService service;
+    private File journalFile;
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private final List<TranscodeQueueProgress> reported = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        platform = new BatchPlatform();
+        service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        journalFile = new File(tempFolder.getRoot(), "state/transcode-queue.journal");
+    }
+
+    @Test
+    public void queuedJobsRunAndReportAggregateProgress() throws Exception {
+        TranscodeQueue queue = newQueue();
+        List<String> uris = List.of(recording("a.aac", 2048), recording("bad.aac", 1024), recording("c.aac", 1024));
+
+        TranscodeQueueStatus queued = queue.enqueue(uris, PROFILE);
+        runScheduled();
+
+        assertEquals(new TranscodeQueueStatus(3, 0, 0), queued);
+        assertEquals(3, reported.size());
+        assertEquals(uris.get(0) + ".out", reported.get(0).outputUri());
+        assertNull(reported.get(0).error());
+        assertEquals(ErrorCodes.FAILED_TO_TRANSCODE, reported.get(1).error());
+        assertNull(reported.get(1).outputUri());
+        assertEquals(new TranscodeQueueStatus(0, 2, 1), reported.get(2).status());
+        assertTrue(reported.get(2).filesPerSecond() > 0);
+        assertTrue(reported.get(2).megabytesPerSecond() > 0);
+        assertEquals(new TranscodeQueueStatus(0, 2, 1), queue.getStatus());
+    }
+
+    @Test
+    public void drainedQueueCompactsJournalToTotals() throws Exception {
+        TranscodeQueue queue = newQueue();
+        queue.enqueue(List.of(recording("a.aac", 16), recording("b.aac", 16)), PROFILE);
+        runScheduled();
+
+        List<String> lines = Files.readAllLines(journalFile.toPath());
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).startsWith("T\t2\t0\t"));
+    }
+
+    @Test
+    public void resumeRunsOnlyUnfinishedJobsAfterProcessDeath() throws Exception {
+        TranscodeQueue first = newQueue();
+        List<String> uris = List.of(recording("a.aac", 16), recording("b.aac", 16), recording("c.aac", 16));
+        first.enqueue(uris, PROFILE);
+        scheduled.remove(0).run();
+        // Process dies with two jobs scheduled but not run.
+        scheduled.clear();
+        reported.clear();
+
+        TranscodeQueue second = newQueue();
+        TranscodeQueueStatus resumed = second.resume();
+        runScheduled();
+
+        assertEquals(new TranscodeQueueStatus(2, 1, 0), resumed);
+        assertEquals(List.of(uris.get(1), uris.get(2)), reported.stream().map(TranscodeQueueProgress::uri).toList());
+        assertEquals(new TranscodeQueueStatus(0, 3, 0), second.getStatus());
+    }
+
+    @Test
+    public void clearDropsPendingJobs() throws Exception {
+        TranscodeQueue queue = newQueue();
+        queue.enqueue(List.of(recording("a.aac", 16), recording("b.aac", 16)), PROFILE);
+
+        queue.clear();
+        runScheduled();
+
+        assertTrue(reported.isEmpty());
+        assertEquals(new TranscodeQueueStatus(0, 0, 0), queue.getStatus());
+        assertEquals(new TranscodeQueueStatus(0, 0, 0), newQueue().resume());
+    }
+
+    @Test
+    public void duplicatesInOneBatchAreQueuedOnce() throws Exception {
+        TranscodeQueue queue = newQueue();
+        String uri = recording("a.aac", 16);
+
+        TranscodeQueueStatus queued = queue.enqueue(List.of(uri, uri), PROFILE);
+        runScheduled();
+
+        assertEquals(new TranscodeQueueStatus(1, 0, 0), queued);
+        assertEquals(1, reported.size());
+    }
+
+    @Test
+    public void profileParallelismIsLookedUpByItsFirstJob() throws Exception {
+        TranscodeQueue queue = newQueue();
+        List<Integer> startedDuringTranscode = new ArrayList<>();
+        platform.duringTranscode = () -> startedDuringTranscode.add(scheduled.size());
+        queue.enqueue(List.of(recording("a.aac", 16), recording("b.aac", 16), recording("c.aac", 16)), PROFILE);
+
+        // Until the limit is known only one job runs.
+        assertEquals(1, scheduled.size());
+        runScheduled();
+
+        // maxParallelTranscodes is 2: the first job lets one more start, each finished job one after that.
+        assertEquals(List.of(1, 1, 0), startedDuringTranscode);
+        assertEquals(3, reported.size());
+    }
+
+    @Test
+    public void jobsWritingTheSameFileNeverOverlap() throws Exception {
+        TranscodeQueue queue = newQueue();
+        String uri = recording("a.aac", 16);
+        List<Integer> startedDuringTranscode = new ArrayList<>();
+        platform.duringTranscode = () -> startedDuringTranscode.add(scheduled.size());
+        queue.enqueue(List.of(uri), PROFILE);
+        queue.enqueue(List.of(uri), PROFILE);
+
+        runScheduled();
+
+        assertEquals(List.of(0, 0), startedDuringTranscode);
+        assertEquals(2, reported.size());
+        assertEquals(new TranscodeQueueStatus(0, 2, 0), queue.getStatus());
+    }
+
+    @Test
+    public void batchWithMissingRecordingIsRejectedAsAWhole() throws Exception {
+        TranscodeQueue queue = newQueue();
+        List<String> uris = List.of(recording("a.aac", 16), "file://" + tempFolder.getRoot() + "/missing.aac");
+
+        VoiceRecorderServiceException exception = assertThrows(
+            VoiceRecorderServiceException.class,
+            () -> queue.enqueue(uris, PROFILE)
+        );
+
+        assertEquals(ErrorCodes.RECORDING_NOT_FOUND, exception.getCode());
+        assertEquals(new TranscodeQueueStatus(0, 0, 0), queue.getStatus());
+        assertTrue(scheduled.isEmpty());
+    }
+
+    @Test
+    public void unsupportedProfileIsRejected() throws Exception {
+        TranscodeQueue queue = newQueue();
+
+        VoiceRecorderServiceException exception = assertThrows(
+            VoiceRecorderServiceException.class,
+            () -> queue.enqueue(List.of(recording("a.aac", 16)), new TranscodeProfile("opus", 44_100, 24_000))
+        );
+
+        assertEquals(ErrorCodes.INVALID_TRANSCODE_PROFILE, exception.getCode());
+    }
+
+    @Test
+    public void truncatedJournalLineIsIgnored() throws Exception {
+        String uri = recording("a.aac", 16);
+        Files.createDirectories(journalFile.getParentFile().toPath());
+        Files.write(
+            journalFile.toPath(),
+            ("Q\t1\topus\t16000\t24000\t" + uri + "\nQ\t2\topus\t16000\t24000\tfile:///par").getBytes(StandardCharsets.UTF_8)
+        );
+
+        TranscodeQueueStatus resumed = newQueue().resume();
+        runScheduled();
+
+        assertEquals(new TranscodeQueueStatus(1, 0, 0), resumed);
+        assertEquals(1, reported.size());
+        assertEquals(uri, reported.get(0).uri());
+    }
+
+    private TranscodeQueue newQueue() {
+        return new TranscodeQueue(service, new TranscodeJournal(journalFile), scheduled::add, reported::add);
+    }
+
+    private void runScheduled() {
+        while (!scheduled.isEmpty()) {
+            scheduled.remove(0).run();
+        }
+    }
+
+    private String recording(String name, int size) throws IOException {
+        File file = tempFolder.newFile(name);
+        Files.write(file.toPath(), new byte[size]);
+        return "file://" + file.getAbsolutePath();
+    }
+
+    /** Platform that resolves file URIs and fails transcodes of files named "bad". */
+    private static final class BatchPlatform extends VoiceRecorderServiceFixtures.FakePlatform {
+        Runnable duringTranscode = () -> {};
+
+        @Override
+        public File fromUri(String uri) {
+            return uri.startsWith("file://") ? new File(uri.substring("file://".length())) : null;
+        }
+
+        @Override
+        public File transcode(File recordedFile, TranscodeProfile profile, DoubleConsumer onProgress)
+            throws Exception {
+            if (recordedFile.getName().startsWith("bad")) {
+                throw new IOException("decoder failed");
+            }
+            duringTranscode.run();
+            return new File(recordedFile.getPath() + ".out");
+        }
+
+        @Override
+        public String toUri(File recordedFile) {
+            return "file://" + recordedFile.getAbsolutePath();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import app.independo.capacitorvoicerecorder.core.CurrentRecordingStatus;
+import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class VoiceRecorderServiceCommandQueueTest {
+
+    @Test
+    public void statusReadsDoNotWaitForSlowStop() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        CountDownLatch stopEntered = new CountDownLatch(1);
+        CountDownLatch releaseStop = new CountDownLatch(1);
+        platform.recorder.onStop = () -> {
+            stopEntered.countDown();
+            awaitQuietly(releaseStop);
+        };
+        service.startRecording(new RecordOptions(null, null), () -> {}, () -> {});
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        service.dispatch(() -> {
+            try {
+                service.stopRecording();
+            } catch (VoiceRecorderServiceException ignored) {
+                // Not expected; the assertion below would time out.
+            }
+            stopped.countDown();
+        });
+        assertTrue(stopEntered.await(5, TimeUnit.SECONDS));
+
+        assertEquals(CurrentRecordingStatus.NONE, service.getCurrentStatus());
+        assertEquals(0, service.getCurrentAmplitude(), 0);
+        releaseStop.countDown();
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void recorderCallbacksRunOnCommandThread() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        service.startRecording(new RecordOptions(null, null), () -> {}, () -> {});
+
+        assertNotNull(platform.recorder.callbackExecutor);
+        AtomicReference<String> threadName = new AtomicReference<>();
+        CountDownLatch ran = new CountDownLatch(1);
+        platform.recorder.callbackExecutor.execute(() -> {
+            platform.recorder.status = CurrentRecordingStatus.INTERRUPTED;
+            platform.recorder.onInterruptionBegan.run();
+            threadName.set(Thread.currentThread().getName());
+            ran.countDown();
+        });
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertEquals("VoiceRecorderCommands", threadName.get());
+        assertEquals(CurrentRecordingStatus.INTERRUPTED, service.getCurrentStatus());
+    }
+
+    @Test
+    public void dispatchedCommandsCallServiceInline() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        CountDownLatch started = new CountDownLatch(1);
+
+        service.dispatch(() -> {
+            try {
+                service.startRecording(new RecordOptions(null, null), () -> {}, () -> {});
+                started.countDown();
+            } catch (VoiceRecorderServiceException ignored) {
+                // Not expected; the assertion below would time out.
+            }
+        });
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(CurrentRecordingStatus.RECORDING, service.getCurrentStatus());
+    }
+
+    @Test
+    public void dispatchReportsTasksRejectedAfterShutdown() {
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(
+            VoiceRecorderServiceFixtures.createPlatform(),
+            () -> true
+        );
+        service.shutdown();
+
+        assertFalse(service.dispatch(() -> {}));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
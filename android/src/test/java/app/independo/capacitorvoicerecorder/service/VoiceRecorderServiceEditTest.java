@@ -0,0 +1,142 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import app.independo.capacitorvoicerecorder.core.ErrorCodes;
+import app.independo.capacitorvoicerecorder.core.RecordData;
+import app.independo.capacitorvoicerecorder.core.RecordingInfo;
+import app.independo.capacitorvoicerecorder.platform.IncompatibleAudioFormat;
+import java.io.IOException;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class VoiceRecorderServiceEditTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void trimCopiesRangeIntoNewFileByReference() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = platformWithRecording();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+
+        RecordData recordData = service.trimRecording("file:///recording.aac", 1000, 2500);
+
+        assertEquals(List.of("1000-2500-trim-1000-2500"), platform.extractedRanges);
+        assertNull(recordData.getRecordDataBase64());
+        assertEquals("audio/aac", recordData.getMimeType());
+        assertEquals(platform.uri, recordData.getUri());
+    }
+
+    @Test
+    public void trimWithoutEndKeepsTheRestOfTheRecording() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = platformWithRecording();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+
+        RecordData recordData = service.trimRecording("file:///recording.aac", 1000);
+
+        assertEquals(List.of("1000-" + Long.MAX_VALUE + "-trim-1000-end"), platform.extractedRanges);
+        assertEquals(platform.uri, recordData.getUri());
+    }
+
+    @Test
+    public void trimRejectsEmptyRange() {
+        VoiceRecorderServiceFixtures.FakePlatform platform = platformWithRecording();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+
+        VoiceRecorderServiceException exception = assertThrows(
+            VoiceRecorderServiceException.class,
+            () -> service.trimRecording("file:///recording.aac", 2000, 2000)
+        );
+
+        assertEquals(ErrorCodes.INVALID_RANGE, exception.getCode());
+    }
+
+    @Test
+    public void trimOfUnknownRecordingIsRejected() {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+
+        VoiceRecorderServiceException exception = assertThrows(
+            VoiceRecorderServiceException.class,
+            () -> service.trimRecording("file:///missing.aac", 0, 1000)
+        );
+
+        assertEquals(ErrorCodes.RECORDING_NOT_FOUND, exception.getCode());
+    }
+
+    @Test
+    public void concatJoinsRecordingsInOrder() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = platformWithRecording();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+
+        RecordData recordData = service.concatRecordings(List.of("file:///a.aac", "file:///b.aac"));
+
+        assertEquals(List.of(platform.resolvedFile, platform.resolvedFile), platform.concatenated);
+        assertEquals(platform.uri, recordData.getUri());
+    }
+
+    @Test
+    public void concatReportsIncompatibleFormats() {
+        VoiceRecorderServiceFixtures.FakePlatform platform = platformWithRecording();
+        platform.concatThrows = new IncompatibleAudioFormat();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+
+        VoiceRecorderServiceException exception = assertThrows(
+            VoiceRecorderServiceException.class,
+            () -> service.concatRecordings(List.of("file:///a.aac", "file:///b.aac"))
+        );
+
+        assertEquals(ErrorCodes.INCOMPATIBLE_RECORDINGS, exception.getCode());
+    }
+
+    @Test
+    public void concatReportsCopyFailures() {
+        VoiceRecorderServiceFixtures.FakePlatform platform = platformWithRecording();
+        platform.concatThrows = new IOException("disk full");
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+
+        VoiceRecorderServiceException exception = assertThrows(
+            VoiceRecorderServiceException.class,
+            () -> service.concatRecordings(List.of("file:///a.aac"))
+        );
+
+        assertEquals(ErrorCodes.FAILED_TO_EDIT_RECORDING, exception.getCode());
+    }
+
+    @Test
+    public void recordingInfoComesFromThePlatform() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = platformWithRecording();
+        platform.recordingInfo = new RecordingInfo(60_000, 720_000, 44_100, 1, 96_000);
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+
+        assertEquals(platform.recordingInfo, service.getRecordingInfo("file:///recording.aac"));
+    }
+
+    @Test
+    public void recordingInfoOfNonAdtsFileFails() {
+        VoiceRecorderServiceFixtures.FakePlatform platform = platformWithRecording();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+
+        VoiceRecorderServiceException exception = assertThrows(
+            VoiceRecorderServiceException.class,
+            () -> service.getRecordingInfo("file:///recording.ogg")
+        );
+
+        assertEquals(ErrorCodes.FAILED_TO_FETCH_RECORDING, exception.getCode());
+    }
+
+    private VoiceRecorderServiceFixtures.FakePlatform platformWithRecording() {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        try {
+            platform.resolvedFile = tempFolder.newFile("recording.aac");
+        } catch (IOException exp) {
+            throw new IllegalStateException(exp);
+        }
+        return platform;
+    }
+}
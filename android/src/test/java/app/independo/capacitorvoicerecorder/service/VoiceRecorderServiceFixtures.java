@@ -3,10 +3,24 @@ package app.independo.capacitorvoicerecorder.service;
 import app.independo.capacitorvoicerecorder.adapters.PermissionChecker;
 import app.independo.capacitorvoicerecorder.adapters.RecorderAdapter;
 import app.independo.capacitorvoicerecorder.adapters.RecorderPlatform;
+import app.independo.capacitorvoicerecorder.core.AudioRange;
+import app.independo.capacitorvoicerecorder.core.AutoStopReason;
 import app.independo.capacitorvoicerecorder.core.CurrentRecordingStatus;
+import app.independo.capacitorvoicerecorder.core.EncoderSettings;
 import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import app.independo.capacitorvoicerecorder.core.RecordingInfo;
+import app.independo.capacitorvoicerecorder.core.RecoveredRecording;
+import app.independo.capacitorvoicerecorder.core.TranscodeProfile;
 import app.independo.capacitorvoicerecorder.platform.NotSupportedOsVersion;
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
 
 final class VoiceRecorderServiceFixtures {
 
@@ -16,6 +30,14 @@ final class VoiceRecorderServiceFixtures {
         return new VoiceRecorderService(platform, permissionChecker);
     }
 
+    static VoiceRecorderService createService(
+        RecorderPlatform platform,
+        PermissionChecker permissionChecker,
+        AmplitudeMeter.Ticker meterTicker
+    ) {
+        return new VoiceRecorderService(platform, permissionChecker, meterTicker);
+    }
+
     static FakePlatform createPlatform() {
         return new FakePlatform();
     }
@@ -24,13 +46,41 @@ final class VoiceRecorderServiceFixtures {
         boolean canDeviceVoiceRecord = true;
         boolean microphoneOccupied = false;
         boolean createThrows = false;
+        /** Fails to create a recorder while pre-roll is armed, as a configuration error would. */
+        boolean createThrowsWhileArmed = false;
+        /** Fails to start a recorder while pre-roll holds the microphone, as devices before Android 10 do. */
+        boolean startThrowsWhileArmed = false;
         boolean readFileCalled = false;
         boolean toUriCalled = false;
         boolean readThrows = false;
         String base64Payload = "BASE64";
         String uri = "file:///tmp/recording.aac";
         int durationMs = 1000;
+        final List<String> extractedRanges = new ArrayList<>();
+        AudioRange trimmedRange;
+        boolean trimmedBeforeRead = false;
+        /** Platform calls in order; stop-time tasks append from pool threads. */
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        boolean armThrows = false;
+        boolean armed = false;
+        short[] preRoll = new short[] { 1, 2, 3 };
+        CurrentRecordingStatus statusAtTakePreRoll;
+        long preRollDurationMs = 500;
         final FakeRecorder recorder = new FakeRecorder();
+        Consumer<Boolean> microphoneListener;
+        File resolvedFile;
+        File transcodedFile = new File("build/tmp/recording-opus-16000.ogg");
+        double[] transcodeProgress = new double[0];
+        Exception transcodeThrows;
+        TranscodeProfile transcodedProfile;
+        int maxParallelTranscodes = 2;
+        List<File> concatenated;
+        Exception concatThrows;
+        RecordingInfo recordingInfo;
+        File managedDirectory = new File("build/tmp/voice-recorder");
+        ByteBuffer recording = ByteBuffer.wrap("AUDIO".getBytes(StandardCharsets.US_ASCII));
+        float[] waveform = new float[] { 0.25f, 1f };
+        List<RecoveredRecording> recovered = new ArrayList<>();
 
         @Override
         public boolean canDeviceVoiceRecord() {
@@ -42,22 +92,49 @@ final class VoiceRecorderServiceFixtures {
             return microphoneOccupied;
         }
 
+        @Override
+        public void setOnMicrophoneAvailabilityChanged(Consumer<Boolean> listener) {
+            microphoneListener = listener;
+        }
+
         @Override
         public RecorderAdapter createRecorder(RecordOptions options) throws Exception {
-            if (createThrows) {
+            calls.add("createRecorder");
+            if (createThrows || (createThrowsWhileArmed && armed)) {
                 throw new Exception("createRecorder failed");
             }
             recorder.options = options;
+            recorder.startRefused = startThrowsWhileArmed && armed;
             return recorder;
         }
 
         @Override
-        public String readFileAsBase64(File recordedFile) {
+        public byte[] readFileAsBase64(File recordedFile) {
+            calls.add("readFileAsBase64");
             readFileCalled = true;
             if (readThrows) {
                 throw new RuntimeException("readFileAsBase64 failed");
             }
-            return base64Payload;
+            return base64Payload != null ? base64Payload.getBytes(StandardCharsets.US_ASCII) : null;
+        }
+
+        @Override
+        public ByteBuffer readRecording(File recordedFile) {
+            calls.add("readRecording");
+            return recording;
+        }
+
+        @Override
+        public byte[] encodeBase64(ByteBuffer recording) {
+            calls.add("encodeBase64");
+            readFileCalled = true;
+            return base64Payload != null ? base64Payload.getBytes(StandardCharsets.US_ASCII) : null;
+        }
+
+        @Override
+        public float[] computeWaveform(ByteBuffer recording, int points) {
+            calls.add("computeWaveform:" + points);
+            return waveform;
         }
 
         @Override
@@ -70,19 +147,118 @@ final class VoiceRecorderServiceFixtures {
             toUriCalled = true;
             return uri;
         }
+
+        @Override
+        public File fromUri(String uri) {
+            return resolvedFile;
+        }
+
+        @Override
+        public File transcode(File recordedFile, TranscodeProfile profile, DoubleConsumer onProgress) throws Exception {
+            transcodedProfile = profile;
+            if (transcodeThrows != null) {
+                throw transcodeThrows;
+            }
+            for (double progress : transcodeProgress) {
+                onProgress.accept(progress);
+            }
+            return transcodedFile;
+        }
+
+        @Override
+        public int getMaxParallelTranscodes(TranscodeProfile profile) {
+            return maxParallelTranscodes;
+        }
+
+        @Override
+        public File extractAudioRange(File recordedFile, long startMs, long endMs, String suffix) {
+            extractedRanges.add(startMs + "-" + endMs + suffix);
+            return new File(recordedFile.getParentFile(), suffix + ".aac");
+        }
+
+        @Override
+        public File getManagedDirectory() {
+            return managedDirectory;
+        }
+
+        @Override
+        public List<RecoveredRecording> recoverRecordings() {
+            List<RecoveredRecording> result = new ArrayList<>(recovered);
+            recovered.clear();
+            return result;
+        }
+
+        @Override
+        public RecordingInfo getRecordingInfo(File recordedFile) {
+            return recordingInfo;
+        }
+
+        @Override
+        public File concatAudio(List<File> recordedFiles) throws Exception {
+            concatenated = recordedFiles;
+            if (concatThrows != null) {
+                throw concatThrows;
+            }
+            return new File(recordedFiles.get(0).getParentFile(), "joined.aac");
+        }
+
+        @Override
+        public AudioRange trimAudio(File recordedFile, long startMs, long endMs) {
+            trimmedRange = new AudioRange(startMs, endMs);
+            trimmedBeforeRead = !readFileCalled;
+            return trimmedRange;
+        }
+
+        @Override
+        public void armPreRoll(int preRollMs) throws Exception {
+            calls.add("armPreRoll:" + preRollMs);
+            if (armThrows) {
+                throw new Exception("armPreRoll failed");
+            }
+            armed = true;
+        }
+
+        @Override
+        public void disarmPreRoll() {
+            calls.add("disarmPreRoll");
+            armed = false;
+        }
+
+        @Override
+        public short[] takePreRoll() {
+            calls.add("takePreRoll");
+            statusAtTakePreRoll = recorder.status;
+            armed = false;
+            return preRoll;
+        }
+
+        @Override
+        public long prependPreRoll(File recordedFile, short[] preRoll) {
+            calls.add("prependPreRoll:" + preRoll.length);
+            return preRollDurationMs;
+        }
     }
 
     static class FakeRecorder implements RecorderAdapter {
         File outputFile = new File("build/tmp/recording.aac");
+        File proxyFile;
+        EncoderSettings encoderSettings = EncoderSettings.STANDARD;
         RecordOptions options;
         CurrentRecordingStatus status = CurrentRecordingStatus.NONE;
         boolean deleteCalled = false;
         boolean pauseThrows = false;
         boolean resumeThrows = false;
         boolean startThrows = false;
+        boolean startRefused = false;
+        int stopCount = 0;
         double amplitude = 0.5;
+        volatile String amplitudeThread;
         Runnable onInterruptionBegan;
         Runnable onInterruptionEnded;
+        Consumer<AutoStopReason> onLimitReached;
+        Executor callbackExecutor;
+        Runnable onStart;
+        Runnable onStop;
 
         @Override
         public void setOnInterruptionBegan(Runnable callback) {
@@ -94,16 +270,33 @@ final class VoiceRecorderServiceFixtures {
             onInterruptionEnded = callback;
         }
 
+        @Override
+        public void setCallbackExecutor(Executor executor) {
+            callbackExecutor = executor;
+        }
+
+        @Override
+        public void setOnLimitReached(Consumer<AutoStopReason> callback) {
+            onLimitReached = callback;
+        }
+
         @Override
         public void startRecording() {
-            if (startThrows) {
+            if (startThrows || startRefused) {
                 throw new RuntimeException("startRecording failed");
             }
             status = CurrentRecordingStatus.RECORDING;
+            if (onStart != null) {
+                onStart.run();
+            }
         }
 
         @Override
         public void stopRecording() {
+            stopCount++;
+            if (onStop != null) {
+                onStop.run();
+            }
             status = CurrentRecordingStatus.NONE;
         }
 
@@ -132,6 +325,7 @@ final class VoiceRecorderServiceFixtures {
 
         @Override
         public double getCurrentAmplitude() {
+            amplitudeThread = Thread.currentThread().getName();
             return amplitude;
         }
 
@@ -140,6 +334,16 @@ final class VoiceRecorderServiceFixtures {
             return outputFile;
         }
 
+        @Override
+        public EncoderSettings getEncoderSettings() {
+            return encoderSettings;
+        }
+
+        @Override
+        public File getProxyFile() {
+            return proxyFile;
+        }
+
         @Override
         public RecordOptions getRecordOptions() {
             return options;
@@ -151,4 +355,20 @@ final class VoiceRecorderServiceFixtures {
             return true;
         }
     }
+
+    static class ManualTicker implements AmplitudeMeter.Ticker {
+        Runnable tick;
+
+        @Override
+        public AutoCloseable start(Runnable tick, int periodMs) {
+            this.tick = tick;
+            return () -> this.tick = null;
+        }
+
+        void advance(int windows) {
+            for (int i = 0; i < windows && tick != null; i++) {
+                tick.run();
+            }
+        }
+    }
 }
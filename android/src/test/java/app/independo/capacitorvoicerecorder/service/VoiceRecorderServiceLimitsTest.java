@@ -0,0 +1,105 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import app.independo.capacitorvoicerecorder.core.AutoStopReason;
+import app.independo.capacitorvoicerecorder.core.CurrentRecordingStatus;
+import app.independo.capacitorvoicerecorder.core.ErrorCodes;
+import app.independo.capacitorvoicerecorder.core.RecordData;
+import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import app.independo.capacitorvoicerecorder.core.RecordingLimits;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class VoiceRecorderServiceLimitsTest {
+
+    @Test
+    public void limitReachedFinalizesSessionAndReportsPayload() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        LimitEvents events = new LimitEvents();
+
+        service.startRecording(options(RecordingLimits.of(60_000, null)), () -> {}, () -> {}, events);
+        platform.recorder.onLimitReached.accept(AutoStopReason.MAX_DURATION);
+
+        assertEquals(List.of("stopped:MAX_DURATION"), events.names);
+        assertEquals("BASE64", events.recordData.getRecordDataBase64());
+        assertEquals(CurrentRecordingStatus.NONE, service.getCurrentStatus());
+    }
+
+    @Test
+    public void lateLimitNotificationAfterManualStopIsIgnored() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        LimitEvents events = new LimitEvents();
+
+        service.startRecording(options(RecordingLimits.of(null, 1_000_000L)), () -> {}, () -> {}, events);
+        service.stopRecording();
+        platform.recorder.onLimitReached.accept(AutoStopReason.MAX_FILE_SIZE);
+
+        assertEquals(List.of(), events.names);
+    }
+
+    @Test
+    public void limitFinalizationFailureIsReported() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        LimitEvents events = new LimitEvents();
+        platform.recorder.outputFile = null;
+
+        service.startRecording(options(RecordingLimits.of(null, 1_000_000L)), () -> {}, () -> {}, events);
+        platform.recorder.onLimitReached.accept(AutoStopReason.MAX_FILE_SIZE);
+
+        assertEquals(List.of("failed:MAX_FILE_SIZE:" + ErrorCodes.FAILED_TO_FETCH_RECORDING), events.names);
+    }
+
+    @Test
+    public void limitsAreReducedByPreRoll() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        platform.preRoll = new short[44100];
+        RecordOptions options = options(RecordingLimits.of(10_000, 200_000L));
+
+        service.armPreRoll(1000);
+        service.startRecording(options, () -> {}, () -> {});
+
+        RecordingLimits limits = platform.recorder.options.limits();
+        assertEquals(Integer.valueOf(9_000), limits.maxDurationMs());
+        assertEquals(Long.valueOf(200_000L - RecordingLimits.ESTIMATED_BYTES_PER_SECOND), limits.maxFileSizeBytes());
+    }
+
+    @Test
+    public void optionsArePassedThroughWithoutPreRoll() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        RecordOptions options = options(RecordingLimits.of(10_000, null));
+
+        service.startRecording(options, () -> {}, () -> {});
+
+        assertSame(options, platform.recorder.options);
+        assertNull(platform.recorder.options.limits().maxFileSizeBytes());
+    }
+
+    private static RecordOptions options(RecordingLimits limits) {
+        return new RecordOptions(null, null, null, null, false, limits);
+    }
+
+    private static final class LimitEvents implements RecordingEventListener {
+        final List<String> names = new ArrayList<>();
+        RecordData recordData;
+
+        @Override
+        public void onAutoStopped(AutoStopReason reason, RecordData recordData) {
+            names.add("stopped:" + reason);
+            this.recordData = recordData;
+        }
+
+        @Override
+        public void onAutoStopFailed(AutoStopReason reason, VoiceRecorderServiceException exception) {
+            names.add("failed:" + reason + ":" + exception.getCode());
+        }
+    }
+}
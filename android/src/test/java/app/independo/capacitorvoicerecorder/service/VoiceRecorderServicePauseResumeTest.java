@@ -7,6 +7,8 @@ import static org.junit.Assert.assertTrue;
 import app.independo.capacitorvoicerecorder.core.CurrentRecordingStatus;
 import app.independo.capacitorvoicerecorder.core.ErrorCodes;
 import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Test;
 
 public class VoiceRecorderServicePauseResumeTest {
@@ -122,6 +124,13 @@ public class VoiceRecorderServicePauseResumeTest {
 
         service.startRecording(new RecordOptions(null, null), () -> {}, () -> {});
 
+        // The first read queues a sample; the recorder is only read on the command thread.
+        service.getCurrentAmplitude();
+        CountDownLatch sampled = new CountDownLatch(1);
+        service.dispatch(sampled::countDown);
+        assertTrue(sampled.await(5, TimeUnit.SECONDS));
+
         assertEquals(0.42, service.getCurrentAmplitude(), 0.0001);
+        assertEquals("VoiceRecorderCommands", platform.recorder.amplitudeThread);
     }
 }
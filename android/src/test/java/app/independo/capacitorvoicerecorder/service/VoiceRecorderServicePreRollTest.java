@@ -0,0 +1,180 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import app.independo.capacitorvoicerecorder.core.CurrentRecordingStatus;
+import app.independo.capacitorvoicerecorder.core.ErrorCodes;
+import app.independo.capacitorvoicerecorder.core.RecordData;
+import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import app.independo.capacitorvoicerecorder.core.SegmentationOptions;
+import java.util.List;
+import org.junit.Test;
+
+public class VoiceRecorderServicePreRollTest {
+
+    @Test
+    public void preRollIsTakenOnceRecordingAndPrependedBeforeReading() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+
+        service.armPreRoll(1500);
+        service.startRecording(new RecordOptions(null, null), () -> {}, () -> {});
+        service.stopRecording();
+
+        assertEquals(
+            List.of("armPreRoll:1500", "createRecorder", "takePreRoll", "prependPreRoll:3", "readFileAsBase64", "armPreRoll:1500"),
+            platform.calls
+        );
+        assertEquals(CurrentRecordingStatus.RECORDING, platform.statusAtTakePreRoll);
+        assertTrue(service.isPreRollArmed());
+    }
+
+    @Test
+    public void microphoneIsHandedOverWhenTheRecorderCannotShareIt() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        platform.startThrowsWhileArmed = true;
+
+        service.armPreRoll(1500);
+        service.startRecording(new RecordOptions(null, null), () -> {}, () -> {});
+        service.stopRecording();
+
+        assertEquals(
+            List.of(
+                "armPreRoll:1500",
+                "createRecorder",
+                "takePreRoll",
+                "createRecorder",
+                "prependPreRoll:3",
+                "readFileAsBase64",
+                "armPreRoll:1500"
+            ),
+            platform.calls
+        );
+    }
+
+    @Test
+    public void recorderThatFailedToStartIsReleasedBeforeTheRetry() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        platform.startThrowsWhileArmed = true;
+
+        service.armPreRoll(1500);
+        service.startRecording(new RecordOptions("DATA", null), () -> {}, () -> {});
+
+        // The refused recorder was stopped and its empty file deleted; the retry is running.
+        assertEquals(1, platform.recorder.stopCount);
+        assertTrue(platform.recorder.deleteCalled);
+        assertEquals(CurrentRecordingStatus.RECORDING, service.getCurrentStatus());
+        service.stopRecording();
+        assertEquals(2, platform.recorder.stopCount);
+    }
+
+    @Test
+    public void recorderThatCannotBeCreatedKeepsThePreRoll() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        platform.createThrowsWhileArmed = true;
+        service.armPreRoll(1500);
+
+        VoiceRecorderServiceException exception = assertThrows(
+            VoiceRecorderServiceException.class,
+            () -> service.startRecording(new RecordOptions(null, null), () -> {}, () -> {})
+        );
+
+        assertEquals(ErrorCodes.FAILED_TO_RECORD, exception.getCode());
+        assertEquals(List.of("armPreRoll:1500", "createRecorder"), platform.calls);
+        assertTrue(service.isPreRollArmed());
+    }
+
+    @Test
+    public void notArmedRecordingDoesNotTouchPreRoll() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+
+        service.startRecording(new RecordOptions(null, null), () -> {}, () -> {});
+        service.stopRecording();
+
+        assertEquals(List.of("createRecorder", "readFileAsBase64"), platform.calls);
+    }
+
+    @Test
+    public void disarmStopsRearming() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+
+        service.armPreRoll(1000);
+        service.disarmPreRoll();
+        service.startRecording(new RecordOptions(null, null), () -> {}, () -> {});
+        service.stopRecording();
+
+        assertFalse(service.isPreRollArmed());
+        assertEquals(List.of("armPreRoll:1000", "disarmPreRoll", "createRecorder", "readFileAsBase64"), platform.calls);
+    }
+
+    @Test
+    public void failedStartRearmsPreRoll() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        service.armPreRoll(1000);
+        platform.createThrows = true;
+
+        assertThrows(
+            VoiceRecorderServiceException.class,
+            () -> service.startRecording(new RecordOptions(null, null), () -> {}, () -> {})
+        );
+
+        assertTrue(platform.armed);
+    }
+
+    @Test
+    public void armRequiresPermission() {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> false);
+
+        VoiceRecorderServiceException exception = assertThrows(VoiceRecorderServiceException.class, () -> service.armPreRoll(1000));
+
+        assertEquals(ErrorCodes.MISSING_PERMISSION, exception.getCode());
+        assertTrue(platform.calls.isEmpty());
+    }
+
+    @Test
+    public void armFailureLeavesServiceDisarmed() {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        platform.armThrows = true;
+
+        VoiceRecorderServiceException exception = assertThrows(VoiceRecorderServiceException.class, () -> service.armPreRoll(1000));
+
+        assertEquals(ErrorCodes.FAILED_TO_RECORD, exception.getCode());
+        assertFalse(service.isPreRollArmed());
+    }
+
+    @Test
+    public void speechRegionsIncludePreRollOffset() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderServiceFixtures.ManualTicker ticker = new VoiceRecorderServiceFixtures.ManualTicker();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true, ticker);
+        platform.durationMs = 5000;
+
+        service.armPreRoll(500);
+        service.startRecording(
+            new RecordOptions(null, null, null, SegmentationOptions.of(null, null, false), false, null),
+            () -> {},
+            () -> {}
+        );
+        platform.recorder.amplitude = 0.002;
+        ticker.advance(10);
+        platform.recorder.amplitude = 0.3;
+        ticker.advance(20);
+        platform.recorder.amplitude = 0.002;
+        ticker.advance(20);
+        RecordData data = service.stopRecording();
+
+        assertEquals(500 + 500, data.getSpeechRegions().get(0).startMs());
+        assertEquals(500 + 1500, data.getSpeechRegions().get(0).endMs());
+    }
+}
@@ -0,0 +1,109 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import app.independo.capacitorvoicerecorder.core.CurrentRecordingStatus;
+import app.independo.capacitorvoicerecorder.core.ErrorCodes;
+import app.independo.capacitorvoicerecorder.core.RecordData;
+import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import app.independo.capacitorvoicerecorder.core.SegmentationOptions;
+import app.independo.capacitorvoicerecorder.core.SpeechRegion;
+import java.util.List;
+import org.junit.Test;
+
+public class VoiceRecorderServiceSegmentationTest {
+
+    private static final double NOISE = 0.002;
+    private static final double SPEECH = 0.3;
+
+    @Test
+    public void stopRecordingReturnsSpeechRegionMap() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderServiceFixtures.ManualTicker ticker = new VoiceRecorderServiceFixtures.ManualTicker();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true, ticker);
+
+        service.startRecording(options(false), () -> {}, () -> {});
+        speakTwice(platform, ticker);
+        RecordData data = service.stopRecording();
+
+        List<SpeechRegion> regions = data.getSpeechRegions();
+        assertEquals(1, regions.size());
+        assertEquals(500, regions.get(0).startMs());
+        assertEquals(3000, regions.get(0).endMs());
+        assertNull(regions.get(0).uri());
+        assertTrue(platform.extractedRanges.isEmpty());
+        assertNull(ticker.tick);
+    }
+
+    @Test
+    public void splitOutputExtractsOneFilePerUtterance() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderServiceFixtures.ManualTicker ticker = new VoiceRecorderServiceFixtures.ManualTicker();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true, ticker);
+
+        service.startRecording(
+            new RecordOptions("CACHE", null, null, SegmentationOptions.of(500, 5000, true), false, null),
+            () -> {},
+            () -> {}
+        );
+        speakTwice(platform, ticker);
+        RecordData data = service.stopRecording();
+
+        assertEquals(2, data.getSpeechRegions().size());
+        assertEquals(List.of("500-1500-utterance-1", "2000-3000-utterance-2"), platform.extractedRanges);
+        assertEquals(platform.uri, data.getSpeechRegions().get(1).uri());
+    }
+
+    @Test
+    public void splitOutputIsRejectedForInlinePayloads() {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+
+        VoiceRecorderServiceException exception = assertThrows(
+            VoiceRecorderServiceException.class,
+            () -> service.startRecording(options(true), () -> {}, () -> {})
+        );
+
+        assertEquals(ErrorCodes.SPLIT_OUTPUT_REQUIRES_DIRECTORY, exception.getCode());
+        assertEquals(CurrentRecordingStatus.NONE, service.getCurrentStatus());
+        assertTrue(platform.calls.isEmpty());
+    }
+
+    @Test
+    public void speechRegionsAreAbsentWithoutSegmentationOptions() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(
+            platform,
+            () -> true,
+            new VoiceRecorderServiceFixtures.ManualTicker()
+        );
+
+        service.startRecording(new RecordOptions(null, null), () -> {}, () -> {});
+
+        assertNull(service.stopRecording().getSpeechRegions());
+    }
+
+    private static RecordOptions options(boolean splitOutput) {
+        return new RecordOptions(null, null, null, SegmentationOptions.of(null, null, splitOutput), false, null);
+    }
+
+    /** Ten noise windows, two one-second bursts separated by half a second, then noise again. */
+    private static void speakTwice(
+        VoiceRecorderServiceFixtures.FakePlatform platform,
+        VoiceRecorderServiceFixtures.ManualTicker ticker
+    ) {
+        platform.recorder.amplitude = NOISE;
+        ticker.advance(10);
+        platform.recorder.amplitude = SPEECH;
+        ticker.advance(20);
+        platform.recorder.amplitude = NOISE;
+        ticker.advance(10);
+        platform.recorder.amplitude = SPEECH;
+        ticker.advance(20);
+        platform.recorder.amplitude = NOISE;
+        ticker.advance(20);
+    }
+}
@@ -3,10 +3,16 @@ package app.independo.capacitorvoicerecorder.service;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 import app.independo.capacitorvoicerecorder.core.CurrentRecordingStatus;
 import app.independo.capacitorvoicerecorder.core.ErrorCodes;
 import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import app.independo.capacitorvoicerecorder.core.TranscodeProfile;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Test;
 
 public class VoiceRecorderServiceStartTest {
@@ -67,6 +73,22 @@ public class VoiceRecorderServiceStartTest {
         assertEquals(ErrorCodes.ALREADY_RECORDING, exception.getCode());
     }
 
+    @Test
+    public void startRecordingReportsActiveSessionBeforeMicrophoneUse() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+
+        service.startRecording(new RecordOptions(null, null), () -> {}, () -> {});
+        platform.microphoneOccupied = true;
+
+        VoiceRecorderServiceException exception = assertThrows(
+            VoiceRecorderServiceException.class,
+            () -> service.startRecording(new RecordOptions(null, null), () -> {}, () -> {})
+        );
+
+        assertEquals(ErrorCodes.ALREADY_RECORDING, exception.getCode());
+    }
+
     @Test
     public void startRecordingThrowsWhenRecorderCreationFails() {
         VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
@@ -115,4 +137,85 @@ public class VoiceRecorderServiceStartTest {
 
         assertEquals(CurrentRecordingStatus.RECORDING, service.getCurrentStatus());
     }
+
+    @Test
+    public void startRecordingRejectsEncryptionWithSilenceTrimming() {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+
+        VoiceRecorderServiceException exception = assertThrows(
+            VoiceRecorderServiceException.class,
+            () -> service.startRecording(new RecordOptions(null, null, null, null, true, null, "alias"), () -> {}, () -> {})
+        );
+
+        assertEquals(ErrorCodes.UNSUPPORTED_WITH_ENCRYPTION, exception.getCode());
+        assertEquals(CurrentRecordingStatus.NONE, service.getCurrentStatus());
+    }
+
+    @Test
+    public void startRecordingRejectsProxyWithSilenceTrimming() {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        TranscodeProfile proxy = TranscodeProfile.of(null, null, null);
+
+        VoiceRecorderServiceException exception = assertThrows(
+            VoiceRecorderServiceException.class,
+            () -> service.startRecording(new RecordOptions(null, null, null, null, true, null, null, proxy), () -> {}, () -> {})
+        );
+
+        assertEquals(ErrorCodes.UNSUPPORTED_WITH_PROXY, exception.getCode());
+        assertEquals(CurrentRecordingStatus.NONE, service.getCurrentStatus());
+    }
+
+    @Test
+    public void startRecordingRejectsUnsupportedProxyProfile() {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        TranscodeProfile proxy = TranscodeProfile.of(TranscodeProfile.FORMAT_OPUS, 44_100, null);
+
+        VoiceRecorderServiceException exception = assertThrows(
+            VoiceRecorderServiceException.class,
+            () -> service.startRecording(new RecordOptions(null, null, null, null, false, null, null, proxy), () -> {}, () -> {})
+        );
+
+        assertEquals(ErrorCodes.INVALID_TRANSCODE_PROFILE, exception.getCode());
+    }
+
+    @Test
+    public void ownSessionDoesNotReportTheMicrophoneAsTaken() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        List<Boolean> reported = new CopyOnWriteArrayList<>();
+        service.setOnMicrophoneAvailabilityChanged(reported::add);
+
+        service.startRecording(new RecordOptions(null, null), () -> {}, () -> {});
+        // The session's own recorder appears as a client, then leaves again when it stops.
+        platform.microphoneListener.accept(false);
+        drain(service);
+        service.stopRecording();
+        platform.microphoneListener.accept(true);
+        drain(service);
+        assertTrue(reported.isEmpty());
+
+        platform.microphoneListener.accept(false);
+        drain(service);
+        assertEquals(List.of(false), reported);
+
+        // Another app that takes the microphone during a session is reported once the session's recorder leaves.
+        platform.microphoneListener.accept(true);
+        drain(service);
+        service.startRecording(new RecordOptions(null, null), () -> {}, () -> {});
+        platform.microphoneListener.accept(false);
+        drain(service);
+        service.stopRecording();
+        platform.microphoneListener.accept(false);
+        drain(service);
+        assertEquals(List.of(false, true, false), reported);
+    }
+
+    private static void drain(VoiceRecorderService service) throws InterruptedException {
+        CountDownLatch drained = new CountDownLatch(1);
+        service.dispatch(drained::countDown);
+        assertTrue(drained.await(5, TimeUnit.SECONDS));
+    }
 }
@@ -9,10 +9,27 @@ import static org.junit.Assert.assertTrue;
 import app.independo.capacitorvoicerecorder.core.ErrorCodes;
 import app.independo.capacitorvoicerecorder.core.RecordData;
 import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import app.independo.capacitorvoicerecorder.core.RecordingEntry;
+import app.independo.capacitorvoicerecorder.core.RecordingPage;
+import app.independo.capacitorvoicerecorder.core.RecoveredRecording;
+import app.independo.capacitorvoicerecorder.core.Tracing;
+import app.independo.capacitorvoicerecorder.core.TranscodeProfile;
+import app.independo.capacitorvoicerecorder.core.VoiceRecorderTracer;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class VoiceRecorderServiceStopTest {
 
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     @Test
     public void stopRecordingThrowsWhenNotStarted() {
         VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(
@@ -43,6 +60,60 @@ public class VoiceRecorderServiceStopTest {
         assertEquals(ErrorCodes.FAILED_TO_FETCH_RECORDING, exception.getCode());
     }
 
+    @Test
+    public void sessionEmitsTraceSectionsAndSlice() throws Exception {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        Tracing.setTracer(new VoiceRecorderTracer() {
+            @Override
+            public void beginSection(String name) {
+                events.add("begin " + name);
+            }
+
+            @Override
+            public void endSection() {
+                events.add("end");
+            }
+
+            @Override
+            public void beginAsyncSection(String name, int cookie) {
+                events.add("beginAsync " + name + " " + cookie);
+            }
+
+            @Override
+            public void endAsyncSection(String name, int cookie) {
+                events.add("endAsync " + name + " " + cookie);
+            }
+
+            @Override
+            public void setCounter(String name, long value) {
+                events.add("counter " + name);
+            }
+        });
+        try {
+            VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(
+                VoiceRecorderServiceFixtures.createPlatform(),
+                () -> true
+            );
+
+            service.startRecording(new RecordOptions(null, null), () -> {}, () -> {});
+            service.stopRecording();
+        } finally {
+            Tracing.setTracer(null);
+        }
+
+        assertEquals(
+            List.of(
+                "begin VoiceRecorder.startSession",
+                "beginAsync VoiceRecorder.session 1",
+                "end",
+                "begin VoiceRecorder.stopSession",
+                "endAsync VoiceRecorder.session 1",
+                "end"
+            ),
+            events
+        );
+    }
+
     @Test
     public void stopRecordingReturnsBase64AndDeletesFileForInlineRecording() throws Exception {
         VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
@@ -127,4 +198,97 @@ public class VoiceRecorderServiceStopTest {
 
         assertEquals(ErrorCodes.FAILED_TO_FETCH_RECORDING, exception.getCode());
     }
+
+    @Test
+    public void stopRecordingReturnsProxyAlongsideRecording() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        platform.uri = "file:///tmp/recording.aac";
+        platform.recorder.proxyFile = new File("build/tmp/recording-proxy.ogg");
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        TranscodeProfile proxy = TranscodeProfile.of(TranscodeProfile.FORMAT_OPUS, 16_000, 16_000);
+
+        service.startRecording(
+            new RecordOptions("CACHE", null, null, null, false, null, null, proxy),
+            () -> {},
+            () -> {}
+        );
+        RecordData data = service.stopRecording();
+
+        assertEquals("aac", data.getFileExtension());
+        assertEquals("audio/ogg", data.getProxy().getMimeType());
+        assertEquals("ogg", data.getProxy().getFileExtension());
+        assertEquals("file:///tmp/recording.aac", data.getProxy().getUri());
+        assertNull(data.getProxy().getRecordDataBase64());
+    }
+
+    @Test
+    public void referenceRecordingsAreCataloguedWithTheirWaveform() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = new VoiceRecorderServiceFixtures.FakePlatform() {
+            @Override
+            public String toUri(File recordedFile) {
+                return "file://" + recordedFile.getAbsolutePath();
+            }
+        };
+        platform.recorder.outputFile = tempFolder.newFile("recording.aac");
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        service.setRecordingCatalog(new RecordingCatalog(new File(tempFolder.getRoot(), "recordings.catalog")));
+
+        service.startRecording(
+            new RecordOptions("DOCUMENTS", null, null, null, false, null, null, null, true, 2),
+            () -> {},
+            () -> {}
+        );
+        RecordData data = service.stopRecording();
+        RecordingPage page = service.listRecordings(0, 10, "DOCUMENTS");
+
+        assertEquals(1, page.total());
+        RecordingEntry entry = page.recordings().get(0);
+        File waveform = new File(platform.recorder.outputFile.getPath() + RecordingCatalog.WAVEFORM_SUFFIX);
+        assertEquals("file://" + platform.recorder.outputFile.getAbsolutePath(), entry.uri());
+        assertEquals(1000, entry.durationMs());
+        assertEquals(data.getSha256(), entry.sha256());
+        assertEquals("file://" + waveform.getAbsolutePath(), entry.waveformUri());
+        assertEquals(entry.waveformUri(), data.getWaveformUri());
+        assertEquals("0.25,1.0", new String(Files.readAllBytes(waveform.toPath()), StandardCharsets.US_ASCII));
+        assertEquals(0, service.listRecordings(0, 10, "DATA").total());
+    }
+
+    @Test
+    public void recoveredRecordingsAreReturnedOnceAndCatalogued() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        File recovered = tempFolder.newFile("recovered.aac");
+        platform.recovered.add(new RecoveredRecording(recovered, "DATA", 0));
+        platform.recovered.add(new RecoveredRecording(tempFolder.newFile("base64.aac"), null, 0));
+        platform.uri = "file:///recovered.aac";
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        service.setRecordingCatalog(new RecordingCatalog(new File(tempFolder.getRoot(), "recordings.catalog")));
+
+        List<RecordData> recordings = service.recoverRecordings();
+
+        assertEquals(2, recordings.size());
+        assertEquals(recovered, recordings.get(0).getFile());
+        assertEquals(1000, recordings.get(0).getMsDuration());
+        assertEquals(List.of("file:///recovered.aac"), service.listRecordings(0, 10, null).recordings().stream().map(RecordingEntry::uri).toList());
+        assertTrue(service.recoverRecordings().isEmpty());
+    }
+
+    @Test
+    public void sweptManagedRecordingsLeaveTheCatalog() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        File managed = tempFolder.newFolder("managed");
+        platform.recorder.outputFile = new File(managed, "recording.aac");
+        assertTrue(platform.recorder.outputFile.createNewFile());
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        service.setRecordingCatalog(new RecordingCatalog(new File(tempFolder.getRoot(), "recordings.catalog")));
+        service.setManagedRecordings(new ManagedRecordingCache(managed, 1, () -> Long.MAX_VALUE));
+
+        service.startRecording(new RecordOptions(RecordOptions.MANAGED_DIRECTORY, null), () -> {}, () -> {});
+        service.stopRecording();
+        assertEquals(1, service.getStorageUsage().size());
+
+        service.sweepManagedRecordings();
+
+        assertFalse(platform.recorder.outputFile.exists());
+        assertTrue(service.getStorageUsage().isEmpty());
+    }
 }
@@ -0,0 +1,378 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import app.independo.capacitorvoicerecorder.adapters.RecorderAdapter;
+import app.independo.capacitorvoicerecorder.core.CurrentRecordingStatus;
+import app.independo.capacitorvoicerecorder.core.ErrorCodes;
+import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import app.independo.capacitorvoicerecorder.platform.NotSupportedOsVersion;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Fires random interleavings of bridge commands and focus callbacks at the service from several threads and checks
+ * the recorder invariants afterwards.
+ *
+ * <p>The run is sized for CI. Pass {@code -DvoiceRecorder.stress.operations=5000000} for a long soak, which also
+ * prints the throughput of the status and amplitude reads, and {@code -DvoiceRecorder.stress.seed=...} to replay the
+ * operation mix reported by a failing run.</p>
+ */
+public class VoiceRecorderServiceStressTest {
+
+    private static final int WRITER_THREADS = 4;
+    private static final int DEFAULT_OPERATIONS = 40_000;
+    private static final String COMMAND_THREAD = "VoiceRecorderCommands";
+    private static final String OPERATIONS_PROPERTY = "voiceRecorder.stress.operations";
+    private static final Set<String> EXPECTED_ERRORS = Set.of(
+        ErrorCodes.ALREADY_RECORDING,
+        ErrorCodes.RECORDING_HAS_NOT_STARTED
+    );
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void randomInterleavingsKeepRecorderInvariants() throws Exception {
+        long seed = Long.getLong("voiceRecorder.stress.seed", System.nanoTime());
+        int operations = Integer.getInteger(OPERATIONS_PROPERTY, DEFAULT_OPERATIONS);
+        Queue<String> violations = new ConcurrentLinkedQueue<>();
+        StressPlatform platform = new StressPlatform(tempFolder.newFolder("stress"), violations);
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        Thread reader = new Thread(() -> readContinuously(service, writing, reads, violations), "stress-reader");
+        List<Thread> writers = new ArrayList<>();
+        CountDownLatch go = new CountDownLatch(1);
+        for (int i = 0; i < WRITER_THREADS; i++) {
+            Random random = new Random(seed + i);
+            int count = operations / WRITER_THREADS;
+            writers.add(new Thread(() -> {
+                awaitQuietly(go);
+                for (int op = 0; op < count; op++) {
+                    runRandomOperation(random, service, platform, violations);
+                }
+            }, "stress-writer-" + i));
+        }
+
+        long startNanos = System.nanoTime();
+        reader.start();
+        writers.forEach(Thread::start);
+        go.countDown();
+        for (Thread writer : writers) {
+            writer.join(TimeUnit.MINUTES.toMillis(5));
+            assertTrue("writer did not finish, seed " + seed, !writer.isAlive());
+        }
+        writing.set(false);
+        reader.join();
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        stopIfActive(service);
+        CountDownLatch drained = new CountDownLatch(1);
+        service.dispatch(drained::countDown);
+        assertTrue(drained.await(5, TimeUnit.SECONDS));
+
+        assertArrayEquals("seed " + seed, new String[0], violations.stream().limit(5).toArray());
+        assertEquals("seed " + seed, 0, platform.active.get());
+        assertTrue("seed " + seed, platform.created.get() > 0);
+        assertEquals("leaked output files, seed " + seed, 0, platform.outputDirectory.list().length);
+        assertEquals(CurrentRecordingStatus.NONE, service.getCurrentStatus());
+        assertTrue(reads.get() > 0);
+        report(
+            "seed %d, %d commands, %d recordings, %.0f status+amplitude reads/s alongside them",
+            seed,
+            operations,
+            platform.created.get(),
+            reads.get() / (elapsedNanos / 1e9)
+        );
+        service.shutdown();
+    }
+
+    @Test
+    public void snapshotReadsAreNotSerializedBehindCommands() throws Exception {
+        StressPlatform platform = new StressPlatform(tempFolder.newFolder("reads"), new ConcurrentLinkedQueue<>());
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        service.startRecording(new RecordOptions(null, null), () -> {}, () -> {});
+        CountDownLatch releaseQueue = new CountDownLatch(1);
+        service.dispatch(() -> awaitQuietly(releaseQueue));
+
+        int readCount = 1_000_000;
+        double sink = 0;
+        long statusStartNanos = System.nanoTime();
+        for (int i = 0; i < readCount; i++) {
+            sink += service.getCurrentStatus().ordinal();
+        }
+        long amplitudeStartNanos = System.nanoTime();
+        for (int i = 0; i < readCount; i++) {
+            sink += service.getCurrentAmplitude();
+        }
+        long endNanos = System.nanoTime();
+        releaseQueue.countDown();
+
+        // Amplitude reads return the last queue-side sample, which the busy queue has not taken yet.
+        assertEquals(readCount * CurrentRecordingStatus.RECORDING.ordinal(), sink, 0);
+        report(
+            "%.0f status reads/s and %.0f amplitude reads/s while the command thread is busy",
+            readCount / ((amplitudeStartNanos - statusStartNanos) / 1e9),
+            readCount / ((endNanos - amplitudeStartNanos) / 1e9)
+        );
+        service.stopRecording();
+        service.shutdown();
+    }
+
+    @Test
+    public void amplitudeReadsRacingStopNeverReachAStoppedRecorder() throws Exception {
+        Queue<String> violations = new ConcurrentLinkedQueue<>();
+        StressPlatform platform = new StressPlatform(tempFolder.newFolder("amplitude"), violations);
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        AtomicBoolean reading = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        Thread reader = new Thread(() -> readContinuously(service, reading, reads, violations), "amplitude-reader");
+        reader.start();
+
+        for (int session = 0; session < 500; session++) {
+            service.startRecording(new RecordOptions(null, null), () -> {}, () -> {});
+            service.getCurrentAmplitude();
+            service.stopRecording();
+        }
+        reading.set(false);
+        reader.join();
+        CountDownLatch drained = new CountDownLatch(1);
+        service.dispatch(drained::countDown);
+        assertTrue(drained.await(5, TimeUnit.SECONDS));
+
+        assertArrayEquals(new String[0], violations.stream().limit(5).toArray());
+        assertTrue(reads.get() > 0);
+        service.shutdown();
+    }
+
+    private static void runRandomOperation(
+        Random random,
+        VoiceRecorderService service,
+        StressPlatform platform,
+        Queue<String> violations
+    ) {
+        try {
+            switch (random.nextInt(8)) {
+                case 0 -> service.startRecording(new RecordOptions(null, null), () -> {}, () -> {});
+                case 1 -> service.stopRecording();
+                case 2 -> service.pauseRecording();
+                case 3 -> service.resumeRecording();
+                case 4 -> platform.changeFocus(false);
+                case 5 -> platform.changeFocus(true);
+                case 6 -> checkSnapshotOnQueue(service, platform, violations);
+                default -> {
+                    service.getCurrentStatus();
+                    service.getCurrentAmplitude();
+                }
+            }
+        } catch (VoiceRecorderServiceException exception) {
+            if (!EXPECTED_ERRORS.contains(exception.getCode())) {
+                violations.add("unexpected error " + exception.getCode());
+            }
+        }
+    }
+
+    /** Between two commands, the published status has to match the recorder the queue owns. */
+    private static void checkSnapshotOnQueue(VoiceRecorderService service, StressPlatform platform, Queue<String> violations) {
+        service.dispatch(() -> {
+            StressRecorder current = platform.current;
+            CurrentRecordingStatus expected = current == null ? CurrentRecordingStatus.NONE : current.status;
+            CurrentRecordingStatus published = service.getCurrentStatus();
+            if (published != expected) {
+                violations.add("published " + published + " but recorder is " + expected);
+            }
+        });
+    }
+
+    private static void readContinuously(
+        VoiceRecorderService service,
+        AtomicBoolean writing,
+        AtomicLong reads,
+        Queue<String> violations
+    ) {
+        long count = 0;
+        while (writing.get()) {
+            CurrentRecordingStatus status = service.getCurrentStatus();
+            double amplitude = service.getCurrentAmplitude();
+            if (status == null || amplitude < 0 || amplitude > 1) {
+                violations.add("inconsistent read " + status + " " + amplitude);
+            }
+            count++;
+        }
+        reads.set(count);
+    }
+
+    private static void stopIfActive(VoiceRecorderService service) throws VoiceRecorderServiceException {
+        try {
+            service.stopRecording();
+        } catch (VoiceRecorderServiceException exception) {
+            if (!ErrorCodes.RECORDING_HAS_NOT_STARTED.equals(exception.getCode())) {
+                throw exception;
+            }
+        }
+    }
+
+    /** Prints a throughput line when a long run was asked for; CI runs stay quiet. */
+    private static void report(String format, Object... args) {
+        if (System.getProperty(OPERATIONS_PROPERTY) != null) {
+            System.out.printf(Locale.ROOT, "VoiceRecorderServiceStressTest: " + format + "%n", args);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Platform that hands out a fresh recorder with a real output file for every session. */
+    private static final class StressPlatform extends VoiceRecorderServiceFixtures.FakePlatform {
+        final File outputDirectory;
+        final Queue<String> violations;
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger created = new AtomicInteger();
+        /** Most recently created recorder; focus callbacks target it even after it has been stopped. */
+        volatile StressRecorder latest;
+        /** Recorder between start and stop, only touched on the command thread. */
+        StressRecorder current;
+
+        StressPlatform(File outputDirectory, Queue<String> violations) {
+            this.outputDirectory = outputDirectory;
+            this.violations = violations;
+        }
+
+        @Override
+        public RecorderAdapter createRecorder(RecordOptions options) throws IOException {
+            requireCommandThread(violations, "createRecorder");
+            if (active.get() != 0) {
+                violations.add("recorder created while another is active");
+            }
+            File outputFile = new File(outputDirectory, "recording-" + created.incrementAndGet() + ".aac");
+            if (!outputFile.createNewFile()) {
+                violations.add("output file reused " + outputFile.getName());
+            }
+            StressRecorder recorder = new StressRecorder(this, outputFile);
+            recorder.options = options;
+            latest = recorder;
+            return recorder;
+        }
+
+        @Override
+        public byte[] readFileAsBase64(File recordedFile) {
+            return base64Payload.getBytes(StandardCharsets.US_ASCII);
+        }
+
+        /** Delivers a focus change the way the system does: posted from another thread to the callback executor. */
+        void changeFocus(boolean gained) {
+            StressRecorder recorder = latest;
+            if (recorder == null || recorder.callbackExecutor == null) {
+                return;
+            }
+            recorder.callbackExecutor.execute(() -> recorder.onFocusChange(gained));
+        }
+    }
+
+    /** Recorder that tracks how many sessions are live and which thread drives it. */
+    private static final class StressRecorder extends VoiceRecorderServiceFixtures.FakeRecorder {
+        private final StressPlatform platform;
+        private boolean started;
+        private boolean stopped;
+
+        StressRecorder(StressPlatform platform, File outputFile) {
+            this.platform = platform;
+            this.outputFile = outputFile;
+        }
+
+        @Override
+        public void startRecording() {
+            requireCommandThread(platform.violations, "startRecording");
+            if (platform.active.incrementAndGet() > 1) {
+                platform.violations.add("two recorders active");
+            }
+            started = true;
+            platform.current = this;
+            super.startRecording();
+        }
+
+        @Override
+        public void stopRecording() {
+            requireCommandThread(platform.violations, "stopRecording");
+            if (!started || stopped) {
+                platform.violations.add("stop without an active session");
+            }
+            stopped = true;
+            platform.active.decrementAndGet();
+            platform.current = null;
+            super.stopRecording();
+        }
+
+        @Override
+        public boolean pauseRecording() throws NotSupportedOsVersion {
+            requireCommandThread(platform.violations, "pauseRecording");
+            return super.pauseRecording();
+        }
+
+        @Override
+        public boolean resumeRecording() throws NotSupportedOsVersion {
+            requireCommandThread(platform.violations, "resumeRecording");
+            return super.resumeRecording();
+        }
+
+        @Override
+        public double getCurrentAmplitude() {
+            requireCommandThread(platform.violations, "getCurrentAmplitude");
+            if (!started || stopped) {
+                platform.violations.add("amplitude read outside the session");
+            }
+            return super.getCurrentAmplitude();
+        }
+
+        @Override
+        public boolean deleteOutputFile() {
+            super.deleteOutputFile();
+            return outputFile.delete();
+        }
+
+        /** Mirrors CustomMediaRecorder: loss interrupts a recording session, gain reports the end of it. */
+        void onFocusChange(boolean gained) {
+            requireCommandThread(platform.violations, "onFocusChange");
+            if (!started || stopped) {
+                return;
+            }
+            if (!gained && status == CurrentRecordingStatus.RECORDING) {
+                status = CurrentRecordingStatus.INTERRUPTED;
+                onInterruptionBegan.run();
+            } else if (gained && status == CurrentRecordingStatus.INTERRUPTED) {
+                onInterruptionEnded.run();
+            }
+        }
+    }
+
+    private static void requireCommandThread(Queue<String> violations, String operation) {
+        if (!COMMAND_THREAD.equals(Thread.currentThread().getName())) {
+            violations.add(operation + " ran on " + Thread.currentThread().getName());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import app.independo.capacitorvoicerecorder.core.ErrorCodes;
+import app.independo.capacitorvoicerecorder.core.RecordData;
+import app.independo.capacitorvoicerecorder.core.TranscodeProfile;
+import app.independo.capacitorvoicerecorder.platform.NotSupportedOsVersion;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class VoiceRecorderServiceTranscodeTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void transcodeReturnsNewFileByReference() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = platformWithRecording();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+
+        RecordData recordData = service.transcodeRecording("file:///recording.aac", TranscodeProfile.of(null, null, null), p -> {});
+
+        assertNull(recordData.getRecordDataBase64());
+        assertEquals("audio/ogg", recordData.getMimeType());
+        assertEquals(platform.uri, recordData.getUri());
+        assertEquals(platform.durationMs, recordData.getMsDuration());
+        assertEquals(new TranscodeProfile("opus", 16_000, 24_000), platform.transcodedProfile);
+    }
+
+    @Test
+    public void transcodeProgressIsThrottled() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = platformWithRecording();
+        platform.transcodeProgress = new double[1001];
+        for (int i = 0; i <= 1000; i++) {
+            platform.transcodeProgress[i] = i / 1000.0;
+        }
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+        List<Double> reported = new ArrayList<>();
+
+        service.transcodeRecording("file:///recording.aac", TranscodeProfile.of(null, null, null), reported::add);
+
+        assertEquals(0.0, reported.get(0), 0);
+        assertEquals(1.0, reported.get(reported.size() - 1), 0);
+        assertEquals(true, reported.size() < 10);
+    }
+
+    @Test
+    public void unsupportedProfileIsRejected() {
+        VoiceRecorderServiceFixtures.FakePlatform platform = platformWithRecording();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+
+        VoiceRecorderServiceException exception = assertThrows(
+            VoiceRecorderServiceException.class,
+            () -> service.transcodeRecording("file:///recording.aac", TranscodeProfile.of("opus", 44_100, null), p -> {})
+        );
+
+        assertEquals(ErrorCodes.INVALID_TRANSCODE_PROFILE, exception.getCode());
+    }
+
+    @Test
+    public void unknownRecordingIsRejected() {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+
+        VoiceRecorderServiceException exception = assertThrows(
+            VoiceRecorderServiceException.class,
+            () -> service.transcodeRecording("content://recording", TranscodeProfile.of(null, null, null), p -> {})
+        );
+
+        assertEquals(ErrorCodes.RECORDING_NOT_FOUND, exception.getCode());
+    }
+
+    @Test
+    public void olderOsVersionIsReported() {
+        VoiceRecorderServiceFixtures.FakePlatform platform = platformWithRecording();
+        platform.transcodeThrows = new NotSupportedOsVersion();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+
+        VoiceRecorderServiceException exception = assertThrows(
+            VoiceRecorderServiceException.class,
+            () -> service.transcodeRecording("file:///recording.aac", TranscodeProfile.of(null, null, null), p -> {})
+        );
+
+        assertEquals(ErrorCodes.NOT_SUPPORTED_OS_VERSION, exception.getCode());
+    }
+
+    @Test
+    public void codecFailureIsReported() {
+        VoiceRecorderServiceFixtures.FakePlatform platform = platformWithRecording();
+        platform.transcodeThrows = new java.io.IOException("codec failed");
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true);
+
+        VoiceRecorderServiceException exception = assertThrows(
+            VoiceRecorderServiceException.class,
+            () -> service.transcodeRecording("file:///recording.aac", TranscodeProfile.of("aac", null, null), p -> {})
+        );
+
+        assertEquals(ErrorCodes.FAILED_TO_TRANSCODE, exception.getCode());
+    }
+
+    private VoiceRecorderServiceFixtures.FakePlatform platformWithRecording() {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        try {
+            platform.resolvedFile = tempFolder.newFile("recording.aac");
+        } catch (java.io.IOException exp) {
+            throw new IllegalStateException(exp);
+        }
+        return platform;
+    }
+}
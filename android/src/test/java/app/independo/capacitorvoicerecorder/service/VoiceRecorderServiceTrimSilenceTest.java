@@ -0,0 +1,80 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import app.independo.capacitorvoicerecorder.core.AudioRange;
+import app.independo.capacitorvoicerecorder.core.RecordData;
+import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import app.independo.capacitorvoicerecorder.core.SegmentationOptions;
+import org.junit.Test;
+
+public class VoiceRecorderServiceTrimSilenceTest {
+
+    private static final double NOISE = 0.002;
+    private static final double SPEECH = 0.3;
+
+    @Test
+    public void trimsToVoicedRangeWithPaddingBeforeReadingPayload() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderServiceFixtures.ManualTicker ticker = new VoiceRecorderServiceFixtures.ManualTicker();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true, ticker);
+
+        service.startRecording(new RecordOptions(null, null, null, null, true, null), () -> {}, () -> {});
+        platform.recorder.amplitude = NOISE;
+        ticker.advance(30);
+        platform.recorder.amplitude = SPEECH;
+        ticker.advance(20);
+        platform.recorder.amplitude = NOISE;
+        ticker.advance(30);
+        RecordData data = service.stopRecording();
+
+        int padding = VoiceRecorderService.TRIM_PADDING_MS;
+        assertEquals(new AudioRange(1500 - padding, 2500 + padding), platform.trimmedRange);
+        assertTrue(platform.trimmedBeforeRead);
+        assertEquals("BASE64", data.getRecordDataBase64());
+        assertNull(data.getSpeechRegions());
+        assertNull(ticker.tick);
+    }
+
+    @Test
+    public void leavesSilentRecordingUntouched() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderServiceFixtures.ManualTicker ticker = new VoiceRecorderServiceFixtures.ManualTicker();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true, ticker);
+
+        service.startRecording(new RecordOptions(null, null, null, null, true, null), () -> {}, () -> {});
+        platform.recorder.amplitude = NOISE;
+        ticker.advance(40);
+        service.stopRecording();
+
+        assertNull(platform.trimmedRange);
+        assertTrue(platform.readFileCalled);
+    }
+
+    @Test
+    public void speechRegionsAreRelativeToTrimmedRecording() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderServiceFixtures.ManualTicker ticker = new VoiceRecorderServiceFixtures.ManualTicker();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true, ticker);
+        platform.durationMs = 1400;
+
+        service.startRecording(
+            new RecordOptions(null, null, null, SegmentationOptions.of(null, null, false), true, null),
+            () -> {},
+            () -> {}
+        );
+        platform.recorder.amplitude = NOISE;
+        ticker.advance(30);
+        platform.recorder.amplitude = SPEECH;
+        ticker.advance(20);
+        platform.recorder.amplitude = NOISE;
+        ticker.advance(30);
+        RecordData data = service.stopRecording();
+
+        assertEquals(1, data.getSpeechRegions().size());
+        assertEquals(VoiceRecorderService.TRIM_PADDING_MS, data.getSpeechRegions().get(0).startMs());
+        assertEquals(VoiceRecorderService.TRIM_PADDING_MS + 1000, data.getSpeechRegions().get(0).endMs());
+    }
+}
@@ -0,0 +1,149 @@
+package app.independo.capacitorvoicerecorder.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import app.independo.capacitorvoicerecorder.core.AutoStopReason;
+import app.independo.capacitorvoicerecorder.core.CurrentRecordingStatus;
+import app.independo.capacitorvoicerecorder.core.ErrorCodes;
+import app.independo.capacitorvoicerecorder.core.RecordData;
+import app.independo.capacitorvoicerecorder.core.RecordOptions;
+import app.independo.capacitorvoicerecorder.core.VoiceActivityOptions;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class VoiceRecorderServiceVoiceActivityTest {
+
+    private static final double NOISE = 0.002;
+    private static final double SPEECH = 0.3;
+
+    @Test
+    public void meterIsNotStartedWithoutVoiceActivityOptions() throws Exception {
+        VoiceRecorderServiceFixtures.ManualTicker ticker = new VoiceRecorderServiceFixtures.ManualTicker();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(
+            VoiceRecorderServiceFixtures.createPlatform(),
+            () -> true,
+            ticker
+        );
+
+        service.startRecording(new RecordOptions(null, null), () -> {}, () -> {});
+
+        assertNull(ticker.tick);
+    }
+
+    @Test
+    public void emitsVoiceActivityEventsAndStopsAfterTrailingSilence() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderServiceFixtures.ManualTicker ticker = new VoiceRecorderServiceFixtures.ManualTicker();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true, ticker);
+        RecordingEvents events = new RecordingEvents();
+
+        service.startRecording(options(1000, null), () -> {}, () -> {}, events);
+        platform.recorder.amplitude = NOISE;
+        ticker.advance(10);
+        platform.recorder.amplitude = SPEECH;
+        ticker.advance(10);
+        platform.recorder.amplitude = NOISE;
+        ticker.advance(19);
+
+        assertEquals(List.of("start", "end"), events.names);
+        assertEquals(CurrentRecordingStatus.RECORDING, service.getCurrentStatus());
+
+        ticker.advance(1);
+
+        assertEquals(List.of("start", "end", "stopped:TRAILING_SILENCE"), events.names);
+        assertEquals("BASE64", events.recordData.getRecordDataBase64());
+        assertEquals(CurrentRecordingStatus.NONE, service.getCurrentStatus());
+        assertNull(ticker.tick);
+    }
+
+    @Test
+    public void stopsWhenNoSpeechWithinLeadingSilence() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderServiceFixtures.ManualTicker ticker = new VoiceRecorderServiceFixtures.ManualTicker();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true, ticker);
+        RecordingEvents events = new RecordingEvents();
+
+        service.startRecording(options(null, 500), () -> {}, () -> {}, events);
+        platform.recorder.amplitude = NOISE;
+        ticker.advance(10);
+
+        assertEquals(List.of("stopped:LEADING_SILENCE"), events.names);
+        assertTrue(platform.readFileCalled);
+    }
+
+    @Test
+    public void pausedTimeDoesNotCountAsSilence() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderServiceFixtures.ManualTicker ticker = new VoiceRecorderServiceFixtures.ManualTicker();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true, ticker);
+        RecordingEvents events = new RecordingEvents();
+
+        service.startRecording(options(null, 500), () -> {}, () -> {}, events);
+        platform.recorder.amplitude = NOISE;
+        service.pauseRecording();
+        ticker.advance(50);
+
+        assertTrue(events.names.isEmpty());
+        assertEquals(CurrentRecordingStatus.PAUSED, service.getCurrentStatus());
+    }
+
+    @Test
+    public void manualStopAfterAutoStopReportsNotStarted() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderServiceFixtures.ManualTicker ticker = new VoiceRecorderServiceFixtures.ManualTicker();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true, ticker);
+
+        service.startRecording(options(null, 100), () -> {}, () -> {}, new RecordingEvents());
+        platform.recorder.amplitude = NOISE;
+        ticker.advance(2);
+
+        VoiceRecorderServiceException exception = assertThrows(
+            VoiceRecorderServiceException.class,
+            service::stopRecording
+        );
+        assertEquals(ErrorCodes.RECORDING_HAS_NOT_STARTED, exception.getCode());
+    }
+
+    @Test
+    public void amplitudeReadsUseLatestMeteredWindow() throws Exception {
+        VoiceRecorderServiceFixtures.FakePlatform platform = VoiceRecorderServiceFixtures.createPlatform();
+        VoiceRecorderServiceFixtures.ManualTicker ticker = new VoiceRecorderServiceFixtures.ManualTicker();
+        VoiceRecorderService service = VoiceRecorderServiceFixtures.createService(platform, () -> true, ticker);
+
+        service.startRecording(options(5000, null), () -> {}, () -> {}, new RecordingEvents());
+        platform.recorder.amplitude = 0.25;
+        ticker.advance(1);
+        platform.recorder.amplitude = 0.75;
+
+        assertEquals(0.25, service.getCurrentAmplitude(), 0.0001);
+    }
+
+    private static RecordOptions options(Integer autoStopAfterSilenceMs, Integer maxLeadingSilenceMs) {
+        return new RecordOptions(null, null, new VoiceActivityOptions(autoStopAfterSilenceMs, maxLeadingSilenceMs), null, false, null);
+    }
+
+    private static final class RecordingEvents implements RecordingEventListener {
+        final List<String> names = new ArrayList<>();
+        RecordData recordData;
+
+        @Override
+        public void onVoiceActivityStart() {
+            names.add("start");
+        }
+
+        @Override
+        public void onVoiceActivityEnd() {
+            names.add("end");
+        }
+
+        @Override
+        public void onAutoStopped(AutoStopReason reason, RecordData recordData) {
+            names.add("stopped:" + reason.name());
+            this.recordData = recordData;
+        }
+    }
+}
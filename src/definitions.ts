@@ -34,6 +34,487 @@ export interface RecordingOptions {
      * Native platforms ignore this option.
      */
     requirePlaybackSupport?: boolean;
+
+    /**
+     * Stops the recording natively once this many milliseconds of silence follow detected speech.
+     *
+     * Setting this option enables native voice activity detection, which emits `voiceActivityStart` and
+     * `voiceActivityEnd` events. When the session stops on its own, the recording is delivered through the
+     * `voiceRecordingAutoStopped` event instead of a `stopRecording()` result.
+     *
+     * Only supported on Android; other platforms ignore this option.
+     */
+    autoStopAfterSilenceMs?: number;
+
+    /**
+     * Stops the recording natively when no speech is detected within this many milliseconds after the start.
+     *
+     * Paused and interrupted time is not counted. Enables the same voice activity detection as
+     * `autoStopAfterSilenceMs`.
+     *
+     * Only supported on Android; other platforms ignore this option.
+     */
+    maxLeadingSilenceMs?: number;
+
+    /**
+     * Builds a map of speech regions while recording, returned as `speechRegions` when the recording stops.
+     *
+     * Only supported on Android; other platforms ignore this option.
+     */
+    segmentation?: SegmentationOptions;
+
+    /**
+     * Cuts leading and trailing silence from the recording when it stops.
+     *
+     * The cut is made at AAC frame boundaries without re-encoding and keeps a short margin around the detected
+     * speech. Recordings without any detected speech are returned unchanged. When combined with `segmentation`,
+     * speech regions are relative to the trimmed recording.
+     *
+     * Only supported on Android; other platforms ignore this option.
+     */
+    trimSilence?: boolean;
+
+    /**
+     * Maximum recorded duration in milliseconds, enforced natively by the recorder.
+     *
+     * When reached, the recording is finalized natively and delivered through the `voiceRecordingLimitReached`
+     * event, so no JavaScript timer or `stopRecording()` call is needed. Paused time does not count.
+     *
+     * Only supported on Android; other platforms ignore this option.
+     */
+    maxDurationMs?: number;
+
+    /**
+     * Maximum size of the recorded file in bytes, enforced natively by the recorder.
+     *
+     * When reached, the recording is finalized natively and delivered through the `voiceRecordingLimitReached`
+     * event. With pre-roll, the encoded size of the buffered audio is reserved from this budget.
+     *
+     * Only supported on Android; other platforms ignore this option.
+     */
+    maxFileSizeBytes?: number;
+
+    /**
+     * Android Keystore alias of the key that encrypts the recording at rest. The audio is encrypted in authenticated
+     * chunks while it is recorded, so no plaintext copy is written to disk. The key is created on first use.
+     *
+     * Encrypted recordings are decrypted by `stopRecording()` for `recordDataBase64` and by `getRecordingInfo()`.
+     * They cannot be combined with `trimSilence` or `segmentation.splitOutput`, and pre-roll audio is not prepended.
+     *
+     * Only supported on Android; other platforms ignore this option.
+     */
+    encryptionKeyAlias?: string;
+
+    /**
+     * Also encode a low-bitrate copy of the recording, for example for immediate upload, from the same microphone
+     * capture. The recording itself keeps its usual format, and the copy is returned as `proxy` in the result, by
+     * reference or inline like the recording. Missing profile fields default to 16 kHz Opus at 24 kbps.
+     *
+     * Cannot be combined with `encryptionKeyAlias`, `trimSilence` or `segmentation.splitOutput`, and pre-roll audio
+     * is not prepended. An Opus proxy requires Android 10.
+     *
+     * Only supported on Android; other platforms ignore this option.
+     */
+    proxy?: TranscodeProfile;
+
+    /**
+     * Computes a SHA-256 of the recording when it stops, returned as `sha256`. Encrypted recordings are hashed as
+     * their plaintext. Stopping rejects with `FAILED_TO_FETCH_RECORDING` when the recording cannot be read back.
+     *
+     * Only supported on Android; other platforms ignore this option.
+     */
+    digest?: boolean;
+
+    /**
+     * Computes this many peak levels of the recording when it stops, returned as `waveform`. Capped at `4096`.
+     *
+     * Only supported on Android; other platforms ignore this option.
+     */
+    waveformPoints?: number;
+
+    /**
+     * Forces the recording to storage while it runs, so a crash or power loss keeps what was recorded:
+     * `'periodic'` every `durabilityIntervalMs`, `'segment'` on every pause, interruption and limit, and `'none'`
+     * (the default) leaves it to the system. Interrupted recordings with a `directory` are recovered into the
+     * recording catalog on the next launch.
+     *
+     * Only supported on Android; other platforms ignore this option.
+     */
+    durability?: 'none' | 'periodic' | 'segment';
+
+    /**
+     * Interval between forces in `'periodic'` durability, in milliseconds. Defaults to `5000`, at least `250`.
+     *
+     * Only supported on Android; other platforms ignore this option.
+     */
+    durabilityIntervalMs?: number;
+}
+
+/**
+ * Options for grouping detected speech into utterances.
+ */
+export interface SegmentationOptions {
+    /**
+     * Minimum utterance length in milliseconds. Speech bursts are merged until this length is reached, and the
+     * utterance is closed at the next pause. Defaults to `10000`.
+     */
+    minUtteranceMs?: number;
+
+    /**
+     * Maximum utterance length in milliseconds. Continuous speech longer than this is split into equal parts.
+     * Defaults to `30000`.
+     */
+    maxUtteranceMs?: number;
+
+    /**
+     * Writes every utterance to its own file next to the recording and reports its `uri` in the region.
+     * Requires `directory`. Defaults to `false`.
+     */
+    splitOutput?: boolean;
+}
+
+/**
+ * A detected utterance within a recording.
+ */
+export interface SpeechRegion {
+    /**
+     * Start of the utterance in milliseconds from the beginning of the recording.
+     */
+    startMs: number;
+
+    /**
+     * End of the utterance in milliseconds from the beginning of the recording.
+     */
+    endMs: number;
+
+    /**
+     * Mean energy of the voiced windows in the utterance, as squared normalized amplitude (0 to 1).
+     */
+    meanEnergy: number;
+
+    /**
+     * URI of the utterance file, only present when `splitOutput` is enabled.
+     */
+    uri?: string;
+}
+
+/**
+ * Options for arming the recorder ahead of a recording.
+ */
+export interface ArmRecordingOptions {
+    /**
+     * How many milliseconds of audio before `startRecording()` are kept and prepended to the recording.
+     * Capped at `10000`.
+     */
+    preRollMs: number;
+}
+
+/**
+ * Target format for `transcodeRecording()`. The output is always mono.
+ */
+export interface TranscodeProfile {
+    /**
+     * Output codec: `opus` writes Opus in an OGG container (Android 10 and newer), `aac` writes AAC-LC as ADTS.
+     * Defaults to `opus`.
+     */
+    format?: 'opus' | 'aac';
+
+    /**
+     * Output sample rate in Hz. Opus supports 8000, 12000, 16000, 24000 and 48000. Defaults to `16000`.
+     */
+    sampleRate?: number;
+
+    /**
+     * Encoder bit rate in bits per second. Defaults to `24000` for Opus and `48000` for AAC.
+     */
+    bitRate?: number;
+}
+
+/**
+ * Options for transcoding an existing recording.
+ */
+export interface TranscodeRecordingOptions {
+    /**
+     * The `uri` of a recording returned by this plugin. The transcoded file is written next to it.
+     */
+    uri: string;
+
+    /**
+     * The target format. Defaults to 16 kHz mono Opus.
+     */
+    profile?: TranscodeProfile;
+}
+
+/**
+ * Event payload for transcodeProgress event.
+ */
+export interface TranscodeProgressEvent {
+    /**
+     * The `uri` passed to `transcodeRecording()`.
+     */
+    uri: string;
+    /**
+     * Progress between 0 and 1. Reported at most every 250 ms and once on completion.
+     */
+    progress: number;
+}
+
+/**
+ * Options for reading the properties of an existing recording.
+ */
+export interface RecordingInfoOptions {
+    /**
+     * The `uri` of a recording returned by this plugin.
+     */
+    uri: string;
+}
+
+/**
+ * Options for releasing a recording kept in the plugin-managed directory.
+ */
+export interface ReleaseRecordingOptions {
+    /**
+     * The `uri` returned by `stopRecording()`.
+     */
+    uri: string;
+}
+
+/**
+ * Options for pinning a catalogued recording.
+ */
+export interface PinRecordingOptions {
+    /**
+     * The `uri` returned by `stopRecording()`.
+     */
+    uri: string;
+    /**
+     * Whether the recording is kept when its directory is over budget. Defaults to `true`.
+     */
+    pinned?: boolean;
+}
+
+/**
+ * Space taken by the catalogued recordings of one directory.
+ */
+export interface DirectoryStorageUsage {
+    /** The `directory` option, `'MANAGED'` for the plugin-managed folder. */
+    directory: string;
+    /** Total size of the recordings in bytes. */
+    usedBytes: number;
+    /** Part of `usedBytes` taken by pinned recordings. */
+    pinnedBytes: number;
+    /** Number of recordings. */
+    recordings: number;
+    /** The budget from `storageBudgets`, only present when one is configured. */
+    budgetBytes?: number;
+}
+
+/**
+ * Interface representing the storage used by catalogued recordings.
+ */
+export interface StorageUsage {
+    value: {
+        /** Usage of every directory that has recordings or a budget, ordered by name. */
+        directories: DirectoryStorageUsage[];
+    };
+}
+
+/**
+ * Stream properties of a recording.
+ */
+export interface RecordingInfo {
+    /**
+     * The properties, read from the seek index without decoding.
+     */
+    value: {
+        /**
+         * Duration in milliseconds.
+         */
+        durationMs: number;
+        /**
+         * File size in bytes.
+         */
+        sizeBytes: number;
+        /**
+         * Sampling rate in Hz.
+         */
+        sampleRate: number;
+        /**
+         * Channel count.
+         */
+        channels: number;
+        /**
+         * Average bit rate in bits per second.
+         */
+        bitRate: number;
+    };
+}
+
+/**
+ * Options for listing catalogued recordings.
+ */
+export interface ListRecordingsOptions {
+    /**
+     * Number of recordings to skip, newest first. Defaults to `0`.
+     */
+    offset?: number;
+    /**
+     * Maximum number of recordings to return. Defaults to `50`, capped at `500`.
+     */
+    limit?: number;
+    /**
+     * Only list recordings made with this `directory` option, or `'MANAGED'` for the plugin-managed folder.
+     * Lists all recordings when omitted.
+     */
+    directory?: Directory | 'MANAGED';
+}
+
+/**
+ * A recording as stored in the catalog when it stopped.
+ */
+export interface CatalogedRecording {
+    /** The URI of the recording file. */
+    uri: string;
+    /** The `directory` option the recording was made with, `'MANAGED'` for the plugin-managed folder. */
+    directory: string;
+    /** File size in bytes when the recording stopped. */
+    sizeBytes: number;
+    /** Duration in milliseconds. */
+    durationMs: number;
+    /** The MIME type of the recording. */
+    mimeType: string;
+    /** The file extension without a leading dot. */
+    fileExtension: string;
+    /** When the recording stopped, in milliseconds since the epoch. */
+    createdAt: number;
+    /** Lowercase hex SHA-256, only present when the recording was made with `digest`. */
+    sha256?: string;
+    /**
+     * URI of a text file with the comma-separated peak levels, only present when the recording was made with
+     * `waveformPoints`.
+     */
+    waveformUri?: string;
+    /** Whether the recording is pinned and never evicted to keep its directory within budget. */
+    pinned: boolean;
+}
+
+/**
+ * Interface representing a page of catalogued recordings.
+ */
+export interface RecordingList {
+    value: {
+        /** The recordings of the page, newest first. */
+        recordings: CatalogedRecording[];
+        /** The number of catalogued recordings matching the `directory` filter. */
+        total: number;
+    };
+}
+
+/**
+ * Options for trimming an existing recording.
+ */
+export interface TrimRecordingOptions {
+    /**
+     * The `uri` of a recording returned by this plugin. The trimmed file is written next to it.
+     */
+    uri: string;
+
+    /**
+     * Start of the kept range in milliseconds. Defaults to `0`.
+     */
+    startMs?: number;
+
+    /**
+     * End of the kept range in milliseconds. Defaults to the end of the recording.
+     */
+    endMs?: number;
+}
+
+/**
+ * Options for joining recordings.
+ */
+export interface ConcatRecordingsOptions {
+    /**
+     * The `uri`s of recordings returned by this plugin, in playback order. The joined file is written next to the
+     * first one.
+     */
+    uris: string[];
+}
+
+/**
+ * Options for queueing batch transcodes.
+ */
+export interface QueueTranscodesOptions {
+    /**
+     * The `uri`s of recordings returned by this plugin. Each transcoded file is written next to its source.
+     */
+    uris: string[];
+
+    /**
+     * The target format for every recording in the batch. Defaults to 16 kHz mono Opus.
+     */
+    profile?: TranscodeProfile;
+}
+
+/**
+ * Job counts of the batch transcode queue.
+ */
+export interface TranscodeQueueStatus {
+    /**
+     * The counts. Finished counts cover the work since the queue was last cleared.
+     */
+    value: {
+        /**
+         * Jobs waiting or running.
+         */
+        pending: number;
+        /**
+         * Jobs that produced an output file.
+         */
+        completed: number;
+        /**
+         * Jobs that ended with an error.
+         */
+        failed: number;
+    };
+}
+
+/**
+ * Event payload for transcodeQueueProgress event, sent when a batch job finishes.
+ */
+export interface TranscodeQueueProgressEvent {
+    /**
+     * The source recording.
+     */
+    uri: string;
+    /**
+     * The transcoded file, if the job succeeded.
+     */
+    outputUri?: string;
+    /**
+     * The error code, if the job failed.
+     */
+    error?: string;
+    /**
+     * Jobs waiting or running.
+     */
+    pending: number;
+    /**
+     * Jobs that produced an output file.
+     */
+    completed: number;
+    /**
+     * Jobs that ended with an error.
+     */
+    failed: number;
+    /**
+     * Finished jobs per second since the queue became busy.
+     */
+    filesPerSecond: number;
+    /**
+     * Source megabytes read per second since the queue became busy.
+     */
+    megabytesPerSecond: number;
 }
 
 /**
@@ -65,6 +546,46 @@ export interface RecordingData {
          * The URI of the recording file.
          */
         uri?: string;
+
+        /**
+         * The speech regions detected during recording, only present when `segmentation` is set.
+         */
+        speechRegions?: SpeechRegion[];
+
+        /**
+         * The low-bitrate copy, only present when `proxy` is set and its encoder did not fail. Android only.
+         */
+        proxy?: {
+            recordDataBase64?: Base64String;
+            msDuration: number;
+            mimeType: string;
+            fileExtension: string;
+            uri?: string;
+        };
+
+        /**
+         * The encoder settings picked for the device state when the session started. Android only.
+         */
+        encoder?: {
+            /** Settings tier: `STANDARD`, `REDUCED` under battery saver or moderate heat, `MINIMAL` when severe. */
+            policy: 'STANDARD' | 'REDUCED' | 'MINIMAL';
+            sampleRate: number;
+            bitRate: number;
+            /** `PowerManager` thermal status at start, 0 when none or unavailable. */
+            thermalStatus: number;
+            powerSaveMode: boolean;
+        };
+
+        /**
+         * Lowercase hex SHA-256 of the recording, only present when `digest` is set. Android only.
+         */
+        sha256?: string;
+
+        /**
+         * Peak levels in [0, 1], one per point, only present when `waveformPoints` is set and decoding succeeded.
+         * Android only.
+         */
+        waveform?: number[];
     };
 }
 
@@ -108,6 +629,55 @@ export type VoiceRecordingInterruptedEvent = Record<string, never>;
  */
 export type VoiceRecordingInterruptionEndedEvent = Record<string, never>;
 
+/**
+ * Event payload for voiceActivityStart event (empty - no data).
+ */
+export type VoiceActivityStartEvent = Record<string, never>;
+
+/**
+ * Event payload for voiceActivityEnd event (empty - no data).
+ */
+export type VoiceActivityEndEvent = Record<string, never>;
+
+/**
+ * Reason why a recording session was stopped natively.
+ */
+export type AutoStopReason = 'TRAILING_SILENCE' | 'LEADING_SILENCE' | 'MAX_DURATION' | 'MAX_FILE_SIZE';
+
+/**
+ * Event payload for voiceRecordingLimitReached event, with `reason` set to `MAX_DURATION` or `MAX_FILE_SIZE`.
+ */
+export type VoiceRecordingLimitReachedEvent = VoiceRecordingAutoStoppedEvent;
+
+/**
+ * Event payload for voiceRecordingAutoStopped event.
+ */
+export interface VoiceRecordingAutoStoppedEvent {
+    /**
+     * Why the session was stopped.
+     */
+    reason: AutoStopReason;
+    /**
+     * The finalized recording, in the same shape as the `stopRecording()` result.
+     * Missing when finalizing the recording failed.
+     */
+    value?: RecordingData['value'];
+    /**
+     * The error code when the recording could not be finalized.
+     */
+    error?: string;
+}
+
+/**
+ * Event payload for microphoneAvailabilityChanged event.
+ */
+export interface MicrophoneAvailabilityChangedEvent {
+    /**
+     * Whether the microphone is free. `false` while any client is recording, including this plugin's own session.
+     */
+    available: boolean;
+}
+
 /**
  * Interface for the VoiceRecorderPlugin which provides methods to record audio.
  */
@@ -213,6 +783,145 @@ export interface VoiceRecorderPlugin {
      */
     getCurrentAmplitude(): Promise<CurrentAmplitude>;
 
+    /**
+     * Opens the microphone ahead of time and keeps the most recent `preRollMs` of audio in a fixed-size buffer.
+     * The buffered audio is prepended to the next recording, so speech that starts slightly before
+     * `startRecording()` is not lost. The recorder stays armed across recordings until `disarmRecording()` is called.
+     *
+     * The microphone stays in use while armed, so the system recording indicator remains visible.
+     * Available on Android only.
+     *
+     * @param options The pre-roll options.
+     * @returns A promise that resolves to a GenericResponse.
+     * @throws {Error} If the app lacks microphone permission or a recording is in progress.
+     */
+    armRecording(options: ArmRecordingOptions): Promise<GenericResponse>;
+
+    /**
+     * Releases the microphone held by `armRecording()` and discards the buffered audio.
+     * Available on Android only.
+     *
+     * @returns A promise that resolves to a GenericResponse.
+     */
+    disarmRecording(): Promise<GenericResponse>;
+
+    /**
+     * Re-encodes a recording returned by reference, for example to 16 kHz mono Opus before uploading it to a speech
+     * backend. Decoding, resampling and encoding stream on a background thread in constant memory, and progress is
+     * reported through the `transcodeProgress` event. The result carries the `uri` of the new file.
+     * Available on Android only.
+     *
+     * @param options The recording and target profile.
+     * @returns A promise that resolves to RecordingData for the transcoded file.
+     * @throws {Error} With code `RECORDING_NOT_FOUND`, `INVALID_TRANSCODE_PROFILE`, `NOT_SUPPORTED_OS_VERSION` or
+     * `FAILED_TO_TRANSCODE`.
+     */
+    transcodeRecording(options: TranscodeRecordingOptions): Promise<RecordingData>;
+
+    /**
+     * Returns duration, size and format of an AAC recording returned by reference. The values come from a small
+     * seek index stored next to the recording, so the call never reads the whole file.
+     * Available on Android only.
+     *
+     * @param options The recording.
+     * @returns A promise that resolves to the recording properties.
+     * @throws {Error} With code `RECORDING_NOT_FOUND`, or `FAILED_TO_FETCH_RECORDING` for files that are not AAC ADTS.
+     */
+    getRecordingInfo(options: RecordingInfoOptions): Promise<RecordingInfo>;
+
+    /**
+     * Deletes a recording that was returned by reference because the plugin is configured with
+     * `recordingPayload: 'reference'`. Recordings outside the plugin-managed directory are left untouched.
+     * Available on Android only.
+     *
+     * @param options The recording.
+     * @returns A promise that resolves to a GenericResponse, `false` when nothing was deleted.
+     */
+    releaseRecording(options: ReleaseRecordingOptions): Promise<GenericResponse>;
+
+    /**
+     * Lists recordings returned by reference, newest first, from a catalog written as each recording stops, so the
+     * call never scans directories or probes files. Recordings whose file has been deleted are left out. Recordings
+     * returned as base64 and edited or transcoded copies are not catalogued.
+     * Available on Android only.
+     *
+     * @param options Paging and directory filter.
+     * @returns A promise that resolves to the page and the total count.
+     */
+    listRecordings(options?: ListRecordingsOptions): Promise<RecordingList>;
+
+    /**
+     * Pins or unpins a catalogued recording. When a recording takes its directory over the budget set in
+     * `storageBudgets`, the least recently used unpinned recordings of that directory are deleted; pinned ones are
+     * always kept. Rejects with `RECORDING_NOT_FOUND` when the recording is not catalogued.
+     * Available on Android only.
+     *
+     * @param options The recording and its pin state.
+     * @returns A promise that resolves to a GenericResponse.
+     */
+    pinRecording(options: PinRecordingOptions): Promise<GenericResponse>;
+
+    /**
+     * Returns the space taken by catalogued recordings per directory, tracked as recordings are added and removed
+     * rather than measured on disk.
+     * Available on Android only.
+     *
+     * @returns A promise that resolves to the usage of each directory.
+     */
+    getStorageUsage(): Promise<StorageUsage>;
+
+    /**
+     * Cuts a recording returned by reference to a range without decoding it. Whole AAC frames are copied, so the cut
+     * snaps outwards to the nearest frame boundary (about 23 ms) and keeps the original quality.
+     * Available on Android only.
+     *
+     * @param options The recording and range to keep.
+     * @returns A promise that resolves to RecordingData for the trimmed file.
+     * @throws {Error} With code `RECORDING_NOT_FOUND`, `INVALID_RANGE` or `FAILED_TO_EDIT_RECORDING`.
+     */
+    trimRecording(options: TrimRecordingOptions): Promise<RecordingData>;
+
+    /**
+     * Joins recordings returned by reference into one file without decoding them. All recordings must share sample
+     * rate and channel layout, which is the case for recordings made by this plugin.
+     * Available on Android only.
+     *
+     * @param options The recordings in playback order.
+     * @returns A promise that resolves to RecordingData for the joined file.
+     * @throws {Error} With code `RECORDING_NOT_FOUND`, `INCOMPATIBLE_RECORDINGS` or `FAILED_TO_EDIT_RECORDING`.
+     */
+    concatRecordings(options: ConcatRecordingsOptions): Promise<RecordingData>;
+
+    /**
+     * Queues recordings for transcoding in the background, for example to migrate a library to a new format. Jobs
+     * run on a worker pool sized to the codec instances and CPU cores of the device and are checkpointed to disk, so
+     * the queue continues where it left off when the app is restarted. Each finished job is reported through the
+     * `transcodeQueueProgress` event. The batch is rejected as a whole if a recording cannot be found.
+     * Available on Android only.
+     *
+     * @param options The recordings and target profile.
+     * @returns A promise that resolves to the queue counts including the new jobs.
+     * @throws {Error} With code `RECORDING_NOT_FOUND`, `INVALID_TRANSCODE_PROFILE` or `FAILED_TO_QUEUE_TRANSCODE`.
+     */
+    queueTranscodes(options: QueueTranscodesOptions): Promise<TranscodeQueueStatus>;
+
+    /**
+     * Returns the job counts of the batch transcode queue.
+     * Available on Android only.
+     *
+     * @returns A promise that resolves to the queue counts.
+     */
+    getTranscodeQueueStatus(): Promise<TranscodeQueueStatus>;
+
+    /**
+     * Drops all queued batch transcode jobs and resets the counts. Jobs already running finish without being
+     * reported.
+     * Available on Android only.
+     *
+     * @returns A promise that resolves to a GenericResponse.
+     */
+    clearTranscodeQueue(): Promise<GenericResponse>;
+
     /**
      * Listen for audio recording interruptions (e.g., phone calls, other apps using microphone).
      * Available on iOS and Android only.
@@ -239,6 +948,100 @@ export interface VoiceRecorderPlugin {
         listenerFunc: (event: VoiceRecordingInterruptionEndedEvent) => void,
     ): Promise<PluginListenerHandle>;
 
+    /**
+     * Listen for the start of speech detected by native voice activity detection.
+     * Only emitted when `autoStopAfterSilenceMs` or `maxLeadingSilenceMs` is set. Available on Android only.
+     *
+     * @param eventName The name of the event to listen for.
+     * @param listenerFunc The callback function to invoke when the event occurs.
+     * @returns A promise that resolves to a PluginListenerHandle.
+     */
+    addListener(
+        eventName: 'voiceActivityStart',
+        listenerFunc: (event: VoiceActivityStartEvent) => void,
+    ): Promise<PluginListenerHandle>;
+
+    /**
+     * Listen for the end of speech detected by native voice activity detection.
+     * Only emitted when `autoStopAfterSilenceMs` or `maxLeadingSilenceMs` is set. Available on Android only.
+     *
+     * @param eventName The name of the event to listen for.
+     * @param listenerFunc The callback function to invoke when the event occurs.
+     * @returns A promise that resolves to a PluginListenerHandle.
+     */
+    addListener(
+        eventName: 'voiceActivityEnd',
+        listenerFunc: (event: VoiceActivityEndEvent) => void,
+    ): Promise<PluginListenerHandle>;
+
+    /**
+     * Listen for recordings that were stopped natively, for example after trailing silence.
+     * The event carries the finalized recording, so `stopRecording()` must not be called afterwards.
+     * Available on Android only.
+     *
+     * @param eventName The name of the event to listen for.
+     * @param listenerFunc The callback function to invoke when the event occurs.
+     * @returns A promise that resolves to a PluginListenerHandle.
+     */
+    addListener(
+        eventName: 'voiceRecordingAutoStopped',
+        listenerFunc: (event: VoiceRecordingAutoStoppedEvent) => void,
+    ): Promise<PluginListenerHandle>;
+
+    /**
+     * Listen for recordings that were finalized natively because `maxDurationMs` or `maxFileSizeBytes` was reached.
+     * The event carries the finalized recording, so `stopRecording()` must not be called afterwards.
+     * Available on Android only.
+     *
+     * @param eventName The name of the event to listen for.
+     * @param listenerFunc The callback function to invoke when the event occurs.
+     * @returns A promise that resolves to a PluginListenerHandle.
+     */
+    addListener(
+        eventName: 'voiceRecordingLimitReached',
+        listenerFunc: (event: VoiceRecordingLimitReachedEvent) => void,
+    ): Promise<PluginListenerHandle>;
+
+    /**
+     * Listen for the microphone becoming free or being taken by another app, so a `startRecording()` that failed
+     * with `MICROPHONE_BEING_USED` can be retried as soon as it would succeed.
+     * Available on Android only.
+     *
+     * @param eventName The name of the event to listen for.
+     * @param listenerFunc The callback function to invoke when the event occurs.
+     * @returns A promise that resolves to a PluginListenerHandle.
+     */
+    addListener(
+        eventName: 'microphoneAvailabilityChanged',
+        listenerFunc: (event: MicrophoneAvailabilityChangedEvent) => void,
+    ): Promise<PluginListenerHandle>;
+
+    /**
+     * Listen for progress of `transcodeRecording()` calls.
+     * Available on Android only.
+     *
+     * @param eventName The name of the event to listen for.
+     * @param listenerFunc The callback function to invoke when the event occurs.
+     * @returns A promise that resolves to a PluginListenerHandle.
+     */
+    addListener(
+        eventName: 'transcodeProgress',
+        listenerFunc: (event: TranscodeProgressEvent) => void,
+    ): Promise<PluginListenerHandle>;
+
+    /**
+     * Listen for finished jobs of the batch transcode queue.
+     * Available on Android only.
+     *
+     * @param eventName The name of the event to listen for.
+     * @param listenerFunc The callback function to invoke when the event occurs.
+     * @returns A promise that resolves to a PluginListenerHandle.
+     */
+    addListener(
+        eventName: 'transcodeQueueProgress',
+        listenerFunc: (event: TranscodeQueueProgressEvent) => void,
+    ): Promise<PluginListenerHandle>;
+
     /**
      * Remove all listeners for this plugin.
      */
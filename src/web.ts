@@ -7,7 +7,11 @@ import type {
   CurrentRecordingStatus,
   GenericResponse,
   RecordingData,
+  RecordingInfo,
+  RecordingList,
   RecordingOptions,
+  StorageUsage,
+  TranscodeQueueStatus,
   VoiceRecorderPlugin,
 } from './definitions';
 import { VoiceRecorderService } from './service/VoiceRecorderService';
@@ -68,4 +72,69 @@ export class VoiceRecorderWeb extends WebPlugin implements VoiceRecorderPlugin {
   public getCurrentAmplitude(): Promise<CurrentAmplitude> {
     return this.service.getCurrentAmplitude();
   }
+
+  /** Pre-roll capture is only available on Android. */
+  public armRecording(): Promise<GenericResponse> {
+    throw this.unimplemented('armRecording is only available on Android.');
+  }
+
+  /** Pre-roll capture is only available on Android. */
+  public disarmRecording(): Promise<GenericResponse> {
+    throw this.unimplemented('disarmRecording is only available on Android.');
+  }
+
+  /** Transcoding is only available on Android. */
+  public transcodeRecording(): Promise<RecordingData> {
+    throw this.unimplemented('transcodeRecording is only available on Android.');
+  }
+
+  /** Seek indexes are only written on Android. */
+  public getRecordingInfo(): Promise<RecordingInfo> {
+    throw this.unimplemented('getRecordingInfo is only available on Android.');
+  }
+
+  /** Managed recordings are only available on Android. */
+  public releaseRecording(): Promise<GenericResponse> {
+    throw this.unimplemented('releaseRecording is only available on Android.');
+  }
+
+  /** The recording catalog is only kept on Android. */
+  public listRecordings(): Promise<RecordingList> {
+    throw this.unimplemented('listRecordings is only available on Android.');
+  }
+
+  /** Storage budgets are only enforced on Android. */
+  public pinRecording(): Promise<GenericResponse> {
+    throw this.unimplemented('pinRecording is only available on Android.');
+  }
+
+  /** Storage budgets are only enforced on Android. */
+  public getStorageUsage(): Promise<StorageUsage> {
+    throw this.unimplemented('getStorageUsage is only available on Android.');
+  }
+
+  /** Lossless editing is only available on Android. */
+  public trimRecording(): Promise<RecordingData> {
+    throw this.unimplemented('trimRecording is only available on Android.');
+  }
+
+  /** Lossless editing is only available on Android. */
+  public concatRecordings(): Promise<RecordingData> {
+    throw this.unimplemented('concatRecordings is only available on Android.');
+  }
+
+  /** Batch transcoding is only available on Android. */
+  public queueTranscodes(): Promise<TranscodeQueueStatus> {
+    throw this.unimplemented('queueTranscodes is only available on Android.');
+  }
+
+  /** Batch transcoding is only available on Android. */
+  public getTranscodeQueueStatus(): Promise<TranscodeQueueStatus> {
+    throw this.unimplemented('getTranscodeQueueStatus is only available on Android.');
+  }
+
+  /** Batch transcoding is only available on Android. */
+  public clearTranscodeQueue(): Promise<GenericResponse> {
+    throw this.unimplemented('clearTranscodeQueue is only available on Android.');
+  }
 }